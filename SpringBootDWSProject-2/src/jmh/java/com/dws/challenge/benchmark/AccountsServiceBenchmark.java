@@ -0,0 +1,130 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.EmailNotificationService;
+
+/**
+ * Throughput of every account operation of the service, over account populations of
+ * different sizes and with the accounts picked uniformly or from a Zipfian distribution
+ * that concentrates the load on a few hot accounts. Run with ./gradlew jmh; the thread count
+ * is set with -PjmhThreads=N and the gc profiler results are written to
+ * build/results/jmh/threads-N.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountsServiceBenchmark {
+
+	private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000000");
+
+	@Param({ "1000", "1000000" })
+	public int accounts;
+
+	@Param({ "uniform", "zipfian" })
+	public String distribution;
+
+	private AccountsService accountsService;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator zipfian;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		accountsService = newService();
+		accountIds = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountIds[i] = Integer.toString(i);
+			accountsService.createAccount(new Account(accountIds[i], INITIAL_BALANCE));
+		}
+		zipfian = "zipfian".equals(distribution) ? new ZipfianGenerator(accounts) : null;
+	}
+
+	@Benchmark
+	public Account getAccount() {
+		return accountsService.getAccount(accountIds[pick()]);
+	}
+
+	@Benchmark
+	public void deposit() {
+		accountsService.deposit(accountIds[pick()], AMOUNT);
+	}
+
+	@Benchmark
+	public void withdraw() {
+		accountsService.withdraw(accountIds[pick()], AMOUNT);
+	}
+
+	@Benchmark
+	public void transferMoney() throws Exception {
+		int from = pick();
+		int to = pick();
+		if (from == to) {
+			to = (to + 1) % accounts;
+		}
+		accountsService.transferMoney(accountIds[from], accountIds[to], AMOUNT);
+	}
+
+	@Benchmark
+	public void createAccount(CreateState state) throws Exception {
+		state.accountsService.createAccount(new Account(Long.toString(state.nextId.getAndIncrement()), INITIAL_BALANCE));
+	}
+
+	private int pick() {
+		return zipfian == null ? ThreadLocalRandom.current().nextInt(accounts) : zipfian.nextInt();
+	}
+
+	static AccountsService newService() {
+		return new AccountsService(new AccountsRepositoryInMemory(), new SilentNotificationService());
+	}
+
+	/**
+	 * CreateState starts every iteration with an empty store, so createAccount measures
+	 * inserts into a store of a bounded size instead of one that grows for the whole run.
+	 */
+	@State(Scope.Benchmark)
+	public static class CreateState {
+
+		private AccountsService accountsService;
+
+		private final AtomicLong nextId = new AtomicLong();
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			accountsService = newService();
+			nextId.set(0);
+		}
+	}
+
+	static class SilentNotificationService extends EmailNotificationService {
+
+		@Override
+		public void notifyAboutTransfer(Account account, String transferDescription) {
+		}
+	}
+}
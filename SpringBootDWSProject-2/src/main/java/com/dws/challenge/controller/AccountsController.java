@@ -3,8 +3,14 @@ package com.dws.challenge.controller;
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.exception.AccountRelatedException;
 import com.dws.challenge.service.AccountsService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,7 +20,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -26,11 +34,31 @@ import javax.validation.Valid;
 @Slf4j
 public class AccountsController {
 
+  /**
+   * Number of accounts read from the store per page while streaming NDJSON.
+   */
+  private static final int STREAM_PAGE_SIZE = 1024;
+
+  static final String NDJSON_VALUE = "application/x-ndjson";
+
+  static final String NEXT_AFTER_HEADER = "X-Next-After";
+
   private final AccountsService accountsService;
 
+  private final ObjectMapper objectMapper;
+
+  private final int defaultPageLimit;
+
+  private final int maxPageLimit;
+
   @Autowired
-  public AccountsController(AccountsService accountsService) {
+  public AccountsController(AccountsService accountsService, ObjectMapper objectMapper,
+      @Value("${accounts.list.default-limit:1000}") int defaultPageLimit,
+      @Value("${accounts.list.max-limit:10000}") int maxPageLimit) {
     this.accountsService = accountsService;
+    this.objectMapper = objectMapper;
+    this.defaultPageLimit = defaultPageLimit;
+    this.maxPageLimit = maxPageLimit;
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -52,9 +80,52 @@ public class AccountsController {
     return this.accountsService.getAccount(accountId);
   }
   
-  @GetMapping
-  public List<Account> listAllAccounts(){
-	  return this.accountsService.listAllAccounts();
+  /**
+   * Lists one page of accounts in account id order. The next page starts after the id sent
+   * back in the X-Next-After header, which is only set when the page is full.
+   */
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> listAllAccounts(@RequestParam(required = false) String after,
+		  @RequestParam(required = false) Integer limit){
+	  if (limit != null && limit < 1) {
+		  return new ResponseEntity<>("Limit should be at least 1...!!!", HttpStatus.BAD_REQUEST);
+	  }
+	  int pageLimit = limit == null ? this.defaultPageLimit : Math.min(limit, this.maxPageLimit);
+	  List<Account> page = this.accountsService.listAccounts(after, pageLimit);
+	  HttpHeaders headers = new HttpHeaders();
+	  if (page.size() == pageLimit) {
+		  headers.set(NEXT_AFTER_HEADER, page.get(page.size() - 1).getAccountId());
+	  }
+	  return new ResponseEntity<>(page, headers, HttpStatus.OK);
+  }
+
+  /**
+   * Streams every account after the optional cursor as one JSON object per line. Accounts are
+   * read from the store a page at a time and written straight to the response, so memory use
+   * does not grow with the number of accounts.
+   */
+  @GetMapping(produces = NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAllAccounts(@RequestParam(required = false) String after){
+	  ObjectWriter writer = this.objectMapper.writerFor(Account.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+		  .withRootValueSeparator("");
+	  StreamingResponseBody body = outputStream -> {
+		  try (JsonGenerator generator = writer.createGenerator(outputStream)) {
+			  String cursor = after;
+			  List<Account> page;
+			  do {
+				  page = this.accountsService.listAccounts(cursor, STREAM_PAGE_SIZE);
+				  for (Account account : page) {
+					  writer.writeValue(generator, account);
+					  generator.writeRaw('\n');
+				  }
+				  generator.flush();
+				  if (!page.isEmpty()) {
+					  cursor = page.get(page.size() - 1).getAccountId();
+				  }
+			  } while (page.size() == STREAM_PAGE_SIZE);
+		  }
+	  };
+	  return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
   }
   
   @GetMapping("/deposit/{accountId}/{amount}")
@@ -1,5 +1,6 @@
 package com.dws.challenge.repository;
 
+import java.util.List;
 import java.util.Map;
 
 import com.dws.challenge.domain.Account;
@@ -15,4 +16,10 @@ public interface AccountsRepository {
   
   Map<String, Account> getAccounts();
   
+  /**
+   * listAccounts(..) returns a page of at most limit accounts in account id order, starting
+   * after the given id, or at the first account when it is null.
+   */
+  List<Account> listAccounts(String after, int limit);
+  
 }
@@ -1,7 +1,10 @@
 package com.dws.challenge.repository;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Repository;
@@ -12,7 +15,10 @@ import com.dws.challenge.exception.AccountRelatedException;
 @Repository
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    /**
+     * Kept sorted by account id so accounts can be listed page by page from a cursor.
+     */
+    private final ConcurrentNavigableMap<String, Account> accounts = new ConcurrentSkipListMap<>();
 
     @Override
     public void createAccount(Account account) throws AccountRelatedException {
@@ -48,4 +54,17 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
 	public Map<String, Account> getAccounts() {
 		return accounts;
 	}
+
+	@Override
+	public List<Account> listAccounts(String after, int limit) {
+		Map<String, Account> tail = after == null ? accounts : accounts.tailMap(after, false);
+		List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+		for (Account account : tail.values()) {
+			if (page.size() == limit) {
+				break;
+			}
+			page.add(account);
+		}
+		return page;
+	}
 }
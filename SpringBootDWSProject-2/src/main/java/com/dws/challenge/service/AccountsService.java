@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -16,6 +17,8 @@ import lombok.Getter;
 @Service
 public class AccountsService {
 
+	private static final int SPINS_BEFORE_ABORT = 1 << 10;
+
 	@Getter
 	private final AccountsRepository accountsRepository;
 	
@@ -36,32 +39,38 @@ public class AccountsService {
 	}
 
 	/**
+	 * Moves the money with one decision for both legs. Both accounts are swapped for a
+	 * PendingAccount of the same PendingTransfer with a compare-and-replace on the Account
+	 * that was read, then a single CAS of the transfer's status commits them together. A
+	 * PendingAccount reports the old balance before that CAS and the new one after it, so a
+	 * reader never sees the money in flight, and the settled snapshots replace them right after.
+	 * No Account monitor is held; a transfer that stalls before its decision is aborted by the
+	 * next writer of either account and retried.
+	 *
 	 * @param fromAccId
 	 * @param toAccId
 	 * @param amount
 	 */
 	public void transferMoney(String fromAccId, String toAccId, BigDecimal amount) throws Exception {
 		
-		Account accountFrom = getAccount(fromAccId);
-		Account accountTo = getAccount(toAccId);
-		
-		if(fromAccId.compareTo(toAccId) !=0 ) {
-			
-		Object lock1 = fromAccId.compareTo(toAccId) < 0  ? accountFrom : accountTo;
-		Object lock2 = fromAccId.compareTo(toAccId) > 0  ? accountFrom : accountTo;
-
-		//To prevent a deadlock, always have to lock the Objects in the following order
-		synchronized (lock1) {
-			synchronized (lock2) {
-				deposit(toAccId, amount);
-				withdraw(fromAccId, amount);
-			}
-		}
-		
-		}else {
+		if(fromAccId.equals(toAccId)) {
 			throw new MoneyRelatedException("Both Account Should not be same...!!!");
 		}
 		
+		PendingTransfer transfer;
+		do {
+			Account actualFrom = settled(fromAccId);
+			Account actualTo = settled(toAccId);
+			checkValidations(actualFrom, amount, "Acc Balance or Money value should not be negative...!!!");
+			withdrawValidations(actualFrom, amount);
+			transfer = new PendingTransfer(actualFrom, actualFrom.getBalance().subtract(amount), actualTo,
+					actualTo.getBalance().add(amount));
+		} while (!transfer.commit(accountsRepository.getAccounts()));
+		Account accountFrom = transfer.from.settled();
+		Account accountTo = transfer.to.settled();
+		
+		emailNotificationService.notifyAboutTransfer(accountTo, " " + amount + " transfer to " + toAccId);
+		emailNotificationService.notifyAboutTransfer(accountFrom, " " + amount + " transfer from " + fromAccId);
 	}
 
 	/**
@@ -70,12 +79,7 @@ public class AccountsService {
 	 */
 	public void withdraw(String accountId, BigDecimal amount) {
 		
-		Account actualAccount = accountsRepository.getAccounts().get(accountId);
-		String message = "Acc Balance or Money value should not be negative...!!!";
-		checkValidations(actualAccount,amount,message);
-		withdrawValidations(actualAccount,amount);
-		actualAccount.setBalance(actualAccount.getBalance().subtract(amount));
-		accountsRepository.getAccounts().putIfAbsent(actualAccount.getAccountId(), actualAccount);
+		Account actualAccount = debit(accountId, amount);
 		emailNotificationService.notifyAboutTransfer(actualAccount, " " + amount + " transfer from " + accountId);
 	}
 	
@@ -84,14 +88,70 @@ public class AccountsService {
 	 * @param amount
 	 */
 	public void deposit(String accountId, BigDecimal amount) {
-		Account actualAccount = accountsRepository.getAccounts().get(accountId);
-		String message = "Deposit or Money value should not be negative...!!!";
-		checkValidations(actualAccount,amount,message);
-		actualAccount.setBalance(actualAccount.getBalance().add(amount));
-		accountsRepository.getAccounts().putIfAbsent(actualAccount.getAccountId(), actualAccount);
+		Account actualAccount = credit(accountId, amount);
 		emailNotificationService.notifyAboutTransfer(actualAccount, " " + amount + " transfer to " + accountId);
 	}
 	
+	private Account debit(String accountId, BigDecimal amount) {
+		String message = "Acc Balance or Money value should not be negative...!!!";
+		for (;;) {
+			Account actualAccount = settled(accountId);
+			checkValidations(actualAccount,amount,message);
+			withdrawValidations(actualAccount,amount);
+			Account updated = new Account(accountId, actualAccount.getBalance().subtract(amount));
+			if (accountsRepository.getAccounts().replace(accountId, actualAccount, updated)) {
+				return updated;
+			}
+			Thread.onSpinWait();
+		}
+	}
+	
+	private Account credit(String accountId, BigDecimal amount) {
+		String message = "Deposit or Money value should not be negative...!!!";
+		for (;;) {
+			Account actualAccount = settled(accountId);
+			checkValidations(actualAccount,amount,message);
+			Account updated = new Account(accountId, actualAccount.getBalance().add(amount));
+			if (accountsRepository.getAccounts().replace(accountId, actualAccount, updated)) {
+				return updated;
+			}
+			Thread.onSpinWait();
+		}
+	}
+	
+	private Account requireAccount(String accountId) {
+		Account actualAccount = accountsRepository.getAccounts().get(accountId);
+		if (actualAccount == null) {
+			throw new AccountRelatedException("Account id " + accountId + " does not exist!");
+		}
+		return actualAccount;
+	}
+	
+	/**
+	 * Returns the account once no transfer holds it, settling decided transfers and aborting
+	 * one that stays undecided for SPINS_BEFORE_ABORT spins.
+	 */
+	private Account settled(String accountId) {
+		for (int spins = 0;; spins++) {
+			Account actualAccount = requireAccount(accountId);
+			if (!(actualAccount instanceof PendingAccount)) {
+				return actualAccount;
+			}
+			PendingAccount pending = (PendingAccount) actualAccount;
+			if (pending.transfer.status.get() == PendingTransfer.UNDECIDED && spins >= SPINS_BEFORE_ABORT) {
+				pending.transfer.status.compareAndSet(PendingTransfer.UNDECIDED, PendingTransfer.FAILED);
+			} else if (pending.transfer.status.get() != PendingTransfer.UNDECIDED) {
+				pending.transfer.release(accountsRepository.getAccounts());
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+	
+	public List<Account> listAccounts(String after, int limit) {
+		return accountsRepository.listAccounts(after, limit);
+	}
+	
 	public List<Account> listAllAccounts() {
 
 		List<Account> listAccounts = new ArrayList<Account>();
@@ -114,4 +174,101 @@ public class AccountsService {
 			throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
 		}
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * A transfer whose PendingAccounts are, or are about to be, in the accounts map.
+	 */
+	private static final class PendingTransfer {
+		
+		static final int UNDECIDED = 0;
+		
+		static final int SUCCEEDED = 1;
+		
+		static final int FAILED = 2;
+		
+		private final AtomicInteger status = new AtomicInteger(UNDECIDED);
+		
+		private final PendingAccount from;
+		
+		private final PendingAccount to;
+		
+		PendingTransfer(Account fromOld, BigDecimal fromBalance, Account toOld, BigDecimal toBalance) {
+			this.from = new PendingAccount(this, fromOld, new Account(fromOld.getAccountId(), fromBalance));
+			this.to = new PendingAccount(this, toOld, new Account(toOld.getAccountId(), toBalance));
+		}
+		
+		/**
+		 * Returns false when either account changed since it was read or the transfer was aborted.
+		 */
+		boolean commit(Map<String, Account> accounts) {
+			if (!accounts.replace(from.getAccountId(), from.old, from)) {
+				return false;
+			}
+			if (!accounts.replace(to.getAccountId(), to.old, to)) {
+				status.compareAndSet(UNDECIDED, FAILED);
+				release(accounts);
+				return false;
+			}
+			boolean committed = status.compareAndSet(UNDECIDED, SUCCEEDED);
+			release(accounts);
+			return committed;
+		}
+		
+		/**
+		 * Swaps the settled snapshots of a decided transfer back in; any thread may do it.
+		 */
+		void release(Map<String, Account> accounts) {
+			accounts.replace(from.getAccountId(), from, from.settled());
+			accounts.replace(to.getAccountId(), to, to.settled());
+		}
+	}
+	
+	/**
+	 * Stands in for an account while a transfer holds it. It equals nothing but itself, so
+	 * the compare-and-replace of another writer never matches it.
+	 */
+	private static final class PendingAccount extends Account {
+		
+		private final PendingTransfer transfer;
+		
+		private final Account old;
+		
+		private final Account updated;
+		
+		PendingAccount(PendingTransfer transfer, Account old, Account updated) {
+			super(old.getAccountId(), old.getBalance());
+			this.transfer = transfer;
+			this.old = old;
+			this.updated = updated;
+		}
+		
+		Account settled() {
+			return transfer.status.get() == PendingTransfer.SUCCEEDED ? updated : old;
+		}
+		
+		@Override
+		public BigDecimal getBalance() {
+			return settled().getBalance();
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			return this == o;
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this);
+		}
+		
+		@Override
+		protected boolean canEqual(Object other) {
+			return false;
+		}
+		
+		@Override
+		public String toString() {
+			return settled().toString();
+		}
+	}
+}
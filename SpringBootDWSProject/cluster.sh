@@ -0,0 +1,56 @@
+#!/bin/sh
+# Runs a cluster of the application on this machine, one JVM per node on consecutive ports.
+#
+#   ./cluster.sh start [nodes, default 3] [first port, default 18081] [extra application arguments...]
+#   ./cluster.sh stop
+#
+# Every node gets the same accounts.cluster.nodes list and its own accounts.cluster.self, and logs to
+# target/cluster/node-<port>.log. Any node accepts every request, e.g.
+#   curl -H 'Content-Type: application/json' -d '{"accountId":"1","balance":100}' localhost:18081/v1/accounts
+#   curl localhost:18083/v1/accounts/transfer/1/2/10
+set -e
+cd "$(dirname "$0")"
+RUN_DIR=target/cluster
+
+start() {
+	NODES=${1:-3}
+	FIRST_PORT=${2:-18081}
+	[ $# -gt 0 ] && shift
+	[ $# -gt 0 ] && shift
+	JAR=$(ls target/*.jar 2>/dev/null | grep -v original | head -n 1)
+	if [ -z "$JAR" ]; then
+		./mvnw -q -B -DskipTests package
+		JAR=$(ls target/*.jar | grep -v original | head -n 1)
+	fi
+	mkdir -p "$RUN_DIR"
+	MEMBERS=""
+	i=0
+	while [ $i -lt "$NODES" ]; do
+		MEMBERS="$MEMBERS${MEMBERS:+,}http://localhost:$((FIRST_PORT + i))"
+		i=$((i + 1))
+	done
+	i=0
+	while [ $i -lt "$NODES" ]; do
+		PORT=$((FIRST_PORT + i))
+		java -jar "$JAR" --server.port=$PORT --accounts.cluster.nodes=$MEMBERS \
+			--accounts.cluster.self=http://localhost:$PORT --accounts.journal.dir=$RUN_DIR/journal-$PORT "$@" \
+			> "$RUN_DIR/node-$PORT.log" 2>&1 &
+		echo $! > "$RUN_DIR/node-$PORT.pid"
+		echo "Started node http://localhost:$PORT (pid $!)"
+		i=$((i + 1))
+	done
+}
+
+stop() {
+	for PID_FILE in "$RUN_DIR"/node-*.pid; do
+		[ -f "$PID_FILE" ] || continue
+		kill "$(cat "$PID_FILE")" 2>/dev/null || true
+		rm -f "$PID_FILE"
+	done
+}
+
+case "$1" in
+	start) shift; start "$@" ;;
+	stop) stop ;;
+	*) echo "Usage: $0 start [nodes] [first port] [application arguments...] | stop" >&2; exit 1 ;;
+esac
@@ -0,0 +1,57 @@
+#!/bin/sh
+# Runs a replication primary and its followers on this machine, one JVM each.
+#
+#   ./replication.sh start [followers, default 1] [first http port, default 18081] [extra application arguments...]
+#   ./replication.sh stop
+#
+# The primary serves http on the first port and replication on port 19081; follower n serves http on the
+# first port + n. Logs go to target/replication/<role>-<port>.log. Writes go to the primary, the followers
+# answer reads and publish their lag on /actuator/prometheus, e.g.
+#   curl -H 'Content-Type: application/json' -d '{"accountId":"1","balance":100}' localhost:18081/v1/accounts
+#   curl localhost:18082/v1/accounts/1
+#   curl -s localhost:18082/actuator/prometheus | grep accounts_replication_lag
+set -e
+cd "$(dirname "$0")"
+RUN_DIR=target/replication
+REPLICATION_PORT=19081
+
+start() {
+	FOLLOWERS=${1:-1}
+	FIRST_PORT=${2:-18081}
+	[ $# -gt 0 ] && shift
+	[ $# -gt 0 ] && shift
+	JAR=$(ls target/*.jar 2>/dev/null | grep -v original | head -n 1)
+	if [ -z "$JAR" ]; then
+		./mvnw -q -B -DskipTests package
+		JAR=$(ls target/*.jar | grep -v original | head -n 1)
+	fi
+	mkdir -p "$RUN_DIR"
+	java -jar "$JAR" --server.port=$FIRST_PORT --accounts.replication.port=$REPLICATION_PORT "$@" \
+		> "$RUN_DIR/primary-$FIRST_PORT.log" 2>&1 &
+	echo $! > "$RUN_DIR/primary-$FIRST_PORT.pid"
+	echo "Started primary http://localhost:$FIRST_PORT (pid $!)"
+	i=1
+	while [ $i -le "$FOLLOWERS" ]; do
+		PORT=$((FIRST_PORT + i))
+		java -jar "$JAR" --server.port=$PORT --accounts.store=replica \
+			--accounts.replication.primary=localhost:$REPLICATION_PORT "$@" \
+			> "$RUN_DIR/follower-$PORT.log" 2>&1 &
+		echo $! > "$RUN_DIR/follower-$PORT.pid"
+		echo "Started follower http://localhost:$PORT (pid $!)"
+		i=$((i + 1))
+	done
+}
+
+stop() {
+	for PID_FILE in "$RUN_DIR"/*.pid; do
+		[ -f "$PID_FILE" ] || continue
+		kill "$(cat "$PID_FILE")" 2>/dev/null || true
+		rm -f "$PID_FILE"
+	done
+}
+
+case "$1" in
+	start) shift; start "$@" ;;
+	stop) stop ;;
+	*) echo "Usage: $0 start [followers] [first http port] [application arguments...] | stop" >&2; exit 1 ;;
+esac
@@ -0,0 +1,152 @@
+package com.dws.challenge.cluster;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.exception.ClusterException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ClusterRouter knows which node of the cluster owns an account and talks to the other
+ * nodes. Cluster mode is on when accounts.cluster.nodes lists the base URLs of the nodes,
+ * this one included as accounts.cluster.self; every node keeps only the accounts the
+ * {@link ConsistentHashRing} gives it, in whatever accounts.store it is configured with.
+ *
+ * Requests of the v1 API about one account are forwarded to its owner as they came, so
+ * idempotency keys, the ledger and the metrics of an account all live on one node. Listings,
+ * balance queries, batches and the v2 API only see the accounts of the node they are sent to.
+ */
+@Component
+@Slf4j
+public class ClusterRouter {
+
+	/**
+	 * Set on forwarded requests; a node never forwards a request twice, so nodes that disagree
+	 * about the owner answer with an error instead of passing a request around.
+	 */
+	public static final String FORWARDED_HEADER = "X-Cluster-Forwarded";
+
+	/**
+	 * Endpoints the nodes run the two-phase commit of cross-node transfers on.
+	 */
+	public static final String TRANSFERS_PATH = "/internal/cluster/transfers";
+
+	private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT,
+			"Idempotency-Key");
+
+	@Getter
+	private final String self;
+
+	private final ConsistentHashRing ring;
+
+	private final HttpClient httpClient;
+
+	private final Duration timeout;
+
+	@Autowired
+	public ClusterRouter(@Value("${accounts.cluster.nodes:}") String nodes,
+			@Value("${accounts.cluster.self:http://localhost:${server.port:8080}}") String self,
+			@Value("${accounts.cluster.virtual-nodes:128}") int virtualNodes,
+			@Value("${accounts.cluster.timeout-ms:2000}") long timeoutMillis) {
+		List<String> members = new ArrayList<>();
+		for (String node : nodes.split(",")) {
+			if (!node.isBlank()) {
+				members.add(normalize(node));
+			}
+		}
+		this.self = normalize(self);
+		if (!members.isEmpty() && !members.contains(this.self)) {
+			throw new IllegalArgumentException("accounts.cluster.self " + this.self + " must be one of accounts.cluster.nodes");
+		}
+		this.ring = members.isEmpty() ? null : new ConsistentHashRing(members, virtualNodes);
+		this.timeout = Duration.ofMillis(timeoutMillis);
+		this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(timeout).build();
+		if (ring != null) {
+			log.info("Cluster mode with nodes {}, this node is {}", members, this.self);
+		}
+	}
+
+	public boolean isEnabled() {
+		return ring != null;
+	}
+
+	public String ownerOf(String accountId) {
+		return ring == null ? self : ring.ownerOf(accountId);
+	}
+
+	public boolean isLocal(String accountId) {
+		return ring == null || ring.ownerOf(accountId).equals(self);
+	}
+
+	/**
+	 * forward(..) sends the request on to the owner of its account and returns the owner's
+	 * response unchanged. A request that was forwarded to this node already is refused.
+	 */
+	public ResponseEntity<Object> forward(String owner, HttpServletRequest request, byte[] body) {
+		if (request.getHeader(FORWARDED_HEADER) != null) {
+			return new ResponseEntity<>("The account belongs to " + owner + ", not to " + self
+					+ "; check accounts.cluster.nodes on every node...!!!", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		String target = owner + request.getRequestURI() + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+		HttpRequest.Builder forwarded = HttpRequest.newBuilder(URI.create(target)).timeout(timeout)
+				.header(FORWARDED_HEADER, self)
+				.method(request.getMethod(), body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+		for (String header : FORWARDED_REQUEST_HEADERS) {
+			String value = request.getHeader(header);
+			if (value != null) {
+				forwarded.header(header, value);
+			}
+		}
+		HttpResponse<byte[]> response;
+		try {
+			response = send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+		} catch (ClusterException ex) {
+			return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		HttpHeaders headers = new HttpHeaders();
+		response.headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(value -> headers.set(HttpHeaders.CONTENT_TYPE, value));
+		return new ResponseEntity<>(response.body(), headers, HttpStatus.valueOf(response.statusCode()));
+	}
+
+	/**
+	 * post(..) sends a bodyless POST to another node and returns its response. Fails with a
+	 * ClusterException when the node can not be reached or does not answer in time.
+	 */
+	HttpResponse<String> post(String node, String pathAndQuery) {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(node + pathAndQuery)).timeout(timeout)
+				.header(FORWARDED_HEADER, self).POST(HttpRequest.BodyPublishers.noBody()).build();
+		return send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+		try {
+			return httpClient.send(request, bodyHandler);
+		} catch (IOException ex) {
+			throw new ClusterException("Node " + request.uri().getAuthority() + " did not answer: " + ex + "...!!!", ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ClusterException("Interrupted while waiting for node " + request.uri().getAuthority() + "...!!!", ex);
+		}
+	}
+
+	private static String normalize(String node) {
+		String trimmed = node.trim();
+		return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+	}
+}
@@ -0,0 +1,203 @@
+package com.dws.challenge.cluster;
+
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.ClusterException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.service.AccountsService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ClusterTransferCoordinator runs a transfer whose target account lives on another node as a
+ * two-phase commit, with the node of the source account as coordinator and the
+ * {@link ClusterTransferParticipant} of the target's node as the only participant.
+ *
+ * Phase one withdraws the amount here, which reserves it, and asks the participant to
+ * prepare the credit; it votes no when the target account does not exist. Phase two commits
+ * when the vote was yes and otherwise aborts and deposits the reservation back. The caller
+ * is answered once the decision is taken. A commit the participant did not acknowledge is
+ * sent again every second, and a participant left in doubt asks for the {@link #outcome}.
+ * Only committed transfers are remembered until acknowledged, anything else is presumed
+ * aborted.
+ *
+ * The decisions and prepared credits are kept in memory: a node that restarts in the middle
+ * of a transfer forgets its side of it.
+ */
+@Component
+@Slf4j
+public class ClusterTransferCoordinator {
+
+	public enum Decision {
+		PREPARING, COMMITTED, ABORTED
+	}
+
+	private static final long RETRY_SECONDS = 1;
+
+	private final ConcurrentHashMap<String, PendingTransfer> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Makes transaction ids unique across restarts of this node.
+	 */
+	private final String txPrefix = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 16);
+
+	private final AtomicLong nextTxId = new AtomicLong();
+
+	private final AccountsService accountsService;
+
+	private final ClusterRouter clusterRouter;
+
+	private final ScheduledExecutorService retrier;
+
+	@Autowired
+	public ClusterTransferCoordinator(AccountsService accountsService, ClusterRouter clusterRouter,
+			@Value("${accounts.virtual-threads.enabled:false}") boolean virtualThreads) {
+		this.accountsService = accountsService;
+		this.clusterRouter = clusterRouter;
+		this.retrier = Executors.newSingleThreadScheduledExecutor(
+				VirtualThreads.threadFactory("cluster-transfer-retrier", virtualThreads));
+		if (clusterRouter.isEnabled()) {
+			retrier.scheduleWithFixedDelay(this::resendCommits, RETRY_SECONDS, RETRY_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * transfer(..) moves the amount from an account of this node to an account of another.
+	 */
+	public void transfer(String fromAccId, String toAccId, long amount) throws Exception {
+		if (amount < 0) {
+			throw new MoneyRelatedException("Acc Balance or Money value should not be negative...!!!");
+		}
+		String participant = clusterRouter.ownerOf(toAccId);
+		String txId = clusterRouter.getSelf() + "/" + txPrefix + "-" + nextTxId.incrementAndGet();
+
+		accountsService.withdraw(fromAccId, amount);
+		PendingTransfer transfer = new PendingTransfer(participant);
+		pending.put(txId, transfer);
+		RuntimeException refusal;
+		try {
+			HttpResponse<String> vote = clusterRouter.post(participant, path(txId, "prepare") + "&coordinator="
+					+ encode(clusterRouter.getSelf()) + "&accountId=" + encode(toAccId) + "&amount=" + amount);
+			refusal = vote.statusCode() == 200 ? null
+					: vote.statusCode() == 400 ? new AccountRelatedException(vote.body())
+					: new ClusterException("Node " + participant + " could not prepare the transfer: " + vote.body());
+		} catch (ClusterException ex) {
+			refusal = ex;
+		}
+
+		if (refusal == null && transfer.decide(Decision.COMMITTED)) {
+			sendCommit(txId, transfer);
+			return;
+		}
+		transfer.decide(Decision.ABORTED);
+		pending.remove(txId);
+		refund(fromAccId, amount);
+		if (refusal == null || refusal instanceof ClusterException) {
+			// the participant may have prepared without us hearing of it
+			sendAbort(txId, participant);
+		}
+		throw refusal != null ? refusal
+				: new ClusterException("Transfer " + txId + " timed out on node " + participant + "...!!!");
+	}
+
+	/**
+	 * outcome(..) answers a participant in doubt. A transfer still waiting for its vote is
+	 * aborted, so the coordinator can not commit it after the participant gave up on it.
+	 */
+	public Decision outcome(String txId) {
+		PendingTransfer transfer = pending.get(txId);
+		if (transfer == null) {
+			return Decision.ABORTED;
+		}
+		transfer.decide(Decision.ABORTED);
+		return transfer.decision.get();
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		retrier.shutdown();
+		retrier.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	private void sendCommit(String txId, PendingTransfer transfer) {
+		try {
+			HttpResponse<String> ack = clusterRouter.post(transfer.participant, path(txId, "commit"));
+			if (ack.statusCode() == 200) {
+				pending.remove(txId);
+				return;
+			}
+			log.warn("Node {} did not commit transfer {} yet: {}", transfer.participant, txId, ack.body());
+		} catch (ClusterException ex) {
+			log.warn("Could not send the commit of transfer {}, retrying: {}", txId, ex.getMessage());
+		}
+	}
+
+	private void sendAbort(String txId, String participant) {
+		try {
+			clusterRouter.post(participant, path(txId, "abort"));
+		} catch (ClusterException ex) {
+			// the participant asks for the outcome once its prepared credit gets old
+			log.debug("Could not send the abort of transfer {}: {}", txId, ex.getMessage());
+		}
+	}
+
+	private void refund(String accountId, long amount) {
+		try {
+			accountsService.deposit(accountId, amount);
+		} catch (Exception ex) {
+			log.error("Could not give {} reserved by an aborted transfer back to account {}, retrying", amount, accountId, ex);
+			retrier.schedule(() -> refund(accountId, amount), RETRY_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+
+	private void resendCommits() {
+		for (Map.Entry<String, PendingTransfer> entry : pending.entrySet()) {
+			if (entry.getValue().decision.get() == Decision.COMMITTED) {
+				sendCommit(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	static String path(String txId, String step) {
+		return ClusterRouter.TRANSFERS_PATH + "/" + step + "?txId=" + encode(txId);
+	}
+
+	static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private static final class PendingTransfer {
+
+		private final String participant;
+
+		private final AtomicReference<Decision> decision = new AtomicReference<>(Decision.PREPARING);
+
+		private PendingTransfer(String participant) {
+			this.participant = participant;
+		}
+
+		/**
+		 * decide(..) takes the decision unless the other one was taken already.
+		 */
+		private boolean decide(Decision outcome) {
+			return decision.compareAndSet(Decision.PREPARING, outcome) || decision.get() == outcome;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.dws.challenge.cluster;
+
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.ClusterException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.service.AccountsService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ClusterTransferParticipant is the side of a cross-node transfer that owns the target
+ * account, see {@link ClusterTransferCoordinator}. Preparing checks the account and holds
+ * the credit, committing deposits it and aborting drops it; all three may be repeated.
+ *
+ * A credit that stays prepared for accounts.cluster.resolve-after-ms, because the decision
+ * got lost on the way, is resolved by asking the coordinator for the outcome.
+ */
+@Component
+@Slf4j
+public class ClusterTransferParticipant {
+
+	private static final long RESOLVE_SECONDS = 1;
+
+	private final ConcurrentHashMap<String, PreparedCredit> prepared = new ConcurrentHashMap<>();
+
+	private final AccountsService accountsService;
+
+	private final ClusterRouter clusterRouter;
+
+	private final long resolveAfterMillis;
+
+	private final ScheduledExecutorService resolver;
+
+	@Autowired
+	public ClusterTransferParticipant(AccountsService accountsService, ClusterRouter clusterRouter,
+			@Value("${accounts.cluster.resolve-after-ms:10000}") long resolveAfterMillis,
+			@Value("${accounts.virtual-threads.enabled:false}") boolean virtualThreads) {
+		this.accountsService = accountsService;
+		this.clusterRouter = clusterRouter;
+		this.resolveAfterMillis = resolveAfterMillis;
+		this.resolver = Executors.newSingleThreadScheduledExecutor(
+				VirtualThreads.threadFactory("cluster-transfer-resolver", virtualThreads));
+		if (clusterRouter.isEnabled()) {
+			resolver.scheduleWithFixedDelay(this::resolveInDoubt, RESOLVE_SECONDS, RESOLVE_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+
+	public void prepare(String txId, String coordinator, String accountId, long amount) {
+		if (amount < 0) {
+			throw new MoneyRelatedException("Acc Balance or Money value should not be negative...!!!");
+		}
+		if (!clusterRouter.isLocal(accountId)) {
+			throw new ClusterException("Account id " + accountId + " does not belong to " + clusterRouter.getSelf() + "...!!!");
+		}
+		if (accountsService.getAccount(accountId) == null) {
+			throw new AccountRelatedException("Account id " + accountId + " does not exist!");
+		}
+		prepared.putIfAbsent(txId, new PreparedCredit(coordinator, accountId, amount, System.currentTimeMillis()));
+	}
+
+	/**
+	 * commit(..) deposits the prepared credit. A transfer it does not know was committed
+	 * already, the coordinator only sends commits for transfers this node prepared.
+	 */
+	public void commit(String txId) throws Exception {
+		PreparedCredit credit = prepared.remove(txId);
+		if (credit == null) {
+			return;
+		}
+		try {
+			accountsService.deposit(credit.accountId, credit.amount);
+		} catch (Exception ex) {
+			// keep it for the coordinator's next attempt
+			prepared.putIfAbsent(txId, credit);
+			throw ex;
+		}
+	}
+
+	public void abort(String txId) {
+		prepared.remove(txId);
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		resolver.shutdown();
+		resolver.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	private void resolveInDoubt() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<String, PreparedCredit> entry : prepared.entrySet()) {
+			PreparedCredit credit = entry.getValue();
+			if (now - credit.preparedAt < resolveAfterMillis) {
+				continue;
+			}
+			String txId = entry.getKey();
+			try {
+				HttpResponse<String> outcome = clusterRouter.post(credit.coordinator,
+						ClusterTransferCoordinator.path(txId, "outcome"));
+				if (outcome.statusCode() != 200) {
+					continue;
+				}
+				if (ClusterTransferCoordinator.Decision.COMMITTED.name().equals(outcome.body())) {
+					commit(txId);
+				} else if (ClusterTransferCoordinator.Decision.ABORTED.name().equals(outcome.body())) {
+					abort(txId);
+				}
+			} catch (Exception ex) {
+				log.warn("Could not resolve transfer {} with {}, retrying: {}", txId, credit.coordinator, ex.getMessage());
+			}
+		}
+	}
+
+	private static final class PreparedCredit {
+
+		private final String coordinator;
+
+		private final String accountId;
+
+		private final long amount;
+
+		private final long preparedAt;
+
+		private PreparedCredit(String coordinator, String accountId, long amount, long preparedAt) {
+			this.coordinator = coordinator;
+			this.accountId = accountId;
+			this.amount = amount;
+			this.preparedAt = preparedAt;
+		}
+	}
+}
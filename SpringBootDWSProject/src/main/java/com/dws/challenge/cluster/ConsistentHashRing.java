@@ -0,0 +1,81 @@
+package com.dws.challenge.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ConsistentHashRing maps account ids to the nodes of the cluster. Every node is placed on a
+ * ring of 64-bit hashes at virtualNodes points, and an account belongs to the node of the
+ * first point at or after the hash of its id. Adding or removing a node only moves the
+ * accounts between its points and their predecessors, about 1/n of them, and the virtual
+ * points keep the share of every node close to even.
+ *
+ * All nodes must be configured with the same node list and virtualNodes to agree on the
+ * owners; the order of the list does not matter.
+ */
+public final class ConsistentHashRing {
+
+	private final long[] points;
+
+	private final String[] owners;
+
+	public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+		if (nodes.isEmpty()) {
+			throw new IllegalArgumentException("accounts.cluster.nodes must not be empty");
+		}
+		if (virtualNodes < 1) {
+			throw new IllegalArgumentException("accounts.cluster.virtual-nodes must be positive");
+		}
+		int count = nodes.size() * virtualNodes;
+		long[][] placed = new long[count][];
+		int next = 0;
+		for (int node = 0; node < nodes.size(); node++) {
+			for (int i = 0; i < virtualNodes; i++) {
+				placed[next++] = new long[] { hash(nodes.get(node) + "#" + i), node };
+			}
+		}
+		// ties, unlikely as they are, are broken by the node itself so every node sorts alike
+		Arrays.sort(placed, (a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0])
+				: nodes.get((int) a[1]).compareTo(nodes.get((int) b[1])));
+		this.points = new long[count];
+		this.owners = new String[count];
+		for (int i = 0; i < count; i++) {
+			points[i] = placed[i][0];
+			owners[i] = nodes.get((int) placed[i][1]);
+		}
+	}
+
+	public String ownerOf(String accountId) {
+		long hash = hash(accountId);
+		int low = 0;
+		int high = points.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (Long.compareUnsigned(points[mid], hash) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return owners[low == points.length ? 0 : low];
+	}
+
+	/**
+	 * hash(..) is 64-bit FNV-1a over the UTF-8 bytes followed by the murmur3 finalizer, the
+	 * same on every JVM, unlike String.hashCode's 32 bits that cluster for numeric ids.
+	 */
+	static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
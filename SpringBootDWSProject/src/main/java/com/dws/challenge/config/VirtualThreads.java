@@ -0,0 +1,104 @@
+package com.dws.challenge.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * VirtualThreads creates the threads of the application's own executors, either as platform
+ * daemon threads or, when accounts.virtual-threads.enabled is set, as virtual threads.
+ *
+ * The project is built for Java 17, so the Java 21 virtual thread API is looked up
+ * reflectively once; on an older runtime {@link #isSupported()} is false and asking for
+ * virtual threads fails instead of silently falling back to platform threads.
+ */
+public final class VirtualThreads {
+
+	private static final Method OF_VIRTUAL;
+
+	private static final Method BUILDER_NAME;
+
+	private static final Method BUILDER_NAME_COUNTER;
+
+	private static final Method BUILDER_FACTORY;
+
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderNameCounter = null;
+		Method builderFactory = null;
+		Method newThreadPerTaskExecutor = null;
+		// Java 19 and 20 have the methods as a preview feature that fails at runtime
+		if (Runtime.version().feature() >= 21) {
+			try {
+				ofVirtual = Thread.class.getMethod("ofVirtual");
+				Class<?> builder = Class.forName("java.lang.Thread$Builder");
+				builderName = builder.getMethod("name", String.class);
+				builderNameCounter = builder.getMethod("name", String.class, long.class);
+				builderFactory = builder.getMethod("factory");
+				newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			} catch (ReflectiveOperationException e) {
+				ofVirtual = null;
+			}
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_NAME_COUNTER = builderNameCounter;
+		BUILDER_FACTORY = builderFactory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+	}
+
+	private VirtualThreads() {
+	}
+
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * threadFactory(..) returns a factory for the single thread of a background executor,
+	 * named name.
+	 */
+	public static ThreadFactory threadFactory(String name, boolean virtual) {
+		if (virtual) {
+			return virtualFactory(BUILDER_NAME, name);
+		}
+		return runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * newThreadPerTaskExecutor(..) starts a new virtual thread, named prefix followed by a
+	 * counter, for every task it is given.
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+		ThreadFactory factory = virtualFactory(BUILDER_NAME_COUNTER, prefix, 0L);
+		return (ExecutorService) invoke(NEW_THREAD_PER_TASK_EXECUTOR, null, factory);
+	}
+
+	private static ThreadFactory virtualFactory(Method name, Object... nameArgs) {
+		if (!isSupported()) {
+			throw new IllegalStateException("Virtual threads need Java 21 or later, this is Java "
+					+ Runtime.version().feature() + "; unset accounts.virtual-threads.enabled...!!!");
+		}
+		Object builder = invoke(name, invoke(OF_VIRTUAL, null), nameArgs);
+		return (ThreadFactory) invoke(BUILDER_FACTORY, builder);
+	}
+
+	private static Object invoke(Method method, Object target, Object... args) {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException("Could not create virtual threads...!!!", e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Could not create virtual threads...!!!", e);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.dws.challenge.config;
+
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * VirtualThreadsConfiguration serves every request on its own virtual thread instead of
+ * Tomcat's bounded worker pool, so a request that blocks, on a lock, the journal's fsync or
+ * a BLOCK notification queue, only parks its virtual thread. The MVC async executor that
+ * writes streamed responses gets virtual threads too. Only active with
+ * accounts.virtual-threads.enabled=true on Java 21 or later.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "accounts.virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfiguration {
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+		ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+		log.info("Serving requests on virtual threads");
+		return protocolHandler -> protocolHandler.setExecutor(executor);
+	}
+
+	@Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+	public AsyncTaskExecutor applicationTaskExecutor() {
+		return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor("task-virtual-"));
+	}
+}
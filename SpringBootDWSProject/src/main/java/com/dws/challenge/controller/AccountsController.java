@@ -1,10 +1,35 @@
 package com.dws.challenge.controller;
 
+import com.dws.challenge.cluster.ClusterRouter;
+import com.dws.challenge.cluster.ClusterTransferCoordinator;
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BatchMode;
+import com.dws.challenge.domain.IdempotentOutcome;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.domain.TransferResult;
 import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.IdempotencyException;
+import com.dws.challenge.importer.AccountImporter;
+import com.dws.challenge.ledger.AccountLedger;
+import com.dws.challenge.service.AccountJsonCache;
 import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.IdempotencyCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -13,10 +38,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.validation.Valid;
@@ -26,16 +57,70 @@ import javax.validation.Valid;
 @Slf4j
 public class AccountsController {
 
+  /**
+   * Number of best effort transfers handed to the store, and locked, together.
+   */
+  private static final int BATCH_CHUNK_SIZE = 1024;
+
+  /**
+   * Number of accounts read from the store per page while streaming NDJSON.
+   */
+  private static final int STREAM_PAGE_SIZE = 1024;
+
+  static final String NDJSON_VALUE = "application/x-ndjson";
+
+  static final String CSV_VALUE = "text/csv";
+
+  static final String NEXT_AFTER_HEADER = "X-Next-After";
+
+  static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
   private final AccountsService accountsService;
 
+  private final IdempotencyCache idempotencyCache;
+
+  private final AccountLedger accountLedger;
+
+  private final ClusterRouter clusterRouter;
+
+  private final ClusterTransferCoordinator clusterTransferCoordinator;
+
+  private final AccountImporter accountImporter;
+
+  private final AccountJsonCache accountJsonCache;
+
+  private final ObjectMapper objectMapper;
+
+  private final int defaultPageLimit;
+
+  private final int maxPageLimit;
+
   @Autowired
-  public AccountsController(AccountsService accountsService) {
+  public AccountsController(AccountsService accountsService, IdempotencyCache idempotencyCache,
+      AccountLedger accountLedger, ClusterRouter clusterRouter, ClusterTransferCoordinator clusterTransferCoordinator,
+      AccountImporter accountImporter, AccountJsonCache accountJsonCache, ObjectMapper objectMapper,
+      @Value("${accounts.list.default-limit:1000}") int defaultPageLimit,
+      @Value("${accounts.list.max-limit:10000}") int maxPageLimit) {
     this.accountsService = accountsService;
+    this.idempotencyCache = idempotencyCache;
+    this.accountLedger = accountLedger;
+    this.clusterRouter = clusterRouter;
+    this.clusterTransferCoordinator = clusterTransferCoordinator;
+    this.accountImporter = accountImporter;
+    this.accountJsonCache = accountJsonCache;
+    this.objectMapper = objectMapper;
+    this.defaultPageLimit = defaultPageLimit;
+    this.maxPageLimit = maxPageLimit;
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account)throws Exception {
+  public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account, HttpServletRequest request)throws Exception {
     //log.info("Creating account {}", account);
+    ResponseEntity<Object> forwarded = forwardIfRemote(account.getAccountId(), request,
+        this.objectMapper.writeValueAsBytes(account));
+    if (forwarded != null) {
+      return forwarded;
+    }
 
     try {
     this.accountsService.createAccount(account);
@@ -46,21 +131,160 @@ public class AccountsController {
     return new ResponseEntity<>("New Account got created successfully...!!!",HttpStatus.OK);
   }
 
+  /**
+   * Creates the accounts of a CSV (accountId,balance) or NDJSON body, read as a stream, and
+   * answers with a report of one JSON object per duplicate or rejected line and a summary
+   * line, written while the body is still being read, see {@link AccountImporter}.
+   */
+  @PostMapping(path = "/bulk", consumes = {CSV_VALUE, NDJSON_VALUE})
+  public void createAccounts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+	  response.setContentType(NDJSON_VALUE);
+	  this.accountImporter.importAccounts(request.getInputStream(), AccountImporter.Format.of(request.getContentType()),
+			  response.getOutputStream());
+  }
+
+  /**
+   * Answers with the account's JSON from the {@link AccountJsonCache}, serialized once per
+   * change of the account rather than per request.
+   */
   @GetMapping(path = "/{accountId}")
-  public Account getAccount(@PathVariable String accountId) {
+  public ResponseEntity<Object> getAccount(@PathVariable String accountId, HttpServletRequest request) throws Exception {
     //log.info("Retrieving account for id {}", accountId);
-    return this.accountsService.getAccount(accountId);
+    ResponseEntity<Object> forwarded = forwardIfRemote(accountId, request, null);
+    if (forwarded != null) {
+      return forwarded;
+    }
+    byte[] json = this.accountJsonCache.getAccountJson(accountId);
+    if (json == null) {
+      return new ResponseEntity<>(HttpStatus.OK);
+    }
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+  }
+
+  /**
+   * Lists the transactions of an account stamped from (inclusive) to (exclusive), both
+   * optional ISO-8601 instants, oldest first.
+   */
+  @GetMapping(path = "/{accountId}/transactions", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> getTransactions(@PathVariable String accountId,
+		  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+		  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+		  @RequestParam(required = false) Integer limit, HttpServletRequest request){
+	  ResponseEntity<Object> forwarded = forwardIfRemote(accountId, request, null);
+	  if (forwarded != null) {
+		  return forwarded;
+	  }
+	  if (limit != null && limit < 1) {
+		  return new ResponseEntity<>("Limit should be at least 1...!!!", HttpStatus.BAD_REQUEST);
+	  }
+	  int pageLimit = limit == null ? this.defaultPageLimit : Math.min(limit, this.maxPageLimit);
+	  try {
+		  return new ResponseEntity<>(this.accountLedger.transactions(accountId, from, to, pageLimit), HttpStatus.OK);
+	  } catch (Exception ex) {
+		  return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	  }
   }
   
-  @GetMapping
-  public List<Account> listAllAccounts(){
-	  return this.accountsService.listAllAccounts();
+  /**
+   * Lists one page of accounts in account id order. The next page starts after the id sent
+   * back in the X-Next-After header, which is only set when the page is full.
+   */
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> listAllAccounts(@RequestParam(required = false) String after,
+		  @RequestParam(required = false) Integer limit){
+	  if (limit != null && limit < 1) {
+		  return new ResponseEntity<>("Limit should be at least 1...!!!", HttpStatus.BAD_REQUEST);
+	  }
+	  int pageLimit = limit == null ? this.defaultPageLimit : Math.min(limit, this.maxPageLimit);
+	  List<Account> page = this.accountsService.listAccounts(after, pageLimit);
+	  HttpHeaders headers = new HttpHeaders();
+	  if (page.size() == pageLimit) {
+		  headers.set(NEXT_AFTER_HEADER, page.get(page.size() - 1).getAccountId());
+	  }
+	  return new ResponseEntity<>(page, headers, HttpStatus.OK);
+  }
+
+  /**
+   * Streams every account after the optional cursor as one JSON object per line. Accounts are
+   * read from the store a page at a time and written straight to the response, so memory use
+   * does not grow with the number of accounts.
+   */
+  @GetMapping(produces = NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAllAccounts(@RequestParam(required = false) String after){
+	  ObjectWriter writer = this.objectMapper.writerFor(Account.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+		  .withRootValueSeparator("");
+	  StreamingResponseBody body = outputStream -> {
+		  try (JsonGenerator generator = writer.createGenerator(outputStream)) {
+			  String cursor = after;
+			  List<Account> page;
+			  do {
+				  page = this.accountsService.listAccounts(cursor, STREAM_PAGE_SIZE);
+				  for (Account account : page) {
+					  writer.writeValue(generator, account);
+					  generator.writeRaw('\n');
+				  }
+				  generator.flush();
+				  if (!page.isEmpty()) {
+					  cursor = page.get(page.size() - 1).getAccountId();
+				  }
+			  } while (page.size() == STREAM_PAGE_SIZE);
+		  }
+	  };
+	  return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
   }
   
+  /**
+   * Lists accounts whose balance lies between minBalance and maxBalance, both optional and
+   * inclusive, lowest balance first.
+   */
+  @GetMapping("/query")
+  public ResponseEntity<Object> findByBalance(@RequestParam(required = false) BigDecimal minBalance,
+		  @RequestParam(required = false) BigDecimal maxBalance, @RequestParam(required = false) Integer limit){
+	  if (limit != null && limit < 1) {
+		  return new ResponseEntity<>("Limit should be at least 1...!!!", HttpStatus.BAD_REQUEST);
+	  }
+	  int pageLimit = limit == null ? this.defaultPageLimit : Math.min(limit, this.maxPageLimit);
+	  try {
+		  return new ResponseEntity<>(this.accountsService.findByBalance(minBalance, maxBalance, pageLimit), HttpStatus.OK);
+	  } catch (Exception ex) {
+		  return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	  }
+  }
+
+  /**
+   * Lists the n accounts with the highest balances, highest first.
+   */
+  @GetMapping("/top")
+  public ResponseEntity<Object> topByBalance(@RequestParam(defaultValue = "100") int n){
+	  if (n < 1) {
+		  return new ResponseEntity<>("N should be at least 1...!!!", HttpStatus.BAD_REQUEST);
+	  }
+	  try {
+		  return new ResponseEntity<>(this.accountsService.topByBalance(Math.min(n, this.maxPageLimit)), HttpStatus.OK);
+	  } catch (Exception ex) {
+		  return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	  }
+  }
+  
+  /**
+   * Deposit, withdraw and transfer accept an Idempotency-Key header. A request repeated with
+   * the same key gets the response of the first one without being applied again.
+   */
   @GetMapping("/deposit/{accountId}/{amount}")
-  public ResponseEntity<Object> deposit(@PathVariable String accountId, @PathVariable BigDecimal amount)throws Exception  {
+  public ResponseEntity<Object> deposit(@PathVariable String accountId, @PathVariable BigDecimal amount,
+		  @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+		  HttpServletRequest request)throws Exception  {
+	  ResponseEntity<Object> forwarded = forwardIfRemote(accountId, request, null);
+	  if (forwarded != null) {
+		  return forwarded;
+	  }
+	  if (idempotencyKey != null) {
+		  return idempotent(idempotencyKey, "deposit " + accountId + " " + amount.stripTrailingZeros().toPlainString(),
+				  "The Money "+amount+" deposited successfully...!!!",
+				  () -> this.accountsService.deposit(accountId,MoneyUnits.toMinorUnits(amount)));
+	  }
 	  try {
-	  this.accountsService.deposit(accountId,amount);
+	  this.accountsService.deposit(accountId,MoneyUnits.toMinorUnits(amount));
 	  } catch (Exception ex) {
 			return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
 	  }
@@ -68,9 +292,20 @@ public class AccountsController {
   }
   
   @GetMapping("/withdraw/{accountId}/{amount}")
-  public ResponseEntity<Object> withdraw(@PathVariable String accountId, @PathVariable BigDecimal amount)throws Exception  {
+  public ResponseEntity<Object> withdraw(@PathVariable String accountId, @PathVariable BigDecimal amount,
+		  @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+		  HttpServletRequest request)throws Exception  {
+	  ResponseEntity<Object> forwarded = forwardIfRemote(accountId, request, null);
+	  if (forwarded != null) {
+		  return forwarded;
+	  }
+	  if (idempotencyKey != null) {
+		  return idempotent(idempotencyKey, "withdraw " + accountId + " " + amount.stripTrailingZeros().toPlainString(),
+				  "The Money "+amount+" withdrawn successfully...!!!",
+				  () -> this.accountsService.withdraw(accountId,MoneyUnits.toMinorUnits(amount)));
+	  }
 	  try {
-	  this.accountsService.withdraw(accountId,amount);
+	  this.accountsService.withdraw(accountId,MoneyUnits.toMinorUnits(amount));
 	  } catch (Exception ex) {
 			return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
 	  }
@@ -78,14 +313,123 @@ public class AccountsController {
   }
   
   @GetMapping("/transfer/{fromAccId}/{toAccId}/{amount}")
-  public ResponseEntity<Object> moneyTransfer(@PathVariable String fromAccId, @PathVariable String toAccId, @PathVariable BigDecimal amount)throws Exception {
+  public ResponseEntity<Object> moneyTransfer(@PathVariable String fromAccId, @PathVariable String toAccId, @PathVariable BigDecimal amount,
+		  @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+		  HttpServletRequest request)throws Exception {
+	  ResponseEntity<Object> forwarded = forwardIfRemote(fromAccId, request, null);
+	  if (forwarded != null) {
+		  return forwarded;
+	  }
+	  if (idempotencyKey != null) {
+		  return idempotent(idempotencyKey,
+				  "transfer " + fromAccId + " " + toAccId + " " + amount.stripTrailingZeros().toPlainString(),
+				  "The Money "+amount+" transfer had successfully...!!!",
+				  () -> transfer(fromAccId, toAccId,MoneyUnits.toMinorUnits(amount)));
+	  }
 	  try {
-	  this.accountsService.transferMoney(fromAccId, toAccId,amount);
+	  transfer(fromAccId, toAccId,MoneyUnits.toMinorUnits(amount));
 	  } catch (Exception ex) {
 			return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
 	  }
 	 return new ResponseEntity<>("The Money "+amount+" transfer had successfully...!!!",HttpStatus.OK);
   }
+  
+  /**
+   * Applies a JSON array of transfers, read from the request as a stream. In BEST_EFFORT mode
+   * the transfers are applied in chunks while the array is still being read. ALL_OR_NOTHING
+   * needs the whole batch before anything is applied.
+   */
+  @PostMapping(path = "/transfers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> transferBatch(HttpServletRequest request,
+		  @RequestParam(defaultValue = "BEST_EFFORT") BatchMode mode) throws Exception {
+	  List<TransferResult> results = new ArrayList<>();
+	  List<Transfer> chunk = new ArrayList<>();
+	  try (JsonParser parser = this.objectMapper.getFactory().createParser(request.getInputStream())) {
+		  if (parser.nextToken() != JsonToken.START_ARRAY) {
+			  return new ResponseEntity<>("Transfers should be sent as a JSON array...!!!", HttpStatus.BAD_REQUEST);
+		  }
+		  int position = 0;
+		  while (parser.nextToken() == JsonToken.START_OBJECT) {
+			  JsonNode node = parser.readValueAsTree();
+			  Transfer transfer;
+			  try {
+				  transfer = toTransfer(node);
+			  } catch (Exception ex) {
+				  if (mode == BatchMode.ALL_OR_NOTHING) {
+					  return new ResponseEntity<>("Transfer " + position + " is invalid: " + ex.getMessage(), HttpStatus.BAD_REQUEST);
+				  }
+				  applyChunk(chunk, mode, results);
+				  results.add(new TransferResult(node.path("fromAccId").asText(null), node.path("toAccId").asText(null),
+						  TransferResult.Status.FAILED, ex.getMessage()));
+				  position++;
+				  continue;
+			  }
+			  chunk.add(transfer);
+			  if (mode == BatchMode.BEST_EFFORT && chunk.size() == BATCH_CHUNK_SIZE) {
+				  applyChunk(chunk, mode, results);
+			  }
+			  position++;
+		  }
+		  applyChunk(chunk, mode, results);
+	  } catch (JsonProcessingException ex) {
+		  return new ResponseEntity<>("Transfers should be sent as a JSON array...!!!", HttpStatus.BAD_REQUEST);
+	  } catch (Exception ex) {
+		  return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	  }
+	  boolean rolledBack = mode == BatchMode.ALL_OR_NOTHING
+			  && results.stream().anyMatch(result -> result.getStatus() != TransferResult.Status.DONE);
+	  return new ResponseEntity<>(results, rolledBack ? HttpStatus.BAD_REQUEST : HttpStatus.OK);
+  }
 
+  /**
+   * In cluster mode a request about an account of another node is answered by that node,
+   * for transfers the node of the source account. Returns null for local accounts.
+   */
+  private ResponseEntity<Object> forwardIfRemote(String accountId, HttpServletRequest request, byte[] body) {
+	  if (this.clusterRouter.isLocal(accountId)) {
+		  return null;
+	  }
+	  return this.clusterRouter.forward(this.clusterRouter.ownerOf(accountId), request, body);
+  }
+
+  /**
+   * Transfers to an account of another node go through the two-phase commit.
+   */
+  private void transfer(String fromAccId, String toAccId, long amount) throws Exception {
+	  if (this.clusterRouter.isLocal(toAccId)) {
+		  this.accountsService.transferMoney(fromAccId, toAccId, amount);
+	  } else {
+		  this.clusterTransferCoordinator.transfer(fromAccId, toAccId, amount);
+	  }
+  }
+
+  private ResponseEntity<Object> idempotent(String idempotencyKey, String fingerprint, String successBody,
+		  IdempotencyCache.Operation operation) {
+	  try {
+		  IdempotentOutcome outcome = this.idempotencyCache.execute(idempotencyKey, fingerprint, successBody, operation);
+		  return new ResponseEntity<>(outcome.getBody(), HttpStatus.valueOf(outcome.getStatus()));
+	  } catch (IdempotencyException ex) {
+		  return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
+	  } catch (Exception ex) {
+		  return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	  }
+  }
+
+  private void applyChunk(List<Transfer> chunk, BatchMode mode, List<TransferResult> results) throws Exception {
+	  if (!chunk.isEmpty()) {
+		  results.addAll(this.accountsService.transferBatch(chunk, mode));
+		  chunk.clear();
+	  }
+  }
+
+  private static Transfer toTransfer(JsonNode node) {
+	  String fromAccId = node.path("fromAccId").asText(null);
+	  String toAccId = node.path("toAccId").asText(null);
+	  JsonNode amount = node.get("amount");
+	  if (fromAccId == null || toAccId == null || amount == null || amount.isNull()) {
+		  throw new AccountRelatedException("fromAccId, toAccId and amount are mandatory...!!!");
+	  }
+	  return new Transfer(fromAccId, toAccId, MoneyUnits.toMinorUnits(new BigDecimal(amount.asText())));
+  }
 
 }
@@ -0,0 +1,68 @@
+package com.dws.challenge.controller;
+
+import com.dws.challenge.cluster.ClusterRouter;
+import com.dws.challenge.cluster.ClusterTransferCoordinator;
+import com.dws.challenge.cluster.ClusterTransferParticipant;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Two-phase commit of cross-node transfers, called by the other nodes of the cluster only.
+ * Preparing answers 400 when the participant votes no and 503 when it can not take part;
+ * every step may be repeated.
+ */
+@RestController
+@RequestMapping(ClusterRouter.TRANSFERS_PATH)
+public class ClusterController {
+
+  private final ClusterTransferCoordinator coordinator;
+
+  private final ClusterTransferParticipant participant;
+
+  @Autowired
+  public ClusterController(ClusterTransferCoordinator coordinator, ClusterTransferParticipant participant) {
+    this.coordinator = coordinator;
+    this.participant = participant;
+  }
+
+  @PostMapping("/prepare")
+  public ResponseEntity<Object> prepare(@RequestParam String txId, @RequestParam String coordinator,
+      @RequestParam String accountId, @RequestParam long amount) {
+    try {
+      this.participant.prepare(txId, coordinator, accountId, amount);
+    } catch (AccountRelatedException | MoneyRelatedException ex) {
+      return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (Exception ex) {
+      return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    return new ResponseEntity<>("PREPARED", HttpStatus.OK);
+  }
+
+  @PostMapping("/commit")
+  public ResponseEntity<Object> commit(@RequestParam String txId) {
+    try {
+      this.participant.commit(txId);
+    } catch (Exception ex) {
+      return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    return new ResponseEntity<>(ClusterTransferCoordinator.Decision.COMMITTED.name(), HttpStatus.OK);
+  }
+
+  @PostMapping("/abort")
+  public ResponseEntity<Object> abort(@RequestParam String txId) {
+    this.participant.abort(txId);
+    return new ResponseEntity<>(ClusterTransferCoordinator.Decision.ABORTED.name(), HttpStatus.OK);
+  }
+
+  @PostMapping("/outcome")
+  public ResponseEntity<Object> outcome(@RequestParam String txId) {
+    return new ResponseEntity<>(this.coordinator.outcome(txId).name(), HttpStatus.OK);
+  }
+}
@@ -0,0 +1,82 @@
+package com.dws.challenge.controller;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BalanceChange;
+import com.dws.challenge.service.ReactiveAccountsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+import javax.validation.Valid;
+
+/**
+ * Reactive variant of the accounts API. The streams are written one element at a time as the
+ * client takes them, so neither a listing nor the balance change feed is buffered in full.
+ */
+@RestController
+@RequestMapping("/v2/accounts")
+@Slf4j
+public class ReactiveAccountsController {
+
+  private final ReactiveAccountsService reactiveAccountsService;
+
+  @Autowired
+  public ReactiveAccountsController(ReactiveAccountsService reactiveAccountsService) {
+    this.reactiveAccountsService = reactiveAccountsService;
+  }
+
+  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  public Mono<ResponseEntity<Object>> createAccount(@RequestBody @Valid Account account) {
+    return this.reactiveAccountsService.createAccount(account)
+        .then(Mono.just(new ResponseEntity<Object>("New Account got created successfully...!!!", HttpStatus.OK)))
+        .onErrorResume(ex -> Mono.just(new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST)));
+  }
+
+  @GetMapping(path = "/{accountId}")
+  public Mono<ResponseEntity<Account>> getAccount(@PathVariable String accountId) {
+    return this.reactiveAccountsService.getAccount(accountId).map(ResponseEntity::ok)
+        .defaultIfEmpty(ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Streams every account after the optional cursor, in account id order, as NDJSON or as
+   * server-sent events.
+   */
+  @GetMapping(produces = { AccountsController.NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+  public Flux<Account> streamAccounts(@RequestParam(required = false) String after) {
+    return this.reactiveAccountsService.listAccounts(after);
+  }
+
+  /**
+   * Server-sent events with the new balance of every account that changes, or of accountId
+   * only. A client that reads too slowly misses its oldest changes.
+   */
+  @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<Flux<BalanceChange>> balanceChanges(@RequestParam(required = false) String accountId) {
+    if (!this.reactiveAccountsService.isBalanceFeedSupported()) {
+      return ResponseEntity.badRequest().build();
+    }
+    return ResponseEntity.ok(this.reactiveAccountsService.balanceChanges(accountId));
+  }
+
+  @GetMapping("/transfer/{fromAccId}/{toAccId}/{amount}")
+  public Mono<ResponseEntity<Object>> moneyTransfer(@PathVariable String fromAccId, @PathVariable String toAccId,
+      @PathVariable BigDecimal amount) {
+    return this.reactiveAccountsService.transferMoney(fromAccId, toAccId, amount)
+        .then(Mono.just(new ResponseEntity<Object>("The Money " + amount + " transfer had successfully...!!!", HttpStatus.OK)))
+        .onErrorResume(ex -> Mono.just(new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST)));
+  }
+}
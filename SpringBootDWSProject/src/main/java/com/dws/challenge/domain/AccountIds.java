@@ -0,0 +1,84 @@
+package com.dws.challenge.domain;
+
+import com.dws.challenge.exception.AccountRelatedException;
+
+/**
+ * AccountIds validates account ids and packs numeric ones into a long, so the stores can
+ * key them without hashing and comparing Strings. Both only scan the id once and never
+ * allocate.
+ *
+ * A packed id is the digits padded with zeros to {@link #MAX_DIGITS} places, shifted left
+ * by five bits that hold the number of digits. It is always positive, keeps "007" and "7"
+ * apart and sorts like the id itself, so "10" comes before "9".
+ */
+public final class AccountIds {
+
+	/**
+	 * Longest id that can be packed.
+	 */
+	public static final int MAX_DIGITS = 17;
+
+	/**
+	 * Returned by {@link #packOrZero(String)} for ids that can not be packed.
+	 */
+	public static final long NOT_NUMERIC = 0;
+
+	private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i <= MAX_DIGITS; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private AccountIds() {
+	}
+
+	/**
+	 * validate(..) accepts every id that is not empty and has no alphabetic characters, the
+	 * rule all the stores share.
+	 */
+	public static void validate(String accountId) {
+		if (accountId.isEmpty()) {
+			throw new AccountRelatedException("Account Id does not exists..!!!");
+		}
+		for (int i = 0; i < accountId.length(); i++) {
+			char c = accountId.charAt(i);
+			if ((c < '0' || c > '9') && Character.isAlphabetic(c)) {
+				throw new AccountRelatedException("Account Number should not contains Alphabetic chars..!!!");
+			}
+		}
+	}
+
+	/**
+	 * packOrZero(..) packs an id of 1 to {@link #MAX_DIGITS} digits and returns
+	 * {@link #NOT_NUMERIC} for any other id.
+	 */
+	public static long packOrZero(String accountId) {
+		int digits = accountId.length();
+		if (digits == 0 || digits > MAX_DIGITS) {
+			return NOT_NUMERIC;
+		}
+		long value = 0;
+		for (int i = 0; i < digits; i++) {
+			char c = accountId.charAt(i);
+			if (c < '0' || c > '9') {
+				return NOT_NUMERIC;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return (value * POWERS_OF_TEN[MAX_DIGITS - digits]) << 5 | digits;
+	}
+
+	public static String unpack(long packedId) {
+		int digits = (int) (packedId & 31);
+		long value = (packedId >>> 5) / POWERS_OF_TEN[MAX_DIGITS - digits];
+		char[] chars = new char[digits];
+		for (int i = digits - 1; i >= 0; i--) {
+			chars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,27 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+
+import lombok.Getter;
+
+/**
+ * New balance of an account after a change, as published on the balance change feed. A
+ * transfer is published as one change per account.
+ */
+@Getter
+public class BalanceChange {
+
+  private final String accountId;
+
+  private final BigDecimal balance;
+
+  public BalanceChange(String accountId, BigDecimal balance) {
+    this.accountId = accountId;
+    this.balance = balance;
+  }
+
+  @Override
+  public String toString() {
+    return "BalanceChange [accountId=" + accountId + ", balance=" + balance + "]";
+  }
+}
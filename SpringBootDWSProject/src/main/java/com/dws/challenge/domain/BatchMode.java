@@ -0,0 +1,17 @@
+package com.dws.challenge.domain;
+
+/**
+ * How a batch of transfers treats a transfer that fails.
+ */
+public enum BatchMode {
+
+  /**
+   * Either every transfer of the batch is applied or none is.
+   */
+  ALL_OR_NOTHING,
+
+  /**
+   * Every valid transfer is applied, failing ones are reported and skipped.
+   */
+  BEST_EFFORT
+}
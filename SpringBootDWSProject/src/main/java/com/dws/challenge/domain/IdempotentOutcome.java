@@ -0,0 +1,43 @@
+package com.dws.challenge.domain;
+
+import lombok.Getter;
+
+/**
+ * Response sent for the request with an Idempotency-Key, replayed to every retry that sends
+ * the same key until it expires. The fingerprint identifies the request the key was first
+ * used with, so a key reused for a different request is refused rather than answered with
+ * someone else's outcome.
+ */
+@Getter
+public class IdempotentOutcome {
+
+  private final String key;
+
+  private final String fingerprint;
+
+  private final int status;
+
+  private final String body;
+
+  /**
+   * Wall clock time, in epoch milliseconds, after which the outcome is forgotten.
+   */
+  private final long expiresAt;
+
+  public IdempotentOutcome(String key, String fingerprint, int status, String body, long expiresAt) {
+    this.key = key;
+    this.fingerprint = fingerprint;
+    this.status = status;
+    this.body = body;
+    this.expiresAt = expiresAt;
+  }
+
+  public boolean isExpired(long now) {
+    return now >= expiresAt;
+  }
+
+  @Override
+  public String toString() {
+    return "IdempotentOutcome [key=" + key + ", fingerprint=" + fingerprint + ", status=" + status + "]";
+  }
+}
@@ -0,0 +1,48 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+/**
+ * One entry of an account's transaction history. Both sides of a transfer share the
+ * transaction id; the amount is always positive, the type tells the direction.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LedgerEntry {
+
+  public enum Type {
+    OPENING, DEPOSIT, WITHDRAWAL, TRANSFER_IN, TRANSFER_OUT
+  }
+
+  private final long transactionId;
+
+  private final Instant timestamp;
+
+  private final Type type;
+
+  private final BigDecimal amount;
+
+  private final String counterparty;
+
+  private final BigDecimal balance;
+
+  public LedgerEntry(long transactionId, Instant timestamp, Type type, BigDecimal amount, String counterparty,
+      BigDecimal balance) {
+    this.transactionId = transactionId;
+    this.timestamp = timestamp;
+    this.type = type;
+    this.amount = amount;
+    this.counterparty = counterparty;
+    this.balance = balance;
+  }
+
+  @Override
+  public String toString() {
+    return "LedgerEntry [transactionId=" + transactionId + ", timestamp=" + timestamp + ", type=" + type + ", amount="
+        + amount + ", counterparty=" + counterparty + ", balance=" + balance + "]";
+  }
+}
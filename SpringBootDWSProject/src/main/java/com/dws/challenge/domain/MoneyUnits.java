@@ -0,0 +1,58 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import com.dws.challenge.exception.MoneyRelatedException;
+
+/**
+ * MoneyUnits converts between the BigDecimal amounts of the REST API and the scaled long
+ * minor units (cents) the account stores work with, and does overflow checked arithmetic on
+ * the latter so the hot path never allocates.
+ */
+public final class MoneyUnits {
+
+	/**
+	 * Number of decimal places of the minor unit, two for every currency the API handles today.
+	 */
+	public static final int SCALE = 2;
+
+	private MoneyUnits() {
+	}
+
+	public static long toMinorUnits(BigDecimal amount) {
+		if (amount == null) {
+			throw new MoneyRelatedException("Money value should not be empty...!!!");
+		}
+		try {
+			return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+		} catch (ArithmeticException ex) {
+			throw new MoneyRelatedException("Money value " + amount.toPlainString() + " can not be represented in minor units...!!!");
+		}
+	}
+
+	/**
+	 * toBigDecimal(..) returns the smallest non negative scale that still represents the
+	 * value exactly, so 1000.00 comes back as 1000 and 555.45 as 555.45.
+	 */
+	public static BigDecimal toBigDecimal(long minorUnits) {
+		BigDecimal value = BigDecimal.valueOf(minorUnits, SCALE).stripTrailingZeros();
+		return value.scale() < 0 ? value.setScale(0) : value;
+	}
+
+	public static long add(long balance, long amount) {
+		try {
+			return Math.addExact(balance, amount);
+		} catch (ArithmeticException ex) {
+			throw new MoneyRelatedException("Account Balance would overflow...!!!");
+		}
+	}
+
+	public static long subtract(long balance, long amount) {
+		try {
+			return Math.subtractExact(balance, amount);
+		} catch (ArithmeticException ex) {
+			throw new MoneyRelatedException("Account Balance would overflow...!!!");
+		}
+	}
+}
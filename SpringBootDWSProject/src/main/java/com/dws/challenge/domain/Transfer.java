@@ -0,0 +1,27 @@
+package com.dws.challenge.domain;
+
+import lombok.Getter;
+
+/**
+ * One transfer of a batch, with the amount already converted to minor units.
+ */
+@Getter
+public class Transfer {
+
+  private final String fromAccId;
+
+  private final String toAccId;
+
+  private final long amount;
+
+  public Transfer(String fromAccId, String toAccId, long amount) {
+    this.fromAccId = fromAccId;
+    this.toAccId = toAccId;
+    this.amount = amount;
+  }
+
+  @Override
+  public String toString() {
+    return "Transfer [fromAccId=" + fromAccId + ", toAccId=" + toAccId + ", amount=" + amount + "]";
+  }
+}
@@ -0,0 +1,48 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+/**
+ * Outcome of one transfer of a batch, reported in the same position as the transfer.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferResult {
+
+  public enum Status {
+    DONE, FAILED, ROLLED_BACK
+  }
+
+  private final String fromAccId;
+
+  private final String toAccId;
+
+  private final Status status;
+
+  private final String message;
+
+  public TransferResult(String fromAccId, String toAccId, Status status, String message) {
+    this.fromAccId = fromAccId;
+    this.toAccId = toAccId;
+    this.status = status;
+    this.message = message;
+  }
+
+  public static TransferResult done(Transfer transfer) {
+    return new TransferResult(transfer.getFromAccId(), transfer.getToAccId(), Status.DONE, null);
+  }
+
+  public static TransferResult failed(Transfer transfer, String message) {
+    return new TransferResult(transfer.getFromAccId(), transfer.getToAccId(), Status.FAILED, message);
+  }
+
+  public static TransferResult rolledBack(Transfer transfer) {
+    return new TransferResult(transfer.getFromAccId(), transfer.getToAccId(), Status.ROLLED_BACK, null);
+  }
+
+  @Override
+  public String toString() {
+    return "TransferResult [fromAccId=" + fromAccId + ", toAccId=" + toAccId + ", status=" + status + ", message=" + message + "]";
+  }
+}
@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class IdempotencyException extends RuntimeException {
+
+  public IdempotencyException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class LockAcquisitionException extends RuntimeException {
+
+  public LockAcquisitionException(String message) {
+    super(message);
+  }
+}
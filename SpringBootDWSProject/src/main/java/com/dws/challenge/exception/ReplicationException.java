@@ -0,0 +1,12 @@
+package com.dws.challenge.exception;
+
+public class ReplicationException extends RuntimeException {
+
+  public ReplicationException(String message) {
+    super(message);
+  }
+
+  public ReplicationException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,12 @@
+package com.dws.challenge.exception;
+
+public class WireProtocolException extends RuntimeException {
+
+  public WireProtocolException(String message) {
+    super(message);
+  }
+
+  public WireProtocolException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
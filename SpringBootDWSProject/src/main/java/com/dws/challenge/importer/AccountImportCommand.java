@@ -0,0 +1,78 @@
+package com.dws.challenge.importer;
+
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Offline import, run once the application started when accounts.import.file is set: imports
+ * the file with the {@link AccountImporter}, in the format of accounts.import.format or else of
+ * its extension, writes the report to accounts.import.report (the file name plus
+ * .report.ndjson by default) and stops the application unless accounts.import.exit is false.
+ * Only a store that outlives the application keeps the accounts, e.g.
+ *
+ *   java -jar app.jar --spring.main.web-application-type=none --accounts.store=journal --accounts.import.file=accounts.csv
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.import.file")
+@Slf4j
+public class AccountImportCommand implements ApplicationRunner {
+
+	private final AccountImporter accountImporter;
+
+	private final ApplicationContext applicationContext;
+
+	private final Path file;
+
+	private final Path reportFile;
+
+	private final AccountImporter.Format format;
+
+	private final boolean exit;
+
+	@Autowired
+	public AccountImportCommand(AccountImporter accountImporter, ApplicationContext applicationContext,
+			@Value("${accounts.import.file}") String file,
+			@Value("${accounts.import.report:}") String reportFile,
+			@Value("${accounts.import.format:}") String format,
+			@Value("${accounts.import.exit:true}") boolean exit) {
+		this.accountImporter = accountImporter;
+		this.applicationContext = applicationContext;
+		this.file = Paths.get(file);
+		this.reportFile = Paths.get(reportFile.isBlank() ? file + ".report.ndjson" : reportFile);
+		this.format = AccountImporter.Format.of(format.isBlank() ? file : format);
+		this.exit = exit;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		log.info("Importing accounts from {} as {}, reporting to {}", file, format, reportFile);
+		int exitCode = 0;
+		try (InputStream input = Files.newInputStream(file);
+				OutputStream report = new BufferedOutputStream(Files.newOutputStream(reportFile), 1 << 16)) {
+			ImportSummary summary = accountImporter.importAccounts(input, format, report);
+			log.info("Import of {} done: {}", file, summary);
+		} catch (Exception ex) {
+			log.error("Import of {} failed", file, ex);
+			exitCode = 1;
+		}
+		if (exit) {
+			int code = exitCode;
+			System.exit(SpringApplication.exit(applicationContext, () -> code));
+		}
+	}
+}
@@ -0,0 +1,363 @@
+package com.dws.challenge.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dws.challenge.cluster.ClusterRouter;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.service.AccountsService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * AccountImporter creates accounts from a stream of CSV lines (accountId,balance, with an
+ * optional header line) or NDJSON lines ({"accountId":"1","balance":100}), for
+ * POST /v1/accounts/bulk and the offline {@link AccountImportCommand}. The stream is read
+ * accounts.import.batch-size lines at a time; the lines of a batch are parsed and validated
+ * in parallel on a fork-join pool of accounts.import.parallelism threads while the batch
+ * before it is created in the store with one {@link AccountsService#createAccounts(List)}.
+ *
+ * Every line that did not create an account is written to the report as soon as its batch
+ * is done, one JSON object per line with the line number, the account id, DUPLICATE or
+ * REJECTED and the reason, and an {@link ImportSummary} is written last. Blank lines are
+ * skipped. In cluster mode the accounts of other nodes are rejected, they have to be
+ * imported on their own node.
+ */
+@Service
+@Slf4j
+public class AccountImporter {
+
+	public enum Format {
+		CSV, NDJSON;
+
+		/**
+		 * of(..) returns the format named by a media type or file name, CSV unless it is NDJSON.
+		 */
+		public static Format of(String mediaTypeOrFileName) {
+			String name = mediaTypeOrFileName == null ? "" : mediaTypeOrFileName.toLowerCase();
+			return name.contains("ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+		}
+	}
+
+	static final String DUPLICATE = "DUPLICATE";
+
+	static final String REJECTED = "REJECTED";
+
+	/**
+	 * Lines a validation task handles without forking further.
+	 */
+	private static final int VALIDATION_GRAIN = 512;
+
+	private static final String CSV_HEADER = "accountid,balance";
+
+	private final AccountsService accountsService;
+
+	private final ClusterRouter clusterRouter;
+
+	private final JsonFactory jsonFactory;
+
+	private final int batchSize;
+
+	private final ForkJoinPool validationPool;
+
+	@Autowired
+	public AccountImporter(AccountsService accountsService, ClusterRouter clusterRouter, ObjectMapper objectMapper,
+			@Value("${accounts.import.batch-size:8192}") int batchSize,
+			@Value("${accounts.import.parallelism:0}") int parallelism) {
+		this.accountsService = accountsService;
+		this.clusterRouter = clusterRouter;
+		this.jsonFactory = objectMapper.getFactory();
+		this.batchSize = Math.max(1, batchSize);
+		this.validationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * importAccounts(..) reads the input to its end, writes the report to the output and closes
+	 * it. Failures of single lines only end up in the report.
+	 */
+	public ImportSummary importAccounts(InputStream input, Format format, OutputStream reportOutput) throws IOException {
+		long started = System.nanoTime();
+		Counts counts = new Counts();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+		try (JsonGenerator report = this.jsonFactory.createGenerator(reportOutput)) {
+			report.setRootValueSeparator(null);
+			long nextLine = 1;
+			Batch pending = null;
+			ForkJoinTask<Void> pendingValidation = null;
+			Batch batch;
+			while ((batch = read(reader, nextLine)) != null) {
+				nextLine += batch.size;
+				ForkJoinTask<Void> validation = this.validationPool.submit(new Validation(batch, format, 0, batch.size));
+				if (pending != null) {
+					pendingValidation.join();
+					create(pending, counts, report);
+				}
+				pending = batch;
+				pendingValidation = validation;
+			}
+			if (pending != null) {
+				pendingValidation.join();
+				create(pending, counts, report);
+			}
+			ImportSummary summary = new ImportSummary(counts.imported, counts.duplicates, counts.rejected,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			report.writeStartObject();
+			report.writeNumberField("imported", summary.getImported());
+			report.writeNumberField("duplicates", summary.getDuplicates());
+			report.writeNumberField("rejected", summary.getRejected());
+			report.writeNumberField("millis", summary.getMillis());
+			report.writeEndObject();
+			report.writeRaw('\n');
+			log.info("Imported {} accounts, {} duplicates and {} rejected in {} ms", summary.getImported(),
+					summary.getDuplicates(), summary.getRejected(), summary.getMillis());
+			return summary;
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		this.validationPool.shutdown();
+	}
+
+	private Batch read(BufferedReader reader, long firstLine) throws IOException {
+		String[] lines = new String[this.batchSize];
+		int size = 0;
+		String line;
+		while (size < lines.length && (line = reader.readLine()) != null) {
+			lines[size++] = line;
+		}
+		return size == 0 ? null : new Batch(lines, size, firstLine);
+	}
+
+	/**
+	 * create(..) runs on the importing thread, in batch order, and reports the lines of the batch
+	 * in line order.
+	 */
+	private void create(Batch batch, Counts counts, JsonGenerator report) throws IOException {
+		List<Account> accounts = new ArrayList<>(batch.size);
+		for (int i = 0; i < batch.size; i++) {
+			if (batch.accounts[i] != null) {
+				accounts.add(batch.accounts[i]);
+			}
+		}
+		List<String> failures;
+		try {
+			failures = accounts.isEmpty() ? Collections.emptyList() : this.accountsService.createAccounts(accounts);
+		} catch (Exception ex) {
+			failures = Collections.nCopies(accounts.size(), ex.getMessage());
+		}
+		int created = 0;
+		for (int i = 0; i < batch.size; i++) {
+			long line = batch.firstLine + i;
+			if (batch.accounts[i] != null) {
+				String failure = failures.get(created++);
+				String accountId = batch.accounts[i].getAccountId();
+				if (failure == null) {
+					counts.imported++;
+				} else if (this.accountsService.getAccount(accountId) != null) {
+					counts.duplicates++;
+					report(report, line, accountId, DUPLICATE, failure);
+				} else {
+					counts.rejected++;
+					report(report, line, accountId, REJECTED, failure);
+				}
+			} else if (batch.reasons[i] != null) {
+				counts.rejected++;
+				report(report, line, batch.accountIds[i], REJECTED, batch.reasons[i]);
+			}
+		}
+		report.flush();
+	}
+
+	private static void report(JsonGenerator report, long line, String accountId, String status, String reason)
+			throws IOException {
+		report.writeStartObject();
+		report.writeNumberField("line", line);
+		if (accountId != null) {
+			report.writeStringField("accountId", accountId);
+		}
+		report.writeStringField("status", status);
+		report.writeStringField("reason", reason);
+		report.writeEndObject();
+		report.writeRaw('\n');
+	}
+
+	/**
+	 * validate(..) leaves the account of a valid line in the batch, or the reason it is not.
+	 */
+	private void validate(Batch batch, Format format, int index) {
+		String line = batch.lines[index];
+		batch.lines[index] = null;
+		if (line.isBlank() || (format == Format.CSV && batch.firstLine + index == 1 && isCsvHeader(line))) {
+			return;
+		}
+		try {
+			Account account = format == Format.CSV ? parseCsv(line) : parseNdjson(line);
+			String accountId = account.getAccountId();
+			batch.accountIds[index] = accountId;
+			if (accountId == null) {
+				throw new AccountRelatedException("Account Id does not exists..!!!");
+			}
+			AccountIds.validate(accountId);
+			if (!this.clusterRouter.isLocal(accountId)) {
+				throw new AccountRelatedException("Account id " + accountId + " belongs to "
+						+ this.clusterRouter.ownerOf(accountId) + ", import it there...!!!");
+			}
+			if (account.getBalance() == null) {
+				throw new MoneyRelatedException("Initial balance should not be empty...!!!");
+			}
+			if (account.getBalance().signum() < 0) {
+				throw new MoneyRelatedException("Initial balance must be positive.");
+			}
+			MoneyUnits.toMinorUnits(account.getBalance());
+			batch.accounts[index] = account;
+		} catch (IOException | RuntimeException ex) {
+			batch.reasons[index] = ex.getMessage();
+		}
+	}
+
+	private static boolean isCsvHeader(String line) {
+		return line.replace(" ", "").replace("\"", "").equalsIgnoreCase(CSV_HEADER);
+	}
+
+	private static Account parseCsv(String line) {
+		int comma = line.indexOf(',');
+		if (comma < 0 || line.indexOf(',', comma + 1) >= 0) {
+			throw new AccountRelatedException("Line should be accountId,balance...!!!");
+		}
+		String balance = line.substring(comma + 1).trim();
+		return new Account(line.substring(0, comma).trim(), balance.isEmpty() ? null : toDecimal(balance));
+	}
+
+	private Account parseNdjson(String line) throws IOException {
+		String accountId = null;
+		BigDecimal balance = null;
+		try (JsonParser parser = this.jsonFactory.createParser(line)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new AccountRelatedException("Line should be a JSON object...!!!");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("accountId".equals(field)) {
+					accountId = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+				} else if ("balance".equals(field)) {
+					if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+						balance = parser.getDecimalValue();
+					} else if (value == JsonToken.VALUE_STRING) {
+						balance = toDecimal(parser.getText());
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+		} catch (JsonProcessingException ex) {
+			throw new AccountRelatedException("Line should be a JSON object...!!!");
+		}
+		return new Account(accountId, balance);
+	}
+
+	private static BigDecimal toDecimal(String value) {
+		try {
+			return new BigDecimal(value);
+		} catch (NumberFormatException ex) {
+			throw new MoneyRelatedException("Initial balance " + value + " is not a number...!!!");
+		}
+	}
+
+	/**
+	 * Batch is a run of consecutive lines and, once validated, the account or the reason of
+	 * every line, in arrays sized for the whole batch.
+	 */
+	private static final class Batch {
+
+		final String[] lines;
+
+		final int size;
+
+		final long firstLine;
+
+		final Account[] accounts;
+
+		final String[] accountIds;
+
+		final String[] reasons;
+
+		Batch(String[] lines, int size, long firstLine) {
+			this.lines = lines;
+			this.size = size;
+			this.firstLine = firstLine;
+			this.accounts = new Account[size];
+			this.accountIds = new String[size];
+			this.reasons = new String[size];
+		}
+	}
+
+	private final class Validation extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Batch batch;
+
+		private final Format format;
+
+		private final int from;
+
+		private final int to;
+
+		Validation(Batch batch, Format format, int from, int to) {
+			this.batch = batch;
+			this.format = format;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= VALIDATION_GRAIN) {
+				for (int i = from; i < to; i++) {
+					validate(batch, format, i);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Validation(batch, format, from, middle), new Validation(batch, format, middle, to));
+		}
+	}
+
+	private static final class Counts {
+
+		long imported;
+
+		long duplicates;
+
+		long rejected;
+	}
+}
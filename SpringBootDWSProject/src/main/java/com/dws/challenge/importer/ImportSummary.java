@@ -0,0 +1,31 @@
+package com.dws.challenge.importer;
+
+import lombok.Getter;
+
+/**
+ * Counts of one import, also written as the last line of its report.
+ */
+@Getter
+public class ImportSummary {
+
+	private final long imported;
+
+	private final long duplicates;
+
+	private final long rejected;
+
+	private final long millis;
+
+	public ImportSummary(long imported, long duplicates, long rejected, long millis) {
+		this.imported = imported;
+		this.duplicates = duplicates;
+		this.rejected = rejected;
+		this.millis = millis;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportSummary [imported=" + imported + ", duplicates=" + duplicates + ", rejected=" + rejected
+				+ ", millis=" + millis + "]";
+	}
+}
@@ -0,0 +1,390 @@
+package com.dws.challenge.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.exception.JournalException;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * AccountJournal is an append-only write-ahead log of account changes, stored in
+ * memory-mapped segment files of a fixed size that are rolled when full.
+ *
+ * Appending only copies the encoded record into the mapped segment under a short lock.
+ * Forcing it to disk is decoupled from appending: with EVERY_WRITE each writer waits in
+ * {@link #commit(long)} until a force covers its record, and writers that arrive while a
+ * force is running are all covered by the next one, so concurrent writers share fsyncs.
+ * INTERVAL and RECORDS force from a background flusher instead.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.store", havingValue = "journal")
+@Slf4j
+public class AccountJournal {
+
+	private static final int SEGMENT_MAGIC = 0x44575331;
+
+	private static final int SEGMENT_HEADER_SIZE = 8;
+
+	private static final String SEGMENT_PREFIX = "journal-";
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private final Path directory;
+
+	private final int segmentSize;
+
+	private final FsyncPolicy fsyncPolicy;
+
+	private final int fsyncRecords;
+
+	private final ReentrantLock appendLock = new ReentrantLock();
+
+	private final ReentrantLock forceLock = new ReentrantLock();
+
+	private final ScheduledExecutorService flusher;
+
+	private final ThreadLocal<long[]> lastAppended = ThreadLocal.withInitial(() -> new long[1]);
+
+	private FileChannel channel;
+
+	private volatile MappedByteBuffer segment;
+
+	private long segmentIndex;
+
+	private long nextLsn = 1;
+
+	private volatile long appendedLsn;
+
+	private volatile long durableLsn;
+
+	private int unforcedRecords;
+
+	private boolean recovered;
+
+	public AccountJournal(String directory, int segmentSizeMb, FsyncPolicy fsyncPolicy, long fsyncIntervalMs,
+			int fsyncRecords) {
+		this(directory, segmentSizeMb, fsyncPolicy, fsyncIntervalMs, fsyncRecords, false);
+	}
+
+	@Autowired
+	public AccountJournal(@Value("${accounts.journal.dir:data/journal}") String directory,
+			@Value("${accounts.journal.segment-size-mb:64}") int segmentSizeMb,
+			@Value("${accounts.journal.fsync:EVERY_WRITE}") FsyncPolicy fsyncPolicy,
+			@Value("${accounts.journal.fsync-interval-ms:10}") long fsyncIntervalMs,
+			@Value("${accounts.journal.fsync-records:1000}") int fsyncRecords,
+			@Value("${accounts.virtual-threads.enabled:false}") boolean virtualThreads) {
+		this.flusher = Executors.newSingleThreadScheduledExecutor(
+				VirtualThreads.threadFactory("journal-flusher", virtualThreads));
+		this.directory = Path.of(directory);
+		this.segmentSize = segmentSizeMb * 1024 * 1024;
+		this.fsyncPolicy = fsyncPolicy;
+		this.fsyncRecords = fsyncRecords;
+		if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+			flusher.scheduleWithFixedDelay(this::forceQuietly, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * recover(..) replays every intact record of every segment, in the order they were
+	 * appended, and positions the journal for appending after the last of them. A torn or
+	 * corrupt record in the last segment ends the replay; whatever follows it is discarded.
+	 * Earlier segments were forced before the next one was started, so a corrupt record in
+	 * one of them fails the recovery rather than replaying the later segments without it.
+	 */
+	public long recover(Consumer<JournalRecord> consumer) {
+		return recover(new JournalMark(0, 0), consumer);
+	}
+
+	/**
+	 * recover(from, ..) only replays the segments from the mark's segment on, as a snapshot
+	 * taken at that mark already covers the older ones. Lsns continue after the mark even if
+	 * no record follows it.
+	 */
+	public long recover(JournalMark from, Consumer<JournalRecord> consumer) {
+		appendLock.lock();
+		try {
+			Files.createDirectories(directory);
+			List<Path> segments = listSegments();
+			segments.removeIf(path -> indexOf(path) < from.getSegmentIndex());
+			nextLsn = Math.max(nextLsn, from.getLsn() + 1);
+			long replayed = 0;
+			for (int i = 0; i < segments.size(); i++) {
+				boolean last = i == segments.size() - 1;
+				FileChannel segmentChannel = FileChannel.open(segments.get(i), StandardOpenOption.READ, StandardOpenOption.WRITE);
+				MappedByteBuffer buffer = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+				if (buffer.getInt(0) != SEGMENT_MAGIC) {
+					throw new JournalException("Journal segment " + segments.get(i) + " is not a journal segment...!!!");
+				}
+				buffer.position(SEGMENT_HEADER_SIZE);
+				JournalRecord record;
+				while ((record = JournalRecord.decode(buffer)) != null) {
+					consumer.accept(record);
+					nextLsn = Math.max(nextLsn, record.getLsn() + 1);
+					replayed++;
+				}
+				if (!last && !endOfRecords(buffer)) {
+					segmentChannel.close();
+					throw new JournalException("Journal segment " + segments.get(i) + " is corrupt at offset "
+							+ buffer.position() + " and " + (segments.size() - 1 - i) + " segments follow it...!!!");
+				}
+				if (last) {
+					segmentIndex = indexOf(segments.get(i));
+					truncateTail(buffer);
+					channel = segmentChannel;
+					segment = buffer;
+				} else {
+					segmentChannel.close();
+				}
+			}
+			if (segment == null) {
+				openSegment(Math.max(1, from.getSegmentIndex()));
+			}
+			appendedLsn = nextLsn - 1;
+			durableLsn = appendedLsn;
+			recovered = true;
+			log.info("Replayed {} journal records from {} segments in {}", replayed, segments.size(), directory);
+			return nextLsn - 1;
+		} catch (IOException ex) {
+			throw new JournalException("Could not recover the journal from " + directory, ex);
+		} finally {
+			appendLock.unlock();
+		}
+	}
+
+	/**
+	 * append(..) assigns the record the next lsn and copies it into the current segment. The
+	 * record is not durable before {@link #commit(long)} returned for its lsn.
+	 */
+	public long append(JournalRecord record) {
+		appendLock.lock();
+		try {
+			if (!recovered) {
+				throw new JournalException("Journal has to be recovered before appending...!!!");
+			}
+			JournalRecord numbered = record.withLsn(nextLsn);
+			int size = numbered.encodedSize();
+			if (size > segmentSize - SEGMENT_HEADER_SIZE) {
+				throw new JournalException("Journal record of " + size + " bytes does not fit into a segment...!!!");
+			}
+			if (segment.remaining() < size + JournalRecord.HEADER_SIZE) {
+				rollSegment();
+			}
+			numbered.encode(segment);
+			long lsn = nextLsn++;
+			appendedLsn = lsn;
+			lastAppended.get()[0] = lsn;
+			if (fsyncPolicy == FsyncPolicy.RECORDS && ++unforcedRecords >= fsyncRecords) {
+				unforcedRecords = 0;
+				flusher.execute(this::forceQuietly);
+			}
+			return lsn;
+		} catch (IOException ex) {
+			throw new JournalException("Could not append to the journal in " + directory, ex);
+		} finally {
+			appendLock.unlock();
+		}
+	}
+
+	/**
+	 * commit(..) makes sure the record with the given lsn is on disk when the policy is
+	 * EVERY_WRITE, and returns right away otherwise.
+	 */
+	public void commit(long lsn) {
+		if (fsyncPolicy == FsyncPolicy.EVERY_WRITE && lsn > durableLsn) {
+			force(lsn);
+		}
+	}
+
+	/**
+	 * sync() forces every record appended so far to disk, whatever the policy.
+	 */
+	public void sync() {
+		force(appendedLsn);
+	}
+
+	/**
+	 * commitLastAppended() commits the last record appended by the calling thread.
+	 */
+	public void commitLastAppended() {
+		commit(lastAppended.get()[0]);
+	}
+
+	/**
+	 * mark() is the journal position right now: every record appended later gets a greater
+	 * lsn and lands in the mark's segment or a later one.
+	 */
+	public JournalMark mark() {
+		appendLock.lock();
+		try {
+			return new JournalMark(segmentIndex, appendedLsn);
+		} finally {
+			appendLock.unlock();
+		}
+	}
+
+	/**
+	 * lastAppendedLsn() is the lsn of the last record appended by the calling thread.
+	 */
+	public long lastAppendedLsn() {
+		return lastAppended.get()[0];
+	}
+
+	/**
+	 * deleteSegmentsBefore(..) removes the segments older than the given one, never the
+	 * segment currently appended to.
+	 */
+	public int deleteSegmentsBefore(long index) {
+		long current;
+		appendLock.lock();
+		try {
+			current = segmentIndex;
+		} finally {
+			appendLock.unlock();
+		}
+		int deleted = 0;
+		try {
+			for (Path path : listSegments()) {
+				if (indexOf(path) < Math.min(index, current)) {
+					Files.deleteIfExists(path);
+					deleted++;
+				}
+			}
+		} catch (IOException ex) {
+			throw new JournalException("Could not delete old journal segments in " + directory, ex);
+		}
+		return deleted;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public long getAppendedLsn() {
+		return appendedLsn;
+	}
+
+	public long getDurableLsn() {
+		return durableLsn;
+	}
+
+	@PreDestroy
+	public void close() {
+		flusher.shutdown();
+		appendLock.lock();
+		try {
+			if (segment != null) {
+				segment.force();
+				durableLsn = appendedLsn;
+				channel.close();
+			}
+		} catch (IOException ex) {
+			log.error("Could not close the journal in {}", directory, ex);
+		} finally {
+			appendLock.unlock();
+		}
+	}
+
+	private void force(long lsn) {
+		forceLock.lock();
+		try {
+			if (lsn <= durableLsn) {
+				return;
+			}
+			MappedByteBuffer current;
+			long target;
+			appendLock.lock();
+			try {
+				current = segment;
+				target = appendedLsn;
+			} finally {
+				appendLock.unlock();
+			}
+			current.force();
+			durableLsn = target;
+		} finally {
+			forceLock.unlock();
+		}
+	}
+
+	private void forceQuietly() {
+		try {
+			force(appendedLsn);
+		} catch (RuntimeException ex) {
+			log.error("Could not force the journal in {}", directory, ex);
+		}
+	}
+
+	private void rollSegment() throws IOException {
+		segment.force();
+		channel.close();
+		openSegment(segmentIndex + 1);
+	}
+
+	private void openSegment(long index) throws IOException {
+		Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+		channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		buffer.putInt(0, SEGMENT_MAGIC);
+		buffer.putInt(4, 1);
+		buffer.position(SEGMENT_HEADER_SIZE);
+		segment = buffer;
+		segmentIndex = index;
+	}
+
+	/**
+	 * truncateTail(..) wipes whatever follows the last intact record of the segment, so a torn
+	 * write can never be mistaken for a record once new ones have been appended in front of it.
+	 */
+	private void truncateTail(MappedByteBuffer buffer) {
+		int position = buffer.position();
+		if (endOfRecords(buffer)) {
+			return;
+		}
+		log.warn("Discarding a torn or corrupt journal tail at offset {} of segment {}", position, segmentIndex);
+		for (int i = position; i < buffer.limit(); i++) {
+			buffer.put(i, (byte) 0);
+		}
+	}
+
+	/**
+	 * endOfRecords(..) tells whether the decoding stopped at unwritten space rather than at a
+	 * torn or corrupt record.
+	 */
+	private static boolean endOfRecords(MappedByteBuffer buffer) {
+		return buffer.remaining() < JournalRecord.HEADER_SIZE || buffer.getInt(buffer.position()) == 0;
+	}
+
+	private List<Path> listSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			List<Path> segments = new ArrayList<>();
+			files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+					&& path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().forEach(segments::add);
+			return segments;
+		}
+	}
+
+	private static long indexOf(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+}
@@ -0,0 +1,22 @@
+package com.dws.challenge.journal;
+
+/**
+ * When the journal forces appended records to disk.
+ */
+public enum FsyncPolicy {
+
+	/**
+	 * Every change waits until it is on disk. Concurrent writers share one force (group commit).
+	 */
+	EVERY_WRITE,
+
+	/**
+	 * A background flusher forces the journal every accounts.journal.fsync-interval-ms.
+	 */
+	INTERVAL,
+
+	/**
+	 * A background flush is triggered every accounts.journal.fsync-records records.
+	 */
+	RECORDS
+}
@@ -0,0 +1,30 @@
+package com.dws.challenge.journal;
+
+/**
+ * JournalMark is a position in the journal: the last lsn appended so far and the segment
+ * every later record will be appended to or after.
+ */
+public final class JournalMark {
+
+	private final long segmentIndex;
+
+	private final long lsn;
+
+	public JournalMark(long segmentIndex, long lsn) {
+		this.segmentIndex = segmentIndex;
+		this.lsn = lsn;
+	}
+
+	public long getSegmentIndex() {
+		return segmentIndex;
+	}
+
+	public long getLsn() {
+		return lsn;
+	}
+
+	@Override
+	public String toString() {
+		return "JournalMark [segmentIndex=" + segmentIndex + ", lsn=" + lsn + "]";
+	}
+}
@@ -0,0 +1,293 @@
+package com.dws.challenge.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import com.dws.challenge.domain.IdempotentOutcome;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.exception.JournalException;
+
+/**
+ * JournalRecord is one change of the account store as it is written to the journal.
+ *
+ * On disk a record is [int length][int crc32c][body], where the body is the type byte, the
+ * lsn and the type specific fields. Strings are written as an unsigned short length followed
+ * by their UTF-8 bytes, amounts and balances as longs in minor units. A length of zero marks
+ * the end of the written part of a segment.
+ *
+ * A change made by an idempotent request carries the request's outcome. Such records have
+ * the high bit of the type byte set and the outcome follows the lsn: key, fingerprint, status
+ * as a short, body and expiry. IDEMPOTENCY records carry only an outcome.
+ *
+ * Records built with the factory methods have no lsn yet; the journal assigns it on append.
+ */
+public final class JournalRecord {
+
+	public enum Type {
+		CREATE, DEPOSIT, WITHDRAW, TRANSFER, TRANSFER_BATCH, CLEAR, IDEMPOTENCY
+	}
+
+	static final int HEADER_SIZE = 8;
+
+	private static final int OUTCOME_FLAG = 0x80;
+
+	private static final Type[] TYPES = Type.values();
+
+	private final Type type;
+
+	private final long lsn;
+
+	private final String accountId;
+
+	private final String toAccId;
+
+	private final long amount;
+
+	private final List<Transfer> transfers;
+
+	private final IdempotentOutcome outcome;
+
+	private JournalRecord(Type type, long lsn, String accountId, String toAccId, long amount, List<Transfer> transfers) {
+		this(type, lsn, accountId, toAccId, amount, transfers, null);
+	}
+
+	private JournalRecord(Type type, long lsn, String accountId, String toAccId, long amount, List<Transfer> transfers,
+			IdempotentOutcome outcome) {
+		this.type = type;
+		this.lsn = lsn;
+		this.accountId = accountId;
+		this.toAccId = toAccId;
+		this.amount = amount;
+		this.transfers = transfers;
+		this.outcome = outcome;
+	}
+
+	public static JournalRecord create(String accountId, long balance) {
+		return new JournalRecord(Type.CREATE, 0, accountId, null, balance, Collections.emptyList());
+	}
+
+	public static JournalRecord deposit(String accountId, long amount) {
+		return new JournalRecord(Type.DEPOSIT, 0, accountId, null, amount, Collections.emptyList());
+	}
+
+	public static JournalRecord withdraw(String accountId, long amount) {
+		return new JournalRecord(Type.WITHDRAW, 0, accountId, null, amount, Collections.emptyList());
+	}
+
+	public static JournalRecord transfer(String fromAccId, String toAccId, long amount) {
+		return new JournalRecord(Type.TRANSFER, 0, fromAccId, toAccId, amount, Collections.emptyList());
+	}
+
+	public static JournalRecord transferBatch(List<Transfer> transfers) {
+		return new JournalRecord(Type.TRANSFER_BATCH, 0, null, null, 0, transfers);
+	}
+
+	public static JournalRecord clear() {
+		return new JournalRecord(Type.CLEAR, 0, null, null, 0, Collections.emptyList());
+	}
+
+	public static JournalRecord idempotency(IdempotentOutcome outcome) {
+		return new JournalRecord(Type.IDEMPOTENCY, 0, null, null, 0, Collections.emptyList(), outcome);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public long getLsn() {
+		return lsn;
+	}
+
+	/**
+	 * getAccountId() is the account of a create, deposit or withdraw and the source of a transfer.
+	 */
+	public String getAccountId() {
+		return accountId;
+	}
+
+	public String getToAccId() {
+		return toAccId;
+	}
+
+	/**
+	 * getAmount() is the initial balance of a create and the amount of the other changes.
+	 */
+	public long getAmount() {
+		return amount;
+	}
+
+	public List<Transfer> getTransfers() {
+		return transfers;
+	}
+
+	/**
+	 * getOutcome() is the outcome of the idempotent request that made the change, or null.
+	 */
+	public IdempotentOutcome getOutcome() {
+		return outcome;
+	}
+
+	public JournalRecord withOutcome(IdempotentOutcome outcome) {
+		return new JournalRecord(type, lsn, accountId, toAccId, amount, transfers, outcome);
+	}
+
+	JournalRecord withLsn(long lsn) {
+		return new JournalRecord(type, lsn, accountId, toAccId, amount, transfers, outcome);
+	}
+
+	int encodedSize() {
+		int size = HEADER_SIZE + 1 + 8;
+		if (outcome != null) {
+			size += stringSize(outcome.getKey()) + stringSize(outcome.getFingerprint()) + 2 + stringSize(outcome.getBody()) + 8;
+		}
+		switch (type) {
+		case CREATE:
+		case DEPOSIT:
+		case WITHDRAW:
+			return size + stringSize(accountId) + 8;
+		case TRANSFER:
+			return size + stringSize(accountId) + stringSize(toAccId) + 8;
+		case TRANSFER_BATCH:
+			size += 4;
+			for (Transfer transfer : transfers) {
+				size += stringSize(transfer.getFromAccId()) + stringSize(transfer.getToAccId()) + 8;
+			}
+			return size;
+		default:
+			return size;
+		}
+	}
+
+	/**
+	 * encode(..) writes the record at the buffer's position and advances it.
+	 */
+	void encode(ByteBuffer buffer) {
+		int start = buffer.position();
+		buffer.position(start + HEADER_SIZE);
+		buffer.put((byte) (outcome == null ? type.ordinal() : type.ordinal() | OUTCOME_FLAG));
+		buffer.putLong(lsn);
+		if (outcome != null) {
+			putString(buffer, outcome.getKey());
+			putString(buffer, outcome.getFingerprint());
+			buffer.putShort((short) outcome.getStatus());
+			putString(buffer, outcome.getBody());
+			buffer.putLong(outcome.getExpiresAt());
+		}
+		switch (type) {
+		case CREATE:
+		case DEPOSIT:
+		case WITHDRAW:
+			putString(buffer, accountId);
+			buffer.putLong(amount);
+			break;
+		case TRANSFER:
+			putString(buffer, accountId);
+			putString(buffer, toAccId);
+			buffer.putLong(amount);
+			break;
+		case TRANSFER_BATCH:
+			buffer.putInt(transfers.size());
+			for (Transfer transfer : transfers) {
+				putString(buffer, transfer.getFromAccId());
+				putString(buffer, transfer.getToAccId());
+				buffer.putLong(transfer.getAmount());
+			}
+			break;
+		default:
+			break;
+		}
+		int end = buffer.position();
+		int length = end - start - HEADER_SIZE;
+		buffer.putInt(start, length);
+		buffer.putInt(start + 4, checksum(buffer, start + HEADER_SIZE, length));
+	}
+
+	/**
+	 * decode(..) reads the record at the buffer's position and advances past it. It returns
+	 * null, leaving the position alone, at the end of the written data or at a torn or
+	 * corrupt record.
+	 */
+	static JournalRecord decode(ByteBuffer buffer) {
+		int start = buffer.position();
+		if (buffer.remaining() < HEADER_SIZE) {
+			return null;
+		}
+		int length = buffer.getInt(start);
+		if (length <= 0 || length > buffer.remaining() - HEADER_SIZE) {
+			return null;
+		}
+		if (buffer.getInt(start + 4) != checksum(buffer, start + HEADER_SIZE, length)) {
+			return null;
+		}
+		ByteBuffer body = buffer.slice(start + HEADER_SIZE, length);
+		int typeByte = body.get() & 0xFF;
+		int ordinal = typeByte & ~OUTCOME_FLAG;
+		if (ordinal >= TYPES.length) {
+			return null;
+		}
+		Type type = TYPES[ordinal];
+		long lsn = body.getLong();
+		IdempotentOutcome outcome = null;
+		if ((typeByte & OUTCOME_FLAG) != 0) {
+			outcome = new IdempotentOutcome(getString(body), getString(body), body.getShort(), getString(body), body.getLong());
+		}
+		JournalRecord record;
+		switch (type) {
+		case CREATE:
+		case DEPOSIT:
+		case WITHDRAW:
+			record = new JournalRecord(type, lsn, getString(body), null, body.getLong(), Collections.emptyList());
+			break;
+		case TRANSFER:
+			record = new JournalRecord(type, lsn, getString(body), getString(body), body.getLong(), Collections.emptyList());
+			break;
+		case TRANSFER_BATCH:
+			int count = body.getInt();
+			List<Transfer> transfers = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				transfers.add(new Transfer(getString(body), getString(body), body.getLong()));
+			}
+			record = new JournalRecord(type, lsn, null, null, 0, transfers);
+			break;
+		default:
+			record = new JournalRecord(type, lsn, null, null, 0, Collections.emptyList());
+		}
+		buffer.position(start + HEADER_SIZE + length);
+		return outcome == null ? record : record.withOutcome(outcome);
+	}
+
+	private static int checksum(ByteBuffer buffer, int offset, int length) {
+		CRC32C crc = new CRC32C();
+		crc.update(buffer.slice(offset, length));
+		return (int) crc.getValue();
+	}
+
+	private static int stringSize(String value) {
+		return 2 + value.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private static void putString(ByteBuffer buffer, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF) {
+			throw new JournalException("String of " + bytes.length + " bytes is too long to be journaled...!!!");
+		}
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString() {
+		return "JournalRecord [type=" + type + ", lsn=" + lsn + ", accountId=" + accountId + ", toAccId=" + toAccId
+				+ ", amount=" + amount + ", transfers=" + transfers.size() + ", outcome=" + outcome + "]";
+	}
+}
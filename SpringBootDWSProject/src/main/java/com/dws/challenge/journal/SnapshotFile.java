@@ -0,0 +1,258 @@
+package com.dws.challenge.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import com.dws.challenge.exception.JournalException;
+
+/**
+ * SnapshotFile is a point-in-time image of the account store that lets recovery skip the
+ * journal in front of it.
+ *
+ * On disk a snapshot is [int magic][int version][long mark segment][long mark lsn][long count],
+ * the entries as [unsigned short id length][id UTF-8][long balance][long lsn] and finally the
+ * crc32c of all entries. Every entry carries the lsn of the last change applied to the
+ * account, which is what makes a snapshot taken while writers keep going usable: replaying
+ * the journal from the mark only has to skip the changes an account has already seen.
+ *
+ * Snapshots are written to a temporary file and renamed into place once complete, so a
+ * snapshot-*.snap file is never half written unless the disk lied.
+ */
+public final class SnapshotFile {
+
+	/**
+	 * EntryConsumer receives the entries of a snapshot.
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer {
+		void accept(String accountId, long balance, long lsn);
+	}
+
+	private static final int SNAPSHOT_MAGIC = 0x44575353;
+
+	private static final int SNAPSHOT_VERSION = 1;
+
+	private static final int SNAPSHOT_HEADER_SIZE = 32;
+
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+	private static final String SNAPSHOT_SUFFIX = ".snap";
+
+	private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+	private SnapshotFile() {
+	}
+
+	/**
+	 * create(..) starts a snapshot taken at the given mark. Entries are written with
+	 * {@link Writer#accept(String, long, long)} and published with {@link Writer#commit()}.
+	 */
+	public static Writer create(Path directory, JournalMark mark) {
+		return new Writer(directory, mark);
+	}
+
+	/**
+	 * load(..) passes every entry of the snapshot to the consumer and returns its mark. A
+	 * snapshot that fails its checksum is rejected before the first entry is passed on.
+	 */
+	public static JournalMark load(Path snapshot, EntryConsumer consumer) {
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < SNAPSHOT_HEADER_SIZE + 4 || size > Integer.MAX_VALUE) {
+				throw new JournalException("Snapshot " + snapshot + " has an invalid size of " + size + " bytes...!!!");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			JournalMark mark = readHeader(snapshot, buffer);
+			long count = buffer.getLong(24);
+			int entriesEnd = (int) size - 4;
+
+			CRC32C crc = new CRC32C();
+			crc.update(buffer.slice(SNAPSHOT_HEADER_SIZE, entriesEnd - SNAPSHOT_HEADER_SIZE));
+			if ((int) crc.getValue() != buffer.getInt(entriesEnd)) {
+				throw new JournalException("Snapshot " + snapshot + " is corrupt...!!!");
+			}
+
+			buffer.position(SNAPSHOT_HEADER_SIZE);
+			byte[] id = new byte[0xFFFF];
+			for (long i = 0; i < count; i++) {
+				int length = buffer.getShort() & 0xFFFF;
+				buffer.get(id, 0, length);
+				consumer.accept(new String(id, 0, length, StandardCharsets.UTF_8), buffer.getLong(), buffer.getLong());
+			}
+			if (buffer.position() != entriesEnd) {
+				throw new JournalException("Snapshot " + snapshot + " does not end after its " + count + " entries...!!!");
+			}
+			return mark;
+		} catch (JournalException ex) {
+			throw ex;
+		} catch (IOException | RuntimeException ex) {
+			throw new JournalException("Could not load the snapshot " + snapshot, ex);
+		}
+	}
+
+	/**
+	 * readMark(..) only reads the mark of a snapshot, without checking its entries.
+	 */
+	public static JournalMark readMark(Path snapshot) {
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			return readHeader(snapshot, header);
+		} catch (IOException ex) {
+			throw new JournalException("Could not read the snapshot " + snapshot, ex);
+		}
+	}
+
+	/**
+	 * list(..) returns the snapshots of the directory, newest first.
+	 */
+	public static List<Path> list(Path directory) {
+		if (!Files.isDirectory(directory)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			List<Path> snapshots = new ArrayList<>();
+			files.filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+					&& path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX)).sorted(Comparator.reverseOrder()).forEach(snapshots::add);
+			return snapshots;
+		} catch (IOException ex) {
+			throw new JournalException("Could not list the snapshots in " + directory, ex);
+		}
+	}
+
+	private static JournalMark readHeader(Path snapshot, ByteBuffer buffer) {
+		if (buffer.limit() < SNAPSHOT_HEADER_SIZE || buffer.getInt(0) != SNAPSHOT_MAGIC) {
+			throw new JournalException("Snapshot " + snapshot + " is not a snapshot...!!!");
+		}
+		if (buffer.getInt(4) != SNAPSHOT_VERSION) {
+			throw new JournalException("Snapshot " + snapshot + " has the unknown version " + buffer.getInt(4) + "...!!!");
+		}
+		return new JournalMark(buffer.getLong(8), buffer.getLong(16));
+	}
+
+	/**
+	 * Writer streams the entries of a new snapshot through a direct buffer into a temporary
+	 * file. Closing a writer that was not committed discards the temporary file.
+	 */
+	public static final class Writer implements EntryConsumer, Closeable {
+
+		private final Path target;
+
+		private final Path temporary;
+
+		private final JournalMark mark;
+
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+		private final CRC32C crc = new CRC32C();
+
+		private FileChannel channel;
+
+		private long count;
+
+		private boolean committed;
+
+		private Writer(Path directory, JournalMark mark) {
+			this.mark = mark;
+			this.target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, mark.getLsn(), SNAPSHOT_SUFFIX));
+			this.temporary = directory.resolve(target.getFileName() + ".tmp");
+			try {
+				Files.createDirectories(directory);
+				channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.WRITE);
+				channel.position(SNAPSHOT_HEADER_SIZE);
+			} catch (IOException ex) {
+				throw new JournalException("Could not create the snapshot " + temporary, ex);
+			}
+		}
+
+		@Override
+		public void accept(String accountId, long balance, long lsn) {
+			byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+			if (id.length > 0xFFFF) {
+				throw new JournalException("Account id of " + id.length + " bytes is too long for a snapshot...!!!");
+			}
+			if (buffer.remaining() < 2 + id.length + 16) {
+				flush();
+			}
+			buffer.putShort((short) id.length);
+			buffer.put(id);
+			buffer.putLong(balance);
+			buffer.putLong(lsn);
+			count++;
+		}
+
+		/**
+		 * commit() completes the snapshot, forces it to disk and renames it into place.
+		 */
+		public Path commit() {
+			flush();
+			try {
+				buffer.putInt((int) crc.getValue());
+				writeFully(channel.size());
+				buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(mark.getSegmentIndex()).putLong(mark.getLsn())
+						.putLong(count);
+				writeFully(0);
+				channel.force(true);
+				channel.close();
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				committed = true;
+				return target;
+			} catch (IOException ex) {
+				throw new JournalException("Could not complete the snapshot " + target, ex);
+			}
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		@Override
+		public void close() {
+			if (committed) {
+				return;
+			}
+			try {
+				channel.close();
+				Files.deleteIfExists(temporary);
+			} catch (IOException ex) {
+				throw new JournalException("Could not discard the snapshot " + temporary, ex);
+			}
+		}
+
+		private void flush() {
+			buffer.flip();
+			crc.update(buffer.duplicate());
+			try {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} catch (IOException ex) {
+				throw new JournalException("Could not write the snapshot " + temporary, ex);
+			}
+			buffer.clear();
+		}
+
+		private void writeFully(long position) throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.dws.challenge.ledger;
+
+import java.util.Arrays;
+
+/**
+ * AccountHistory is the append-only ledger of one account, held column-wise in chunks of
+ * primitive arrays: a transaction id, timestamp, signed amount and balance after as longs,
+ * the counterparty as an int ordinal and the entry type as a byte, 37 bytes an entry. The
+ * first chunk holds {@link #FIRST_CHUNK} entries and every further one twice as many as
+ * the one before, up to {@link #MAX_CHUNK}, so quiet accounts stay small and busy ones do
+ * not copy their history as it grows.
+ *
+ * Entries are appended by one thread at a time, the store holds the account's stripe while
+ * it reports a change, and timestamps never go backwards within an account. Readers run
+ * without locks: an entry and the chunk holding it are written before the volatile size
+ * that publishes them.
+ */
+final class AccountHistory {
+
+	static final int FIRST_CHUNK = 8;
+
+	static final int MAX_CHUNK = 4096;
+
+	private static final Chunk[] NO_CHUNKS = new Chunk[0];
+
+	private volatile Chunk[] chunks = NO_CHUNKS;
+
+	private volatile int size;
+
+	private long lastTimestamp = Long.MIN_VALUE;
+
+	/**
+	 * append(..) adds an entry stamped with the given time, or with the time of the previous
+	 * entry if the clock went backwards, and returns the timestamp used.
+	 */
+	long append(long transactionId, long timestamp, byte type, long amount, int counterparty, long balance) {
+		long stamp = Math.max(timestamp, lastTimestamp);
+		Chunk[] current = chunks;
+		Chunk last = current.length == 0 ? null : current[current.length - 1];
+		if (last == null || size - last.start == last.timestamps.length) {
+			int capacity = last == null ? FIRST_CHUNK : Math.min(last.timestamps.length * 2, MAX_CHUNK);
+			last = new Chunk(size, capacity);
+			current = Arrays.copyOf(current, current.length + 1);
+			current[current.length - 1] = last;
+			chunks = current;
+		}
+		int index = size - last.start;
+		last.transactionIds[index] = transactionId;
+		last.timestamps[index] = stamp;
+		last.types[index] = type;
+		last.amounts[index] = amount;
+		last.counterparties[index] = counterparty;
+		last.balances[index] = balance;
+		lastTimestamp = stamp;
+		size++;
+		return stamp;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * scan(..) hands the entries stamped from (inclusive) to to (exclusive) to the visitor,
+	 * oldest first, until limit entries were visited. Finding the first entry is a binary
+	 * search over the chunks by their first timestamp and then within the chunk.
+	 */
+	void scan(long from, long to, int limit, EntryVisitor visitor) {
+		int visible = size;
+		Chunk[] current = chunks;
+		int chunk = chunkFor(current, visible, from);
+		if (chunk < 0) {
+			return;
+		}
+		int index = lowerBound(current[chunk], current[chunk].count(visible), from);
+		int visited = 0;
+		for (; chunk < current.length && visited < limit; chunk++, index = 0) {
+			Chunk entries = current[chunk];
+			int count = entries.count(visible);
+			for (; index < count && visited < limit; index++, visited++) {
+				if (entries.timestamps[index] >= to) {
+					return;
+				}
+				visitor.visit(entries.transactionIds[index], entries.timestamps[index], entries.types[index],
+						entries.amounts[index], entries.counterparties[index], entries.balances[index]);
+			}
+		}
+	}
+
+	/**
+	 * chunkFor(..) returns the last chunk whose first entry is stamped before from, where the
+	 * first entry at or after from can be, or the first chunk if there is none; -1 when the
+	 * history is empty.
+	 */
+	private static int chunkFor(Chunk[] chunks, int visible, long from) {
+		int low = 0;
+		int high = chunks.length - 1;
+		while (high >= 0 && chunks[high].start >= visible) {
+			high--;
+		}
+		if (high < 0) {
+			return -1;
+		}
+		int found = 0;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (chunks[middle].timestamps[0] < from) {
+				found = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return found;
+	}
+
+	private static int lowerBound(Chunk chunk, int count, long from) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (chunk.timestamps[middle] < from) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	@FunctionalInterface
+	interface EntryVisitor {
+		void visit(long transactionId, long timestamp, byte type, long amount, int counterparty, long balance);
+	}
+
+	private static final class Chunk {
+
+		/**
+		 * Position of the chunk's first entry in the whole history.
+		 */
+		private final int start;
+
+		private final long[] transactionIds;
+
+		private final long[] timestamps;
+
+		private final byte[] types;
+
+		private final long[] amounts;
+
+		private final int[] counterparties;
+
+		private final long[] balances;
+
+		private Chunk(int start, int capacity) {
+			this.start = start;
+			this.transactionIds = new long[capacity];
+			this.timestamps = new long[capacity];
+			this.types = new byte[capacity];
+			this.amounts = new long[capacity];
+			this.counterparties = new int[capacity];
+			this.balances = new long[capacity];
+		}
+
+		private int count(int visible) {
+			return Math.max(0, Math.min(timestamps.length, visible - start));
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com.dws.challenge.ledger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.LedgerEntry;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.repository.AccountChangeListener;
+import com.dws.challenge.service.AccountsService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * AccountLedger records every change of every account, as it is committed, in an
+ * append-only {@link AccountHistory} per account, and answers statement queries over a
+ * time range from it. Entries are kept as primitive columns, never as one object each,
+ * and counterparties as ordinals of a shared table of account ids, so the history of tens
+ * of millions of changes stays compact.
+ *
+ * The ledger is fed by the store's change listeners and covers the changes made since
+ * startup, accounts recovered from the journal start with an empty history. A store
+ * without change listeners has no ledger.
+ */
+@Component
+@Slf4j
+public class AccountLedger {
+
+	static final byte OPENING = 0;
+
+	static final byte DEPOSIT = 1;
+
+	static final byte WITHDRAWAL = 2;
+
+	static final byte TRANSFER_IN = 3;
+
+	static final byte TRANSFER_OUT = 4;
+
+	private static final LedgerEntry.Type[] TYPES = LedgerEntry.Type.values();
+
+	private static final int NO_COUNTERPARTY = -1;
+
+	private final ConcurrentHashMap<String, AccountHistory> histories = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+
+	private final ReentrantLock ordinalLock = new ReentrantLock();
+
+	private volatile String[] accountIds = new String[1024];
+
+	private final AtomicLong transactionIds = new AtomicLong();
+
+	private final AccountsService accountsService;
+
+	private final LongSupplier clock;
+
+	private final boolean supported;
+
+	@Autowired
+	public AccountLedger(AccountsService accountsService) {
+		this(accountsService, System::currentTimeMillis);
+	}
+
+	public AccountLedger(AccountsService accountsService, LongSupplier clock) {
+		this.accountsService = accountsService;
+		this.clock = clock;
+		boolean attached = true;
+		try {
+			accountsService.getAccountsRepository().addChangeListener(new LedgerRecorder());
+		} catch (AccountRelatedException ex) {
+			log.info("The transaction ledger is not available: {}", ex.getMessage());
+			attached = false;
+		}
+		this.supported = attached;
+	}
+
+	public boolean isSupported() {
+		return supported;
+	}
+
+	/**
+	 * transactions(..) lists up to limit entries of an account stamped from (inclusive) to
+	 * to (exclusive), both optional, oldest first.
+	 */
+	public List<LedgerEntry> transactions(String accountId, Instant from, Instant to, int limit) {
+		if (!supported) {
+			throw new AccountRelatedException("Transaction history is not supported by this account store...!!!");
+		}
+		AccountHistory history = histories.get(accountId);
+		if (history == null) {
+			if (accountsService.getAccount(accountId) == null) {
+				throw new AccountRelatedException("Account id " + accountId + " does not exist...!!!");
+			}
+			// recovered from the journal and not changed since
+			return List.of();
+		}
+		long fromMillis = from == null ? Long.MIN_VALUE : from.toEpochMilli();
+		long toMillis = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+		List<LedgerEntry> entries = new ArrayList<>(Math.min(limit, history.size()));
+		history.scan(fromMillis, toMillis, limit, (transactionId, timestamp, type, amount, counterparty, balance) ->
+				entries.add(new LedgerEntry(transactionId, Instant.ofEpochMilli(timestamp), TYPES[type],
+						MoneyUnits.toBigDecimal(Math.abs(amount)),
+						counterparty == NO_COUNTERPARTY ? null : accountIds[counterparty], MoneyUnits.toBigDecimal(balance))));
+		return entries;
+	}
+
+	private void record(String accountId, long transactionId, byte type, long amount, int counterparty, long balance) {
+		AccountHistory history = histories.get(accountId);
+		if (history == null) {
+			// recovered from the journal, first change since startup
+			history = histories.computeIfAbsent(accountId, id -> new AccountHistory());
+		}
+		history.append(transactionId, clock.getAsLong(), type, amount, counterparty, balance);
+	}
+
+	private int ordinalOf(String accountId) {
+		Integer ordinal = ordinals.get(accountId);
+		if (ordinal != null) {
+			return ordinal;
+		}
+		ordinalLock.lock();
+		try {
+			ordinal = ordinals.get(accountId);
+			if (ordinal == null) {
+				ordinal = ordinals.size();
+				String[] names = accountIds;
+				if (ordinal == names.length) {
+					names = Arrays.copyOf(names, names.length * 2);
+				}
+				names[ordinal] = accountId;
+				accountIds = names;
+				ordinals.put(accountId, ordinal);
+			}
+			return ordinal;
+		} finally {
+			ordinalLock.unlock();
+		}
+	}
+
+	private final class LedgerRecorder implements AccountChangeListener {
+
+		@Override
+		public void accountCreated(String accountId, long balance) {
+			AccountHistory history = new AccountHistory();
+			histories.put(accountId, history);
+			history.append(transactionIds.incrementAndGet(), clock.getAsLong(), OPENING, balance, NO_COUNTERPARTY,
+					balance);
+		}
+
+		@Override
+		public void deposited(String accountId, long amount, long balance) {
+			record(accountId, transactionIds.incrementAndGet(), DEPOSIT, amount, NO_COUNTERPARTY, balance);
+		}
+
+		@Override
+		public void withdrawn(String accountId, long amount, long balance) {
+			record(accountId, transactionIds.incrementAndGet(), WITHDRAWAL, -amount, NO_COUNTERPARTY, balance);
+		}
+
+		@Override
+		public void transferred(String fromAccId, String toAccId, long amount, long fromBalance, long toBalance) {
+			long transactionId = transactionIds.incrementAndGet();
+			record(fromAccId, transactionId, TRANSFER_OUT, -amount, ordinalOf(toAccId), fromBalance);
+			record(toAccId, transactionId, TRANSFER_IN, amount, ordinalOf(fromAccId), toBalance);
+		}
+
+		@Override
+		public void accountsCleared() {
+			histories.clear();
+		}
+	}
+}
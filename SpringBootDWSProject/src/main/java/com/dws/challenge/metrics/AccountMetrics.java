@@ -0,0 +1,57 @@
+package com.dws.challenge.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AsyncNotificationService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * AccountMetrics publishes the state of the account store, and of the notification queue
+ * when notifications are dispatched asynchronously, as gauges. They are only read when the
+ * registry is scraped, so they cost nothing on the request path.
+ */
+@Component
+public class AccountMetrics implements MeterBinder {
+
+	private final AccountsRepository accountsRepository;
+
+	private final ObjectProvider<AsyncNotificationService> asyncNotificationService;
+
+	@Autowired
+	public AccountMetrics(AccountsRepository accountsRepository,
+			ObjectProvider<AsyncNotificationService> asyncNotificationService) {
+		this.accountsRepository = accountsRepository;
+		this.asyncNotificationService = asyncNotificationService;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("accounts.count", accountsRepository, AccountsRepository::countAccounts)
+				.description("Number of accounts").register(registry);
+		Gauge.builder("accounts.balance.total", accountsRepository,
+				repository -> MoneyUnits.toBigDecimal(repository.totalBalance()).doubleValue())
+				.description("Sum of all account balances").register(registry);
+
+		AsyncNotificationService notifications = asyncNotificationService.getIfAvailable();
+		if (notifications != null) {
+			Gauge.builder("notifications.queue.depth", notifications, AsyncNotificationService::getQueueDepth)
+					.description("Notifications waiting to be dispatched").register(registry);
+			Gauge.builder("notifications.lag", notifications, AsyncNotificationService::getLagMillis).baseUnit("milliseconds")
+					.description("Time the last dispatched notification waited in the queue").register(registry);
+			FunctionCounter.builder("notifications.dispatched", notifications, AsyncNotificationService::getDispatchedCount)
+					.register(registry);
+			FunctionCounter.builder("notifications.dropped", notifications, AsyncNotificationService::getDroppedCount)
+					.register(registry);
+			FunctionCounter.builder("notifications.spilled", notifications, AsyncNotificationService::getSpilledCount)
+					.register(registry);
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package com.dws.challenge.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.exception.ReplicationException;
+import com.dws.challenge.repository.ReplicaAccountsRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ReplicationFollower keeps a {@link ReplicaAccountsRepository} up to date with the primary
+ * at accounts.replication.primary (host:port), see {@link ReplicationPrimary}. It applies
+ * every frame as it arrives and acknowledges it afterwards, and connects again whenever the
+ * connection is lost, resuming after the last applied change.
+ *
+ * The lag is exposed as accounts.replication.lag, the changes the primary had when it sent
+ * the last frame that are not applied yet, and accounts.replication.lag.time, the time between
+ * the primary sending that frame and the follower applying it, which is only meaningful
+ * when the clocks of both machines agree.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.store", havingValue = "replica")
+@Slf4j
+public class ReplicationFollower {
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+
+	/**
+	 * The primary sends a heartbeat every 100 ms, a connection silent for longer is dead.
+	 */
+	private static final int READ_TIMEOUT_MILLIS = 5000;
+
+	private static final long RECONNECT_MILLIS = 500;
+
+	private final ReplicaAccountsRepository replica;
+
+	private final String host;
+
+	private final int port;
+
+	private volatile boolean running = true;
+
+	private volatile Socket socket;
+
+	private volatile long epoch;
+
+	private volatile long appliedLsn;
+
+	private volatile long primaryLsn;
+
+	private volatile long lagMillis;
+
+	@Autowired
+	public ReplicationFollower(ReplicaAccountsRepository replica, MeterRegistry meterRegistry,
+			@Value("${accounts.replication.primary:}") String primary,
+			@Value("${accounts.virtual-threads.enabled:false}") boolean virtualThreads) {
+		int colon = primary.lastIndexOf(':');
+		if (colon <= 0) {
+			throw new ReplicationException("accounts.replication.primary must be host:port for a replica...!!!");
+		}
+		this.replica = replica;
+		this.host = primary.substring(0, colon);
+		this.port = Integer.parseInt(primary.substring(colon + 1));
+
+		Gauge.builder("accounts.replication.lag", this, ReplicationFollower::getLag)
+				.description("Changes of the primary not applied yet").register(meterRegistry);
+		Gauge.builder("accounts.replication.lag.time", this, ReplicationFollower::getLagMillis).baseUnit("milliseconds")
+				.description("Time between the primary sending the last applied frame and applying it")
+				.register(meterRegistry);
+
+		VirtualThreads.threadFactory("replication-follower", virtualThreads).newThread(this::follow).start();
+	}
+
+	public long getAppliedLsn() {
+		return appliedLsn;
+	}
+
+	public long getLag() {
+		return Math.max(0, primaryLsn - appliedLsn);
+	}
+
+	public long getLagMillis() {
+		return lagMillis;
+	}
+
+	/**
+	 * isConnected() tells whether the follower is connected and has the primary's epoch, that
+	 * is got a complete snapshot or resumed the stream.
+	 */
+	public boolean isConnected() {
+		Socket current = socket;
+		return current != null && !current.isClosed() && epoch != 0;
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		closeQuietly(socket);
+	}
+
+	private void follow() {
+		while (running) {
+			try (Socket connection = new Socket()) {
+				connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+				connection.setTcpNoDelay(true);
+				connection.setSoTimeout(READ_TIMEOUT_MILLIS);
+				socket = connection;
+				stream(connection);
+			} catch (IOException | RuntimeException ex) {
+				if (running) {
+					log.info("Replication from {}:{} interrupted: {}", host, port, ex.getMessage());
+				}
+			} finally {
+				socket = null;
+			}
+			if (running) {
+				try {
+					Thread.sleep(RECONNECT_MILLIS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void stream(Socket connection) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 64 * 1024));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+		out.writeInt(ReplicationFrame.MAGIC);
+		out.writeLong(epoch);
+		out.writeLong(appliedLsn);
+		out.flush();
+		log.info("Connected to the replication primary {}:{} at lsn {}", host, port, appliedLsn);
+		while (running) {
+			ReplicationFrame frame = ReplicationFrame.read(in);
+			boolean applied = false;
+			for (ReplicationRecord record : frame.getRecords()) {
+				apply(frame, record);
+				applied = true;
+			}
+			primaryLsn = frame.getPrimaryLsn();
+			if (applied) {
+				lagMillis = Math.max(0, System.currentTimeMillis() - frame.getSentAtMillis());
+				out.writeLong(appliedLsn);
+				out.flush();
+			} else if (appliedLsn >= primaryLsn) {
+				lagMillis = 0;
+			}
+		}
+	}
+
+	private void apply(ReplicationFrame frame, ReplicationRecord record) throws IOException {
+		switch (record.getType()) {
+		case SNAPSHOT_START:
+			// until the snapshot is complete the store matches no lsn of any primary
+			epoch = 0;
+			appliedLsn = 0;
+			replica.applyClear();
+			return;
+		case SNAPSHOT:
+			replica.applyBalance(record.getAccountId(), record.getBalance());
+			return;
+		case SNAPSHOT_END:
+			appliedLsn = record.getLsn();
+			epoch = frame.getEpoch();
+			log.info("Loaded a snapshot of {} accounts at lsn {}", replica.countAccounts(), appliedLsn);
+			return;
+		default:
+			break;
+		}
+		if (frame.getEpoch() != epoch) {
+			throw new IOException("Replication record of epoch " + frame.getEpoch() + " without a snapshot");
+		}
+		switch (record.getType()) {
+		case CREATE:
+		case DEPOSIT:
+		case WITHDRAW:
+			replica.applyBalance(record.getAccountId(), record.getBalance());
+			break;
+		case TRANSFER:
+			replica.applyBalances(record.getAccountId(), record.getBalance(), record.getToAccId(), record.getToBalance());
+			break;
+		case CLEAR:
+			replica.applyClear();
+			break;
+		default:
+			break;
+		}
+		appliedLsn = record.getLsn();
+	}
+
+	private static void closeQuietly(Socket current) {
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException ex) {
+				log.debug("Closing the replication connection failed", ex);
+			}
+		}
+	}
+}
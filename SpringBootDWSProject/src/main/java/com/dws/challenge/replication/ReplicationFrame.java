@@ -0,0 +1,122 @@
+package com.dws.challenge.replication;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * ReplicationFrame is one batch of records sent by the primary:
+ * [int length][int crc32c][long epoch][long primary lsn][long sent at millis][int count][records].
+ * The length and the checksum cover everything after them. The epoch changes whenever the
+ * primary starts, the primary lsn is the last lsn it has, shipped or not, so a follower can
+ * tell how far behind it is. A frame without records is a heartbeat.
+ *
+ * A follower opens the connection with [int magic][long epoch][long last applied lsn] and
+ * then acknowledges every frame it applied with [long applied lsn]; the primary goes on
+ * sending without waiting for the acknowledgements.
+ */
+final class ReplicationFrame {
+
+	static final int MAGIC = 0x44575352;
+
+	private static final int HEADER_SIZE = 8;
+
+	private static final int BODY_HEADER_SIZE = 28;
+
+	/**
+	 * Larger frames are taken for a broken stream.
+	 */
+	private static final int MAX_LENGTH = 64 * 1024 * 1024;
+
+	private final long epoch;
+
+	private final long primaryLsn;
+
+	private final long sentAtMillis;
+
+	private final List<ReplicationRecord> records;
+
+	private ReplicationFrame(long epoch, long primaryLsn, long sentAtMillis, List<ReplicationRecord> records) {
+		this.epoch = epoch;
+		this.primaryLsn = primaryLsn;
+		this.sentAtMillis = sentAtMillis;
+		this.records = records;
+	}
+
+	long getEpoch() {
+		return epoch;
+	}
+
+	long getPrimaryLsn() {
+		return primaryLsn;
+	}
+
+	long getSentAtMillis() {
+		return sentAtMillis;
+	}
+
+	List<ReplicationRecord> getRecords() {
+		return records;
+	}
+
+	static void write(DataOutputStream out, long epoch, long primaryLsn, List<ReplicationRecord> records)
+			throws IOException {
+		int length = BODY_HEADER_SIZE;
+		for (ReplicationRecord record : records) {
+			length += record.encodedSize();
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+		buffer.position(HEADER_SIZE);
+		buffer.putLong(epoch);
+		buffer.putLong(primaryLsn);
+		buffer.putLong(System.currentTimeMillis());
+		buffer.putInt(records.size());
+		for (ReplicationRecord record : records) {
+			record.encode(buffer);
+		}
+		buffer.putInt(0, length);
+		buffer.putInt(4, checksum(buffer.array(), HEADER_SIZE, length));
+		out.write(buffer.array(), 0, buffer.capacity());
+		out.flush();
+	}
+
+	static ReplicationFrame read(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		int crc = in.readInt();
+		if (length < BODY_HEADER_SIZE || length > MAX_LENGTH) {
+			throw new IOException("Replication frame of " + length + " bytes is broken");
+		}
+		byte[] body = new byte[length];
+		in.readFully(body);
+		if (checksum(body, 0, length) != crc) {
+			throw new IOException("Replication frame fails its checksum");
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(body);
+		long epoch = buffer.getLong();
+		long primaryLsn = buffer.getLong();
+		long sentAtMillis = buffer.getLong();
+		int count = buffer.getInt();
+		if (count < 0 || count > buffer.remaining() / 9) {
+			throw new IOException("Replication frame claims " + count + " records");
+		}
+		List<ReplicationRecord> records = new ArrayList<>(count);
+		try {
+			for (int i = 0; i < count; i++) {
+				records.add(ReplicationRecord.decode(buffer));
+			}
+		} catch (RuntimeException ex) {
+			throw new IOException("Replication frame can not be decoded", ex);
+		}
+		return new ReplicationFrame(epoch, primaryLsn, sentAtMillis, records);
+	}
+
+	private static int checksum(byte[] bytes, int offset, int length) {
+		CRC32C crc = new CRC32C();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+}
@@ -0,0 +1,89 @@
+package com.dws.challenge.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+/**
+ * ReplicationLog keeps the last capacity records of the primary in lsn order, in a ring, for
+ * the followers to read at their own pace. A follower that falls further behind than the ring
+ * reaches has to start over from a snapshot.
+ */
+final class ReplicationLog {
+
+	private final ReplicationRecord[] ring;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition appended = lock.newCondition();
+
+	private volatile long lastLsn;
+
+	ReplicationLog(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("accounts.replication.backlog must be positive");
+		}
+		this.ring = new ReplicationRecord[capacity];
+	}
+
+	/**
+	 * append(..) numbers the record with the next lsn, which it hands to the factory, and adds it.
+	 */
+	long append(LongFunction<ReplicationRecord> record) {
+		lock.lock();
+		try {
+			long lsn = lastLsn + 1;
+			ring[(int) (lsn % ring.length)] = record.apply(lsn);
+			lastLsn = lsn;
+			appended.signalAll();
+			return lsn;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	long getLastLsn() {
+		return lastLsn;
+	}
+
+	/**
+	 * contains(..) tells whether the ring still holds every record after the given lsn.
+	 */
+	boolean contains(long after) {
+		lock.lock();
+		try {
+			return after <= lastLsn && lastLsn - after <= ring.length;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * read(..) returns up to max records after the given lsn, waiting up to timeoutMillis for
+	 * the first one to arrive. It returns an empty list when none did and null when the ring
+	 * no longer holds the records after the lsn.
+	 */
+	List<ReplicationRecord> read(long after, int max, long timeoutMillis) throws InterruptedException {
+		lock.lock();
+		try {
+			long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+			while (lastLsn <= after && nanos > 0) {
+				nanos = appended.awaitNanos(nanos);
+			}
+			if (lastLsn - after > ring.length) {
+				return null;
+			}
+			long last = Math.min(lastLsn, after + max);
+			List<ReplicationRecord> records = new ArrayList<>((int) Math.max(0, last - after));
+			for (long lsn = after + 1; lsn <= last; lsn++) {
+				records.add(ring[(int) (lsn % ring.length)]);
+			}
+			return records;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
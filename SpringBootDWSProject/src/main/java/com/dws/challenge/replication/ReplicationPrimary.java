@@ -0,0 +1,287 @@
+package com.dws.challenge.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.exception.ReplicationException;
+import com.dws.challenge.repository.AccountChangeListener;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.ReplicaAccountsRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ReplicationPrimary ships every committed change of the store to the followers connecting
+ * on accounts.replication.port, see {@link ReplicationFrame} for the protocol. It is enabled
+ * by setting the port and needs the in-memory or the journal store.
+ *
+ * A change is numbered and added to the {@link ReplicationLog} by a change listener, while
+ * the stripes of its accounts are held, so the log has the same per-account order as the
+ * store. Each follower has a sender that batches up to accounts.replication.batch-size
+ * records per frame and keeps sending without waiting for acknowledgements, and a reader
+ * for those acknowledgements, which tell how far behind the follower is.
+ *
+ * A follower that knows this primary's epoch and is still within the log resumes where it
+ * left off; any other gets a snapshot first. The snapshot is read account by account after
+ * noting the last lsn, so it holds every change up to that lsn and maybe some after it,
+ * which the records sent next set again.
+ *
+ * A listener registered after this one that vetoes a change would leave the followers with
+ * a change the primary does not have; the journal registers its listener first.
+ */
+@Component
+@ConditionalOnExpression("'${accounts.replication.port:0}' != '0'")
+@Slf4j
+public class ReplicationPrimary {
+
+	private static final long HEARTBEAT_MILLIS = 100;
+
+	private final AccountsRepositoryInMemory accountsRepository;
+
+	private final ReplicationLog replicationLog;
+
+	private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+	private final int batchSize;
+
+	private final boolean virtualThreads;
+
+	private final ServerSocket serverSocket;
+
+	private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean running = true;
+
+	@Autowired
+	public ReplicationPrimary(AccountsRepository repository, MeterRegistry meterRegistry,
+			@Value("${accounts.replication.port:0}") int port,
+			@Value("${accounts.replication.backlog:100000}") int backlog,
+			@Value("${accounts.replication.batch-size:256}") int batchSize,
+			@Value("${accounts.virtual-threads.enabled:false}") boolean virtualThreads) throws IOException {
+		if (!(repository instanceof AccountsRepositoryInMemory) || repository instanceof ReplicaAccountsRepository) {
+			throw new ReplicationException("Replication needs the in-memory or the journal account store...!!!");
+		}
+		this.accountsRepository = (AccountsRepositoryInMemory) repository;
+		this.replicationLog = new ReplicationLog(backlog);
+		this.batchSize = Math.max(1, batchSize);
+		this.virtualThreads = virtualThreads;
+		this.accountsRepository.addChangeListener(new LogAppender());
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.setReuseAddress(true);
+		this.serverSocket.bind(new InetSocketAddress(port));
+
+		Gauge.builder("accounts.replication.lsn", replicationLog, ReplicationLog::getLastLsn)
+				.description("Last change numbered for replication").register(meterRegistry);
+		Gauge.builder("accounts.replication.followers", sessions, Set::size)
+				.description("Connected followers").register(meterRegistry);
+		Gauge.builder("accounts.replication.follower.lag", this, ReplicationPrimary::getMaxFollowerLag)
+				.description("Changes the furthest behind follower has not acknowledged yet").register(meterRegistry);
+
+		VirtualThreads.threadFactory("replication-acceptor", virtualThreads).newThread(this::accept).start();
+		log.info("Replication primary with epoch {} listening on port {}", epoch, serverSocket.getLocalPort());
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public long getLastLsn() {
+		return replicationLog.getLastLsn();
+	}
+
+	public int getFollowerCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * getMaxFollowerLag() is the number of changes the furthest behind follower has not
+	 * acknowledged, zero without followers.
+	 */
+	public long getMaxFollowerLag() {
+		long lastLsn = replicationLog.getLastLsn();
+		long lag = 0;
+		for (Session session : sessions) {
+			lag = Math.max(lag, lastLsn - session.ackedLsn);
+		}
+		return lag;
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		running = false;
+		serverSocket.close();
+		for (Session session : sessions) {
+			session.close();
+		}
+	}
+
+	private void accept() {
+		while (running) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				Session session = new Session(socket);
+				sessions.add(session);
+				VirtualThreads.threadFactory("replication-sender-" + socket.getPort(), virtualThreads)
+						.newThread(session::send).start();
+			} catch (IOException ex) {
+				if (running) {
+					log.warn("Replication primary failed to accept a follower", ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * LogAppender numbers every change and adds it to the log, still under the stripes.
+	 */
+	private final class LogAppender implements AccountChangeListener {
+
+		@Override
+		public void accountCreated(String accountId, long balance) {
+			replicationLog.append(lsn -> ReplicationRecord.create(lsn, accountId, balance));
+		}
+
+		@Override
+		public void deposited(String accountId, long amount, long balance) {
+			replicationLog.append(lsn -> ReplicationRecord.deposit(lsn, accountId, amount, balance));
+		}
+
+		@Override
+		public void withdrawn(String accountId, long amount, long balance) {
+			replicationLog.append(lsn -> ReplicationRecord.withdraw(lsn, accountId, amount, balance));
+		}
+
+		@Override
+		public void transferred(String fromAccId, String toAccId, long amount, long fromBalance, long toBalance) {
+			replicationLog.append(lsn -> ReplicationRecord.transfer(lsn, fromAccId, toAccId, amount, fromBalance, toBalance));
+		}
+
+		@Override
+		public void accountsCleared() {
+			replicationLog.append(ReplicationRecord::clear);
+		}
+	}
+
+	/**
+	 * Session is the connection to one follower.
+	 */
+	private final class Session {
+
+		private final Socket socket;
+
+		private volatile long ackedLsn;
+
+		private Session(Socket socket) {
+			this.socket = socket;
+		}
+
+		private void send() {
+			String follower = socket.getRemoteSocketAddress().toString();
+			try {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+				if (in.readInt() != ReplicationFrame.MAGIC) {
+					throw new IOException("Follower " + follower + " does not speak the replication protocol");
+				}
+				long followerEpoch = in.readLong();
+				long position = in.readLong();
+				ackedLsn = position;
+				VirtualThreads.threadFactory("replication-acks-" + socket.getPort(), virtualThreads)
+						.newThread(() -> readAcks(in)).start();
+				if (followerEpoch != epoch || !replicationLog.contains(position)) {
+					position = sendSnapshot(out);
+				}
+				log.info("Follower {} connected at lsn {}", follower, position);
+				while (running) {
+					List<ReplicationRecord> records = replicationLog.read(position, batchSize, HEARTBEAT_MILLIS);
+					if (records == null) {
+						log.warn("Follower {} fell out of the replication backlog at lsn {}", follower, position);
+						position = sendSnapshot(out);
+						continue;
+					}
+					ReplicationFrame.write(out, epoch, replicationLog.getLastLsn(), records);
+					if (!records.isEmpty()) {
+						position = records.get(records.size() - 1).getLsn();
+					}
+				}
+			} catch (IOException | UncheckedIOException ex) {
+				if (running) {
+					log.info("Follower {} disconnected: {}", follower, ex.getMessage());
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} finally {
+				close();
+			}
+		}
+
+		/**
+		 * sendSnapshot(..) sends every account as of the current last lsn and returns that lsn.
+		 */
+		private long sendSnapshot(DataOutputStream out) throws IOException {
+			long mark = replicationLog.getLastLsn();
+			ReplicationFrame.write(out, epoch, mark, List.of(ReplicationRecord.snapshotStart(mark)));
+			List<ReplicationRecord> batch = new ArrayList<>(batchSize);
+			accountsRepository.forEachCell((accountId, balance, lsn) -> {
+				batch.add(ReplicationRecord.snapshot(mark, accountId, balance));
+				if (batch.size() == batchSize) {
+					writeQuietly(out, mark, batch);
+				}
+			});
+			batch.add(ReplicationRecord.snapshotEnd(mark));
+			writeQuietly(out, mark, batch);
+			return mark;
+		}
+
+		private void writeQuietly(DataOutputStream out, long mark, List<ReplicationRecord> batch) {
+			try {
+				ReplicationFrame.write(out, epoch, mark, batch);
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			batch.clear();
+		}
+
+		private void readAcks(DataInputStream in) {
+			try {
+				while (running) {
+					ackedLsn = in.readLong();
+				}
+			} catch (IOException ex) {
+				close();
+			}
+		}
+
+		private void close() {
+			sessions.remove(this);
+			try {
+				socket.close();
+			} catch (IOException ex) {
+				log.debug("Closing a follower connection failed", ex);
+			}
+		}
+	}
+}
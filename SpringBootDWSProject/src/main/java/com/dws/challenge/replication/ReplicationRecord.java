@@ -0,0 +1,211 @@
+package com.dws.challenge.replication;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.dws.challenge.exception.ReplicationException;
+
+/**
+ * ReplicationRecord is one committed change of the primary's store as it is shipped to the
+ * followers. Unlike a {@link com.dws.challenge.journal.JournalRecord} it carries the balances
+ * after the change besides the amount, so applying it sets balances instead of adding to
+ * them: a record applied twice, or on top of a snapshot that already contains it, does no
+ * harm.
+ *
+ * On the wire a record is the type byte, the lsn and the type specific fields, strings as an
+ * unsigned short length followed by their UTF-8 bytes and amounts and balances as longs in
+ * minor units. Records travel in batches, see {@link ReplicationFrame}.
+ *
+ * A follower that needs the whole store gets SNAPSHOT_START, one SNAPSHOT record per account
+ * and SNAPSHOT_END, all with the lsn the snapshot was taken at, followed by the records
+ * after it.
+ */
+public final class ReplicationRecord {
+
+	public enum Type {
+		CREATE, DEPOSIT, WITHDRAW, TRANSFER, CLEAR, SNAPSHOT_START, SNAPSHOT, SNAPSHOT_END
+	}
+
+	private static final Type[] TYPES = Type.values();
+
+	private final Type type;
+
+	private final long lsn;
+
+	private final String accountId;
+
+	private final String toAccId;
+
+	private final long amount;
+
+	private final long balance;
+
+	private final long toBalance;
+
+	private ReplicationRecord(Type type, long lsn, String accountId, String toAccId, long amount, long balance,
+			long toBalance) {
+		this.type = type;
+		this.lsn = lsn;
+		this.accountId = accountId;
+		this.toAccId = toAccId;
+		this.amount = amount;
+		this.balance = balance;
+		this.toBalance = toBalance;
+	}
+
+	static ReplicationRecord create(long lsn, String accountId, long balance) {
+		return new ReplicationRecord(Type.CREATE, lsn, accountId, null, balance, balance, 0);
+	}
+
+	static ReplicationRecord deposit(long lsn, String accountId, long amount, long balance) {
+		return new ReplicationRecord(Type.DEPOSIT, lsn, accountId, null, amount, balance, 0);
+	}
+
+	static ReplicationRecord withdraw(long lsn, String accountId, long amount, long balance) {
+		return new ReplicationRecord(Type.WITHDRAW, lsn, accountId, null, amount, balance, 0);
+	}
+
+	static ReplicationRecord transfer(long lsn, String fromAccId, String toAccId, long amount, long fromBalance,
+			long toBalance) {
+		return new ReplicationRecord(Type.TRANSFER, lsn, fromAccId, toAccId, amount, fromBalance, toBalance);
+	}
+
+	static ReplicationRecord clear(long lsn) {
+		return new ReplicationRecord(Type.CLEAR, lsn, null, null, 0, 0, 0);
+	}
+
+	static ReplicationRecord snapshotStart(long lsn) {
+		return new ReplicationRecord(Type.SNAPSHOT_START, lsn, null, null, 0, 0, 0);
+	}
+
+	static ReplicationRecord snapshot(long lsn, String accountId, long balance) {
+		return new ReplicationRecord(Type.SNAPSHOT, lsn, accountId, null, 0, balance, 0);
+	}
+
+	static ReplicationRecord snapshotEnd(long lsn) {
+		return new ReplicationRecord(Type.SNAPSHOT_END, lsn, null, null, 0, 0, 0);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public long getLsn() {
+		return lsn;
+	}
+
+	/**
+	 * getAccountId() is the account of a create, deposit, withdraw or snapshot and the source
+	 * of a transfer.
+	 */
+	public String getAccountId() {
+		return accountId;
+	}
+
+	public String getToAccId() {
+		return toAccId;
+	}
+
+	public long getAmount() {
+		return amount;
+	}
+
+	/**
+	 * getBalance() is the balance of the account after the change, of the source for a transfer.
+	 */
+	public long getBalance() {
+		return balance;
+	}
+
+	public long getToBalance() {
+		return toBalance;
+	}
+
+	int encodedSize() {
+		int size = 1 + 8;
+		switch (type) {
+		case CREATE:
+		case SNAPSHOT:
+			return size + stringSize(accountId) + 8;
+		case DEPOSIT:
+		case WITHDRAW:
+			return size + stringSize(accountId) + 16;
+		case TRANSFER:
+			return size + stringSize(accountId) + stringSize(toAccId) + 24;
+		default:
+			return size;
+		}
+	}
+
+	void encode(ByteBuffer buffer) {
+		buffer.put((byte) type.ordinal());
+		buffer.putLong(lsn);
+		switch (type) {
+		case CREATE:
+		case SNAPSHOT:
+			putString(buffer, accountId);
+			buffer.putLong(balance);
+			break;
+		case DEPOSIT:
+		case WITHDRAW:
+			putString(buffer, accountId);
+			buffer.putLong(amount);
+			buffer.putLong(balance);
+			break;
+		case TRANSFER:
+			putString(buffer, accountId);
+			putString(buffer, toAccId);
+			buffer.putLong(amount);
+			buffer.putLong(balance);
+			buffer.putLong(toBalance);
+			break;
+		default:
+			break;
+		}
+	}
+
+	static ReplicationRecord decode(ByteBuffer buffer) {
+		int ordinal = buffer.get() & 0xFF;
+		if (ordinal >= TYPES.length) {
+			throw new ReplicationException("Unknown replication record type " + ordinal + "...!!!");
+		}
+		Type type = TYPES[ordinal];
+		long lsn = buffer.getLong();
+		switch (type) {
+		case CREATE:
+			return create(lsn, getString(buffer), buffer.getLong());
+		case SNAPSHOT:
+			return snapshot(lsn, getString(buffer), buffer.getLong());
+		case DEPOSIT:
+			return deposit(lsn, getString(buffer), buffer.getLong(), buffer.getLong());
+		case WITHDRAW:
+			return withdraw(lsn, getString(buffer), buffer.getLong(), buffer.getLong());
+		case TRANSFER:
+			return transfer(lsn, getString(buffer), getString(buffer), buffer.getLong(), buffer.getLong(), buffer.getLong());
+		default:
+			return new ReplicationRecord(type, lsn, null, null, 0, 0, 0);
+		}
+	}
+
+	private static int stringSize(String value) {
+		return 2 + value.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private static void putString(ByteBuffer buffer, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString() {
+		return "ReplicationRecord [type=" + type + ", lsn=" + lsn + ", accountId=" + accountId + ", toAccId=" + toAccId
+				+ ", amount=" + amount + ", balance=" + balance + ", toBalance=" + toBalance + "]";
+	}
+}
@@ -0,0 +1,43 @@
+package com.dws.challenge.repository;
+
+import java.util.List;
+
+import com.dws.challenge.domain.Transfer;
+
+/**
+ * AccountChangeListener is told about every change of the in-memory store while the stripes
+ * of the affected accounts are still held, before the new balances become visible. A
+ * listener that throws aborts the change, which is how the journal vetoes writes it could
+ * not persist. All amounts and balances are in minor units.
+ */
+public interface AccountChangeListener {
+
+	default void accountCreated(String accountId, long balance) {
+	}
+
+	default void deposited(String accountId, long amount, long balance) {
+	}
+
+	default void withdrawn(String accountId, long amount, long balance) {
+	}
+
+	default void transferred(String fromAccId, String toAccId, long amount, long fromBalance, long toBalance) {
+	}
+
+	/**
+	 * batchTransferred(..) reports an all-or-nothing batch that is about to be committed as a
+	 * whole; the balances are the ones after each transfer of the batch.
+	 */
+	default void batchTransferred(List<Transfer> transfers, long[] fromBalances, long[] toBalances) {
+		for (int i = 0; i < transfers.size(); i++) {
+			Transfer transfer = transfers.get(i);
+			transferred(transfer.getFromAccId(), transfer.getToAccId(), transfer.getAmount(), fromBalances[i], toBalances[i]);
+		}
+	}
+
+	/**
+	 * accountsCleared() is called while every stripe is held, before any account is removed.
+	 */
+	default void accountsCleared() {
+	}
+}
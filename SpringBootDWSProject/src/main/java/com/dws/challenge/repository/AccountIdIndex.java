@@ -0,0 +1,49 @@
+package com.dws.challenge.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+import com.dws.challenge.domain.Account;
+
+/**
+ * AccountIdIndex keeps the account ids of a store in their natural order next to its hash
+ * map, so accounts can be listed page by page from a cursor instead of copying the map.
+ *
+ * Stores add an id after the account is in the map and remove it after the account left
+ * the map. A page therefore never misses a stable account, and an id whose account has just
+ * gone is skipped.
+ */
+final class AccountIdIndex {
+
+	private final NavigableSet<String> accountIds = new ConcurrentSkipListSet<>();
+
+	void add(String accountId) {
+		accountIds.add(accountId);
+	}
+
+	void remove(String accountId) {
+		accountIds.remove(accountId);
+	}
+
+	/**
+	 * page(..) returns up to limit accounts whose ids follow after, or come first when after
+	 * is null, in id order.
+	 */
+	List<Account> page(Function<String, Account> accounts, String after, int limit) {
+		NavigableSet<String> tail = after == null ? accountIds : accountIds.tailSet(after, false);
+		List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+		for (String accountId : tail) {
+			if (page.size() == limit) {
+				break;
+			}
+			Account account = accounts.apply(accountId);
+			if (account != null) {
+				page.add(account);
+			}
+		}
+		return page;
+	}
+}
@@ -0,0 +1,204 @@
+package com.dws.challenge.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.exception.LockAcquisitionException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * AccountLockManager guards account balances with a fixed number of lock stripes selected
+ * by account id hash, so lock memory stays bounded however many accounts exist.
+ *
+ * Multi-account operations acquire their stripes in ascending stripe order, which rules out
+ * deadlocks. Only the first stripe of an attempt is waited for, and at most for the longest
+ * back-off; the others are taken with tryLock without waiting. If one is not free every stripe
+ * already held is released and the whole set is retried after a randomized back-off, until
+ * the configured timeout expires, so an operation never waits while it holds a stripe.
+ *
+ * How long operations wait for their stripes and how long they hold them is recorded in
+ * the accounts.lock.wait and accounts.lock.hold timers, tagged with the kind of operation
+ * by the number of accounts it locks: single, transfer (two) or batch (more). Recording
+ * them takes about a tenth of the single-threaded throughput of the in-memory store and
+ * percentile histograms a few percent more (LockMetricsBenchmark), so the histograms are
+ * only published with accounts.lock.histograms=true.
+ */
+@Component
+public class AccountLockManager {
+
+	private static final long MAX_BACK_OFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final String[] LOCK_SCOPES = { "single", "transfer", "batch" };
+
+	private final ReentrantLock[] stripes;
+
+	private final long timeoutNanos;
+
+	private final Timer[] waitTimers;
+
+	private final Timer[] holdTimers;
+
+	private final Locked nothingLocked = new Locked(new int[0], 0, 0);
+
+	public AccountLockManager(int stripes, long timeoutMs) {
+		this(stripes, timeoutMs, new CompositeMeterRegistry());
+	}
+
+	public AccountLockManager(int stripes, long timeoutMs, MeterRegistry meterRegistry) {
+		this(stripes, timeoutMs, meterRegistry, false);
+	}
+
+	@Autowired
+	public AccountLockManager(@Value("${accounts.lock.stripes:64}") int stripes,
+			@Value("${accounts.lock.timeout-ms:500}") long timeoutMs, MeterRegistry meterRegistry,
+			@Value("${accounts.lock.histograms:false}") boolean histograms) {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("accounts.lock.stripes must be positive");
+		}
+		this.stripes = new ReentrantLock[stripes];
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new ReentrantLock();
+		}
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		this.waitTimers = new Timer[LOCK_SCOPES.length];
+		this.holdTimers = new Timer[LOCK_SCOPES.length];
+		for (int i = 0; i < LOCK_SCOPES.length; i++) {
+			waitTimers[i] = Timer.builder("accounts.lock.wait").description("Time spent acquiring account lock stripes")
+					.tag("scope", LOCK_SCOPES[i]).publishPercentileHistogram(histograms).register(meterRegistry);
+			holdTimers[i] = Timer.builder("accounts.lock.hold").description("Time account lock stripes are held")
+					.tag("scope", LOCK_SCOPES[i]).publishPercentileHistogram(histograms).register(meterRegistry);
+		}
+	}
+
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	/**
+	 * lock(..) acquires the stripes of all the given accounts and returns a handle that
+	 * releases them again, meant for try-with-resources. Without accounts nothing is locked
+	 * and nothing is timed.
+	 */
+	public Locked lock(String... accountIds) {
+		if (accountIds.length == 0) {
+			return nothingLocked;
+		}
+		return acquire(stripesOf(accountIds), Math.min(accountIds.length, LOCK_SCOPES.length) - 1, accountIds);
+	}
+
+	/**
+	 * lockAll() acquires every stripe, for changes of all accounts at once such as clearing
+	 * them. It is timed as a batch.
+	 */
+	public Locked lockAll() {
+		int[] order = new int[stripes.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		return acquire(order, LOCK_SCOPES.length - 1, "all");
+	}
+
+	private Locked acquire(int[] order, int scope, String... accountIds) {
+		long started = System.nanoTime();
+		long deadline = started + timeoutNanos;
+		long backOff = 1_000;
+
+		for (;;) {
+			int acquired = tryLockAll(order, deadline);
+			if (acquired == order.length) {
+				long now = System.nanoTime();
+				waitTimers[scope].record(now - started, TimeUnit.NANOSECONDS);
+				return new Locked(order, scope, now);
+			}
+			unlock(order, acquired);
+
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				throw new LockAcquisitionException("Timed out waiting for the lock of accounts " + String.join(", ", accountIds) + "...!!!");
+			}
+			LockSupport.parkNanos(Math.min(remaining, ThreadLocalRandom.current().nextLong(backOff)));
+			backOff = Math.min(backOff * 2, MAX_BACK_OFF_NANOS);
+		}
+	}
+
+	int stripeOf(String accountId) {
+		int h = accountId.hashCode();
+		return Math.floorMod(h ^ (h >>> 16), stripes.length);
+	}
+
+	private int[] stripesOf(String[] accountIds) {
+		int[] order = new int[accountIds.length];
+		for (int i = 0; i < accountIds.length; i++) {
+			order[i] = stripeOf(accountIds[i]);
+		}
+		Arrays.sort(order);
+		int size = 0;
+		for (int i = 0; i < order.length; i++) {
+			if (size == 0 || order[size - 1] != order[i]) {
+				order[size++] = order[i];
+			}
+		}
+		return size == order.length ? order : Arrays.copyOf(order, size);
+	}
+
+	private int tryLockAll(int[] order, long deadline) {
+		try {
+			long wait = Math.min(MAX_BACK_OFF_NANOS, Math.max(0, deadline - System.nanoTime()));
+			if (!stripes[order[0]].tryLock(wait, TimeUnit.NANOSECONDS)) {
+				return 0;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LockAcquisitionException("Interrupted while waiting for an account lock...!!!");
+		}
+		for (int i = 1; i < order.length; i++) {
+			if (!stripes[order[i]].tryLock()) {
+				return i;
+			}
+		}
+		return order.length;
+	}
+
+	private void unlock(int[] order, int count) {
+		for (int i = count - 1; i >= 0; i--) {
+			stripes[order[i]].unlock();
+		}
+	}
+
+	/**
+	 * Locked is the set of stripes held by one operation.
+	 */
+	public final class Locked implements AutoCloseable {
+
+		private final int[] order;
+
+		private final int scope;
+
+		private final long acquiredAt;
+
+		private Locked(int[] order, int scope, long acquiredAt) {
+			this.order = order;
+			this.scope = scope;
+			this.acquiredAt = acquiredAt;
+		}
+
+		@Override
+		public void close() {
+			if (order.length == 0) {
+				return;
+			}
+			unlock(order, order.length);
+			holdTimers[scope].record(System.nanoTime() - acquiredAt, TimeUnit.NANOSECONDS);
+		}
+	}
+}
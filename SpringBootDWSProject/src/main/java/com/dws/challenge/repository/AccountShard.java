@@ -0,0 +1,99 @@
+package com.dws.challenge.repository;
+
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.exception.AccountRelatedException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * AccountShard is one partition of the {@link ShardedAccountsRepository}: the cells of the
+ * accounts it owns and the one thread allowed to change them, which runs the commands of
+ * its inbox one after the other. Anybody may read the cells, they are only ever written by
+ * that thread.
+ */
+@Slf4j
+final class AccountShard {
+
+	private static final long POLL_MILLIS = 100;
+
+	private final BalanceCellMap cells = new BalanceCellMap();
+
+	private final LinkedTransferQueue<Runnable> inbox = new LinkedTransferQueue<>();
+
+	private final Thread thread;
+
+	/**
+	 * Sum of the balances of the shard, only written by the shard's thread.
+	 */
+	private volatile long totalBalance;
+
+	private volatile boolean running = true;
+
+	AccountShard(ThreadFactory threadFactory) {
+		this.thread = threadFactory.newThread(this::run);
+		this.thread.start();
+	}
+
+	/**
+	 * execute(..) queues a command for the shard's thread and returns at once. A closed shard
+	 * refuses it; the thread still runs what was queued before.
+	 */
+	void execute(Runnable command) {
+		if (!running) {
+			throw new AccountRelatedException("Account shard is closed...!!!");
+		}
+		inbox.add(command);
+	}
+
+	BalanceCell cell(String accountId) {
+		return cells.get(accountId);
+	}
+
+	/**
+	 * cells() and the methods below may only be used by commands, on the shard's thread.
+	 */
+	BalanceCellMap cells() {
+		return cells;
+	}
+
+	long getTotalBalance() {
+		return totalBalance;
+	}
+
+	void addToTotal(long amount) {
+		totalBalance += amount;
+	}
+
+	void close() {
+		running = false;
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		while (running || !inbox.isEmpty()) {
+			Runnable command;
+			try {
+				command = inbox.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (command == null) {
+				continue;
+			}
+			try {
+				command.run();
+			} catch (RuntimeException ex) {
+				// commands answer their callers themselves, this keeps the shard alive
+				log.error("Account shard command failed", ex);
+			}
+		}
+	}
+}
@@ -1,24 +1,118 @@
 package com.dws.challenge.repository;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BatchMode;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.domain.TransferResult;
 import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
 
+/**
+ * Amounts are passed in minor units, see {@link com.dws.challenge.domain.MoneyUnits}.
+ */
 public interface AccountsRepository {
 
   void createAccount(Account account) throws Exception, AccountRelatedException;
 
+  /**
+   * createAccounts(..) creates the accounts in order and returns one entry per account, null
+   * once it was created or the reason it was not. Stores that can commit a batch of creates
+   * at once override it.
+   */
+  default List<String> createAccounts(List<Account> accounts) throws Exception {
+    List<String> failures = new ArrayList<>(accounts.size());
+    for (Account account : accounts) {
+      try {
+        createAccount(account);
+        failures.add(null);
+      } catch (RuntimeException ex) {
+        failures.add(ex.getMessage());
+      }
+    }
+    return failures;
+  }
+
   Account getAccount(String accountId);
 
+  /**
+   * readSettled(..) hands the account, or null, to the reader while no change of it can be
+   * half applied, so the account shows exactly the changes the change listeners were told
+   * about until the reader returns. Stores without change listeners just read it.
+   */
+  default <T> T readSettled(String accountId, Function<Account, T> reader) {
+    return reader.apply(getAccount(accountId));
+  }
+
   void clearAccounts();
   
   List<Account> listAllAccounts();
   
-  void transferMoney(String fromAccId, String toAccId, BigDecimal amoun) throws Exception;
+  /**
+   * listAccounts(..) returns a page of at most limit accounts in account id order, starting
+   * after the given id, or at the first account when it is null. Pages are read from the live
+   * store, so accounts created or removed meanwhile may or may not show up.
+   */
+  List<Account> listAccounts(String after, int limit);
+  
+  long countAccounts();
+  
+  /**
+   * totalBalance() is the sum of all balances. It is kept up to date as balances change, so it
+   * is cheap to read but only exact while the store is quiet.
+   */
+  long totalBalance();
+  
+  /**
+   * findByBalance(..) returns up to limit accounts with a balance between minBalance and
+   * maxBalance, both inclusive, lowest balance first. Stores without a balance index do not
+   * support it.
+   */
+  default List<Account> findByBalance(long minBalance, long maxBalance, int limit) {
+    throw new AccountRelatedException("Balance queries are not supported by this account store...!!!");
+  }
+  
+  /**
+   * topByBalance(..) returns the n accounts with the highest balances, highest first.
+   */
+  default List<Account> topByBalance(int n) {
+    throw new AccountRelatedException("Balance queries are not supported by this account store...!!!");
+  }
+  
+  /**
+   * addChangeListener(..) registers a listener for every later change, see
+   * {@link AccountChangeListener}. Stores that do not report their changes do not support it.
+   */
+  default void addChangeListener(AccountChangeListener listener) {
+    throw new AccountRelatedException("Change listeners are not supported by this account store...!!!");
+  }
+  
+  void transferMoney(String fromAccId, String toAccId, long amount) throws Exception;
+  
+  Account deposit(String accountId, long amount)throws Exception;
   
-  Account deposit(String accountId, BigDecimal amount)throws Exception;
+  Account withdraw(String accountId, long amount)throws Exception;
   
-  Account withdraw(String accountId, BigDecimal amount)throws Exception;
+  /**
+   * transferBatch(..) applies the transfers in order and returns one result per transfer.
+   * Stores that can not apply a batch atomically only support {@link BatchMode#BEST_EFFORT}.
+   */
+  default List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode) throws Exception {
+    if (mode != BatchMode.BEST_EFFORT) {
+      throw new MoneyRelatedException("Batch mode " + mode + " is not supported by this account store...!!!");
+    }
+    List<TransferResult> results = new ArrayList<>(transfers.size());
+    for (Transfer transfer : transfers) {
+      try {
+        transferMoney(transfer.getFromAccId(), transfer.getToAccId(), transfer.getAmount());
+        results.add(TransferResult.done(transfer));
+      } catch (RuntimeException ex) {
+        results.add(TransferResult.failed(transfer, ex.getMessage()));
+      }
+    }
+    return results;
+  }
   
 }
@@ -1,57 +1,134 @@
 package com.dws.challenge.repository;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.domain.BatchMode;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.domain.TransferResult;
 import com.dws.challenge.exception.AccountRelatedException;
 import com.dws.challenge.exception.MoneyRelatedException;
-import com.dws.challenge.service.EmailNotificationService;
+import com.dws.challenge.journal.SnapshotFile;
+import com.dws.challenge.service.NotificationService;
 
 @Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "in-memory", matchIfMissing = true)
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-	private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+	private static final AccountChangeListener[] NO_LISTENERS = new AccountChangeListener[0];
+
+	private final BalanceCellMap accounts = new BalanceCellMap();
+
+	private final AccountIdIndex accountIdIndex = new AccountIdIndex();
+
+	private final BalanceIndex balanceIndex = new BalanceIndex();
+
+	private final LongAdder totalBalance = new LongAdder();
+
+	private final AccountLockManager accountLockManager;
+
+	private final NotificationService notificationService;
+
+	private volatile AccountChangeListener[] listeners = NO_LISTENERS;
 
 	@Autowired
-	private EmailNotificationService emailNotificationService;
+	public AccountsRepositoryInMemory(AccountLockManager accountLockManager, NotificationService notificationService) {
+		this.accountLockManager = accountLockManager;
+		this.notificationService = notificationService;
+	}
+
+	/**
+	 * addChangeListener(..) registers a listener for every later change, see {@link AccountChangeListener}.
+	 */
+	@Override
+	public synchronized void addChangeListener(AccountChangeListener listener) {
+		AccountChangeListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+		updated[listeners.length] = listener;
+		listeners = updated;
+	}
 
 	@Override
 	public void createAccount(Account account) throws AccountRelatedException {
-		
-		if(account.getAccountId().isEmpty()) {
-			throw new AccountRelatedException("Account Id does not exists..!!!");
-		}
-		
-		String accNumContainsAlphabetic = account.getAccountId().chars().filter(Character::isAlphabetic).mapToObj(Character::toString).collect(Collectors.joining());
-		
-		if(!accNumContainsAlphabetic.isBlank()) {
-			throw new AccountRelatedException("Account Number should not contains Alphabetic chars..!!!");
+		AccountIds.validate(account.getAccountId());
+		applyCreate(account.getAccountId(), MoneyUnits.toMinorUnits(account.getBalance()));
+		afterCommit();
+	}
+
+	/**
+	 * createAccounts(..) commits once for the whole batch, so the journaled store waits for one
+	 * fsync per batch instead of one per account.
+	 */
+	@Override
+	public List<String> createAccounts(List<Account> batch) {
+		List<String> failures = new ArrayList<>(batch.size());
+		try {
+			for (Account account : batch) {
+				try {
+					applyCreate(account.getAccountId(), MoneyUnits.toMinorUnits(account.getBalance()));
+					failures.add(null);
+				} catch (RuntimeException ex) {
+					failures.add(ex.getMessage());
+				}
+			}
+		} finally {
+			afterCommit();
 		}
-		
-		Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
-		
-		if (previousAccount != null) {
-            throw new AccountRelatedException(
-                    "Account id " + account.getAccountId() + " already exists!");
-        }
+		return failures;
 	}
 
 	@Override
 	public Account getAccount(String accountId) {
-		return accounts.get(accountId);
+		BalanceCell cell = accounts.get(accountId);
+		return cell == null ? null : cell.toAccount();
 	}
 
+	/**
+	 * readSettled(..) reads under the account's stripe, which every change holds from telling
+	 * the listeners until its balances are visible.
+	 */
+	@Override
+	public <T> T readSettled(String accountId, Function<Account, T> reader) {
+		try (AccountLockManager.Locked locked = accountLockManager.lock(accountId)) {
+			return reader.apply(getAccount(accountId));
+		}
+	}
+
+	/**
+	 * clearAccounts() holds every stripe from telling the listeners until the accounts are
+	 * gone, so no settled read in between sees an account that is being removed.
+	 */
 	@Override
 	public void clearAccounts() {
-		accounts.clear();
+		try (AccountLockManager.Locked locked = accountLockManager.lockAll()) {
+			for (AccountChangeListener listener : listeners) {
+				listener.accountsCleared();
+			}
+			for (BalanceCell account : accounts) {
+				String accountId = account.getAccountId();
+				BalanceCell cell = accounts.remove(accountId);
+				accountIdIndex.remove(accountId);
+				if (cell != null) {
+					balanceIndex.remove(accountId, cell.get());
+					totalBalance.add(-cell.get());
+				}
+			}
+		}
+		afterCommit();
 	}
 
 	/**
@@ -60,84 +137,415 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
 	@Override
 	public List<Account> listAllAccounts() {
 
-		List<Account> listAccounts = new ArrayList<Account>();
-		for (Map.Entry<String, Account> entry : accounts.entrySet()) {
-			listAccounts.add(entry.getValue());
+		List<Account> listAccounts = new ArrayList<Account>(accounts.size());
+		for (BalanceCell cell : accounts) {
+			listAccounts.add(cell.toAccount());
 		}
 		return listAccounts;
 	}
 
+	@Override
+	public List<Account> listAccounts(String after, int limit) {
+		return accountIdIndex.page(this::getAccount, after, limit);
+	}
+
+	@Override
+	public long countAccounts() {
+		return accounts.size();
+	}
+
+	@Override
+	public long totalBalance() {
+		return totalBalance.sum();
+	}
+
+	@Override
+	public List<Account> findByBalance(long minBalance, long maxBalance, int limit) {
+		return balanceIndex.range(minBalance, maxBalance, limit);
+	}
+
+	@Override
+	public List<Account> topByBalance(int n) {
+		return balanceIndex.top(n);
+	}
+
 	/**
 	 * transferMoney(...) method is used to transfer the money from account to Account.
+	 * Both accounts are locked through the AccountLockManager, which always takes the stripes
+	 * in the same order to prevent a deadlock. The debit is validated before anything is
+	 * changed, so a failing transfer leaves both balances untouched.
 	 */
 	@Override
-	public void transferMoney(String fromAccId, String toAccId, BigDecimal amount) throws Exception {
+	public void transferMoney(String fromAccId, String toAccId, long amount) throws Exception {
 
-		Account accountFrom = getAccount(fromAccId);
-		Account accountTo = getAccount(toAccId);
-		
-		if(fromAccId.compareTo(toAccId) !=0 ) {
-			
-		Object lock1 = fromAccId.compareTo(toAccId) < 0  ? accountFrom : accountTo;
-		Object lock2 = fromAccId.compareTo(toAccId) > 0  ? accountFrom : accountTo;
-
-		//To prevent a deadlock, always have to lock the Objects in the following order
-		synchronized (lock1) {
-			synchronized (lock2) {
-				deposit(toAccId, amount);
-				withdraw(fromAccId, amount);
+		applyTransfer(fromAccId, toAccId, amount);
+		afterCommit();
+
+		notificationService.notifyAboutTransfer(accounts.get(toAccId).toAccount(), " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + toAccId);
+		notificationService.notifyAboutTransfer(accounts.get(fromAccId).toAccount(), " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + fromAccId);
+	}
+
+	/**
+	 * transferBatch(..) locks the stripes of every account of the batch once and applies all
+	 * transfers under that single lock set instead of locking per transfer. ALL_OR_NOTHING
+	 * works on scratch balances and only writes them back when every transfer succeeded.
+	 */
+	@Override
+	public List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode) throws Exception {
+
+		List<TransferResult> results = applyBatch(transfers, mode);
+		afterCommit();
+
+		for (int i = 0; i < results.size(); i++) {
+			if (results.get(i).getStatus() == TransferResult.Status.DONE) {
+				Transfer transfer = transfers.get(i);
+				notificationService.notifyAboutTransfer(accounts.get(transfer.getToAccId()).toAccount(), " " + MoneyUnits.toBigDecimal(transfer.getAmount()) + " transfer to " + transfer.getToAccId());
+				notificationService.notifyAboutTransfer(accounts.get(transfer.getFromAccId()).toAccount(), " " + MoneyUnits.toBigDecimal(transfer.getAmount()) + " transfer from " + transfer.getFromAccId());
 			}
 		}
-		
-		}else {
-			throw new MoneyRelatedException("Both Account Should not be same...!!!");
-		}
-
+		return results;
 	}
 
 	/**
 	 * deposit(..) method is used deposit the amount into To Account.
 	 */
 	@Override
-	public Account deposit(String accountId, BigDecimal amount) throws Exception {
-		Account actualAccount = accounts.get(accountId);
-		String message = "Deposit or Money value should not be negative...!!!";
-		checkValidations(actualAccount,amount,message);
-		actualAccount.setBalance(actualAccount.getBalance().add(amount));
-		accounts.putIfAbsent(actualAccount.getAccountId(), actualAccount);
-		emailNotificationService.notifyAboutTransfer(actualAccount, " " + amount + " transfer to " + accountId);
+	public Account deposit(String accountId, long amount) throws Exception {
+		Account account = applyDeposit(accountId, amount).toAccount();
+		afterCommit();
+		notificationService.notifyAboutTransfer(account, " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + accountId);
 
-		return actualAccount;
+		return account;
 	}
 
 	/**
 	 * withdraw(..) method is used to withdraw the amount from the account
 	 */
 	@Override
-	public Account withdraw(String accountId, BigDecimal amount) throws Exception {
+	public Account withdraw(String accountId, long amount) throws Exception {
 
-		Account actualAccount = accounts.get(accountId);
-		String message = "Acc Balance or Money value should not be negative...!!!";
-		checkValidations(actualAccount,amount,message);
-		withdrawValidations(actualAccount,amount);
-		actualAccount.setBalance(actualAccount.getBalance().subtract(amount));
-		accounts.putIfAbsent(actualAccount.getAccountId(), actualAccount);
-		emailNotificationService.notifyAboutTransfer(actualAccount, " " + amount + " transfer from " + accountId);
+		Account account = applyWithdraw(accountId, amount).toAccount();
+		afterCommit();
+		notificationService.notifyAboutTransfer(account, " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + accountId);
+
+		return account;
+	}
 
+	/**
+	 * afterCommit() runs once a change has been applied and its stripes released, before the
+	 * caller is answered or anybody is notified.
+	 */
+	protected void afterCommit() {
+	}
+
+	/**
+	 * changeLsn() is recorded on every cell a change touches, once the listeners accepted it.
+	 * Stores that journal their changes return the lsn of the change just appended.
+	 */
+	protected long changeLsn() {
+		return 0;
+	}
+
+	/**
+	 * forEachCell(..) reads every account under its stripe, so the balance and the lsn handed
+	 * to the consumer always belong to the same change. Accounts created or removed while it
+	 * runs may or may not be seen, like with any iteration of the map.
+	 */
+	public void forEachCell(SnapshotFile.EntryConsumer consumer) {
+		for (BalanceCell cell : accounts) {
+			long balance;
+			long lsn;
+			try (AccountLockManager.Locked locked = accountLockManager.lock(cell.getAccountId())) {
+				if (accounts.get(cell.getAccountId()) != cell) {
+					continue;
+				}
+				balance = cell.get();
+				lsn = cell.getLsn();
+			}
+			consumer.accept(cell.getAccountId(), balance, lsn);
+		}
+	}
+
+	/**
+	 * setBalance(..) sets the balance of an account, creating it when missing, without any
+	 * validation or listener. Only meant for replicas applying the changes of their primary.
+	 */
+	void setBalance(String accountId, long balance) {
+		try (AccountLockManager.Locked locked = accountLockManager.lock(accountId)) {
+			putBalance(accountId, balance);
+		}
+	}
+
+	/**
+	 * setBalances(..) is {@link #setBalance(String, long)} for both accounts of a transfer at
+	 * once, so readers never see only one side of it.
+	 */
+	void setBalances(String fromAccId, long fromBalance, String toAccId, long toBalance) {
+		try (AccountLockManager.Locked locked = accountLockManager.lock(fromAccId, toAccId)) {
+			putBalance(fromAccId, fromBalance);
+			putBalance(toAccId, toBalance);
+		}
+	}
+
+	private void putBalance(String accountId, long balance) {
+		BalanceCell cell = accounts.get(accountId);
+		if (cell == null) {
+			accounts.put(accountId, new BalanceCell(accountId, balance));
+			accountIdIndex.add(accountId);
+			balanceIndex.add(accountId, balance);
+			totalBalance.add(balance);
+			return;
+		}
+		totalBalance.add(balance - cell.get());
+		balanceIndex.move(accountId, cell.get(), balance);
+		cell.set(balance);
+	}
+
+	BalanceCell cell(String accountId) {
+		return accounts.get(accountId);
+	}
+
+	/**
+	 * restoreCell(..) puts an account back as it was at the given lsn, bypassing validation,
+	 * listeners and the balance index. Only meant for recovery, before the store is used.
+	 */
+	void restoreCell(String accountId, long balance, long lsn) {
+		accounts.put(accountId, new BalanceCell(accountId, balance, lsn));
+		accountIdIndex.add(accountId);
+	}
+
+	/**
+	 * rebuildIndexes() indexes every account again and recounts the total balance, after cells
+	 * were restored or replayed without going through the write path.
+	 */
+	void rebuildIndexes() {
+		balanceIndex.clear();
+		totalBalance.reset();
+		for (BalanceCell cell : accounts) {
+			balanceIndex.add(cell.getAccountId(), cell.get());
+			totalBalance.add(cell.get());
+		}
+	}
+
+	/**
+	 * removeCellsBefore(..) drops every account whose last change is older than the lsn.
+	 */
+	void removeCellsBefore(long lsn) {
+		accounts.removeIf(cell -> {
+			if (cell.getLsn() < lsn) {
+				accountIdIndex.remove(cell.getAccountId());
+				return true;
+			}
+			return false;
+		});
+	}
+
+	void applyCreate(String accountId, long balance) {
+		
+		AccountIds.validate(accountId);
+		
+		try (AccountLockManager.Locked locked = accountLockManager.lock(accountId)) {
+			BalanceCell cell = new BalanceCell(accountId, balance);
+			BalanceCell previousAccount = accounts.putIfAbsent(accountId, cell);
+			
+			if (previousAccount != null) {
+	            throw new AccountRelatedException(
+	                    "Account id " + accountId + " already exists!");
+	        }
+			try {
+				for (AccountChangeListener listener : listeners) {
+					listener.accountCreated(accountId, balance);
+				}
+				cell.setLsn(changeLsn());
+			} catch (RuntimeException ex) {
+				accounts.remove(accountId);
+				throw ex;
+			}
+			accountIdIndex.add(accountId);
+			balanceIndex.add(accountId, balance);
+			totalBalance.add(balance);
+		}
+	}
+
+	void applyTransfer(String fromAccId, String toAccId, long amount) {
+
+		if(fromAccId.equals(toAccId)) {
+			throw new MoneyRelatedException("Both Account Should not be same...!!!");
+		}
+		
+		BalanceCell accountFrom = requireAccount(fromAccId);
+		BalanceCell accountTo = requireAccount(toAccId);
+
+		try (AccountLockManager.Locked locked = accountLockManager.lock(fromAccId, toAccId)) {
+			checkValidations(accountFrom, amount, "Acc Balance or Money value should not be negative...!!!");
+			withdrawValidations(accountFrom, amount);
+			long fromBalance = accountFrom.get() - amount;
+			long toBalance = MoneyUnits.add(accountTo.get(), amount);
+			for (AccountChangeListener listener : listeners) {
+				listener.transferred(fromAccId, toAccId, amount, fromBalance, toBalance);
+			}
+			long lsn = changeLsn();
+			balanceIndex.move(accountFrom.getAccountId(), accountFrom.get(), fromBalance);
+			balanceIndex.move(accountTo.getAccountId(), accountTo.get(), toBalance);
+			accountFrom.set(fromBalance);
+			accountFrom.setLsn(lsn);
+			accountTo.set(toBalance);
+			accountTo.setLsn(lsn);
+		}
+	}
+
+	List<TransferResult> applyBatch(List<Transfer> transfers, BatchMode mode) {
+
+		Set<String> accountIds = new LinkedHashSet<>();
+		for (Transfer transfer : transfers) {
+			accountIds.add(transfer.getFromAccId());
+			accountIds.add(transfer.getToAccId());
+		}
+		Map<String, BalanceCell> cells = new HashMap<>();
+		for (String accountId : accountIds) {
+			BalanceCell cell = accounts.get(accountId);
+			if (cell != null) {
+				cells.put(accountId, cell);
+			}
+		}
+
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		Map<BalanceCell, Long> scratch = mode == BatchMode.ALL_OR_NOTHING ? new IdentityHashMap<>() : null;
+		long[] fromBalances = new long[transfers.size()];
+		long[] toBalances = new long[transfers.size()];
+		boolean failed = false;
+
+		try (AccountLockManager.Locked locked = accountLockManager.lock(cells.keySet().toArray(new String[0]))) {
+			for (int i = 0; i < transfers.size(); i++) {
+				Transfer transfer = transfers.get(i);
+				try {
+					applyBatchTransfer(transfer, cells, scratch, fromBalances, toBalances, i);
+					results.add(TransferResult.done(transfer));
+				} catch (AccountRelatedException | MoneyRelatedException ex) {
+					results.add(TransferResult.failed(transfer, ex.getMessage()));
+					failed = true;
+				}
+			}
+			if (scratch != null && !failed) {
+				for (AccountChangeListener listener : listeners) {
+					listener.batchTransferred(transfers, fromBalances, toBalances);
+				}
+				long lsn = changeLsn();
+				scratch.forEach((cell, balance) -> {
+					balanceIndex.move(cell.getAccountId(), cell.get(), balance);
+					cell.set(balance);
+					cell.setLsn(lsn);
+				});
+			}
+		}
+
+		if (scratch != null && failed) {
+			for (int i = 0; i < results.size(); i++) {
+				if (results.get(i).getStatus() == TransferResult.Status.DONE) {
+					results.set(i, TransferResult.rolledBack(transfers.get(i)));
+				}
+			}
+		}
+		return results;
+	}
+
+	private void applyBatchTransfer(Transfer transfer, Map<String, BalanceCell> cells, Map<BalanceCell, Long> scratch,
+			long[] fromBalances, long[] toBalances, int index) {
+
+		if (transfer.getFromAccId().equals(transfer.getToAccId())) {
+			throw new MoneyRelatedException("Both Account Should not be same...!!!");
+		}
+		BalanceCell accountFrom = cells.get(transfer.getFromAccId());
+		BalanceCell accountTo = cells.get(transfer.getToAccId());
+		if (accountFrom == null || accountTo == null) {
+			throw new AccountRelatedException("Account id " + (accountFrom == null ? transfer.getFromAccId() : transfer.getToAccId()) + " does not exist!");
+		}
+
+		long amount = transfer.getAmount();
+		long fromBalance = scratch == null ? accountFrom.get() : scratch.getOrDefault(accountFrom, accountFrom.get());
+		long toBalance = scratch == null ? accountTo.get() : scratch.getOrDefault(accountTo, accountTo.get());
+		if (fromBalance < 0 || amount < 0) {
+			throw new MoneyRelatedException("Acc Balance or Money value should not be negative...!!!");
+		}
+		if (amount > fromBalance) {
+			throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+		}
+		fromBalance -= amount;
+		toBalance = MoneyUnits.add(toBalance, amount);
+		fromBalances[index] = fromBalance;
+		toBalances[index] = toBalance;
+
+		if (scratch == null) {
+			for (AccountChangeListener listener : listeners) {
+				listener.transferred(transfer.getFromAccId(), transfer.getToAccId(), amount, fromBalance, toBalance);
+			}
+			long lsn = changeLsn();
+			balanceIndex.move(accountFrom.getAccountId(), accountFrom.get(), fromBalance);
+			balanceIndex.move(accountTo.getAccountId(), accountTo.get(), toBalance);
+			accountFrom.set(fromBalance);
+			accountFrom.setLsn(lsn);
+			accountTo.set(toBalance);
+			accountTo.setLsn(lsn);
+		} else {
+			scratch.put(accountFrom, fromBalance);
+			scratch.put(accountTo, toBalance);
+		}
+	}
+
+	BalanceCell applyDeposit(String accountId, long amount) {
+		BalanceCell actualAccount = requireAccount(accountId);
+		String message = "Deposit or Money value should not be negative...!!!";
+		try (AccountLockManager.Locked locked = accountLockManager.lock(accountId)) {
+			checkValidations(actualAccount,amount,message);
+			long balance = MoneyUnits.add(actualAccount.get(), amount);
+			for (AccountChangeListener listener : listeners) {
+				listener.deposited(accountId, amount, balance);
+			}
+			totalBalance.add(amount);
+			balanceIndex.move(accountId, actualAccount.get(), balance);
+			actualAccount.set(balance);
+			actualAccount.setLsn(changeLsn());
+		}
+		return actualAccount;
+	}
+
+	BalanceCell applyWithdraw(String accountId, long amount) {
+		BalanceCell actualAccount = requireAccount(accountId);
+		String message = "Acc Balance or Money value should not be negative...!!!";
+		try (AccountLockManager.Locked locked = accountLockManager.lock(accountId)) {
+			checkValidations(actualAccount,amount,message);
+			withdrawValidations(actualAccount,amount);
+			long balance = actualAccount.get() - amount;
+			for (AccountChangeListener listener : listeners) {
+				listener.withdrawn(accountId, amount, balance);
+			}
+			totalBalance.add(-amount);
+			balanceIndex.move(accountId, actualAccount.get(), balance);
+			actualAccount.set(balance);
+			actualAccount.setLsn(changeLsn());
+		}
+		return actualAccount;
+	}
+	
+	private BalanceCell requireAccount(String accountId) {
+		BalanceCell actualAccount = accounts.get(accountId);
+		if (actualAccount == null) {
+			throw new AccountRelatedException("Account id " + accountId + " does not exist!");
+		}
 		return actualAccount;
 	}
 	
-	private void checkValidations(Account actualAccount, BigDecimal amount,String message) {
+	private void checkValidations(BalanceCell actualAccount, long amount,String message) {
 		
-		if (actualAccount.getBalance().signum() == -1 || ( amount!=null && amount.signum() == -1 )) {
+		if (actualAccount.get() < 0 || amount < 0) {
 			throw new MoneyRelatedException(message);
 		}
 		
 	}
 	
-	private void withdrawValidations(Account actualAccount, BigDecimal amount) {
+	private void withdrawValidations(BalanceCell actualAccount, long amount) {
 		
-		if (amount.compareTo(actualAccount.getBalance()) > 0) {
+		if (amount > actualAccount.get()) {
 			throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
 		}
 	}
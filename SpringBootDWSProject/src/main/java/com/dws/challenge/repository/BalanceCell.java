@@ -0,0 +1,89 @@
+package com.dws.challenge.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.domain.MoneyUnits;
+
+/**
+ * BalanceCell holds the balance of one account in minor units. The lock-free store only
+ * ever changes it through compare-and-set; the in-memory store writes it while holding the
+ * account's lock stripe. Either way readers see a complete value without locking.
+ *
+ * The balance is a volatile field changed through a VarHandle rather than an AtomicLong,
+ * so an account costs one object and a lookup one dereference less.
+ */
+final class BalanceCell {
+
+	private static final VarHandle BALANCE;
+
+	static {
+		try {
+			BALANCE = MethodHandles.lookup().findVarHandle(BalanceCell.class, "balance", long.class);
+		} catch (ReflectiveOperationException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private final String accountId;
+
+	/**
+	 * The account id packed by {@link AccountIds}, or {@link AccountIds#NOT_NUMERIC}.
+	 */
+	private final long packedId;
+
+	private volatile long balance;
+
+	/**
+	 * Journal lsn of the last change applied to this cell, zero when nothing journals the store.
+	 */
+	private volatile long lsn;
+
+	BalanceCell(String accountId, long balance) {
+		this.accountId = accountId;
+		this.packedId = AccountIds.packOrZero(accountId);
+		this.balance = balance;
+	}
+
+	BalanceCell(String accountId, long balance, long lsn) {
+		this(accountId, balance);
+		this.lsn = lsn;
+	}
+
+	String getAccountId() {
+		return accountId;
+	}
+
+	long getPackedId() {
+		return packedId;
+	}
+
+	long get() {
+		return balance;
+	}
+
+	void set(long update) {
+		balance = update;
+	}
+
+	long getLsn() {
+		return lsn;
+	}
+
+	void setLsn(long lsn) {
+		this.lsn = lsn;
+	}
+
+	boolean compareAndSet(long expected, long update) {
+		return BALANCE.compareAndSet(this, expected, update);
+	}
+
+	/**
+	 * toAccount() materializes a detached Account for callers outside the store.
+	 */
+	Account toAccount() {
+		return new Account(accountId, MoneyUnits.toBigDecimal(balance));
+	}
+}
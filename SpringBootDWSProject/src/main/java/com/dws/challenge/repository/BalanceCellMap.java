@@ -0,0 +1,315 @@
+package com.dws.challenge.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import com.dws.challenge.domain.AccountIds;
+
+/**
+ * BalanceCellMap holds the cells of a store by account id. Numeric ids, which is what the
+ * API hands out, are packed into a long once per call, see {@link AccountIds}, and looked
+ * up in open-addressing tables of cells compared by the packed id they carry, so a lookup
+ * neither hashes nor compares Strings and boxes nothing. Any other id the validation lets
+ * through goes to a ConcurrentHashMap.
+ *
+ * The numeric ids are spread over {@link #SEGMENTS} segments, each a linear-probing table
+ * that is changed and grown under the segment's lock. Lookups never lock: a cell is
+ * published with a release write, and a grown table is published whole. Removed entries
+ * leave a marker behind until the table is next rebuilt. Like with
+ * ConcurrentHashMap, a lookup or an iteration that runs while an id is added or removed
+ * may or may not see it.
+ */
+final class BalanceCellMap implements Iterable<BalanceCell> {
+
+	private static final int SEGMENT_BITS = 6;
+
+	private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+	private static final int INITIAL_TABLE_BITS = 4;
+
+	private static final BalanceCell REMOVED = new BalanceCell("", 0);
+
+	private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(BalanceCell[].class);
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	private final ConcurrentHashMap<String, BalanceCell> otherIds = new ConcurrentHashMap<>();
+
+	BalanceCellMap() {
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	BalanceCell get(String accountId) {
+		long id = AccountIds.packOrZero(accountId);
+		if (id == AccountIds.NOT_NUMERIC) {
+			return otherIds.get(accountId);
+		}
+		long hash = hash(id);
+		return segment(hash).get(id, hash);
+	}
+
+	/**
+	 * putIfAbsent(..) adds the cell unless the id is taken, and returns the cell already
+	 * there or null.
+	 */
+	BalanceCell putIfAbsent(String accountId, BalanceCell cell) {
+		long id = AccountIds.packOrZero(accountId);
+		if (id == AccountIds.NOT_NUMERIC) {
+			return otherIds.putIfAbsent(accountId, cell);
+		}
+		long hash = hash(id);
+		return segment(hash).put(id, hash, cell, false);
+	}
+
+	BalanceCell put(String accountId, BalanceCell cell) {
+		long id = AccountIds.packOrZero(accountId);
+		if (id == AccountIds.NOT_NUMERIC) {
+			return otherIds.put(accountId, cell);
+		}
+		long hash = hash(id);
+		return segment(hash).put(id, hash, cell, true);
+	}
+
+	BalanceCell remove(String accountId) {
+		long id = AccountIds.packOrZero(accountId);
+		if (id == AccountIds.NOT_NUMERIC) {
+			return otherIds.remove(accountId);
+		}
+		long hash = hash(id);
+		return segment(hash).remove(id, hash);
+	}
+
+	void removeIf(Predicate<BalanceCell> filter) {
+		for (Segment segment : segments) {
+			segment.removeIf(filter);
+		}
+		otherIds.values().removeIf(filter);
+	}
+
+	int size() {
+		int size = otherIds.size();
+		for (Segment segment : segments) {
+			size += segment.size;
+		}
+		return size;
+	}
+
+	@Override
+	public Iterator<BalanceCell> iterator() {
+		return new CellIterator();
+	}
+
+	private Segment segment(long hash) {
+		return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+	}
+
+	private static long hash(long id) {
+		return id * 0x9E3779B97F4A7C15L;
+	}
+
+	private static final class Table {
+
+		private final int bits;
+
+		private final BalanceCell[] cells;
+
+		/**
+		 * Slots holding a cell or a removed marker, guarded by the segment's lock.
+		 */
+		private int used;
+
+		private Table(int bits) {
+			this.bits = bits;
+			this.cells = new BalanceCell[1 << bits];
+		}
+
+		private int home(long hash) {
+			// the top bits of the hash pick the segment, the ones below them the slot
+			return (int) (hash >>> (64 - SEGMENT_BITS - bits)) & (cells.length - 1);
+		}
+	}
+
+	private static final class Segment {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private volatile Table table = new Table(INITIAL_TABLE_BITS);
+
+		private volatile int size;
+
+		private BalanceCell get(long id, long hash) {
+			Table current = table;
+			int mask = current.cells.length - 1;
+			for (int slot = current.home(hash);; slot = (slot + 1) & mask) {
+				BalanceCell cell = (BalanceCell) CELLS.getAcquire(current.cells, slot);
+				if (cell == null || cell.getPackedId() == id) {
+					return cell;
+				}
+			}
+		}
+
+		/**
+		 * put(..) looks for the id up to the first empty slot and adds the cell in the first
+		 * removed or empty slot it passed when the id is not there.
+		 */
+		private BalanceCell put(long id, long hash, BalanceCell cell, boolean replace) {
+			lock.lock();
+			try {
+				Table current = table;
+				if ((current.used + 1) * 4 > current.cells.length * 3) {
+					current = rebuild(current);
+				}
+				int mask = current.cells.length - 1;
+				int free = -1;
+				for (int slot = current.home(hash);; slot = (slot + 1) & mask) {
+					BalanceCell existing = current.cells[slot];
+					if (existing == null) {
+						if (free < 0) {
+							free = slot;
+							current.used++;
+						}
+						CELLS.setRelease(current.cells, free, cell);
+						size++;
+						return null;
+					}
+					if (existing == REMOVED) {
+						if (free < 0) {
+							free = slot;
+						}
+					} else if (existing.getPackedId() == id) {
+						if (replace) {
+							CELLS.setRelease(current.cells, slot, cell);
+						}
+						return existing;
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private BalanceCell remove(long id, long hash) {
+			lock.lock();
+			try {
+				Table current = table;
+				int mask = current.cells.length - 1;
+				for (int slot = current.home(hash);; slot = (slot + 1) & mask) {
+					BalanceCell existing = current.cells[slot];
+					if (existing == null) {
+						return null;
+					}
+					if (existing.getPackedId() == id) {
+						CELLS.setRelease(current.cells, slot, REMOVED);
+						size--;
+						return existing;
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void removeIf(Predicate<BalanceCell> filter) {
+			lock.lock();
+			try {
+				Table current = table;
+				for (int slot = 0; slot < current.cells.length; slot++) {
+					BalanceCell existing = current.cells[slot];
+					if (existing != null && existing != REMOVED && filter.test(existing)) {
+						CELLS.setRelease(current.cells, slot, REMOVED);
+						size--;
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * rebuild(..) copies the live cells into a new table, twice as large when more than half
+		 * of the current one is live, and publishes it. Called with the lock held.
+		 */
+		private Table rebuild(Table current) {
+			int bits = (size + 1) * 2 > current.cells.length ? current.bits + 1 : current.bits;
+			Table rebuilt = new Table(bits);
+			int mask = rebuilt.cells.length - 1;
+			for (BalanceCell cell : current.cells) {
+				if (cell != null && cell != REMOVED) {
+					int slot = rebuilt.home(hash(cell.getPackedId()));
+					while (rebuilt.cells[slot] != null) {
+						slot = (slot + 1) & mask;
+					}
+					rebuilt.cells[slot] = cell;
+					rebuilt.used++;
+				}
+			}
+			table = rebuilt;
+			return rebuilt;
+		}
+	}
+
+	/**
+	 * CellIterator walks the tables of the segments as they were when it reached them, then
+	 * the cells with other ids.
+	 */
+	private final class CellIterator implements Iterator<BalanceCell> {
+
+		private int segment;
+
+		private BalanceCell[] cells = segments[0].table.cells;
+
+		private int slot;
+
+		private Iterator<BalanceCell> otherCells;
+
+		private BalanceCell next;
+
+		private CellIterator() {
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public BalanceCell next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			BalanceCell current = next;
+			advance();
+			return current;
+		}
+
+		private void advance() {
+			next = null;
+			while (otherCells == null) {
+				while (slot < cells.length) {
+					BalanceCell cell = (BalanceCell) CELLS.getAcquire(cells, slot++);
+					if (cell != null && cell != REMOVED) {
+						next = cell;
+						return;
+					}
+				}
+				if (++segment == SEGMENTS) {
+					otherCells = otherIds.values().iterator();
+				} else {
+					cells = segments[segment].table.cells;
+					slot = 0;
+				}
+			}
+			if (otherCells.hasNext()) {
+				next = otherCells.next();
+			}
+		}
+	}
+}
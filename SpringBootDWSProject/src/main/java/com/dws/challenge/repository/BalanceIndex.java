@@ -0,0 +1,116 @@
+package com.dws.challenge.repository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.MoneyUnits;
+
+/**
+ * BalanceIndex keeps the accounts of a store sorted by balance, ties broken by account id,
+ * so range and top-N queries cost a skip-list seek plus the size of the answer.
+ *
+ * The store moves an account in the index while it holds the account's stripe, right where
+ * the new balance is written, so entries of one account are never moved concurrently. A move
+ * adds the new entry before it removes the old one, so the account is in the index at every
+ * moment. A query walks the live skip list, may meet an account being moved at both
+ * balances, and lists it only once.
+ */
+final class BalanceIndex {
+
+	private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>();
+
+	void add(String accountId, long balance) {
+		entries.add(new Entry(balance, accountId));
+	}
+
+	void remove(String accountId, long balance) {
+		entries.remove(new Entry(balance, accountId));
+	}
+
+	void move(String accountId, long oldBalance, long newBalance) {
+		if (oldBalance != newBalance) {
+			entries.add(new Entry(newBalance, accountId));
+			entries.remove(new Entry(oldBalance, accountId));
+		}
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * range(..) returns up to limit accounts with minBalance <= balance <= maxBalance, lowest
+	 * balance first.
+	 */
+	List<Account> range(long minBalance, long maxBalance, int limit) {
+		if (minBalance > maxBalance) {
+			return new ArrayList<>();
+		}
+		// "" and null sort before and after every account id with the same balance
+		NavigableSet<Entry> range = entries.subSet(new Entry(minBalance, ""), true, new Entry(maxBalance, null), true);
+		return collect(range.iterator(), limit);
+	}
+
+	/**
+	 * top(..) returns the n accounts with the highest balances, highest first.
+	 */
+	List<Account> top(int n) {
+		return collect(entries.descendingIterator(), n);
+	}
+
+	private static List<Account> collect(Iterator<Entry> iterator, int limit) {
+		List<Account> accounts = new ArrayList<>(Math.min(limit, 1024));
+		// a walk can pass an account at its old and, once moved, again at its new balance
+		Set<String> seen = new HashSet<>();
+		while (accounts.size() < limit && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (seen.add(entry.accountId)) {
+				accounts.add(new Account(entry.accountId, MoneyUnits.toBigDecimal(entry.balance)));
+			}
+		}
+		return accounts;
+	}
+
+	private static final class Entry implements Comparable<Entry> {
+
+		private final long balance;
+
+		/**
+		 * Null only in the upper bound of a range, where it sorts after every account id.
+		 */
+		private final String accountId;
+
+		private Entry(long balance, String accountId) {
+			this.balance = balance;
+			this.accountId = accountId;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int byBalance = Long.compare(balance, other.balance);
+			if (byBalance != 0) {
+				return byBalance;
+			}
+			if (accountId == null || other.accountId == null) {
+				return accountId == other.accountId ? 0 : accountId == null ? 1 : -1;
+			}
+			return accountId.compareTo(other.accountId);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Entry && compareTo((Entry) obj) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(balance) * 31 + (accountId == null ? 0 : accountId.hashCode());
+		}
+	}
+}
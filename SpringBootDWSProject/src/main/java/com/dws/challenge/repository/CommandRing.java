@@ -0,0 +1,272 @@
+package com.dws.challenge.repository;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.dws.challenge.exception.AccountRelatedException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * CommandRing is a pre-allocated ring of command slots shared by any number of callers and
+ * one business thread, in the style of the LMAX disruptor. A caller claims the next sequence
+ * number, fills the slot it maps to and publishes it; the business thread handles the slots
+ * strictly in sequence order and completes each of them; the caller, waiting on the slot
+ * as its completion handle, reads the result and releases the slot for the caller one lap
+ * later. Nothing is allocated and nothing is locked on the way.
+ *
+ * A slot cycles through three sequence fields: sequence is the number the slot can be
+ * claimed with next, published and completed are the number it was last published and
+ * completed with. Whoever waits spins briefly, yields a few times and then parks, and is
+ * unparked by the other side once it flagged itself as parked. Callers waiting for a full
+ * ring to free a slot park for {@link #FULL_PARK_NANOS} at a time instead, so that releasing
+ * a slot never has to look for them.
+ */
+@Slf4j
+final class CommandRing {
+
+	static final byte CREATE = 0;
+
+	static final byte DEPOSIT = 1;
+
+	static final byte WITHDRAW = 2;
+
+	static final byte TRANSFER = 3;
+
+	static final byte CLEAR = 4;
+
+	static final byte OK = 0;
+
+	static final byte NO_SOURCE = 1;
+
+	static final byte NO_TARGET = 2;
+
+	static final byte INSUFFICIENT = 3;
+
+	static final byte EXISTS = 4;
+
+	static final byte OVERFLOW = 5;
+
+	static final byte FAILED = 6;
+
+	private static final int SPINS = 16;
+
+	/**
+	 * Yields after spinning and before parking, which hands the processor to the other side
+	 * when there are fewer processors than waiting threads.
+	 */
+	private static final int YIELDS = 16;
+
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	/**
+	 * Slot is one command and its result. The command fields are written by the caller
+	 * before publishing, the result fields by the business thread before completing.
+	 */
+	static final class Slot {
+
+		byte type;
+
+		String accountId;
+
+		String toAccId;
+
+		long amount;
+
+		byte status;
+
+		long balance;
+
+		long toBalance;
+
+		private Thread caller;
+
+		private volatile boolean callerParked;
+
+		private volatile long sequence;
+
+		private volatile long published = -1;
+
+		private volatile long completed = -1;
+	}
+
+	private final Slot[] slots;
+
+	private final int mask;
+
+	private final AtomicLong next = new AtomicLong();
+
+	private final Consumer<Slot> handler;
+
+	private final Thread businessThread;
+
+	private volatile boolean businessThreadParked;
+
+	private volatile long handled;
+
+	private volatile boolean running = true;
+
+	CommandRing(int size, Consumer<Slot> handler, ThreadFactory threadFactory) {
+		int capacity = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+		this.slots = new Slot[capacity];
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new Slot();
+			slots[i].sequence = i;
+		}
+		this.mask = capacity - 1;
+		this.handler = handler;
+		this.businessThread = threadFactory.newThread(this::run);
+		this.businessThread.start();
+	}
+
+	int getSize() {
+		return slots.length;
+	}
+
+	/**
+	 * getHandled() is the number of commands handled so far, the sequence number of the next.
+	 */
+	long getHandled() {
+		return handled;
+	}
+
+	/**
+	 * claim() returns the next sequence number, waiting while the ring is full. The caller
+	 * must fill {@link #slot(long)} and {@link #publish(long)} it.
+	 */
+	long claim() {
+		int spins = 0;
+		for (;;) {
+			if (!running) {
+				throw new AccountRelatedException("Account sequencer is closed...!!!");
+			}
+			long sequence = next.get();
+			long available = slots[(int) sequence & mask].sequence;
+			if (available == sequence) {
+				if (next.compareAndSet(sequence, sequence + 1)) {
+					return sequence;
+				}
+			} else if (available < sequence) {
+				// a lap behind: full until the caller of that slot released it
+				if (++spins < SPINS) {
+					Thread.onSpinWait();
+				} else if (spins < SPINS + YIELDS) {
+					Thread.yield();
+				} else {
+					LockSupport.parkNanos(this, FULL_PARK_NANOS);
+				}
+			}
+		}
+	}
+
+	Slot slot(long sequence) {
+		return slots[(int) sequence & mask];
+	}
+
+	void publish(long sequence) {
+		Slot slot = slot(sequence);
+		slot.caller = Thread.currentThread();
+		slot.published = sequence;
+		if (businessThreadParked) {
+			LockSupport.unpark(businessThread);
+		}
+	}
+
+	/**
+	 * await(..) waits until the business thread completed the command. The caller reads the
+	 * result and then has to {@link #release(long)} the slot.
+	 */
+	Slot await(long sequence) {
+		Slot slot = slot(sequence);
+		int spins = 0;
+		while (slot.completed != sequence) {
+			if (++spins < SPINS) {
+				Thread.onSpinWait();
+				continue;
+			}
+			if (spins < SPINS + YIELDS) {
+				Thread.yield();
+				continue;
+			}
+			slot.callerParked = true;
+			if (slot.completed != sequence) {
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+			slot.callerParked = false;
+		}
+		return slot;
+	}
+
+	void release(long sequence) {
+		Slot slot = slot(sequence);
+		slot.accountId = null;
+		slot.toAccId = null;
+		slot.caller = null;
+		slot.sequence = sequence + slots.length;
+	}
+
+	void close() {
+		running = false;
+		LockSupport.unpark(businessThread);
+		try {
+			businessThread.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		long sequence = 0;
+		while (true) {
+			Slot slot = slots[(int) sequence & mask];
+			if (!awaitPublished(slot, sequence)) {
+				return;
+			}
+			try {
+				handler.accept(slot);
+			} catch (RuntimeException ex) {
+				// the handler answers with status codes, this keeps the business thread alive
+				log.error("Account sequencer command failed", ex);
+				slot.status = FAILED;
+			}
+			Thread caller = slot.caller;
+			slot.completed = sequence;
+			if (slot.callerParked) {
+				LockSupport.unpark(caller);
+			}
+			handled = ++sequence;
+		}
+	}
+
+	/**
+	 * awaitPublished(..) waits for the slot to be published with the sequence number, and
+	 * returns false once the ring is closed and nothing is left to handle.
+	 */
+	private boolean awaitPublished(Slot slot, long sequence) {
+		int spins = 0;
+		while (slot.published != sequence) {
+			if (!running && next.get() == sequence) {
+				return false;
+			}
+			if (++spins < SPINS) {
+				Thread.onSpinWait();
+				continue;
+			}
+			if (spins < SPINS + YIELDS) {
+				Thread.yield();
+				continue;
+			}
+			businessThreadParked = true;
+			if (slot.published != sequence) {
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+			businessThreadParked = false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,182 @@
+package com.dws.challenge.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import com.dws.challenge.exception.MoneyRelatedException;
+
+/**
+ * HotBalance is the balance of a hot account split over a power of two number of slots, in
+ * the style of {@link java.util.concurrent.atomic.LongAdder}: the balance is the sum of the
+ * slots. Credits go to the slot of the calling thread and move on to the next slot when its
+ * CAS fails, so concurrent credits rarely touch the same cache line. Debits are serialized
+ * and borrow from every slot in turn; as the slots only grow meanwhile, a debit that found
+ * the sum sufficient always collects the full amount.
+ *
+ * Reading the sum while credits run is not atomic, it may miss a credit that is still in
+ * flight, but never counts one twice or shows money a debit has already taken.
+ *
+ * Every slot has a limit and the limits add up to Long.MAX_VALUE, so the sum can not
+ * overflow. A credit that fits in no single slot is spread over several under the debit
+ * lock, and undone again when they have no room for all of it; meanwhile a reader may see
+ * the part already spread.
+ */
+final class HotBalance {
+
+	/**
+	 * Slots are 128 bytes apart, so no two of them share a cache line or its prefetched pair.
+	 */
+	private static final int SPACING = 16;
+
+	private final AtomicLongArray slots;
+
+	private final int mask;
+
+	private final long slotLimit;
+
+	private final ReentrantLock debitLock = new ReentrantLock();
+
+	HotBalance(int slotCount, long balance) {
+		int count = slotCount <= 1 ? 1 : Integer.highestOneBit(slotCount - 1) << 1;
+		this.slots = new AtomicLongArray(count * SPACING);
+		this.mask = count - 1;
+		this.slotLimit = Long.MAX_VALUE / count;
+		long remaining = balance;
+		for (int slot = 0; slot <= mask && remaining > 0; slot++) {
+			long share = Math.min(limit(slot), remaining);
+			slots.set(slot * SPACING, share);
+			remaining -= share;
+		}
+	}
+
+	int getSlotCount() {
+		return mask + 1;
+	}
+
+	long sum() {
+		long sum = 0;
+		for (int i = 0; i <= mask; i++) {
+			sum += slots.get(i * SPACING);
+		}
+		return sum;
+	}
+
+	void credit(long amount) {
+		int slot = probe();
+		for (int full = 0; full <= mask;) {
+			int index = slot * SPACING;
+			long current = slots.get(index);
+			if (current > limit(slot) - amount) {
+				full++;
+			} else if (slots.compareAndSet(index, current, current + amount)) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		spreadCredit(amount);
+	}
+
+	/**
+	 * spreadCredit(..) fills the slots up to their limits; no debit runs meanwhile and credits
+	 * only add to the slots, so taking back what it added never takes anyone else's money.
+	 */
+	private void spreadCredit(long amount) {
+		debitLock.lock();
+		try {
+			long[] added = new long[mask + 1];
+			long remaining = amount;
+			for (int slot = 0; slot <= mask && remaining > 0; slot++) {
+				int index = slot * SPACING;
+				for (;;) {
+					long current = slots.get(index);
+					long share = Math.min(limit(slot) - current, remaining);
+					if (share <= 0) {
+						break;
+					}
+					if (slots.compareAndSet(index, current, current + share)) {
+						added[slot] = share;
+						remaining -= share;
+						break;
+					}
+				}
+			}
+			if (remaining > 0) {
+				for (int slot = 0; slot <= mask; slot++) {
+					slots.addAndGet(slot * SPACING, -added[slot]);
+				}
+				throw new MoneyRelatedException("Account Balance would overflow...!!!");
+			}
+		} finally {
+			debitLock.unlock();
+		}
+	}
+
+	/**
+	 * debit(..) takes the amount from the slots, starting with the caller's, and returns the
+	 * balance left.
+	 */
+	long debit(long amount) {
+		return debit(amount, () -> true);
+	}
+
+	/**
+	 * debit(.., commit) asks commit once the balance covers the amount and takes the amount
+	 * only when it agrees; it returns -1 when it did not. As the slots only grow while the
+	 * debit lock is held, the amount can always be collected after commit, so a transfer can
+	 * credit the other account in between and never has to take it back.
+	 */
+	long debit(long amount, BooleanSupplier commit) {
+		debitLock.lock();
+		try {
+			long balance = sum();
+			if (amount > balance) {
+				throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+			}
+			if (!commit.getAsBoolean()) {
+				return -1;
+			}
+			long remaining = amount;
+			int slot = probe();
+			for (int visited = 0; visited <= mask && remaining > 0; visited++) {
+				int index = ((slot + visited) & mask) * SPACING;
+				for (;;) {
+					long current = slots.get(index);
+					long taken = Math.min(current, remaining);
+					if (taken <= 0 || slots.compareAndSet(index, current, current - taken)) {
+						remaining -= Math.max(0, taken);
+						break;
+					}
+				}
+			}
+			return balance - amount;
+		} finally {
+			debitLock.unlock();
+		}
+	}
+
+	/**
+	 * limit(..) is the most a slot may hold; the first slot also takes the remainder of the
+	 * division.
+	 */
+	private long limit(int slot) {
+		return slot == 0 ? Long.MAX_VALUE - mask * slotLimit : slotLimit;
+	}
+
+	/**
+	 * lockDebits() holds off debits, for transfers between two hot accounts that take the
+	 * debit locks in id order.
+	 */
+	void lockDebits() {
+		debitLock.lock();
+	}
+
+	void unlockDebits() {
+		debitLock.unlock();
+	}
+
+	private int probe() {
+		long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+		return (int) (id >>> 32) & mask;
+	}
+}
@@ -0,0 +1,33 @@
+package com.dws.challenge.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import com.dws.challenge.domain.IdempotentOutcome;
+
+/**
+ * IdempotencyLog is implemented by account stores that persist their changes, so that the
+ * outcomes of idempotent requests survive a restart together with the changes they describe.
+ */
+public interface IdempotencyLog {
+
+	/**
+	 * applyLogged(..) runs a change and persists the outcome with it, atomically: after a
+	 * restart either both are there or neither is.
+	 */
+	<T> T applyLogged(IdempotentOutcome outcome, Callable<T> change) throws Exception;
+
+	/**
+	 * log(..) persists an outcome that did not change the store, such as a rejected transfer.
+	 */
+	void log(IdempotentOutcome outcome);
+
+	/**
+	 * recover(..) hands over the outcomes found while the store was recovered, possibly
+	 * expired ones and several per key, oldest first. The live outcomes are asked for whenever
+	 * the store drops old history, so they can be kept.
+	 */
+	List<IdempotentOutcome> recover(Supplier<Collection<IdempotentOutcome>> liveOutcomes);
+}
@@ -0,0 +1,332 @@
+package com.dws.challenge.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.domain.IdempotentOutcome;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.exception.JournalException;
+import com.dws.challenge.journal.AccountJournal;
+import com.dws.challenge.journal.JournalMark;
+import com.dws.challenge.journal.JournalRecord;
+import com.dws.challenge.journal.SnapshotFile;
+import com.dws.challenge.service.NotificationService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable variant of the in-memory store, enabled with accounts.store=journal. Every change
+ * is appended to the {@link AccountJournal} while its stripes are held, so the journal has
+ * the same per-account order as the store, and is committed according to the fsync policy
+ * before the caller is answered.
+ *
+ * Every accounts.snapshot.interval-seconds a {@link SnapshotFile} is written in the
+ * background without stopping writers, and the journal segments older than the oldest
+ * retained snapshot are deleted. On startup the newest readable snapshot is loaded and only
+ * the journal from its mark on is replayed. Each account remembers the lsn of its last
+ * change, so a replayed record is applied to exactly the accounts that have not seen it yet,
+ * no matter how far the snapshot got while the record was being written.
+ *
+ * As an {@link IdempotencyLog} it writes the outcome of an idempotent request into the
+ * record of the change the request made, and appends the live outcomes again after every
+ * snapshot, as the segments they were first written to may be deleted.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "journal")
+@Slf4j
+public class JournaledAccountsRepository extends AccountsRepositoryInMemory implements IdempotencyLog {
+
+	private final AccountJournal accountJournal;
+
+	private final long snapshotIntervalSeconds;
+
+	private final int snapshotsRetained;
+
+	private final ScheduledExecutorService snapshotter;
+
+	private final ReentrantLock snapshotLock = new ReentrantLock();
+
+	private long lastSnapshotLsn = -1;
+
+	private final ThreadLocal<IdempotentOutcome> pendingOutcome = new ThreadLocal<>();
+
+	private List<IdempotentOutcome> recoveredOutcomes = new ArrayList<>();
+
+	private volatile Supplier<Collection<IdempotentOutcome>> liveOutcomes = Collections::emptyList;
+
+	public JournaledAccountsRepository(AccountLockManager accountLockManager, NotificationService notificationService,
+			AccountJournal accountJournal, long snapshotIntervalSeconds, int snapshotsRetained) {
+		this(accountLockManager, notificationService, accountJournal, snapshotIntervalSeconds, snapshotsRetained, false);
+	}
+
+	@Autowired
+	public JournaledAccountsRepository(AccountLockManager accountLockManager, NotificationService notificationService,
+			AccountJournal accountJournal, @Value("${accounts.snapshot.interval-seconds:300}") long snapshotIntervalSeconds,
+			@Value("${accounts.snapshot.retain:2}") int snapshotsRetained,
+			@Value("${accounts.virtual-threads.enabled:false}") boolean virtualThreads) {
+		super(accountLockManager, notificationService);
+		this.snapshotter = Executors.newSingleThreadScheduledExecutor(
+				VirtualThreads.threadFactory("account-snapshotter", virtualThreads));
+		this.accountJournal = accountJournal;
+		this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+		this.snapshotsRetained = Math.max(1, snapshotsRetained);
+		addChangeListener(new JournalWriter());
+	}
+
+	@PostConstruct
+	public void recover() {
+		long started = System.nanoTime();
+		JournalMark mark = restoreSnapshot();
+		accountJournal.recover(mark, this::replay);
+		rebuildIndexes();
+		log.info("Recovered the account store from the journal in {} ms", (System.nanoTime() - started) / 1_000_000);
+		if (snapshotIntervalSeconds > 0) {
+			snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalSeconds, snapshotIntervalSeconds,
+					TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * snapshot() writes a snapshot while the store keeps taking changes, then drops the
+	 * snapshots and journal segments recovery no longer needs. Returns null when nothing
+	 * changed since the last snapshot.
+	 */
+	public Path snapshot() {
+		// a lock rather than synchronized, so the file I/O does not pin a virtual snapshotter thread
+		snapshotLock.lock();
+		try {
+			JournalMark mark = accountJournal.mark();
+			if (mark.getLsn() == lastSnapshotLsn) {
+				return null;
+			}
+			long started = System.nanoTime();
+			Path snapshot;
+			try (SnapshotFile.Writer writer = SnapshotFile.create(accountJournal.getDirectory(), mark)) {
+				forEachCell(writer);
+				// outcomes are not part of the snapshot, append them again so pruning does not lose them
+				for (IdempotentOutcome outcome : liveOutcomes.get()) {
+					accountJournal.append(JournalRecord.idempotency(outcome));
+				}
+				// the snapshot may hold changes appended after the mark, they must not be lost from the journal
+				accountJournal.sync();
+				snapshot = writer.commit();
+				log.info("Wrote {} accounts to {} in {} ms", writer.getCount(), snapshot,
+						(System.nanoTime() - started) / 1_000_000);
+			}
+			lastSnapshotLsn = mark.getLsn();
+			pruneSnapshots();
+			return snapshot;
+		} finally {
+			snapshotLock.unlock();
+		}
+	}
+
+	@Override
+	public <T> T applyLogged(IdempotentOutcome outcome, Callable<T> change) throws Exception {
+		pendingOutcome.set(outcome);
+		try {
+			T result = change.call();
+			if (pendingOutcome.get() != null) {
+				// the change did not need a journal record to attach the outcome to
+				log(outcome);
+			}
+			return result;
+		} finally {
+			pendingOutcome.remove();
+		}
+	}
+
+	@Override
+	public void log(IdempotentOutcome outcome) {
+		accountJournal.commit(accountJournal.append(JournalRecord.idempotency(outcome)));
+	}
+
+	@Override
+	public List<IdempotentOutcome> recover(Supplier<Collection<IdempotentOutcome>> liveOutcomes) {
+		this.liveOutcomes = liveOutcomes;
+		List<IdempotentOutcome> recovered = recoveredOutcomes;
+		recoveredOutcomes = new ArrayList<>();
+		return recovered;
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		snapshotter.shutdown();
+		snapshotter.awaitTermination(30, TimeUnit.SECONDS);
+	}
+
+	@Override
+	protected void afterCommit() {
+		accountJournal.commitLastAppended();
+	}
+
+	@Override
+	protected long changeLsn() {
+		return accountJournal.lastAppendedLsn();
+	}
+
+	/**
+	 * replay(..) applies a journal record to the accounts whose lsn is still older than the
+	 * record's. Records were validated when they were written, so they are applied as is.
+	 */
+	void replay(JournalRecord record) {
+		long lsn = record.getLsn();
+		if (record.getOutcome() != null) {
+			recoveredOutcomes.add(record.getOutcome());
+		}
+		switch (record.getType()) {
+		case CREATE:
+			BalanceCell existing = cell(record.getAccountId());
+			if (existing == null || existing.getLsn() < lsn) {
+				restoreCell(record.getAccountId(), record.getAmount(), lsn);
+			}
+			break;
+		case DEPOSIT:
+			replayLeg(cell(record.getAccountId()), record.getAmount(), lsn);
+			break;
+		case WITHDRAW:
+			replayLeg(cell(record.getAccountId()), -record.getAmount(), lsn);
+			break;
+		case TRANSFER:
+			replayLeg(cell(record.getAccountId()), -record.getAmount(), lsn);
+			replayLeg(cell(record.getToAccId()), record.getAmount(), lsn);
+			break;
+		case TRANSFER_BATCH:
+			// decide per account before touching any, an account can take part in several transfers
+			Map<BalanceCell, Long> balances = new IdentityHashMap<>();
+			for (Transfer transfer : record.getTransfers()) {
+				addPending(balances, cell(transfer.getFromAccId()), -transfer.getAmount(), lsn);
+				addPending(balances, cell(transfer.getToAccId()), transfer.getAmount(), lsn);
+			}
+			balances.forEach((cell, balance) -> {
+				cell.set(balance);
+				cell.setLsn(lsn);
+			});
+			break;
+		case CLEAR:
+			removeCellsBefore(lsn);
+			break;
+		case IDEMPOTENCY:
+			break;
+		}
+	}
+
+	private static void replayLeg(BalanceCell cell, long delta, long lsn) {
+		if (cell != null && cell.getLsn() < lsn) {
+			cell.set(cell.get() + delta);
+			cell.setLsn(lsn);
+		}
+	}
+
+	private static void addPending(Map<BalanceCell, Long> balances, BalanceCell cell, long delta, long lsn) {
+		if (cell != null && cell.getLsn() < lsn) {
+			balances.put(cell, balances.getOrDefault(cell, cell.get()) + delta);
+		}
+	}
+
+	private JournalMark restoreSnapshot() {
+		for (Path snapshot : SnapshotFile.list(accountJournal.getDirectory())) {
+			long started = System.nanoTime();
+			try {
+				JournalMark mark = SnapshotFile.load(snapshot, this::restoreCell);
+				lastSnapshotLsn = mark.getLsn();
+				log.info("Loaded {} in {} ms", snapshot, (System.nanoTime() - started) / 1_000_000);
+				return mark;
+			} catch (JournalException ex) {
+				log.warn("Skipping the unusable snapshot {}", snapshot, ex);
+				removeCellsBefore(Long.MAX_VALUE);
+			}
+		}
+		return new JournalMark(0, 0);
+	}
+
+	private void pruneSnapshots() {
+		List<Path> snapshots = SnapshotFile.list(accountJournal.getDirectory());
+		try {
+			for (int i = snapshotsRetained; i < snapshots.size(); i++) {
+				Files.deleteIfExists(snapshots.get(i));
+			}
+		} catch (IOException ex) {
+			throw new JournalException("Could not delete old snapshots in " + accountJournal.getDirectory(), ex);
+		}
+		JournalMark oldest = SnapshotFile.readMark(snapshots.get(Math.min(snapshotsRetained, snapshots.size()) - 1));
+		int deleted = accountJournal.deleteSegmentsBefore(oldest.getSegmentIndex());
+		if (deleted > 0) {
+			log.info("Deleted {} journal segments covered by the snapshots", deleted);
+		}
+	}
+
+	private void snapshotQuietly() {
+		try {
+			snapshot();
+		} catch (RuntimeException ex) {
+			log.error("Could not write a snapshot of the account store", ex);
+		}
+	}
+
+	/**
+	 * JournalWriter appends every change while it is being applied; a failing append vetoes it.
+	 */
+	private final class JournalWriter implements AccountChangeListener {
+
+		@Override
+		public void accountCreated(String accountId, long balance) {
+			append(JournalRecord.create(accountId, balance));
+		}
+
+		@Override
+		public void deposited(String accountId, long amount, long balance) {
+			append(JournalRecord.deposit(accountId, amount));
+		}
+
+		@Override
+		public void withdrawn(String accountId, long amount, long balance) {
+			append(JournalRecord.withdraw(accountId, amount));
+		}
+
+		@Override
+		public void transferred(String fromAccId, String toAccId, long amount, long fromBalance, long toBalance) {
+			append(JournalRecord.transfer(fromAccId, toAccId, amount));
+		}
+
+		@Override
+		public void batchTransferred(List<Transfer> transfers, long[] fromBalances, long[] toBalances) {
+			append(JournalRecord.transferBatch(transfers));
+		}
+
+		@Override
+		public void accountsCleared() {
+			append(JournalRecord.clear());
+		}
+
+		private void append(JournalRecord record) {
+			IdempotentOutcome outcome = pendingOutcome.get();
+			if (outcome != null) {
+				pendingOutcome.remove();
+				record = record.withOutcome(outcome);
+			}
+			accountJournal.append(record);
+		}
+	}
+}
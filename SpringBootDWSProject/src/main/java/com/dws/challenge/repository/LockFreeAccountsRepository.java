@@ -0,0 +1,562 @@
+package com.dws.challenge.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.service.NotificationService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Account store that keeps every balance in a CAS updated {@link BalanceCell} instead of
+ * locking the Account objects. Enabled with accounts.store=lock-free.
+ *
+ * A transfer between two cells commits both legs at once. It publishes a
+ * {@link PendingTransfer} that holds the balances before and after, swaps a marker naming it
+ * into each cell with a CAS on the balance it read, and then decides the transfer with one
+ * CAS of its status; that CAS is the moment both new balances become visible. Readers that
+ * meet a marker take the balance from the transfer, old before the decision and new after
+ * it, so nobody sees the money in flight. Writers that meet a marker wait for the transfer,
+ * abort it once it stalls for {@link #SPINS_BEFORE_ABORT} spins without a decision, and
+ * swap the decided balances back in, so a stalled transfer never blocks an account. A
+ * transfer that fails validation, including one that would overflow the target, never
+ * touches a balance; an aborted one is retried from the start.
+ *
+ * Accounts that take a large share of all transfers, like fee or settlement accounts, can
+ * be made hot with accounts.lock-free.hot-slots set: their balance is split into that many
+ * slots of a {@link HotBalance}, so concurrent credits stop retrying on a single cell. The
+ * accounts listed in accounts.lock-free.hot-accounts are hot from their creation, any other
+ * account is promoted once its CAS operations failed accounts.lock-free.hot-promotion-threshold
+ * times within a second. A hot account stays hot until the accounts are cleared; its cell
+ * holds {@link #HOT} from then on, which makes every CAS still expecting the old balance fail
+ * and retry on the slots. The slots can not take part in the CAS of a transfer: a transfer
+ * into a hot account marks the source, credits the slots and only then decides, and one out
+ * of a hot account marks the target and decides while the debit lock holds the amount, see
+ * {@link HotBalance#debit(long, java.util.function.BooleanSupplier)}. Neither ever has to
+ * give money back, but a reader may see the amount on both sides for a moment.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "lock-free")
+@Slf4j
+public class LockFreeAccountsRepository implements AccountsRepository {
+
+	/**
+	 * Balance of the cell of a hot account; no real balance can be this low.
+	 */
+	static final long HOT = Long.MIN_VALUE;
+
+	private static final long CONTENTION_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * How long a writer waits for an undecided transfer holding its cell before aborting it.
+	 */
+	static final int SPINS_BEFORE_ABORT = 1 << 10;
+
+	private final BalanceCellMap cells = new BalanceCellMap();
+
+	private final AccountIdIndex accountIdIndex = new AccountIdIndex();
+
+	private final LongAdder totalBalance = new LongAdder();
+
+	private final NotificationService notificationService;
+
+	private final int hotSlots;
+
+	private final Set<String> designatedHotAccounts;
+
+	private final int promotionThreshold;
+
+	private final ConcurrentHashMap<String, HotBalance> hotBalances = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<BalanceCell, AtomicInteger> contention = new ConcurrentHashMap<>();
+
+	private volatile long contentionWindowStart = System.nanoTime();
+
+	/**
+	 * Transfers whose marker is in a cell, by marker. Markers are negative, never {@link #HOT}
+	 * and never reused, so a CAS on a marker can not hit a later transfer.
+	 */
+	private final ConcurrentHashMap<Long, PendingTransfer> pendingTransfers = new ConcurrentHashMap<>();
+
+	private final AtomicLong lastMarker = new AtomicLong(HOT);
+
+	public LockFreeAccountsRepository(NotificationService notificationService) {
+		this(notificationService, 0, "", 0);
+	}
+
+	@Autowired
+	public LockFreeAccountsRepository(NotificationService notificationService,
+			@Value("${accounts.lock-free.hot-slots:0}") int hotSlots,
+			@Value("${accounts.lock-free.hot-accounts:}") String hotAccounts,
+			@Value("${accounts.lock-free.hot-promotion-threshold:1000}") int promotionThreshold) {
+		this.notificationService = notificationService;
+		this.hotSlots = Math.max(0, hotSlots);
+		this.designatedHotAccounts = Arrays.stream(hotAccounts.split(",")).map(String::trim)
+				.filter(accountId -> !accountId.isEmpty()).collect(Collectors.toUnmodifiableSet());
+		this.promotionThreshold = promotionThreshold;
+	}
+
+	/**
+	 * isHot(..) tells whether the balance of the account is split over slots.
+	 */
+	public boolean isHot(String accountId) {
+		BalanceCell cell = cells.get(accountId);
+		return cell != null && cell.get() == HOT;
+	}
+
+	@Override
+	public void createAccount(Account account) throws AccountRelatedException {
+
+		AccountIds.validate(account.getAccountId());
+
+		long balance = MoneyUnits.toMinorUnits(account.getBalance());
+		// negative balances are the markers of pending transfers
+		checkAmount(balance, "Acc Balance or Money value should not be negative...!!!");
+		BalanceCell previousCell = cells.putIfAbsent(account.getAccountId(), new BalanceCell(account.getAccountId(), balance));
+
+		if (previousCell != null) {
+			throw new AccountRelatedException("Account id " + account.getAccountId() + " already exists!");
+		}
+		if (hotSlots > 0 && designatedHotAccounts.contains(account.getAccountId())) {
+			promote(cells.get(account.getAccountId()));
+		}
+		accountIdIndex.add(account.getAccountId());
+		totalBalance.add(balance);
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		BalanceCell cell = cells.get(accountId);
+		return cell == null ? null : new Account(accountId, MoneyUnits.toBigDecimal(balanceOf(cell)));
+	}
+
+	@Override
+	public void clearAccounts() {
+		for (BalanceCell account : cells) {
+			String accountId = account.getAccountId();
+			BalanceCell cell = cells.remove(accountId);
+			accountIdIndex.remove(accountId);
+			if (cell != null) {
+				totalBalance.add(-balanceOf(cell));
+			}
+		}
+		hotBalances.clear();
+		contention.clear();
+	}
+
+	@Override
+	public List<Account> listAllAccounts() {
+
+		List<Account> listAccounts = new ArrayList<Account>(cells.size());
+		for (BalanceCell cell : cells) {
+			listAccounts.add(new Account(cell.getAccountId(), MoneyUnits.toBigDecimal(balanceOf(cell))));
+		}
+		return listAccounts;
+	}
+
+	@Override
+	public List<Account> listAccounts(String after, int limit) {
+		return accountIdIndex.page(this::getAccount, after, limit);
+	}
+
+	@Override
+	public long countAccounts() {
+		return cells.size();
+	}
+
+	@Override
+	public long totalBalance() {
+		return totalBalance.sum();
+	}
+
+	/**
+	 * transferMoney(...) retries until the transfer committed or failed validation, without
+	 * holding any monitor.
+	 */
+	@Override
+	public void transferMoney(String fromAccId, String toAccId, long amount) throws Exception {
+
+		if (fromAccId.equals(toAccId)) {
+			throw new MoneyRelatedException("Both Account Should not be same...!!!");
+		}
+
+		BalanceCell from = requireCell(fromAccId);
+		BalanceCell to = requireCell(toAccId);
+		checkAmount(amount, "Acc Balance or Money value should not be negative...!!!");
+
+		long[] balances;
+		do {
+			long fromValue = settled(from);
+			long toValue = settled(to);
+			if (fromValue == HOT && toValue == HOT) {
+				balances = transferBetweenHot(fromAccId, toAccId, amount);
+			} else if (fromValue == HOT) {
+				balances = transferFromHot(fromAccId, to, toValue, amount);
+			} else if (toValue == HOT) {
+				balances = transferToHot(from, fromValue, toAccId, amount);
+			} else {
+				balances = transfer(from, fromValue, to, toValue, amount);
+			}
+		} while (balances == null);
+
+		notificationService.notifyAboutTransfer(new Account(toAccId, MoneyUnits.toBigDecimal(balances[1])), " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + toAccId);
+		notificationService.notifyAboutTransfer(new Account(fromAccId, MoneyUnits.toBigDecimal(balances[0])), " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + fromAccId);
+	}
+
+	/**
+	 * transfer(..) returns the new balances of both cells, or null when either changed since
+	 * it was read or the transfer was aborted.
+	 */
+	private long[] transfer(BalanceCell from, long fromBalance, BalanceCell to, long toBalance, long amount) {
+		if (amount > fromBalance) {
+			throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+		}
+		PendingTransfer transfer = begin(from, fromBalance, fromBalance - amount, to, toBalance,
+				MoneyUnits.add(toBalance, amount));
+		if (!from.compareAndSet(fromBalance, transfer.marker)) {
+			pendingTransfers.remove(transfer.marker);
+			contended(from);
+			return null;
+		}
+		if (!to.compareAndSet(toBalance, transfer.marker)) {
+			transfer.status.compareAndSet(PendingTransfer.UNDECIDED, PendingTransfer.FAILED);
+			release(transfer);
+			contended(to);
+			return null;
+		}
+		boolean committed = transfer.status.compareAndSet(PendingTransfer.UNDECIDED, PendingTransfer.SUCCEEDED);
+		release(transfer);
+		return committed ? new long[] { transfer.fromNew, transfer.toNew } : null;
+	}
+
+	/**
+	 * transferToHot(..) holds the source cell while the slots are credited; a credit that
+	 * would overflow fails the transfer before the source changed.
+	 */
+	private long[] transferToHot(BalanceCell from, long fromBalance, String toAccId, long amount) {
+		if (amount > fromBalance) {
+			throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+		}
+		PendingTransfer transfer = begin(from, fromBalance, fromBalance - amount, null, 0, 0);
+		if (!from.compareAndSet(fromBalance, transfer.marker)) {
+			pendingTransfers.remove(transfer.marker);
+			contended(from);
+			return null;
+		}
+		if (!transfer.status.compareAndSet(PendingTransfer.UNDECIDED, PendingTransfer.CREDITING)) {
+			release(transfer);
+			return null;
+		}
+		HotBalance target = hotBalances.get(toAccId);
+		try {
+			target.credit(amount);
+			transfer.status.set(PendingTransfer.SUCCEEDED);
+		} finally {
+			transfer.status.compareAndSet(PendingTransfer.CREDITING, PendingTransfer.FAILED);
+			release(transfer);
+		}
+		return new long[] { transfer.fromNew, target.sum() };
+	}
+
+	/**
+	 * transferFromHot(..) holds the target cell and decides while the debit lock of the
+	 * source guarantees the amount.
+	 */
+	private long[] transferFromHot(String fromAccId, BalanceCell to, long toBalance, long amount) {
+		PendingTransfer transfer = begin(null, 0, 0, to, toBalance, MoneyUnits.add(toBalance, amount));
+		if (!to.compareAndSet(toBalance, transfer.marker)) {
+			pendingTransfers.remove(transfer.marker);
+			contended(to);
+			return null;
+		}
+		try {
+			long fromBalance = hotBalances.get(fromAccId).debit(amount,
+					() -> transfer.status.compareAndSet(PendingTransfer.UNDECIDED, PendingTransfer.SUCCEEDED));
+			return fromBalance < 0 ? null : new long[] { fromBalance, transfer.toNew };
+		} finally {
+			transfer.status.compareAndSet(PendingTransfer.UNDECIDED, PendingTransfer.FAILED);
+			release(transfer);
+		}
+	}
+
+	/**
+	 * transferBetweenHot(..) credits the target while the source's debit lock holds the amount.
+	 * The debit locks of both are taken in id order, as a credit may take the target's.
+	 */
+	private long[] transferBetweenHot(String fromAccId, String toAccId, long amount) {
+		HotBalance source = hotBalances.get(fromAccId);
+		HotBalance target = hotBalances.get(toAccId);
+		boolean targetFirst = toAccId.compareTo(fromAccId) < 0;
+		if (targetFirst) {
+			target.lockDebits();
+		}
+		try {
+			long fromBalance = source.debit(amount, () -> {
+				target.credit(amount);
+				return true;
+			});
+			return new long[] { fromBalance, target.sum() };
+		} finally {
+			if (targetFirst) {
+				target.unlockDebits();
+			}
+		}
+	}
+
+	@Override
+	public Account deposit(String accountId, long amount) throws Exception {
+		BalanceCell cell = requireCell(accountId);
+		checkAmount(amount, "Deposit or Money value should not be negative...!!!");
+		Account actualAccount = new Account(accountId, MoneyUnits.toBigDecimal(credit(cell, amount)));
+		totalBalance.add(amount);
+		notificationService.notifyAboutTransfer(actualAccount, " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + accountId);
+
+		return actualAccount;
+	}
+
+	@Override
+	public Account withdraw(String accountId, long amount) throws Exception {
+		BalanceCell cell = requireCell(accountId);
+		checkAmount(amount, "Acc Balance or Money value should not be negative...!!!");
+		Account actualAccount = new Account(accountId, MoneyUnits.toBigDecimal(debit(cell, amount)));
+		totalBalance.add(-amount);
+		notificationService.notifyAboutTransfer(actualAccount, " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + accountId);
+
+		return actualAccount;
+	}
+
+	/**
+	 * credit(..) returns the balance after the credit; for a hot account that is the sum of
+	 * its slots right after, which may include other credits.
+	 */
+	private long credit(BalanceCell cell, long amount) {
+		for (;;) {
+			long current = settled(cell);
+			if (current == HOT) {
+				HotBalance hot = hotBalances.get(cell.getAccountId());
+				hot.credit(amount);
+				return hot.sum();
+			}
+			long updated = MoneyUnits.add(current, amount);
+			if (cell.compareAndSet(current, updated)) {
+				return updated;
+			}
+			contended(cell);
+			Thread.onSpinWait();
+		}
+	}
+
+	private long debit(BalanceCell cell, long amount) {
+		for (;;) {
+			long current = settled(cell);
+			if (current == HOT) {
+				return hotBalances.get(cell.getAccountId()).debit(amount);
+			}
+			if (amount > current) {
+				throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+			}
+			long updated = current - amount;
+			if (cell.compareAndSet(current, updated)) {
+				return updated;
+			}
+			contended(cell);
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * balanceOf(..) reads the balance without waiting; a cell held by a transfer shows the
+	 * balance the transfer's status stands for.
+	 */
+	private long balanceOf(BalanceCell cell) {
+		for (;;) {
+			long balance = cell.get();
+			if (balance == HOT) {
+				return hotBalances.get(cell.getAccountId()).sum();
+			}
+			if (balance >= 0) {
+				return balance;
+			}
+			PendingTransfer transfer = pendingTransfers.get(balance);
+			if (transfer != null) {
+				return transfer.balanceOf(cell);
+			}
+		}
+	}
+
+	/**
+	 * settled(..) returns the balance of a cell, or {@link #HOT}, once no transfer holds it.
+	 */
+	private long settled(BalanceCell cell) {
+		for (int spins = 0;; spins++) {
+			long balance = cell.get();
+			if (balance >= 0 || balance == HOT) {
+				return balance;
+			}
+			PendingTransfer transfer = pendingTransfers.get(balance);
+			if (transfer == null) {
+				continue;
+			}
+			int status = transfer.status.get();
+			if (status == PendingTransfer.UNDECIDED && spins >= SPINS_BEFORE_ABORT) {
+				transfer.status.compareAndSet(PendingTransfer.UNDECIDED, PendingTransfer.FAILED);
+			} else if (status == PendingTransfer.SUCCEEDED || status == PendingTransfer.FAILED) {
+				release(transfer);
+			} else if (spins >= SPINS_BEFORE_ABORT) {
+				// a transfer crediting a hot account can no longer be aborted
+				Thread.yield();
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	private PendingTransfer begin(BalanceCell from, long fromOld, long fromNew, BalanceCell to, long toOld, long toNew) {
+		PendingTransfer transfer = new PendingTransfer(lastMarker.incrementAndGet(), from, fromOld, fromNew, to, toOld, toNew);
+		pendingTransfers.put(transfer.marker, transfer);
+		return transfer;
+	}
+
+	/**
+	 * release(..) swaps the decided balances back into the cells the transfer still holds. Any
+	 * thread may release a decided transfer, the CAS on the marker makes it happen once.
+	 */
+	private void release(PendingTransfer transfer) {
+		if (transfer.from != null) {
+			transfer.from.compareAndSet(transfer.marker, transfer.balanceOf(transfer.from));
+		}
+		if (transfer.to != null) {
+			transfer.to.compareAndSet(transfer.marker, transfer.balanceOf(transfer.to));
+		}
+		pendingTransfers.remove(transfer.marker, transfer);
+	}
+
+	/**
+	 * contended(..) counts a failed CAS on the cell and promotes it once the threshold is
+	 * reached within the current window. The counts of all cells start over every window.
+	 */
+	private void contended(BalanceCell cell) {
+		if (hotSlots == 0 || promotionThreshold <= 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (now - contentionWindowStart > CONTENTION_WINDOW_NANOS) {
+			contentionWindowStart = now;
+			contention.clear();
+		}
+		AtomicInteger failures = contention.get(cell);
+		if (failures == null) {
+			failures = contention.computeIfAbsent(cell, key -> new AtomicInteger());
+		}
+		if (failures.incrementAndGet() == promotionThreshold) {
+			promote(cell);
+		}
+	}
+
+	/**
+	 * promote(..) moves the balance of the cell into the slots of a new HotBalance and only
+	 * then marks the cell, so an operation that sees the mark always finds the slots.
+	 */
+	private synchronized void promote(BalanceCell cell) {
+		String accountId = cell.getAccountId();
+		HotBalance hot;
+		for (;;) {
+			long current = settled(cell);
+			if (current == HOT) {
+				return;
+			}
+			hot = new HotBalance(hotSlots, current);
+			hotBalances.put(accountId, hot);
+			if (cell.compareAndSet(current, HOT)) {
+				break;
+			}
+		}
+		contention.remove(cell);
+		log.info("Account {} is hot, its balance is split over {} slots", accountId, hot.getSlotCount());
+	}
+
+	private BalanceCell requireCell(String accountId) {
+		BalanceCell cell = cells.get(accountId);
+		if (cell == null) {
+			throw new AccountRelatedException("Account id " + accountId + " does not exist!");
+		}
+		return cell;
+	}
+
+	private void checkAmount(long amount, String message) {
+		if (amount < 0) {
+			throw new MoneyRelatedException(message);
+		}
+	}
+
+	/**
+	 * PendingTransfer is a transfer whose marker is, or is about to be, in the cells it
+	 * changes. A transfer into or out of a hot account only holds the cell of the other side.
+	 */
+	private static final class PendingTransfer {
+
+		static final int UNDECIDED = 0;
+
+		/**
+		 * The slots of the hot target are being credited; the transfer can not be aborted.
+		 */
+		static final int CREDITING = 1;
+
+		static final int SUCCEEDED = 2;
+
+		static final int FAILED = 3;
+
+		private final long marker;
+
+		private final BalanceCell from;
+
+		private final long fromOld;
+
+		private final long fromNew;
+
+		private final BalanceCell to;
+
+		private final long toOld;
+
+		private final long toNew;
+
+		private final AtomicInteger status = new AtomicInteger(UNDECIDED);
+
+		private PendingTransfer(long marker, BalanceCell from, long fromOld, long fromNew, BalanceCell to, long toOld,
+				long toNew) {
+			this.marker = marker;
+			this.from = from;
+			this.fromOld = fromOld;
+			this.fromNew = fromNew;
+			this.to = to;
+			this.toOld = toOld;
+			this.toNew = toNew;
+		}
+
+		long balanceOf(BalanceCell cell) {
+			boolean succeeded = status.get() == SUCCEEDED;
+			if (cell == from) {
+				return succeeded ? fromNew : fromOld;
+			}
+			return succeeded ? toNew : toOld;
+		}
+	}
+}
@@ -0,0 +1,438 @@
+package com.dws.challenge.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.service.NotificationService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Account store that keeps every account in direct memory instead of on the heap, enabled
+ * with accounts.store=off-heap. There is no object per account: an account is a 16 byte
+ * slot of an open-addressing hash table, the packed account id followed by the balance in
+ * minor units, and Account objects are only created for the callers.
+ *
+ * The table is sized once for accounts.off-heap.max-accounts at three quarters load, so it
+ * never has to be rehashed while in use; accounts are only removed all at once. Account ids
+ * are packed into a long, see {@link AccountIds}, which limits them to 1 to 17 digits.
+ *
+ * Changes take the lock stripes of their accounts like the in-memory store, readers use
+ * volatile reads of the slots and never lock. A slot is claimed with a compare-and-set of
+ * its key to the negated id, and only gets the id once the opening balance is written, so
+ * readers never see a half created account.
+ *
+ * Listings page through the packed ids in id order: a sorted array plus a skip list of the
+ * ids created since, which is merged into a new array once it holds an eighth of the array
+ * or {@link #MIN_RECENT_IDS} ids. A page costs a binary search and a skip list lookup, and a
+ * create a skip list insert plus its share of the merges.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "off-heap")
+@Slf4j
+public class OffHeapAccountsRepository implements AccountsRepository {
+
+	private static final int SLOT_BYTES = 16;
+
+	private static final int BALANCE_OFFSET = 8;
+
+	/**
+	 * Slots per direct buffer, 1GB each, as one ByteBuffer can not hold more than 2GB.
+	 */
+	private static final int BUFFER_SLOT_BITS = 26;
+
+	private static final long EMPTY = AccountIds.NOT_NUMERIC;
+
+	private static final int MIN_RECENT_IDS = 4096;
+
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	private final ByteBuffer[] buffers;
+
+	private final int slotBits;
+
+	private final long slotMask;
+
+	private final int maxAccounts;
+
+	/**
+	 * Counts reserved slots as well as published accounts, so that creates under different
+	 * stripes can never claim more than maxAccounts slots between them.
+	 */
+	private final AtomicLong accountCount = new AtomicLong();
+
+	private final LongAdder totalBalance = new LongAdder();
+
+	private final AccountLockManager accountLockManager;
+
+	private final NotificationService notificationService;
+
+	private final ReentrantLock sortLock = new ReentrantLock();
+
+	/**
+	 * Packed ids of the accounts in id order, as of the last merge.
+	 */
+	private volatile long[] sortedIds = new long[0];
+
+	/**
+	 * Packed ids of the accounts created since the last merge. A merge publishes the new array
+	 * before it removes the merged ids from here, so a listing that reads this set first and
+	 * the array second finds every id in at least one of them.
+	 */
+	private final ConcurrentSkipListSet<Long> recentIds = new ConcurrentSkipListSet<>();
+
+	private final AtomicInteger recentIdCount = new AtomicInteger();
+
+	@Autowired
+	public OffHeapAccountsRepository(AccountLockManager accountLockManager, NotificationService notificationService,
+			@Value("${accounts.off-heap.max-accounts:1000000}") int maxAccounts) {
+		if (maxAccounts < 1) {
+			throw new IllegalArgumentException("accounts.off-heap.max-accounts must be positive");
+		}
+		this.accountLockManager = accountLockManager;
+		this.notificationService = notificationService;
+		this.maxAccounts = maxAccounts;
+		long slots = Long.highestOneBit(Math.max(2, (long) maxAccounts * 4 / 3) - 1) << 1;
+		this.slotBits = Long.numberOfTrailingZeros(slots);
+		this.slotMask = slots - 1;
+		int bufferSlots = (int) Math.min(slots, 1L << BUFFER_SLOT_BITS);
+		this.buffers = new ByteBuffer[(int) (slots / bufferSlots)];
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = ByteBuffer.allocateDirect(bufferSlots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+		}
+		log.info("Allocated {} MB off-heap for {} account slots", slots * SLOT_BYTES >> 20, slots);
+	}
+
+	@Override
+	public void createAccount(Account account) throws AccountRelatedException {
+
+		AccountIds.validate(account.getAccountId());
+		long id = pack(account.getAccountId());
+		long balance = MoneyUnits.toMinorUnits(account.getBalance());
+
+		try (AccountLockManager.Locked locked = accountLockManager.lock(account.getAccountId())) {
+			if (find(id) >= 0) {
+				throw new AccountRelatedException("Account id " + account.getAccountId() + " already exists!");
+			}
+			if (accountCount.incrementAndGet() > maxAccounts) {
+				accountCount.decrementAndGet();
+				throw new AccountRelatedException("The account store is full, it holds at most " + maxAccounts
+						+ " accounts...!!!");
+			}
+			long slot = claim(id);
+			setBalance(slot, balance);
+			LONGS.setVolatile(buffer(slot), offset(slot), id);
+		}
+		totalBalance.add(balance);
+		recentIds.add(id);
+		if (recentIdCount.incrementAndGet() >= Math.max(MIN_RECENT_IDS, sortedIds.length >> 3) && sortLock.tryLock()) {
+			try {
+				mergeRecentIds();
+			} finally {
+				sortLock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		long id = AccountIds.packOrZero(accountId);
+		long slot = id == EMPTY ? -1 : find(id);
+		return slot < 0 ? null : new Account(accountId, MoneyUnits.toBigDecimal(balance(slot)));
+	}
+
+	/**
+	 * clearAccounts() empties every slot. Like the other stores it should only be used while
+	 * the store is quiet.
+	 */
+	@Override
+	public void clearAccounts() {
+		for (long slot = 0; slot <= slotMask; slot++) {
+			long key = key(slot);
+			if (key != EMPTY) {
+				LONGS.setVolatile(buffer(slot), offset(slot), EMPTY);
+				if (key > 0) {
+					accountCount.decrementAndGet();
+					totalBalance.add(-balance(slot));
+				}
+			}
+		}
+		sortLock.lock();
+		try {
+			sortedIds = new long[0];
+			recentIds.clear();
+			recentIdCount.set(0);
+		} finally {
+			sortLock.unlock();
+		}
+	}
+
+	@Override
+	public List<Account> listAllAccounts() {
+
+		List<Account> listAccounts = new ArrayList<Account>((int) Math.min(accountCount.get(), Integer.MAX_VALUE));
+		for (long slot = 0; slot <= slotMask; slot++) {
+			long key = key(slot);
+			if (key > 0) {
+				listAccounts.add(new Account(AccountIds.unpack(key), MoneyUnits.toBigDecimal(balance(slot))));
+			}
+		}
+		return listAccounts;
+	}
+
+	/**
+	 * listAccounts(..) merges the sorted array of packed ids with the recently created ones;
+	 * packed ids sort like the ids themselves.
+	 */
+	@Override
+	public List<Account> listAccounts(String after, int limit) {
+		long[] recent = recentIdsAfter(after, limit);
+		long[] ids = sortedIds;
+		int i = 0;
+		if (after != null) {
+			int high = ids.length;
+			while (i < high) {
+				int middle = (i + high) >>> 1;
+				if (AccountIds.unpack(ids[middle]).compareTo(after) <= 0) {
+					i = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+		}
+		int j = 0;
+		List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+		while (page.size() < limit && (i < ids.length || j < recent.length)) {
+			long id;
+			if (j == recent.length || (i < ids.length && ids[i] <= recent[j])) {
+				id = ids[i++];
+				if (j < recent.length && recent[j] == id) {
+					j++;
+				}
+			} else {
+				id = recent[j++];
+			}
+			long slot = find(id);
+			if (slot >= 0) {
+				page.add(new Account(AccountIds.unpack(id), MoneyUnits.toBigDecimal(balance(slot))));
+			}
+		}
+		return page;
+	}
+
+	@Override
+	public long countAccounts() {
+		return accountCount.get();
+	}
+
+	@Override
+	public long totalBalance() {
+		return totalBalance.sum();
+	}
+
+	@Override
+	public void transferMoney(String fromAccId, String toAccId, long amount) throws Exception {
+
+		if (fromAccId.equals(toAccId)) {
+			throw new MoneyRelatedException("Both Account Should not be same...!!!");
+		}
+
+		long from = requireSlot(fromAccId);
+		long to = requireSlot(toAccId);
+		long fromBalance;
+		long toBalance;
+
+		try (AccountLockManager.Locked locked = accountLockManager.lock(fromAccId, toAccId)) {
+			checkAmount(amount, "Acc Balance or Money value should not be negative...!!!");
+			fromBalance = balance(from);
+			if (amount > fromBalance) {
+				throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+			}
+			fromBalance -= amount;
+			toBalance = MoneyUnits.add(balance(to), amount);
+			setBalance(from, fromBalance);
+			setBalance(to, toBalance);
+		}
+
+		notificationService.notifyAboutTransfer(new Account(toAccId, MoneyUnits.toBigDecimal(toBalance)), " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + toAccId);
+		notificationService.notifyAboutTransfer(new Account(fromAccId, MoneyUnits.toBigDecimal(fromBalance)), " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + fromAccId);
+	}
+
+	@Override
+	public Account deposit(String accountId, long amount) throws Exception {
+		long slot = requireSlot(accountId);
+		long balance;
+		try (AccountLockManager.Locked locked = accountLockManager.lock(accountId)) {
+			checkAmount(amount, "Deposit or Money value should not be negative...!!!");
+			balance = MoneyUnits.add(balance(slot), amount);
+			setBalance(slot, balance);
+		}
+		totalBalance.add(amount);
+		Account actualAccount = new Account(accountId, MoneyUnits.toBigDecimal(balance));
+		notificationService.notifyAboutTransfer(actualAccount, " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + accountId);
+
+		return actualAccount;
+	}
+
+	@Override
+	public Account withdraw(String accountId, long amount) throws Exception {
+		long slot = requireSlot(accountId);
+		long balance;
+		try (AccountLockManager.Locked locked = accountLockManager.lock(accountId)) {
+			checkAmount(amount, "Acc Balance or Money value should not be negative...!!!");
+			balance = balance(slot);
+			if (amount > balance) {
+				throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+			}
+			balance -= amount;
+			setBalance(slot, balance);
+		}
+		totalBalance.add(-amount);
+		Account actualAccount = new Account(accountId, MoneyUnits.toBigDecimal(balance));
+		notificationService.notifyAboutTransfer(actualAccount, " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + accountId);
+
+		return actualAccount;
+	}
+
+	private static long pack(String accountId) {
+		long id = AccountIds.packOrZero(accountId);
+		if (id == EMPTY) {
+			throw new AccountRelatedException("Account Number should have 1 to " + AccountIds.MAX_DIGITS
+					+ " digits and nothing else..!!!");
+		}
+		return id;
+	}
+
+	private long requireSlot(String accountId) {
+		long id = AccountIds.packOrZero(accountId);
+		long slot = id == EMPTY ? -1 : find(id);
+		if (slot < 0) {
+			throw new AccountRelatedException("Account id " + accountId + " does not exist!");
+		}
+		return slot;
+	}
+
+	/**
+	 * find(..) returns the slot holding the id, or -1. Probing stops at the first empty slot.
+	 */
+	private long find(long id) {
+		for (long slot = home(id);; slot = (slot + 1) & slotMask) {
+			long key = key(slot);
+			if (key == id) {
+				return slot;
+			}
+			if (key == EMPTY) {
+				return -1;
+			}
+		}
+	}
+
+	private long claim(long id) {
+		for (long slot = home(id);; slot = (slot + 1) & slotMask) {
+			if (key(slot) == EMPTY && LONGS.compareAndSet(buffer(slot), offset(slot), EMPTY, -id)) {
+				return slot;
+			}
+		}
+	}
+
+	private long home(long id) {
+		return (id * 0x9E3779B97F4A7C15L) >>> (64 - slotBits);
+	}
+
+	private long key(long slot) {
+		return (long) LONGS.getVolatile(buffer(slot), offset(slot));
+	}
+
+	private long balance(long slot) {
+		return (long) LONGS.getVolatile(buffer(slot), offset(slot) + BALANCE_OFFSET);
+	}
+
+	private void setBalance(long slot, long balance) {
+		LONGS.setVolatile(buffer(slot), offset(slot) + BALANCE_OFFSET, balance);
+	}
+
+	private ByteBuffer buffer(long slot) {
+		return buffers[(int) (slot >>> BUFFER_SLOT_BITS)];
+	}
+
+	private static int offset(long slot) {
+		return (int) (slot & ((1L << BUFFER_SLOT_BITS) - 1)) * SLOT_BYTES;
+	}
+
+	/**
+	 * recentIdsAfter(..) returns up to limit of the recently created ids that follow after, in
+	 * order. A cursor that can not be packed, which no listed id ever is, is compared as text.
+	 */
+	private long[] recentIdsAfter(String after, int limit) {
+		long bound = after == null ? EMPTY : AccountIds.packOrZero(after);
+		Iterable<Long> tail = bound == EMPTY ? recentIds : recentIds.tailSet(bound, false);
+		long[] ids = new long[Math.min(limit, 64)];
+		int count = 0;
+		for (Long id : tail) {
+			if (count == limit) {
+				break;
+			}
+			if (bound == EMPTY && after != null && AccountIds.unpack(id).compareTo(after) <= 0) {
+				continue;
+			}
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, Math.min(limit, count * 2));
+			}
+			ids[count++] = id;
+		}
+		return Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * mergeRecentIds() runs under the sort lock.
+	 */
+	private void mergeRecentIds() {
+		long[] recent = recentIds.stream().mapToLong(Long::longValue).toArray();
+		long[] ids = sortedIds;
+		long[] merged = new long[ids.length + recent.length];
+		int i = 0;
+		int j = 0;
+		int count = 0;
+		while (i < ids.length || j < recent.length) {
+			if (j == recent.length || (i < ids.length && ids[i] < recent[j])) {
+				merged[count++] = ids[i++];
+			} else if (i < ids.length && ids[i] == recent[j]) {
+				merged[count++] = ids[i++];
+				j++;
+			} else {
+				merged[count++] = recent[j++];
+			}
+		}
+		sortedIds = count == merged.length ? merged : Arrays.copyOf(merged, count);
+		for (long id : recent) {
+			recentIds.remove(id);
+		}
+		recentIdCount.addAndGet(-recent.length);
+	}
+
+	private void checkAmount(long amount, String message) {
+		if (amount < 0) {
+			throw new MoneyRelatedException(message);
+		}
+	}
+}
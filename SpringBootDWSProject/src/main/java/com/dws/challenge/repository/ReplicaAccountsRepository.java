@@ -0,0 +1,90 @@
+package com.dws.challenge.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BatchMode;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.domain.TransferResult;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.service.NotificationService;
+
+/**
+ * Read-only copy of another node's store, enabled with accounts.store=replica and kept up to
+ * date by the {@link com.dws.challenge.replication.ReplicationFollower}. Reads are served
+ * like by the in-memory store, every write through the repository is refused; only the
+ * follower changes the accounts, by setting the balances the primary shipped.
+ *
+ * Change listeners are not supported, the changes applied by the follower are not reported.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "replica")
+public class ReplicaAccountsRepository extends AccountsRepositoryInMemory {
+
+	private static final String READ_ONLY = "Account store is a read-only replica...!!!";
+
+	@Autowired
+	public ReplicaAccountsRepository(AccountLockManager accountLockManager, NotificationService notificationService) {
+		super(accountLockManager, notificationService);
+	}
+
+	@Override
+	public void addChangeListener(AccountChangeListener listener) {
+		throw new AccountRelatedException("Change listeners are not supported by this account store...!!!");
+	}
+
+	@Override
+	public void createAccount(Account account) throws AccountRelatedException {
+		throw new AccountRelatedException(READ_ONLY);
+	}
+
+	@Override
+	public List<String> createAccounts(List<Account> batch) {
+		throw new AccountRelatedException(READ_ONLY);
+	}
+
+	@Override
+	public void clearAccounts() {
+		throw new AccountRelatedException(READ_ONLY);
+	}
+
+	@Override
+	public void transferMoney(String fromAccId, String toAccId, long amount) throws Exception {
+		throw new AccountRelatedException(READ_ONLY);
+	}
+
+	@Override
+	public List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode) throws Exception {
+		throw new AccountRelatedException(READ_ONLY);
+	}
+
+	@Override
+	public Account deposit(String accountId, long amount) throws Exception {
+		throw new AccountRelatedException(READ_ONLY);
+	}
+
+	@Override
+	public Account withdraw(String accountId, long amount) throws Exception {
+		throw new AccountRelatedException(READ_ONLY);
+	}
+
+	/**
+	 * applyBalance(..) sets the balance the primary reported for an account, creating it when
+	 * missing.
+	 */
+	public void applyBalance(String accountId, long balance) {
+		setBalance(accountId, balance);
+	}
+
+	public void applyBalances(String fromAccId, long fromBalance, String toAccId, long toBalance) {
+		setBalances(fromAccId, fromBalance, toAccId, toBalance);
+	}
+
+	public void applyClear() {
+		super.clearAccounts();
+	}
+}
@@ -0,0 +1,309 @@
+package com.dws.challenge.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.service.NotificationService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Account store whose changes are all applied by one business thread, enabled with
+ * accounts.store=sequencer. The calling threads publish their creates, deposits, withdrawals
+ * and transfers into a {@link CommandRing} of accounts.sequencer.ring-size slots and wait
+ * on their slot for the outcome; the business thread applies the commands in sequence
+ * order without locks, compare-and-set or allocation, except for the cell of a new account.
+ * Reads go straight to the cells, which only the business thread writes.
+ *
+ * The outcome of every command only depends on the commands before it, so the sequence of
+ * commands is a complete journal of the store: applying it again rebuilds the same
+ * balances. This store does not write it anywhere.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "sequencer")
+public class SequencedAccountsRepository implements AccountsRepository {
+
+	private final BalanceCellMap cells = new BalanceCellMap();
+
+	private final AccountIdIndex accountIdIndex = new AccountIdIndex();
+
+	private final NotificationService notificationService;
+
+	private final CommandRing ring;
+
+	/**
+	 * Sum of all balances, only written by the business thread.
+	 */
+	private volatile long totalBalance;
+
+	@Autowired
+	public SequencedAccountsRepository(NotificationService notificationService,
+			@Value("${accounts.sequencer.ring-size:1024}") int ringSize) {
+		this.notificationService = notificationService;
+		this.ring = new CommandRing(ringSize, this::apply, VirtualThreads.threadFactory("account-sequencer", false));
+	}
+
+	@Override
+	public void createAccount(Account account) throws AccountRelatedException {
+		AccountIds.validate(account.getAccountId());
+		execute(CommandRing.CREATE, account.getAccountId(), null, MoneyUnits.toMinorUnits(account.getBalance()), null);
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		BalanceCell cell = cells.get(accountId);
+		return cell == null ? null : cell.toAccount();
+	}
+
+	@Override
+	public void clearAccounts() {
+		execute(CommandRing.CLEAR, null, null, 0, null);
+	}
+
+	@Override
+	public List<Account> listAllAccounts() {
+
+		List<Account> listAccounts = new ArrayList<Account>(cells.size());
+		for (BalanceCell cell : cells) {
+			listAccounts.add(cell.toAccount());
+		}
+		return listAccounts;
+	}
+
+	@Override
+	public List<Account> listAccounts(String after, int limit) {
+		return accountIdIndex.page(this::getAccount, after, limit);
+	}
+
+	@Override
+	public long countAccounts() {
+		return cells.size();
+	}
+
+	@Override
+	public long totalBalance() {
+		return totalBalance;
+	}
+
+	@Override
+	public void transferMoney(String fromAccId, String toAccId, long amount) throws Exception {
+
+		if (fromAccId.equals(toAccId)) {
+			throw new MoneyRelatedException("Both Account Should not be same...!!!");
+		}
+		checkAmount(amount, "Acc Balance or Money value should not be negative...!!!");
+		long[] balances = new long[2];
+		execute(CommandRing.TRANSFER, fromAccId, toAccId, amount, balances);
+
+		notificationService.notifyAboutTransfer(new Account(toAccId, MoneyUnits.toBigDecimal(balances[1])), " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + toAccId);
+		notificationService.notifyAboutTransfer(new Account(fromAccId, MoneyUnits.toBigDecimal(balances[0])), " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + fromAccId);
+	}
+
+	@Override
+	public Account deposit(String accountId, long amount) throws Exception {
+		checkAmount(amount, "Deposit or Money value should not be negative...!!!");
+		long balance = execute(CommandRing.DEPOSIT, accountId, null, amount, null);
+		Account actualAccount = new Account(accountId, MoneyUnits.toBigDecimal(balance));
+		notificationService.notifyAboutTransfer(actualAccount, " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + accountId);
+
+		return actualAccount;
+	}
+
+	@Override
+	public Account withdraw(String accountId, long amount) throws Exception {
+		checkAmount(amount, "Acc Balance or Money value should not be negative...!!!");
+		long balance = execute(CommandRing.WITHDRAW, accountId, null, amount, null);
+		Account actualAccount = new Account(accountId, MoneyUnits.toBigDecimal(balance));
+		notificationService.notifyAboutTransfer(actualAccount, " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + accountId);
+
+		return actualAccount;
+	}
+
+	/**
+	 * getSequence() is the number of commands applied so far.
+	 */
+	public long getSequence() {
+		return ring.getHandled();
+	}
+
+	@PreDestroy
+	public void close() {
+		ring.close();
+	}
+
+	/**
+	 * execute(..) publishes a command, waits for the business thread to apply it and returns
+	 * the balance after it, also filling balances for a transfer.
+	 */
+	private long execute(byte type, String accountId, String toAccId, long amount, long[] balances) {
+		long sequence = ring.claim();
+		CommandRing.Slot slot = ring.slot(sequence);
+		slot.type = type;
+		slot.accountId = accountId;
+		slot.toAccId = toAccId;
+		slot.amount = amount;
+		ring.publish(sequence);
+		ring.await(sequence);
+		byte status = slot.status;
+		long balance = slot.balance;
+		if (balances != null) {
+			balances[0] = balance;
+			balances[1] = slot.toBalance;
+		}
+		ring.release(sequence);
+
+		switch (status) {
+		case CommandRing.OK:
+			return balance;
+		case CommandRing.NO_SOURCE:
+			throw new AccountRelatedException("Account id " + accountId + " does not exist!");
+		case CommandRing.NO_TARGET:
+			throw new AccountRelatedException("Account id " + toAccId + " does not exist!");
+		case CommandRing.EXISTS:
+			throw new AccountRelatedException("Account id " + accountId + " already exists!");
+		case CommandRing.INSUFFICIENT:
+			throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+		case CommandRing.OVERFLOW:
+			throw new MoneyRelatedException("Account Balance would overflow...!!!");
+		default:
+			throw new AccountRelatedException("Account sequencer failed to apply the command...!!!");
+		}
+	}
+
+	/**
+	 * apply(..) runs on the business thread only and answers with a status instead of
+	 * throwing, so a refused command costs no exception either.
+	 */
+	private void apply(CommandRing.Slot command) {
+		command.status = CommandRing.OK;
+		switch (command.type) {
+		case CommandRing.CREATE:
+			create(command);
+			break;
+		case CommandRing.DEPOSIT:
+			deposit(command);
+			break;
+		case CommandRing.WITHDRAW:
+			withdraw(command);
+			break;
+		case CommandRing.TRANSFER:
+			transfer(command);
+			break;
+		case CommandRing.CLEAR:
+			clear();
+			break;
+		default:
+			command.status = CommandRing.FAILED;
+		}
+	}
+
+	private void create(CommandRing.Slot command) {
+		String accountId = command.accountId;
+		if (cells.get(accountId) != null) {
+			command.status = CommandRing.EXISTS;
+			return;
+		}
+		if (!addToTotal(command)) {
+			return;
+		}
+		cells.put(accountId, new BalanceCell(accountId, command.amount));
+		accountIdIndex.add(accountId);
+	}
+
+	private void deposit(CommandRing.Slot command) {
+		BalanceCell cell = cells.get(command.accountId);
+		if (cell == null) {
+			command.status = CommandRing.NO_SOURCE;
+			return;
+		}
+		if (cell.get() > Long.MAX_VALUE - command.amount) {
+			command.status = CommandRing.OVERFLOW;
+			return;
+		}
+		if (!addToTotal(command)) {
+			return;
+		}
+		cell.set(cell.get() + command.amount);
+		command.balance = cell.get();
+	}
+
+	/**
+	 * addToTotal(..) adds the amount of the command to the total, or answers OVERFLOW and
+	 * leaves the total alone when the accounts would hold more than it can count.
+	 */
+	private boolean addToTotal(CommandRing.Slot command) {
+		try {
+			totalBalance = MoneyUnits.add(totalBalance, command.amount);
+			return true;
+		} catch (MoneyRelatedException ex) {
+			command.status = CommandRing.OVERFLOW;
+			return false;
+		}
+	}
+
+	private void withdraw(CommandRing.Slot command) {
+		BalanceCell cell = cells.get(command.accountId);
+		if (cell == null) {
+			command.status = CommandRing.NO_SOURCE;
+			return;
+		}
+		if (command.amount > cell.get()) {
+			command.status = CommandRing.INSUFFICIENT;
+			return;
+		}
+		cell.set(cell.get() - command.amount);
+		totalBalance -= command.amount;
+		command.balance = cell.get();
+	}
+
+	private void transfer(CommandRing.Slot command) {
+		BalanceCell from = cells.get(command.accountId);
+		if (from == null) {
+			command.status = CommandRing.NO_SOURCE;
+			return;
+		}
+		BalanceCell to = cells.get(command.toAccId);
+		if (to == null) {
+			command.status = CommandRing.NO_TARGET;
+			return;
+		}
+		if (command.amount > from.get()) {
+			command.status = CommandRing.INSUFFICIENT;
+			return;
+		}
+		if (to.get() > Long.MAX_VALUE - command.amount) {
+			command.status = CommandRing.OVERFLOW;
+			return;
+		}
+		from.set(from.get() - command.amount);
+		to.set(to.get() + command.amount);
+		command.balance = from.get();
+		command.toBalance = to.get();
+	}
+
+	private void clear() {
+		for (BalanceCell cell : cells) {
+			if (cells.remove(cell.getAccountId()) != null) {
+				accountIdIndex.remove(cell.getAccountId());
+				totalBalance -= cell.get();
+			}
+		}
+	}
+
+	private void checkAmount(long amount, String message) {
+		if (amount < 0) {
+			throw new MoneyRelatedException(message);
+		}
+	}
+}
@@ -0,0 +1,384 @@
+package com.dws.challenge.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.LockAcquisitionException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.service.NotificationService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Account store split into accounts.sharded.shards partitions by account id, enabled with
+ * accounts.store=sharded. Every {@link AccountShard} is changed by its own thread only, so
+ * changes need neither locks nor compare-and-set: the caller hands a command to the shard
+ * owning the account and waits for the answer. Reads go straight to the cells.
+ *
+ * A transfer within a shard is one command. A transfer between shards is a two phase
+ * exchange of messages: the source shard reserves the amount by debiting it, and asks the
+ * target shard to credit it. The target answers with a commit, or with an abort when it can
+ * not take the money, and the source then releases or restores the reservation and
+ * answers the caller. A reader may observe the money in flight in between, never lost or
+ * duplicated.
+ *
+ * Callers wait at most accounts.sharded.timeout-ms for the answer; a command that timed out
+ * may still be applied later. Once the store is closing it refuses new commands, and it
+ * stops the shards after the commands it accepted were answered or the timeout passed.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "sharded")
+@Slf4j
+public class ShardedAccountsRepository implements AccountsRepository {
+
+	private final AccountShard[] shards;
+
+	private final AccountIdIndex accountIdIndex = new AccountIdIndex();
+
+	private final NotificationService notificationService;
+
+	private final long timeoutNanos;
+
+	/**
+	 * Commands accepted and not answered yet, counted from before the closing flag is read.
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private volatile boolean closing;
+
+	public ShardedAccountsRepository(NotificationService notificationService, int shardCount) {
+		this(notificationService, shardCount, 5000);
+	}
+
+	@Autowired
+	public ShardedAccountsRepository(NotificationService notificationService,
+			@Value("${accounts.sharded.shards:0}") int shardCount,
+			@Value("${accounts.sharded.timeout-ms:5000}") long timeoutMs) {
+		this.notificationService = notificationService;
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+		this.shards = new AccountShard[count];
+		for (int i = 0; i < count; i++) {
+			shards[i] = new AccountShard(VirtualThreads.threadFactory("account-shard-" + i, false));
+		}
+	}
+
+	@Override
+	public void createAccount(Account account) throws AccountRelatedException {
+
+		String accountId = account.getAccountId();
+		AccountIds.validate(accountId);
+		long balance = MoneyUnits.toMinorUnits(account.getBalance());
+		AccountShard shard = shardOf(accountId);
+
+		call(shard, () -> {
+			if (shard.cells().putIfAbsent(accountId, new BalanceCell(accountId, balance)) != null) {
+				throw new AccountRelatedException("Account id " + accountId + " already exists!");
+			}
+			shard.addToTotal(balance);
+			accountIdIndex.add(accountId);
+			return null;
+		});
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		BalanceCell cell = shardOf(accountId).cell(accountId);
+		return cell == null ? null : cell.toAccount();
+	}
+
+	@Override
+	public void clearAccounts() {
+		for (AccountShard shard : shards) {
+			call(shard, () -> {
+				for (BalanceCell cell : shard.cells()) {
+					if (shard.cells().remove(cell.getAccountId()) != null) {
+						accountIdIndex.remove(cell.getAccountId());
+						shard.addToTotal(-cell.get());
+					}
+				}
+				return null;
+			});
+		}
+	}
+
+	@Override
+	public List<Account> listAllAccounts() {
+
+		List<Account> listAccounts = new ArrayList<Account>((int) countAccounts());
+		for (AccountShard shard : shards) {
+			for (BalanceCell cell : shard.cells()) {
+				listAccounts.add(cell.toAccount());
+			}
+		}
+		return listAccounts;
+	}
+
+	@Override
+	public List<Account> listAccounts(String after, int limit) {
+		return accountIdIndex.page(this::getAccount, after, limit);
+	}
+
+	@Override
+	public long countAccounts() {
+		long count = 0;
+		for (AccountShard shard : shards) {
+			count += shard.cells().size();
+		}
+		return count;
+	}
+
+	@Override
+	public long totalBalance() {
+		long total = 0;
+		for (AccountShard shard : shards) {
+			total += shard.getTotalBalance();
+		}
+		return total;
+	}
+
+	@Override
+	public void transferMoney(String fromAccId, String toAccId, long amount) throws Exception {
+
+		if (fromAccId.equals(toAccId)) {
+			throw new MoneyRelatedException("Both Account Should not be same...!!!");
+		}
+		checkAmount(amount, "Acc Balance or Money value should not be negative...!!!");
+		AccountShard source = shardOf(fromAccId);
+		AccountShard target = shardOf(toAccId);
+
+		long[] balances;
+		if (source == target) {
+			balances = call(source, () -> {
+				BalanceCell from = require(source, fromAccId);
+				BalanceCell to = require(source, toAccId);
+				long fromBalance = debit(from, amount);
+				long toBalance = MoneyUnits.add(to.get(), amount);
+				from.set(fromBalance);
+				to.set(toBalance);
+				return new long[] { fromBalance, toBalance };
+			});
+		} else {
+			balances = await(transferAcrossShards(source, target, fromAccId, toAccId, amount));
+		}
+
+		notificationService.notifyAboutTransfer(new Account(toAccId, MoneyUnits.toBigDecimal(balances[1])), " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + toAccId);
+		notificationService.notifyAboutTransfer(new Account(fromAccId, MoneyUnits.toBigDecimal(balances[0])), " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + fromAccId);
+	}
+
+	@Override
+	public Account deposit(String accountId, long amount) throws Exception {
+		checkAmount(amount, "Deposit or Money value should not be negative...!!!");
+		AccountShard shard = shardOf(accountId);
+		long balance = call(shard, () -> {
+			BalanceCell cell = require(shard, accountId);
+			long updated = MoneyUnits.add(cell.get(), amount);
+			cell.set(updated);
+			shard.addToTotal(amount);
+			return updated;
+		});
+		Account actualAccount = new Account(accountId, MoneyUnits.toBigDecimal(balance));
+		notificationService.notifyAboutTransfer(actualAccount, " " + MoneyUnits.toBigDecimal(amount) + " transfer to " + accountId);
+
+		return actualAccount;
+	}
+
+	@Override
+	public Account withdraw(String accountId, long amount) throws Exception {
+		checkAmount(amount, "Acc Balance or Money value should not be negative...!!!");
+		AccountShard shard = shardOf(accountId);
+		long balance = call(shard, () -> {
+			BalanceCell cell = require(shard, accountId);
+			long updated = debit(cell, amount);
+			cell.set(updated);
+			shard.addToTotal(-amount);
+			return updated;
+		});
+		Account actualAccount = new Account(accountId, MoneyUnits.toBigDecimal(balance));
+		notificationService.notifyAboutTransfer(actualAccount, " " + MoneyUnits.toBigDecimal(amount) + " transfer from " + accountId);
+
+		return actualAccount;
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	@PreDestroy
+	public void close() {
+		closing = true;
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (inFlight.get() > 0 && System.nanoTime() - deadline < 0) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		for (AccountShard shard : shards) {
+			shard.close();
+		}
+	}
+
+	/**
+	 * transferAcrossShards(..) runs the reserve, credit and commit or abort steps each on the
+	 * thread of the shard they change, and completes with the balances after the transfer.
+	 * Every path through the steps completes the result, also when a shard stopped.
+	 */
+	private CompletableFuture<long[]> transferAcrossShards(AccountShard source, AccountShard target, String fromAccId,
+			String toAccId, long amount) {
+		CompletableFuture<long[]> result = begin();
+		send(source, result, () -> {
+			BalanceCell from;
+			long fromBalance;
+			try {
+				from = require(source, fromAccId);
+				fromBalance = debit(from, amount);
+			} catch (RuntimeException ex) {
+				result.completeExceptionally(ex);
+				return;
+			}
+			// reserve
+			from.set(fromBalance);
+			source.addToTotal(-amount);
+			try {
+				target.execute(() -> {
+					long toBalance;
+					try {
+						BalanceCell to = require(target, toAccId);
+						toBalance = MoneyUnits.add(to.get(), amount);
+						to.set(toBalance);
+						target.addToTotal(amount);
+					} catch (RuntimeException ex) {
+						// abort: the source puts the reserved amount back
+						send(source, result, () -> refund(source, from, amount, ex, result));
+						return;
+					}
+					// commit: the source only has to answer, the reservation is spent
+					send(source, result, () -> result.complete(new long[] { fromBalance, toBalance }));
+				});
+			} catch (RuntimeException ex) {
+				// the target stopped, this thread still owns the source
+				refund(source, from, amount, ex, result);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * refund(..) puts a reserved amount back and fails the transfer with the cause of the
+	 * abort. Credits that filled the source in the meantime can leave no room for it; the
+	 * amount is then lost to the store, which the total already reflects.
+	 */
+	private static void refund(AccountShard source, BalanceCell from, long amount, RuntimeException cause,
+			CompletableFuture<?> result) {
+		try {
+			from.set(MoneyUnits.add(from.get(), amount));
+			source.addToTotal(amount);
+		} catch (RuntimeException ex) {
+			log.error("Could not put {} back into account {}", amount, from.getAccountId(), ex);
+			cause.addSuppressed(ex);
+		} finally {
+			result.completeExceptionally(cause);
+		}
+	}
+
+	private AccountShard shardOf(String accountId) {
+		long id = AccountIds.packOrZero(accountId);
+		int hash = id == AccountIds.NOT_NUMERIC ? accountId.hashCode() : Long.hashCode(id * 0x9E3779B97F4A7C15L);
+		return shards[Math.floorMod(hash, shards.length)];
+	}
+
+	private static BalanceCell require(AccountShard shard, String accountId) {
+		BalanceCell cell = shard.cells().get(accountId);
+		if (cell == null) {
+			throw new AccountRelatedException("Account id " + accountId + " does not exist!");
+		}
+		return cell;
+	}
+
+	private static long debit(BalanceCell cell, long amount) {
+		long balance = cell.get();
+		if (amount > balance) {
+			throw new MoneyRelatedException("Money value should not be greater then the Account Balance...!!!");
+		}
+		return balance - amount;
+	}
+
+	/**
+	 * call(..) runs the command on the shard's thread and waits for its result.
+	 */
+	private <T> T call(AccountShard shard, Supplier<T> command) {
+		CompletableFuture<T> result = begin();
+		send(shard, result, () -> {
+			try {
+				result.complete(command.get());
+			} catch (RuntimeException ex) {
+				result.completeExceptionally(ex);
+			}
+		});
+		return await(result);
+	}
+
+	/**
+	 * begin() accepts a command, unless the store is closing, and returns the future that
+	 * answers it.
+	 */
+	private <T> CompletableFuture<T> begin() {
+		inFlight.incrementAndGet();
+		if (closing) {
+			inFlight.decrementAndGet();
+			throw new AccountRelatedException("The account store is closing...!!!");
+		}
+		CompletableFuture<T> result = new CompletableFuture<>();
+		result.whenComplete((value, ex) -> inFlight.decrementAndGet());
+		return result;
+	}
+
+	/**
+	 * send(..) queues a step for the shard's thread, or fails the result when the shard stopped.
+	 */
+	private static void send(AccountShard shard, CompletableFuture<?> result, Runnable step) {
+		try {
+			shard.execute(step);
+		} catch (RuntimeException ex) {
+			result.completeExceptionally(ex);
+		}
+	}
+
+	private <T> T await(CompletableFuture<T> result) {
+		try {
+			return result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException ex) {
+			throw new LockAcquisitionException("Timed out waiting for the account shard, the change may still be applied...!!!");
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new AccountRelatedException("Interrupted while waiting for the account shard...!!!");
+		}
+	}
+
+	private void checkAmount(long amount, String message) {
+		if (amount < 0) {
+			throw new MoneyRelatedException(message);
+		}
+	}
+}
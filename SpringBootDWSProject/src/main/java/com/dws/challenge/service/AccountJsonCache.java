@@ -0,0 +1,236 @@
+package com.dws.challenge.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.LockAcquisitionException;
+import com.dws.challenge.repository.AccountChangeListener;
+import com.dws.challenge.repository.AccountsRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * AccountJsonCache keeps the JSON of recently read accounts, serialized once, so
+ * GET /v1/accounts/{accountId} answers a cached account with a map lookup and the bytes.
+ *
+ * A missing entry is filled through {@link AccountsRepository#readSettled}, and a change
+ * listener re-serializes the entry of every cached account a change touches, with the
+ * balance the change leaves; both run under the account's stripe, so an entry never goes
+ * back to an older balance. Clearing the accounts empties the cache while the store holds
+ * every stripe, so a fill can not bring back an account that is being removed. A listener
+ * registered after this one that vetoes a change would leave the entry with the balance of
+ * the change that did not happen; the journal registers its listener first.
+ *
+ * Entries expire accounts.cache.ttl-seconds after they were filled. At most about
+ * accounts.cache.max-entries are kept, the ones closest to expiry are evicted first. The
+ * cache is off with 0 entries and with stores that do not support change listeners.
+ */
+@Component
+@Slf4j
+public class AccountJsonCache {
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Entries in the order they expire; an entry filled again is added again and its earlier
+	 * place skipped.
+	 */
+	private final ConcurrentLinkedQueue<Entry> expiryOrder = new ConcurrentLinkedQueue<>();
+
+	private final AccountsService accountsService;
+
+	private final AccountsRepository accountsRepository;
+
+	private final ObjectMapper objectMapper;
+
+	private final int maxEntries;
+
+	private final long ttlMillis;
+
+	private final boolean enabled;
+
+	private final Counter hits;
+
+	private final Counter misses;
+
+	@Autowired
+	public AccountJsonCache(AccountsService accountsService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+			@Value("${accounts.cache.max-entries:100000}") int maxEntries,
+			@Value("${accounts.cache.ttl-seconds:60}") long ttlSeconds) {
+		this.accountsService = accountsService;
+		this.accountsRepository = accountsService.getAccountsRepository();
+		this.objectMapper = objectMapper;
+		this.maxEntries = maxEntries;
+		this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+		boolean attached = maxEntries > 0;
+		if (attached) {
+			try {
+				accountsRepository.addChangeListener(new Refresher());
+			} catch (AccountRelatedException ex) {
+				log.info("The account cache is not available: {}", ex.getMessage());
+				attached = false;
+			}
+		}
+		this.enabled = attached;
+		this.hits = Counter.builder("accounts.cache.requests").tag("result", "hit")
+				.description("Account reads answered by the JSON cache").register(meterRegistry);
+		this.misses = Counter.builder("accounts.cache.requests").tag("result", "miss")
+				.description("Account reads answered by the JSON cache").register(meterRegistry);
+		Gauge.builder("accounts.cache.entries", entries, ConcurrentHashMap::size)
+				.description("Accounts in the JSON cache").register(meterRegistry);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * getAccountJson(..) returns the account serialized like the REST API does, or null when
+	 * it does not exist. Without the cache it is serialized on every call.
+	 */
+	public byte[] getAccountJson(String accountId) throws JsonProcessingException {
+		if (!enabled) {
+			return serialize(accountsService.getAccount(accountId));
+		}
+		long now = System.currentTimeMillis();
+		Entry entry = entries.get(accountId);
+		if (entry != null && !entry.isExpired(now)) {
+			hits.increment();
+			return entry.json;
+		}
+		misses.increment();
+		byte[] json;
+		try {
+			json = accountsRepository.readSettled(accountId, account -> fill(accountId, account, now));
+		} catch (LockAcquisitionException ex) {
+			// the account is busy, answer without caching
+			return serialize(accountsService.getAccount(accountId));
+		}
+		evictExpired(now);
+		makeRoom();
+		return json;
+	}
+
+	/**
+	 * fill(..) runs under the account's stripe.
+	 */
+	private byte[] fill(String accountId, Account account, long now) {
+		if (account == null) {
+			return null;
+		}
+		Entry entry = new Entry(accountId, serializeUnchecked(account), now + ttlMillis);
+		entries.put(accountId, entry);
+		expiryOrder.add(entry);
+		return entry.json;
+	}
+
+	/**
+	 * refresh(..) runs in the change listener and must not throw, which would veto the change;
+	 * an entry that could not be serialized is dropped instead.
+	 */
+	private void refresh(String accountId, long balance) {
+		Entry entry = entries.get(accountId);
+		if (entry != null) {
+			try {
+				entry.json = objectMapper.writeValueAsBytes(new Account(accountId, MoneyUnits.toBigDecimal(balance)));
+			} catch (JsonProcessingException ex) {
+				entries.remove(accountId, entry);
+			}
+		}
+	}
+
+	private void evictExpired(long now) {
+		Entry oldest;
+		while ((oldest = expiryOrder.peek()) != null && oldest.isExpired(now)) {
+			if (expiryOrder.remove(oldest)) {
+				entries.remove(oldest.accountId, oldest);
+			}
+		}
+	}
+
+	private void makeRoom() {
+		while (entries.size() > maxEntries) {
+			Entry oldest = expiryOrder.poll();
+			if (oldest == null) {
+				return;
+			}
+			entries.remove(oldest.accountId, oldest);
+		}
+	}
+
+	private byte[] serialize(Account account) throws JsonProcessingException {
+		return account == null ? null : objectMapper.writeValueAsBytes(account);
+	}
+
+	private byte[] serializeUnchecked(Account account) {
+		try {
+			return objectMapper.writeValueAsBytes(account);
+		} catch (JsonProcessingException ex) {
+			throw new AccountRelatedException("Account " + account.getAccountId() + " could not be serialized...!!!");
+		}
+	}
+
+	/**
+	 * Refresher re-serializes cached accounts as they change, under their stripes.
+	 */
+	private final class Refresher implements AccountChangeListener {
+
+		@Override
+		public void deposited(String accountId, long amount, long balance) {
+			refresh(accountId, balance);
+		}
+
+		@Override
+		public void withdrawn(String accountId, long amount, long balance) {
+			refresh(accountId, balance);
+		}
+
+		@Override
+		public void transferred(String fromAccId, String toAccId, long amount, long fromBalance, long toBalance) {
+			refresh(fromAccId, fromBalance);
+			refresh(toAccId, toBalance);
+		}
+
+		@Override
+		public void accountsCleared() {
+			entries.clear();
+			expiryOrder.clear();
+		}
+	}
+
+	private static final class Entry {
+
+		private final String accountId;
+
+		private final long expiresAt;
+
+		private volatile byte[] json;
+
+		private Entry(String accountId, byte[] json, long expiresAt) {
+			this.accountId = accountId;
+			this.json = json;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+	}
+}
@@ -2,44 +2,163 @@ package com.dws.challenge.service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.dws.challenge.domain.Account;
-import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.domain.BatchMode;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.domain.TransferResult;
+import com.dws.challenge.repository.AccountsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 
+/**
+ * Every account operation is timed in the accounts.operation timer, tagged with the
+ * operation, and every failed one is counted in accounts.operation.failures, tagged with
+ * the operation and the exception as the reason.
+ */
 @Service
 public class AccountsService {
 
   @Getter
-  private final AccountsRepositoryInMemory accountsRepositoryInMemory;
+  private final AccountsRepository accountsRepository;
+  
+  private final MeterRegistry meterRegistry;
+  
+  private final Timer createTimer;
+  
+  private final Timer createBatchTimer;
+  
+  private final Timer getTimer;
+  
+  private final Timer transferTimer;
+  
+  private final Timer batchTimer;
+  
+  private final Timer depositTimer;
+  
+  private final Timer withdrawTimer;
   
   @Autowired
-  public AccountsService(AccountsRepositoryInMemory accountsRepositoryInMemory) {
-    this.accountsRepositoryInMemory = accountsRepositoryInMemory;
+  public AccountsService(AccountsRepository accountsRepository, MeterRegistry meterRegistry) {
+    this.accountsRepository = accountsRepository;
+    this.meterRegistry = meterRegistry;
+    this.createTimer = operationTimer("create");
+    this.createBatchTimer = operationTimer("create-batch");
+    this.getTimer = operationTimer("get");
+    this.transferTimer = operationTimer("transfer");
+    this.batchTimer = operationTimer("transfer-batch");
+    this.depositTimer = operationTimer("deposit");
+    this.withdrawTimer = operationTimer("withdraw");
   }
 
   public void createAccount(Account account)throws Exception {
-    this.accountsRepositoryInMemory.createAccount(account);
+    record(createTimer, () -> {
+      this.accountsRepository.createAccount(account);
+      return null;
+    });
+  }
+
+  /**
+   * createAccounts(..) returns one entry per account, null once created or the reason it was not.
+   */
+  public List<String> createAccounts(List<Account> accounts) throws Exception {
+    return record(createBatchTimer, () -> this.accountsRepository.createAccounts(accounts));
   }
 
   public Account getAccount(String accountId) {
-    return this.accountsRepositoryInMemory.getAccount(accountId);
+    long started = System.nanoTime();
+    try {
+      return this.accountsRepository.getAccount(accountId);
+    } finally {
+      getTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
   }
   
   public List<Account> listAllAccounts(){
-	  return this.accountsRepositoryInMemory.listAllAccounts();
+	  return this.accountsRepository.listAllAccounts();
+  }
+  
+  public List<Account> listAccounts(String after, int limit){
+	  return this.accountsRepository.listAccounts(after, limit);
+  }
+  
+  /**
+   * findByBalance(..) lists accounts with minBalance <= balance <= maxBalance; a missing bound is open.
+   */
+  public List<Account> findByBalance(BigDecimal minBalance, BigDecimal maxBalance, int limit){
+	  long min = minBalance == null ? Long.MIN_VALUE : MoneyUnits.toMinorUnits(minBalance);
+	  long max = maxBalance == null ? Long.MAX_VALUE : MoneyUnits.toMinorUnits(maxBalance);
+	  return this.accountsRepository.findByBalance(min, max, limit);
+  }
+  
+  public List<Account> topByBalance(int n){
+	  return this.accountsRepository.topByBalance(n);
   }
   
   public void transferMoney(String fromAccId,String toAccId, BigDecimal amount)throws Exception {
-	  this.accountsRepositoryInMemory.transferMoney(fromAccId, toAccId, amount);
+	  transferMoney(fromAccId, toAccId, MoneyUnits.toMinorUnits(amount));
+  }
+  
+  /**
+   * Same as {@link #transferMoney(String, String, BigDecimal)} with the amount already in minor units.
+   */
+  public void transferMoney(String fromAccId,String toAccId, long amount)throws Exception {
+	  record(transferTimer, () -> {
+		  this.accountsRepository.transferMoney(fromAccId, toAccId, amount);
+		  return null;
+	  });
+  }
+  
+  public List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode)throws Exception {
+	  return record(batchTimer, () -> this.accountsRepository.transferBatch(transfers, mode));
   }
   
   public void deposit(String accountId, BigDecimal amount)throws Exception {
-	  this.accountsRepositoryInMemory.deposit(accountId,amount);
+	  deposit(accountId, MoneyUnits.toMinorUnits(amount));
+  }
+  
+  /**
+   * Same as {@link #deposit(String, BigDecimal)} with the amount in minor units, returning the account as the deposit left it.
+   */
+  public Account deposit(String accountId, long amount)throws Exception {
+	  return record(depositTimer, () -> this.accountsRepository.deposit(accountId,amount));
   }
   
   public void withdraw(String accountId, BigDecimal amount)throws Exception {
-	  this.accountsRepositoryInMemory.withdraw(accountId,amount);
+	  withdraw(accountId, MoneyUnits.toMinorUnits(amount));
+  }
+  
+  /**
+   * Same as {@link #withdraw(String, BigDecimal)} with the amount in minor units, returning the account as the withdrawal left it.
+   */
+  public Account withdraw(String accountId, long amount)throws Exception {
+	  return record(withdrawTimer, () -> this.accountsRepository.withdraw(accountId,amount));
+  }
+  
+  private Timer operationTimer(String operation) {
+    return Timer.builder("accounts.operation").description("Duration of account operations")
+        .tag("operation", operation).publishPercentileHistogram().register(this.meterRegistry);
+  }
+  
+  private <T> T record(Timer timer, Operation<T> operation) throws Exception {
+    long started = System.nanoTime();
+    try {
+      return operation.run();
+    } catch (Exception ex) {
+      this.meterRegistry.counter("accounts.operation.failures", "operation", timer.getId().getTag("operation"),
+          "reason", ex.getClass().getSimpleName()).increment();
+      throw ex;
+    } finally {
+      timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+  }
+  
+  @FunctionalInterface
+  private interface Operation<T> {
+    T run() throws Exception;
   }
 }
@@ -0,0 +1,288 @@
+package com.dws.challenge.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.domain.Account;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * AsyncNotificationService takes notifications off the transaction path. Callers only put
+ * them on a bounded queue; a dedicated thread drains the queue in batches, coalesces the
+ * notifications of each account of a batch into one call and hands them to the
+ * {@link EmailNotificationService}.
+ *
+ * When the queue is full the overflow policy decides: DROP discards the notification, BLOCK
+ * makes the caller wait for space and SPILL appends it to a spill file that is replayed once
+ * the queue has been drained. Without notifications.spill-file the spill file is
+ * dws-notifications-<pid>-<n>.spill in the temp directory, n counting the instances of the
+ * process, so instances sharing a host never replay each other's notifications; a configured
+ * spill file must not be shared either.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "notifications.async.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AsyncNotificationService implements NotificationService {
+
+	public enum OverflowPolicy {
+		DROP, BLOCK, SPILL
+	}
+
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	private final EmailNotificationService emailNotificationService;
+
+	private final BlockingQueue<PendingNotification> queue;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final int batchSize;
+
+	private final Path spillFile;
+
+	private final ReentrantLock spillLock = new ReentrantLock();
+
+	private BufferedWriter spillWriter;
+
+	private final AtomicLong spilled = new AtomicLong();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final AtomicLong dispatched = new AtomicLong();
+
+	private volatile long lagNanos;
+
+	private volatile boolean running = true;
+
+	private final ExecutorService dispatcher;
+
+	public AsyncNotificationService(EmailNotificationService emailNotificationService, int queueCapacity, int batchSize,
+			OverflowPolicy overflowPolicy, String spillFile) {
+		this(emailNotificationService, queueCapacity, batchSize, overflowPolicy, spillFile, false);
+	}
+
+	@Autowired
+	public AsyncNotificationService(EmailNotificationService emailNotificationService,
+			@Value("${notifications.queue-capacity:65536}") int queueCapacity,
+			@Value("${notifications.batch-size:256}") int batchSize,
+			@Value("${notifications.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+			@Value("${notifications.spill-file:}") String spillFile,
+			@Value("${accounts.virtual-threads.enabled:false}") boolean virtualThreads) {
+		this.dispatcher = Executors.newSingleThreadExecutor(
+				VirtualThreads.threadFactory("notification-dispatcher", virtualThreads));
+		this.emailNotificationService = emailNotificationService;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+		this.spillFile = spillFile.isEmpty() ? defaultSpillFile() : Path.of(spillFile);
+		this.dispatcher.execute(this::drainLoop);
+	}
+
+	@Override
+	public void notifyAboutTransfer(Account account, String transferDescription) {
+		PendingNotification notification = new PendingNotification(account, transferDescription, System.nanoTime());
+		if (queue.offer(notification)) {
+			return;
+		}
+		switch (overflowPolicy) {
+		case DROP:
+			dropped.incrementAndGet();
+			break;
+		case SPILL:
+			spill(notification);
+			break;
+		default:
+			try {
+				queue.put(notification);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				dropped.incrementAndGet();
+			}
+		}
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * getLagMillis() is how long the most recently dispatched notification waited in the queue.
+	 */
+	public long getLagMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lagNanos);
+	}
+
+	public long getSpilledCount() {
+		return spilled.get();
+	}
+
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	public long getDispatchedCount() {
+		return dispatched.get();
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		running = false;
+		dispatcher.shutdown();
+		if (!dispatcher.awaitTermination(10, TimeUnit.SECONDS)) {
+			log.warn("Notification dispatcher did not drain within 10 seconds, {} notifications left", queue.size());
+		}
+	}
+
+	private void drainLoop() {
+		List<PendingNotification> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty() || spilled.get() > 0) {
+			try {
+				PendingNotification first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					replaySpill();
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				dispatch(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException ex) {
+				log.error("Failed to dispatch {} notifications", batch.size(), ex);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void dispatch(List<PendingNotification> batch) {
+		Map<String, List<PendingNotification>> byAccount = new LinkedHashMap<>();
+		for (PendingNotification notification : batch) {
+			byAccount.computeIfAbsent(notification.account.getAccountId(), id -> new ArrayList<>(2)).add(notification);
+		}
+		for (List<PendingNotification> notifications : byAccount.values()) {
+			PendingNotification latest = notifications.get(notifications.size() - 1);
+			String description = latest.description;
+			if (notifications.size() > 1) {
+				StringBuilder joined = new StringBuilder();
+				for (PendingNotification notification : notifications) {
+					joined.append(joined.length() == 0 ? "" : ";").append(notification.description);
+				}
+				description = joined.toString();
+			}
+			emailNotificationService.notifyAboutTransfer(latest.account, description);
+		}
+		lagNanos = System.nanoTime() - batch.get(batch.size() - 1).enqueuedNanos;
+		dispatched.addAndGet(batch.size());
+	}
+
+	private static Path defaultSpillFile() {
+		return Path.of(System.getProperty("java.io.tmpdir"),
+				"dws-notifications-" + ProcessHandle.current().pid() + "-" + INSTANCES.incrementAndGet() + ".spill");
+	}
+
+	private void spill(PendingNotification notification) {
+		spillLock.lock();
+		try {
+			if (spillWriter == null) {
+				spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND);
+			}
+			spillWriter.write(notification.account.getAccountId() + "\t" + notification.account.getBalance() + "\t"
+					+ notification.description.replace('\n', ' '));
+			spillWriter.newLine();
+			spilled.incrementAndGet();
+		} catch (IOException ex) {
+			log.error("Could not spill notification for account {}", notification.account.getAccountId(), ex);
+			dropped.incrementAndGet();
+		} finally {
+			spillLock.unlock();
+		}
+	}
+
+	private void replaySpill() {
+		if (spilled.get() == 0) {
+			return;
+		}
+		List<String> lines;
+		spillLock.lock();
+		try {
+			try {
+				spillWriter.close();
+			} finally {
+				spillWriter = null;
+			}
+			lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+			Files.delete(spillFile);
+			spilled.addAndGet(-lines.size());
+		} catch (IOException ex) {
+			// whatever the file still holds is lost, a later spill starts a new one
+			long lost = spilled.getAndSet(0);
+			dropped.addAndGet(lost);
+			log.error("Could not replay spilled notifications from {}, dropped {}", spillFile, lost, ex);
+			try {
+				Files.deleteIfExists(spillFile);
+			} catch (IOException deleteEx) {
+				log.error("Could not delete spill file {}", spillFile, deleteEx);
+			}
+			return;
+		} finally {
+			spillLock.unlock();
+		}
+		List<PendingNotification> batch = new ArrayList<>(batchSize);
+		for (String line : lines) {
+			String[] fields = line.split("\t", 3);
+			batch.add(new PendingNotification(new Account(fields[0], new BigDecimal(fields[1])), fields[2], System.nanoTime()));
+			if (batch.size() == batchSize) {
+				dispatch(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			dispatch(batch);
+		}
+	}
+
+	private static final class PendingNotification {
+
+		private final Account account;
+
+		private final String description;
+
+		private final long enqueuedNanos;
+
+		private PendingNotification(Account account, String description, long enqueuedNanos) {
+			this.account = account;
+			this.description = description;
+			this.enqueuedNanos = enqueuedNanos;
+		}
+	}
+}
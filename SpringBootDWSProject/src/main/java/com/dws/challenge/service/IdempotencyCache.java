@@ -0,0 +1,284 @@
+package com.dws.challenge.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.IdempotentOutcome;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.IdempotencyException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.repository.IdempotencyLog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * IdempotencyCache remembers the outcome of every request sent with an Idempotency-Key, so
+ * a retry is answered from the cache with a single map lookup instead of being applied, and
+ * locking its accounts, a second time. A retry that arrives while the first request is still
+ * running waits for its outcome.
+ *
+ * Outcomes expire after accounts.idempotency.ttl-seconds. At most about
+ * accounts.idempotency.max-entries are kept; when the cache is full EVICT_OLDEST forgets the
+ * outcomes closest to expiry and REJECT refuses new keys until some expire. Only outcomes
+ * the store decided on are cached; a request that failed on a lock timeout or the journal
+ * can be retried with the same key.
+ *
+ * When the account store is an {@link IdempotencyLog} the outcomes are persisted with the
+ * changes they describe and restored on startup.
+ */
+@Component
+@Slf4j
+public class IdempotencyCache {
+
+	public enum EvictionPolicy {
+		EVICT_OLDEST, REJECT
+	}
+
+	static final int MAX_KEY_LENGTH = 255;
+
+	/**
+	 * How long a retry waits for the outcome of a request with the same key that is still running.
+	 */
+	private static final long IN_FLIGHT_WAIT_SECONDS = 30;
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Completed entries in the order they expire, all outcomes live equally long.
+	 */
+	private final ConcurrentLinkedQueue<Entry> expiryOrder = new ConcurrentLinkedQueue<>();
+
+	private final IdempotencyLog idempotencyLog;
+
+	private final int maxEntries;
+
+	private final long ttlMillis;
+
+	private final EvictionPolicy evictionPolicy;
+
+	private final Counter replays;
+
+	private final Counter evictions;
+
+	@Autowired
+	public IdempotencyCache(ObjectProvider<IdempotencyLog> idempotencyLog, MeterRegistry meterRegistry,
+			@Value("${accounts.idempotency.max-entries:100000}") int maxEntries,
+			@Value("${accounts.idempotency.ttl-seconds:86400}") long ttlSeconds,
+			@Value("${accounts.idempotency.eviction:EVICT_OLDEST}") EvictionPolicy evictionPolicy) {
+		this(idempotencyLog.getIfAvailable(), meterRegistry, maxEntries, ttlSeconds, evictionPolicy);
+	}
+
+	public IdempotencyCache(MeterRegistry meterRegistry, int maxEntries, long ttlSeconds, EvictionPolicy evictionPolicy) {
+		this((IdempotencyLog) null, meterRegistry, maxEntries, ttlSeconds, evictionPolicy);
+	}
+
+	public IdempotencyCache(IdempotencyLog idempotencyLog, MeterRegistry meterRegistry, int maxEntries, long ttlSeconds,
+			EvictionPolicy evictionPolicy) {
+		this.idempotencyLog = idempotencyLog;
+		this.maxEntries = maxEntries;
+		this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+		this.evictionPolicy = evictionPolicy;
+		this.replays = Counter.builder("accounts.idempotency.replays")
+				.description("Requests answered with the cached outcome of an earlier request").register(meterRegistry);
+		this.evictions = Counter.builder("accounts.idempotency.evictions")
+				.description("Outcomes forgotten before they expired because the cache was full").register(meterRegistry);
+		Gauge.builder("accounts.idempotency.entries", entries, ConcurrentHashMap::size)
+				.description("Idempotency keys remembered").register(meterRegistry);
+		if (idempotencyLog != null) {
+			restore(idempotencyLog.recover(this::liveOutcomes));
+		}
+	}
+
+	/**
+	 * execute(..) runs the operation once per key and returns its outcome, or the outcome of
+	 * the first request with the key. The fingerprint describes the request, a key reused
+	 * with a different one is refused with an {@link IdempotencyException}.
+	 */
+	public IdempotentOutcome execute(String key, String fingerprint, String successBody, Operation operation)
+			throws Exception {
+		if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+			throw new IdempotencyException("Idempotency key should have 1 to " + MAX_KEY_LENGTH + " characters...!!!");
+		}
+		while (true) {
+			long now = System.currentTimeMillis();
+			Entry existing = entries.get(key);
+			if (existing != null && !existing.isExpired(now)) {
+				IdempotentOutcome outcome = awaitOutcome(existing, fingerprint);
+				if (outcome != null) {
+					return outcome;
+				}
+				continue;
+			}
+			if (existing != null) {
+				entries.remove(key, existing);
+			}
+			evictExpired(now);
+			makeRoom();
+			Entry reserved = new Entry(key, fingerprint, now + ttlMillis);
+			if (entries.putIfAbsent(key, reserved) == null) {
+				return run(reserved, successBody, operation);
+			}
+		}
+	}
+
+	/**
+	 * liveOutcomes() lists the outcomes that have not expired yet.
+	 */
+	public List<IdempotentOutcome> liveOutcomes() {
+		long now = System.currentTimeMillis();
+		List<IdempotentOutcome> live = new ArrayList<>();
+		for (Entry entry : expiryOrder) {
+			IdempotentOutcome outcome = entry.outcome.getNow(null);
+			if (outcome != null && !entry.isExpired(now) && entries.get(entry.key) == entry) {
+				live.add(outcome);
+			}
+		}
+		return live;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private IdempotentOutcome run(Entry entry, String successBody, Operation operation) throws Exception {
+		IdempotentOutcome outcome = new IdempotentOutcome(entry.key, entry.fingerprint, HttpStatus.OK.value(), successBody,
+				entry.expiresAt);
+		try {
+			try {
+				if (idempotencyLog == null) {
+					operation.run();
+				} else {
+					idempotencyLog.applyLogged(outcome, () -> {
+						operation.run();
+						return null;
+					});
+				}
+			} catch (AccountRelatedException | MoneyRelatedException ex) {
+				outcome = new IdempotentOutcome(entry.key, entry.fingerprint, HttpStatus.BAD_REQUEST.value(), ex.getMessage(),
+						entry.expiresAt);
+				if (idempotencyLog != null) {
+					idempotencyLog.log(outcome);
+				}
+			}
+		} catch (Exception ex) {
+			entries.remove(entry.key, entry);
+			entry.outcome.completeExceptionally(ex);
+			throw ex;
+		}
+		entry.outcome.complete(outcome);
+		expiryOrder.add(entry);
+		return outcome;
+	}
+
+	/**
+	 * awaitOutcome(..) returns the outcome of an entry, waiting for it while the request is
+	 * still running, or null if that request failed and the key is free again.
+	 */
+	private IdempotentOutcome awaitOutcome(Entry entry, String fingerprint) {
+		if (!entry.fingerprint.equals(fingerprint)) {
+			throw new IdempotencyException("Idempotency key " + entry.key + " was already used for a different request...!!!");
+		}
+		try {
+			IdempotentOutcome outcome = entry.outcome.get(IN_FLIGHT_WAIT_SECONDS, TimeUnit.SECONDS);
+			replays.increment();
+			return outcome;
+		} catch (ExecutionException ex) {
+			return null;
+		} catch (TimeoutException ex) {
+			throw new IdempotencyException("A request with idempotency key " + entry.key + " is still being processed...!!!");
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IdempotencyException("Interrupted while waiting for the request with idempotency key " + entry.key
+					+ "...!!!");
+		}
+	}
+
+	private void evictExpired(long now) {
+		Entry oldest;
+		while ((oldest = expiryOrder.peek()) != null && oldest.isExpired(now)) {
+			if (expiryOrder.remove(oldest)) {
+				entries.remove(oldest.key, oldest);
+			}
+		}
+	}
+
+	private void makeRoom() {
+		while (entries.size() >= maxEntries) {
+			if (evictionPolicy == EvictionPolicy.REJECT) {
+				throw new IdempotencyException("Too many idempotency keys are remembered, try again later...!!!");
+			}
+			Entry oldest = expiryOrder.poll();
+			if (oldest == null) {
+				// everything left is still running
+				return;
+			}
+			if (entries.remove(oldest.key, oldest)) {
+				evictions.increment();
+			}
+		}
+	}
+
+	private void restore(List<IdempotentOutcome> outcomes) {
+		long now = System.currentTimeMillis();
+		// a later outcome of a key replaces an earlier one
+		for (IdempotentOutcome outcome : outcomes) {
+			if (!outcome.isExpired(now)) {
+				Entry entry = new Entry(outcome.getKey(), outcome.getFingerprint(), outcome.getExpiresAt());
+				entry.outcome.complete(outcome);
+				entries.put(entry.key, entry);
+			}
+		}
+		List<Entry> restored = new ArrayList<>(entries.values());
+		restored.sort(Comparator.comparingLong(entry -> entry.expiresAt));
+		expiryOrder.addAll(restored);
+		while (entries.size() > maxEntries) {
+			Entry oldest = expiryOrder.poll();
+			entries.remove(oldest.key, oldest);
+		}
+		if (!entries.isEmpty()) {
+			log.info("Restored {} idempotency keys", entries.size());
+		}
+	}
+
+	@FunctionalInterface
+	public interface Operation {
+		void run() throws Exception;
+	}
+
+	private static final class Entry {
+
+		private final String key;
+
+		private final String fingerprint;
+
+		private final long expiresAt;
+
+		private final CompletableFuture<IdempotentOutcome> outcome = new CompletableFuture<>();
+
+		private Entry(String key, String fingerprint, long expiresAt) {
+			this.key = key;
+			this.fingerprint = fingerprint;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BalanceChange;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.repository.AccountChangeListener;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * ReactiveAccountsService exposes the same store as {@link AccountsService}, through which
+ * every call still goes, as Mono and Flux. Nothing happens until a subscriber asks for it:
+ * listings read the next page from the store only when the previous one has been consumed,
+ * and writes run on the bounded elastic scheduler as they may wait for locks or the journal.
+ *
+ * The balance change feed gives every subscriber a bounded buffer. A subscriber that falls
+ * behind loses its oldest changes rather than holding up the store or growing the buffer.
+ */
+@Service
+@Slf4j
+public class ReactiveAccountsService {
+
+  /**
+   * Number of accounts read from the store per page of a listing.
+   */
+  static final int PAGE_SIZE = 1024;
+
+  /**
+   * Number of changes handed to a subscriber's thread ahead of its demand.
+   */
+  private static final int FEED_PREFETCH = 32;
+
+  private final AccountsService accountsService;
+
+  private final int feedBuffer;
+
+  private final Set<FluxSink<BalanceChange>> feedSubscribers = ConcurrentHashMap.newKeySet();
+
+  private final LongAdder droppedChanges = new LongAdder();
+
+  private final boolean feedSupported;
+
+  @Autowired
+  public ReactiveAccountsService(AccountsService accountsService,
+      @Value("${accounts.reactive.feed-buffer:256}") int feedBuffer) {
+    this.accountsService = accountsService;
+    this.feedBuffer = feedBuffer;
+    boolean supported = true;
+    try {
+      accountsService.getAccountsRepository().addChangeListener(new FeedPublisher());
+    } catch (AccountRelatedException ex) {
+      log.info("The balance change feed is not available: {}", ex.getMessage());
+      supported = false;
+    }
+    this.feedSupported = supported;
+  }
+
+  public Mono<Account> getAccount(String accountId) {
+    return Mono.fromSupplier(() -> this.accountsService.getAccount(accountId));
+  }
+
+  public Mono<Void> createAccount(Account account) {
+    return Mono.fromCallable(() -> {
+      this.accountsService.createAccount(account);
+      return account;
+    }).subscribeOn(Schedulers.boundedElastic()).then();
+  }
+
+  public Mono<Void> transferMoney(String fromAccId, String toAccId, BigDecimal amount) {
+    return Mono.fromCallable(() -> {
+      this.accountsService.transferMoney(fromAccId, toAccId, amount);
+      return amount;
+    }).subscribeOn(Schedulers.boundedElastic()).then();
+  }
+
+  /**
+   * listAccounts(..) emits every account after the optional cursor in account id order. At
+   * most one page is held at a time, however slowly the subscriber consumes it.
+   */
+  public Flux<Account> listAccounts(String after) {
+    return Flux.<List<Account>, Cursor>generate(() -> new Cursor(after), (cursor, sink) -> {
+      if (cursor.done) {
+        sink.complete();
+        return cursor;
+      }
+      List<Account> page = this.accountsService.listAccounts(cursor.after, PAGE_SIZE);
+      cursor.done = page.size() < PAGE_SIZE;
+      if (page.isEmpty()) {
+        sink.complete();
+      } else {
+        cursor.after = page.get(page.size() - 1).getAccountId();
+        sink.next(page);
+      }
+      return cursor;
+    }).concatMapIterable(page -> page, 1);
+  }
+
+  /**
+   * balanceChanges(..) emits the new balance of every account that changes from now on, or
+   * only of the given account. Changes are published while they commit, so a read of the
+   * account right after a change arrives may still see the balance before it.
+   */
+  public Flux<BalanceChange> balanceChanges(String accountId) {
+    if (!this.feedSupported) {
+      return Flux.error(new AccountRelatedException("Balance changes are not supported by this account store...!!!"));
+    }
+    return Flux.<BalanceChange>create(sink -> {
+      this.feedSubscribers.add(sink);
+      sink.onDispose(() -> this.feedSubscribers.remove(sink));
+    }).filter(change -> accountId == null || accountId.equals(change.getAccountId()))
+        .onBackpressureBuffer(this.feedBuffer, change -> this.droppedChanges.increment(), BufferOverflowStrategy.DROP_OLDEST)
+        // keeps the subscriber's work off the threads that change the balances
+        .publishOn(Schedulers.parallel(), FEED_PREFETCH);
+  }
+
+  public boolean isBalanceFeedSupported() {
+    return this.feedSupported;
+  }
+
+  /**
+   * getDroppedChanges() counts the changes dropped from the buffers of slow feed subscribers.
+   */
+  public long getDroppedChanges() {
+    return this.droppedChanges.sum();
+  }
+
+  private void publish(String accountId, long balance) {
+    if (this.feedSubscribers.isEmpty()) {
+      return;
+    }
+    BalanceChange change = new BalanceChange(accountId, MoneyUnits.toBigDecimal(balance));
+    for (FluxSink<BalanceChange> sink : this.feedSubscribers) {
+      sink.next(change);
+    }
+  }
+
+  private static final class Cursor {
+
+    private String after;
+
+    private boolean done;
+
+    private Cursor(String after) {
+      this.after = after;
+    }
+  }
+
+  private final class FeedPublisher implements AccountChangeListener {
+
+    @Override
+    public void accountCreated(String accountId, long balance) {
+      publish(accountId, balance);
+    }
+
+    @Override
+    public void deposited(String accountId, long amount, long balance) {
+      publish(accountId, balance);
+    }
+
+    @Override
+    public void withdrawn(String accountId, long amount, long balance) {
+      publish(accountId, balance);
+    }
+
+    @Override
+    public void transferred(String fromAccId, String toAccId, long amount, long fromBalance, long toBalance) {
+      publish(fromAccId, fromBalance);
+      publish(toAccId, toBalance);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.dws.challenge.wire;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.ClusterException;
+import com.dws.challenge.exception.LockAcquisitionException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.exception.WireProtocolException;
+
+/**
+ * WireClient is a blocking client of the {@link WireServer} for Java callers. send(..) only
+ * encodes a request into the write buffer and returns its correlation id, so any number of
+ * requests can be pipelined, flushed at once and their responses taken with receive(); the
+ * one call methods do all three and turn a failed response into the exception the service
+ * threw. A pipeline that holds more than the socket buffers take has to be received while
+ * it is sent, e.g. in windows of a few thousand requests, or both sides wait for each other.
+ *
+ * A client is not thread safe.
+ */
+public class WireClient implements Closeable {
+
+	/**
+	 * Response is one decoded response; the balance is only set for OK and the message for
+	 * any other status.
+	 */
+	public static final class Response {
+
+		private final long correlationId;
+
+		private final byte status;
+
+		private final long balance;
+
+		private final String message;
+
+		private Response(long correlationId, byte status, long balance, String message) {
+			this.correlationId = correlationId;
+			this.status = status;
+			this.balance = balance;
+			this.message = message;
+		}
+
+		public long getCorrelationId() {
+			return correlationId;
+		}
+
+		public byte getStatus() {
+			return status;
+		}
+
+		public long getBalance() {
+			return balance;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
+
+	private final SocketChannel channel;
+
+	private final ByteBuffer out;
+
+	private final ByteBuffer in;
+
+	private final byte[] scratch = new byte[WireProtocol.MAX_MESSAGE_BYTES];
+
+	private long nextCorrelationId;
+
+	public WireClient(String host, int port) throws IOException {
+		this(host, port, 65536);
+	}
+
+	public WireClient(String host, int port, int bufferSize) throws IOException {
+		this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+		this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		this.out = ByteBuffer.allocateDirect(Math.max(bufferSize, WireProtocol.MAX_REQUEST_SIZE));
+		this.in = ByteBuffer.allocateDirect(Math.max(bufferSize, WireProtocol.MAX_RESPONSE_SIZE));
+		this.in.limit(0);
+	}
+
+	/**
+	 * send(..) buffers a request, writing the buffer out first when it is full, and returns
+	 * its correlation id. toAccId is only sent with TRANSFER, amount with CREATE, DEPOSIT,
+	 * WITHDRAW and TRANSFER.
+	 */
+	public long send(byte operation, String accountId, String toAccId, long amount) throws IOException {
+		if (out.remaining() < WireProtocol.MAX_REQUEST_SIZE) {
+			flush();
+		}
+		long correlationId = nextCorrelationId++;
+		int start = out.position();
+		out.position(start + 4);
+		out.putLong(correlationId);
+		out.put(operation);
+		if (operation != WireProtocol.PING) {
+			WireProtocol.putAccountId(out, accountId);
+		}
+		if (operation == WireProtocol.TRANSFER) {
+			WireProtocol.putAccountId(out, toAccId);
+		}
+		if (operation != WireProtocol.GET && operation != WireProtocol.PING) {
+			out.putLong(amount);
+		}
+		out.putInt(start, out.position() - start - 4);
+		return correlationId;
+	}
+
+	public void flush() throws IOException {
+		out.flip();
+		while (out.hasRemaining()) {
+			channel.write(out);
+		}
+		out.clear();
+	}
+
+	/**
+	 * receive() waits for the next response.
+	 */
+	public Response receive() throws IOException {
+		fill(4);
+		int length = in.getInt();
+		if (length < WireProtocol.MIN_FRAME_LENGTH || length > WireProtocol.MAX_RESPONSE_SIZE - 4) {
+			throw new WireProtocolException("Frame length " + length + " is out of range...!!!");
+		}
+		fill(length);
+		long correlationId = in.getLong();
+		byte status = in.get();
+		if (status == WireProtocol.OK) {
+			return new Response(correlationId, status, in.getLong(), null);
+		}
+		return new Response(correlationId, status, 0, WireProtocol.getString(in, scratch));
+	}
+
+	public long createAccount(String accountId, long balance) throws IOException {
+		return call(WireProtocol.CREATE, accountId, null, balance);
+	}
+
+	public long getBalance(String accountId) throws IOException {
+		return call(WireProtocol.GET, accountId, null, 0);
+	}
+
+	public long deposit(String accountId, long amount) throws IOException {
+		return call(WireProtocol.DEPOSIT, accountId, null, amount);
+	}
+
+	public long withdraw(String accountId, long amount) throws IOException {
+		return call(WireProtocol.WITHDRAW, accountId, null, amount);
+	}
+
+	public void transfer(String fromAccId, String toAccId, long amount) throws IOException {
+		call(WireProtocol.TRANSFER, fromAccId, toAccId, amount);
+	}
+
+	public void ping() throws IOException {
+		call(WireProtocol.PING, null, null, 0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private long call(byte operation, String accountId, String toAccId, long amount) throws IOException {
+		long correlationId = send(operation, accountId, toAccId, amount);
+		flush();
+		Response response = receive();
+		if (response.getCorrelationId() != correlationId) {
+			throw new WireProtocolException("Response " + response.getCorrelationId() + " does not answer request "
+					+ correlationId + ", receive the pipelined responses first...!!!");
+		}
+		return balanceOrThrow(response);
+	}
+
+	/**
+	 * balanceOrThrow(..) returns the balance of an OK response and throws the exception the
+	 * service threw for any other.
+	 */
+	public static long balanceOrThrow(Response response) {
+		switch (response.getStatus()) {
+		case WireProtocol.OK:
+			return response.getBalance();
+		case WireProtocol.ACCOUNT_ERROR:
+			throw new AccountRelatedException(response.getMessage());
+		case WireProtocol.MONEY_ERROR:
+			throw new MoneyRelatedException(response.getMessage());
+		case WireProtocol.LOCK_TIMEOUT:
+			throw new LockAcquisitionException(response.getMessage());
+		case WireProtocol.WRONG_NODE:
+			throw new ClusterException(response.getMessage());
+		default:
+			throw new WireProtocolException(response.getMessage());
+		}
+	}
+
+	private void fill(int bytes) throws IOException {
+		if (in.remaining() >= bytes) {
+			return;
+		}
+		in.compact();
+		while (in.position() < bytes) {
+			if (channel.read(in) < 0) {
+				in.flip();
+				throw new EOFException("Connection closed by the server");
+			}
+		}
+		in.flip();
+	}
+}
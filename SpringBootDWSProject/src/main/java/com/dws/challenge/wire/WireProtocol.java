@@ -0,0 +1,124 @@
+package com.dws.challenge.wire;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.dws.challenge.exception.WireProtocolException;
+
+/**
+ * WireProtocol is the binary protocol of the {@link WireServer}. Every message is a frame
+ * [int length][long correlation id][...], the length counting the bytes after it, all
+ * numbers big endian. A client may send any number of requests without waiting and tells
+ * the responses apart by the correlation id it chose, which the server echoes; responses
+ * of different requests may come in any order.
+ *
+ * Requests are [int length][long correlation id][byte operation] followed by
+ * <ul>
+ * <li>CREATE: [account id][long balance]</li>
+ * <li>GET: [account id]</li>
+ * <li>DEPOSIT and WITHDRAW: [account id][long amount]</li>
+ * <li>TRANSFER: [from account id][to account id][long amount]</li>
+ * <li>PING: nothing</li>
+ * </ul>
+ * with account ids as [unsigned short byte count][UTF-8 bytes] and balances and amounts in
+ * minor units, see {@link com.dws.challenge.domain.MoneyUnits}.
+ *
+ * Responses are [int length][long correlation id][byte status] followed by [long balance]
+ * when the status is OK, the balance of the account after the operation and zero for
+ * TRANSFER and PING, and by [message], encoded like an account id, for any other status.
+ */
+public final class WireProtocol {
+
+	public static final byte CREATE = 1;
+
+	public static final byte GET = 2;
+
+	public static final byte DEPOSIT = 3;
+
+	public static final byte WITHDRAW = 4;
+
+	public static final byte TRANSFER = 5;
+
+	public static final byte PING = 6;
+
+	public static final byte OK = 0;
+
+	/**
+	 * An account that does not exist, already exists or has an invalid id.
+	 */
+	public static final byte ACCOUNT_ERROR = 1;
+
+	/**
+	 * An amount that is negative, more than the balance or would overflow it.
+	 */
+	public static final byte MONEY_ERROR = 2;
+
+	public static final byte LOCK_TIMEOUT = 3;
+
+	/**
+	 * In cluster mode, an account of another node; the message names the node.
+	 */
+	public static final byte WRONG_NODE = 4;
+
+	/**
+	 * A request that could not be decoded, the connection stays usable.
+	 */
+	public static final byte BAD_REQUEST = 5;
+
+	public static final byte FAILED = 6;
+
+	/**
+	 * Longest account id, in UTF-8 bytes.
+	 */
+	public static final int MAX_ID_BYTES = 256;
+
+	/**
+	 * Smallest frame length: the correlation id and the operation or status.
+	 */
+	static final int MIN_FRAME_LENGTH = 9;
+
+	/**
+	 * Error messages are cut to this many chars, so a response never takes more than
+	 * {@link #MAX_RESPONSE_SIZE} bytes.
+	 */
+	private static final int MAX_MESSAGE_CHARS = 256;
+
+	static final int MAX_MESSAGE_BYTES = 3 * MAX_MESSAGE_CHARS;
+
+	static final int MAX_RESPONSE_SIZE = 4 + MIN_FRAME_LENGTH + 2 + MAX_MESSAGE_BYTES;
+
+	static final int MAX_REQUEST_SIZE = 4 + MIN_FRAME_LENGTH + 2 * (2 + MAX_ID_BYTES) + 8;
+
+	private WireProtocol() {
+	}
+
+	/**
+	 * getString(..) reads an account id or message into scratch and decodes it; longer strings
+	 * than scratch holds are refused.
+	 */
+	static String getString(ByteBuffer buffer, byte[] scratch) {
+		int length = Short.toUnsignedInt(buffer.getShort());
+		if (length > scratch.length || length > buffer.remaining()) {
+			throw new WireProtocolException("String of " + length + " bytes does not fit the frame...!!!");
+		}
+		buffer.get(scratch, 0, length);
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	static void putAccountId(ByteBuffer buffer, String accountId) {
+		byte[] bytes = accountId.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_ID_BYTES) {
+			throw new WireProtocolException("Account id is longer than " + MAX_ID_BYTES + " bytes...!!!");
+		}
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+	static void putMessage(ByteBuffer buffer, String message) {
+		String text = message == null ? "" : message;
+		byte[] bytes = (text.length() > MAX_MESSAGE_CHARS ? text.substring(0, MAX_MESSAGE_CHARS) : text)
+				.getBytes(StandardCharsets.UTF_8);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+}
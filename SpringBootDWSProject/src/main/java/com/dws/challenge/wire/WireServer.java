@@ -0,0 +1,417 @@
+package com.dws.challenge.wire;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.cluster.ClusterRouter;
+import com.dws.challenge.config.VirtualThreads;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.ClusterException;
+import com.dws.challenge.exception.LockAcquisitionException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.exception.WireProtocolException;
+import com.dws.challenge.service.AccountsService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * WireServer serves the {@link AccountsService} operations over the binary
+ * {@link WireProtocol} on accounts.wire.port, next to the HTTP API, for callers that send
+ * many small requests. It is enabled by setting the port.
+ *
+ * Connections are spread over accounts.wire.io-threads event loops, each a thread with its
+ * own selector. An event loop reads whatever arrived into the connection's direct read
+ * buffer, runs every complete request in it right there, encodes the responses into the
+ * connection's direct write buffer and writes them with one call, so a pipelining client
+ * gets a whole batch of responses per read and nothing is copied to or from the heap but
+ * the account ids. When the client does not take its responses and the write buffer fills
+ * up, the connection is not read until it drained.
+ *
+ * An operation runs on the event loop of its connection and holds up the other
+ * connections of that loop while it waits for a lock. In cluster mode only the accounts of
+ * this node are served, the others are answered with WRONG_NODE.
+ */
+@Component
+@ConditionalOnExpression("'${accounts.wire.port:0}' != '0'")
+@Slf4j
+public class WireServer {
+
+	private static final int MIN_BUFFER_SIZE = 4096;
+
+	private final AccountsService accountsService;
+
+	private final ClusterRouter clusterRouter;
+
+	private final int bufferSize;
+
+	private final ServerSocketChannel serverChannel;
+
+	private final EventLoop[] eventLoops;
+
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder requests = new LongAdder();
+
+	private volatile boolean running = true;
+
+	@Autowired
+	public WireServer(AccountsService accountsService, ClusterRouter clusterRouter, MeterRegistry meterRegistry,
+			@Value("${accounts.wire.port:0}") int port,
+			@Value("${accounts.wire.io-threads:0}") int ioThreads,
+			@Value("${accounts.wire.buffer-size:65536}") int bufferSize,
+			@Value("${accounts.virtual-threads.enabled:false}") boolean virtualThreads) throws IOException {
+		this.accountsService = accountsService;
+		this.clusterRouter = clusterRouter;
+		this.bufferSize = Math.max(MIN_BUFFER_SIZE, bufferSize);
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		this.serverChannel.bind(new InetSocketAddress(port));
+		this.eventLoops = new EventLoop[ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors()];
+		for (int i = 0; i < eventLoops.length; i++) {
+			eventLoops[i] = new EventLoop();
+			// the event loops never block on anything but their selector, platform threads suit them
+			VirtualThreads.threadFactory("wire-io-" + i, false).newThread(eventLoops[i]).start();
+		}
+
+		Gauge.builder("accounts.wire.connections", connections, Set::size)
+				.description("Open binary protocol connections").register(meterRegistry);
+		FunctionCounter.builder("accounts.wire.requests", requests, LongAdder::sum)
+				.description("Requests served over the binary protocol").register(meterRegistry);
+
+		VirtualThreads.threadFactory("wire-acceptor", virtualThreads).newThread(this::accept).start();
+		log.info("Binary protocol listening on port {} with {} event loops", getPort(), eventLoops.length);
+	}
+
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		running = false;
+		serverChannel.close();
+		for (EventLoop eventLoop : eventLoops) {
+			eventLoop.selector.wakeup();
+		}
+	}
+
+	private void accept() {
+		int next = 0;
+		while (running) {
+			try {
+				SocketChannel channel = serverChannel.accept();
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				eventLoops[next++ % eventLoops.length].register(channel);
+			} catch (IOException ex) {
+				if (running) {
+					log.warn("Binary protocol failed to accept a connection", ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * execute(..) runs one request and returns the balance of its OK response.
+	 */
+	private long execute(byte operation, ByteBuffer request, byte[] scratch) throws Exception {
+		switch (operation) {
+		case WireProtocol.CREATE: {
+			String accountId = local(WireProtocol.getString(request, scratch));
+			long balance = request.getLong();
+			if (balance < 0) {
+				throw new MoneyRelatedException("Initial balance must be positive.");
+			}
+			accountsService.createAccount(new Account(accountId, MoneyUnits.toBigDecimal(balance)));
+			return balance;
+		}
+		case WireProtocol.GET: {
+			String accountId = local(WireProtocol.getString(request, scratch));
+			Account account = accountsService.getAccount(accountId);
+			if (account == null) {
+				throw new AccountRelatedException("Account id " + accountId + " does not exist!");
+			}
+			return MoneyUnits.toMinorUnits(account.getBalance());
+		}
+		case WireProtocol.DEPOSIT: {
+			String accountId = local(WireProtocol.getString(request, scratch));
+			return MoneyUnits.toMinorUnits(accountsService.deposit(accountId, request.getLong()).getBalance());
+		}
+		case WireProtocol.WITHDRAW: {
+			String accountId = local(WireProtocol.getString(request, scratch));
+			return MoneyUnits.toMinorUnits(accountsService.withdraw(accountId, request.getLong()).getBalance());
+		}
+		case WireProtocol.TRANSFER: {
+			String fromAccId = local(WireProtocol.getString(request, scratch));
+			String toAccId = local(WireProtocol.getString(request, scratch));
+			accountsService.transferMoney(fromAccId, toAccId, request.getLong());
+			return 0;
+		}
+		case WireProtocol.PING:
+			return 0;
+		default:
+			throw new WireProtocolException("Operation " + operation + " is unknown...!!!");
+		}
+	}
+
+	private String local(String accountId) {
+		if (!clusterRouter.isLocal(accountId)) {
+			throw new ClusterException("Account id " + accountId + " belongs to " + clusterRouter.ownerOf(accountId) + "...!!!");
+		}
+		return accountId;
+	}
+
+	private static byte statusOf(Exception ex) {
+		if (ex instanceof AccountRelatedException) {
+			return WireProtocol.ACCOUNT_ERROR;
+		}
+		if (ex instanceof MoneyRelatedException) {
+			return WireProtocol.MONEY_ERROR;
+		}
+		if (ex instanceof LockAcquisitionException) {
+			return WireProtocol.LOCK_TIMEOUT;
+		}
+		if (ex instanceof ClusterException) {
+			return WireProtocol.WRONG_NODE;
+		}
+		if (ex instanceof WireProtocolException || ex instanceof BufferUnderflowException) {
+			return WireProtocol.BAD_REQUEST;
+		}
+		return WireProtocol.FAILED;
+	}
+
+	/**
+	 * EventLoop owns a selector and every connection registered with it.
+	 */
+	private final class EventLoop implements Runnable {
+
+		private final Selector selector;
+
+		private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+		private EventLoop() throws IOException {
+			this.selector = Selector.open();
+		}
+
+		private void register(SocketChannel channel) {
+			registrations.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (running) {
+					selector.select();
+					SocketChannel channel;
+					while ((channel = registrations.poll()) != null) {
+						open(channel);
+					}
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						Connection connection = (Connection) key.attachment();
+						try {
+							if (key.isValid() && key.isReadable()) {
+								connection.onReadable();
+							}
+							if (key.isValid() && key.isWritable()) {
+								connection.onWritable();
+							}
+						} catch (IOException | RuntimeException ex) {
+							log.debug("Closing binary protocol connection {}", connection, ex);
+							connection.close();
+						}
+					}
+				}
+			} catch (IOException ex) {
+				log.error("Binary protocol event loop failed", ex);
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					((Connection) key.attachment()).close();
+				}
+				try {
+					selector.close();
+				} catch (IOException ex) {
+					log.debug("Closing a selector failed", ex);
+				}
+			}
+		}
+
+		private void open(SocketChannel channel) {
+			try {
+				channel.configureBlocking(false);
+				Connection connection = new Connection(channel);
+				connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+				connections.add(connection);
+			} catch (IOException ex) {
+				log.warn("Binary protocol failed to register a connection", ex);
+				try {
+					channel.close();
+				} catch (IOException closeFailed) {
+					log.debug("Closing a connection failed", closeFailed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Connection is one client connection, only touched by its event loop. Both buffers stay
+	 * in write mode between events: the read buffer holds the start of requests not complete
+	 * yet, the write buffer responses not written yet.
+	 */
+	private final class Connection {
+
+		private final SocketChannel channel;
+
+		private final ByteBuffer in = ByteBuffer.allocateDirect(bufferSize);
+
+		private final ByteBuffer out = ByteBuffer.allocateDirect(bufferSize);
+
+		private final byte[] scratch = new byte[WireProtocol.MAX_ID_BYTES];
+
+		private SelectionKey key;
+
+		/**
+		 * Set while the write buffer has no room for another response, the connection is not
+		 * read meanwhile.
+		 */
+		private boolean stalled;
+
+		private Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		private void onReadable() throws IOException {
+			if (channel.read(in) < 0) {
+				throw new EOFException("Connection closed by the client");
+			}
+			handleRequests();
+		}
+
+		private void onWritable() throws IOException {
+			write();
+			if (stalled && out.remaining() >= WireProtocol.MAX_RESPONSE_SIZE) {
+				stalled = false;
+				handleRequests();
+			} else {
+				updateInterest();
+			}
+		}
+
+		/**
+		 * handleRequests() runs every complete request in the read buffer, as long as the write
+		 * buffer has room for the response, and writes the responses.
+		 */
+		private void handleRequests() throws IOException {
+			in.flip();
+			try {
+				while (in.remaining() >= 4) {
+					int length = in.getInt(in.position());
+					if (length < WireProtocol.MIN_FRAME_LENGTH || length > WireProtocol.MAX_REQUEST_SIZE - 4) {
+						throw new WireProtocolException("Frame length " + length + " is out of range...!!!");
+					}
+					if (in.remaining() < 4 + length) {
+						break;
+					}
+					if (out.remaining() < WireProtocol.MAX_RESPONSE_SIZE) {
+						write();
+						if (out.remaining() < WireProtocol.MAX_RESPONSE_SIZE) {
+							stalled = true;
+							break;
+						}
+					}
+					int end = in.position() + 4 + length;
+					int limit = in.limit();
+					in.position(in.position() + 4).limit(end);
+					handleRequest();
+					in.limit(limit).position(end);
+				}
+			} finally {
+				in.compact();
+			}
+			write();
+			updateInterest();
+		}
+
+		private void handleRequest() {
+			long correlationId = in.getLong();
+			byte operation = in.get();
+			int start = out.position();
+			out.position(start + 4);
+			out.putLong(correlationId);
+			try {
+				long balance = execute(operation, in, scratch);
+				out.put(WireProtocol.OK).putLong(balance);
+			} catch (Exception ex) {
+				out.position(start + 12);
+				out.put(statusOf(ex));
+				WireProtocol.putMessage(out, ex.getMessage());
+			}
+			out.putInt(start, out.position() - start - 4);
+			requests.increment();
+		}
+
+		private void write() throws IOException {
+			if (out.position() > 0) {
+				out.flip();
+				channel.write(out);
+				out.compact();
+			}
+		}
+
+		private void updateInterest() {
+			int interest = stalled ? 0 : SelectionKey.OP_READ;
+			if (out.position() > 0) {
+				interest |= SelectionKey.OP_WRITE;
+			}
+			key.interestOps(interest);
+		}
+
+		private void close() {
+			connections.remove(this);
+			if (key != null) {
+				key.cancel();
+			}
+			try {
+				channel.close();
+			} catch (IOException ex) {
+				log.debug("Closing a connection failed", ex);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return channel.toString();
+		}
+	}
+}
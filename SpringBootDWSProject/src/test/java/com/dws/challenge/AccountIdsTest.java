@@ -0,0 +1,73 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.Test;
+
+class AccountIdsTest {
+
+  @Test
+  void validatesLikeBefore() {
+    AccountIds.validate("12345");
+    AccountIds.validate("12-34 5");
+    assertThatThrownBy(() -> AccountIds.validate("")).isInstanceOf(AccountRelatedException.class)
+        .hasMessage("Account Id does not exists..!!!");
+    assertThatThrownBy(() -> AccountIds.validate("12a4")).isInstanceOf(AccountRelatedException.class)
+        .hasMessage("Account Number should not contains Alphabetic chars..!!!");
+    assertThatThrownBy(() -> AccountIds.validate("12é")).isInstanceOf(AccountRelatedException.class);
+  }
+
+  @Test
+  void packedIdsRoundTripAndSortLikeTheIds() {
+    List<String> ids = List.of("0", "007", "1", "10", "12345678901234567", "7", "9", "99999999999999999");
+    List<Long> packed = new ArrayList<>();
+    for (String id : ids) {
+      packed.add(AccountIds.packOrZero(id));
+      assertThat(AccountIds.unpack(AccountIds.packOrZero(id))).isEqualTo(id);
+    }
+
+    assertThat(packed).isSorted().doesNotHaveDuplicates().allMatch(id -> id > 0);
+    assertThat(AccountIds.packOrZero("123456789012345678")).isEqualTo(AccountIds.NOT_NUMERIC);
+    assertThat(AccountIds.packOrZero("12-3")).isEqualTo(AccountIds.NOT_NUMERIC);
+    assertThat(AccountIds.packOrZero("")).isEqualTo(AccountIds.NOT_NUMERIC);
+  }
+
+  @Test
+  void storeKeepsNumericAndOtherIdsApartAcrossGrowthAndRemoval() throws Exception {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(new AccountLockManager(8, 500),
+        new EmailNotificationService());
+    for (int i = 0; i < 50_000; i++) {
+      repository.createAccount(new Account(Integer.toString(i), BigDecimal.ONE));
+    }
+    repository.createAccount(new Account("00", BigDecimal.TEN));
+    repository.createAccount(new Account("1-1", BigDecimal.TEN));
+    repository.createAccount(new Account("123456789012345678901", BigDecimal.TEN));
+
+    assertThat(repository.countAccounts()).isEqualTo(50_003);
+    assertThat(repository.getAccount("0").getBalance()).isEqualByComparingTo("1");
+    assertThat(repository.getAccount("00").getBalance()).isEqualByComparingTo("10");
+    assertThat(repository.getAccount("1-1").getBalance()).isEqualByComparingTo("10");
+    assertThat(repository.getAccount("123456789012345678901").getBalance()).isEqualByComparingTo("10");
+    assertThat(repository.listAllAccounts()).hasSize(50_003);
+    assertThatThrownBy(() -> repository.createAccount(new Account("49999", BigDecimal.ONE)))
+        .isInstanceOf(AccountRelatedException.class);
+
+    repository.clearAccounts();
+    assertThat(repository.countAccounts()).isZero();
+    assertThat(repository.getAccount("42")).isNull();
+    repository.createAccount(new Account("42", BigDecimal.TEN));
+    assertThat(repository.getAccount("42").getBalance()).isEqualByComparingTo("10");
+    assertThat(repository.listAccounts(null, 10)).extracting(Account::getAccountId).containsExactly("42");
+  }
+}
@@ -0,0 +1,176 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountChangeListener;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.service.AccountJsonCache;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.EmailNotificationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+class AccountJsonCacheTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  void servesCachedJsonAndRefreshesItOnEveryChange() throws Exception {
+    AccountsService accountsService = new AccountsService(newInMemoryRepository(), registry);
+    AccountJsonCache cache = new AccountJsonCache(accountsService, objectMapper, registry, 100, 60);
+    accountsService.createAccount(new Account("1", new BigDecimal("555.45")));
+    accountsService.createAccount(new Account("2", new BigDecimal("100")));
+    accountsService.createAccount(new Account("3", new BigDecimal("100")));
+
+    assertThat(cache.isEnabled()).isTrue();
+    assertThat(json(cache, "1")).isEqualTo("{\"accountId\":\"1\",\"balance\":555.45}");
+    assertThat(cache.getAccountJson("1")).isSameAs(cache.getAccountJson("1"));
+    assertThat(cache.getAccountJson("9")).isNull();
+    assertThat(json(cache, "2")).isEqualTo("{\"accountId\":\"2\",\"balance\":100}");
+    assertThat(registry.get("accounts.cache.requests").tag("result", "hit").counter().count()).isEqualTo(2);
+    assertThat(registry.get("accounts.cache.requests").tag("result", "miss").counter().count()).isEqualTo(3);
+
+    accountsService.deposit("1", 55);
+    accountsService.transferMoney("2", "3", 2_550);
+    accountsService.withdraw("3", 50);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(json(cache, "1")).isEqualTo("{\"accountId\":\"1\",\"balance\":556}");
+    assertThat(json(cache, "2")).isEqualTo("{\"accountId\":\"2\",\"balance\":74.5}");
+    assertThat(json(cache, "3")).isEqualTo("{\"accountId\":\"3\",\"balance\":125}");
+
+    accountsService.getAccountsRepository().clearAccounts();
+    assertThat(cache.size()).isZero();
+    assertThat(cache.getAccountJson("1")).isNull();
+  }
+
+  @Test
+  void evictsBeyondMaxEntriesAndAfterTheTtl() throws Exception {
+    AccountsService accountsService = new AccountsService(newInMemoryRepository(), registry);
+    for (int i = 0; i < 10; i++) {
+      accountsService.createAccount(new Account(Integer.toString(i), BigDecimal.ONE));
+    }
+    AccountJsonCache small = new AccountJsonCache(accountsService, objectMapper, registry, 4, 60);
+    for (int i = 0; i < 10; i++) {
+      small.getAccountJson(Integer.toString(i));
+    }
+    assertThat(small.size()).isEqualTo(4);
+
+    AccountJsonCache expiring = new AccountJsonCache(accountsService, objectMapper, registry, 100, 0);
+    byte[] first = expiring.getAccountJson("1");
+    assertThat(expiring.getAccountJson("1")).isNotSameAs(first).isEqualTo(first);
+  }
+
+  @Test
+  void readersNeverSeeAnOlderBalanceWhileItChanges() throws Exception {
+    AccountsService accountsService = new AccountsService(newInMemoryRepository(), registry);
+    int accounts = 4;
+    for (int i = 0; i < accounts; i++) {
+      accountsService.createAccount(new Account(Integer.toString(i), BigDecimal.ZERO));
+    }
+    // fewer entries than accounts, so entries keep being evicted and filled again
+    AccountJsonCache cache = new AccountJsonCache(accountsService, objectMapper, registry, 2, 60);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 20_000; i++) {
+          accountsService.deposit(Integer.toString(i % accounts), 1);
+        }
+        writing.set(false);
+        return null;
+      }));
+      for (int reader = 0; reader < 3; reader++) {
+        futures.add(executor.submit(() -> {
+          long[] seen = new long[accounts];
+          while (writing.get()) {
+            for (int i = 0; i < accounts; i++) {
+              long balance = objectMapper.readTree(cache.getAccountJson(Integer.toString(i))).get("balance")
+                  .decimalValue().movePointRight(2).longValueExact();
+              assertThat(balance).isGreaterThanOrEqualTo(seen[i]);
+              seen[i] = balance;
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    for (int i = 0; i < accounts; i++) {
+      assertThat(json(cache, Integer.toString(i))).isEqualTo("{\"accountId\":\"" + i + "\",\"balance\":50}");
+    }
+  }
+
+  @Test
+  void readsWhileClearingDoNotCacheTheRemovedAccounts() throws Exception {
+    AccountsRepositoryInMemory repository = newInMemoryRepository();
+    AccountsService accountsService = new AccountsService(repository, registry);
+    AccountJsonCache cache = new AccountJsonCache(accountsService, objectMapper, registry, 100, 60);
+    accountsService.createAccount(new Account("1", BigDecimal.TEN));
+    FutureTask<byte[]> read = new FutureTask<>(() -> cache.getAccountJson("1"));
+    // runs after the cache emptied itself and before the accounts are removed
+    repository.addChangeListener(new AccountChangeListener() {
+      @Override
+      public void accountsCleared() {
+        new Thread(read).start();
+        try {
+          read.get(200, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+          // the read waits for the clear
+        } catch (Exception ex) {
+          throw new IllegalStateException(ex);
+        }
+      }
+    });
+
+    repository.clearAccounts();
+    assertThat(read.get(5, TimeUnit.SECONDS)).isNull();
+    assertThat(cache.getAccountJson("1")).isNull();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void storesWithoutChangeListenersAreNotCached() throws Exception {
+    AccountsRepository repository = new LockFreeAccountsRepository(new EmailNotificationService());
+    AccountsService accountsService = new AccountsService(repository, registry);
+    AccountJsonCache cache = new AccountJsonCache(accountsService, objectMapper, registry, 100, 60);
+    accountsService.createAccount(new Account("1", BigDecimal.TEN));
+
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(json(cache, "1")).isEqualTo("{\"accountId\":\"1\",\"balance\":10}");
+    accountsService.deposit("1", 100);
+    assertThat(json(cache, "1")).isEqualTo("{\"accountId\":\"1\",\"balance\":11}");
+    assertThat(cache.size()).isZero();
+  }
+
+  private AccountsRepositoryInMemory newInMemoryRepository() {
+    return new AccountsRepositoryInMemory(new AccountLockManager(8, 500, registry), new EmailNotificationService());
+  }
+
+  private static String json(AccountJsonCache cache, String accountId) throws Exception {
+    return new String(cache.getAccountJson(accountId), StandardCharsets.UTF_8);
+  }
+}
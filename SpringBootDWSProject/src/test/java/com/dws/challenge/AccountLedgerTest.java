@@ -0,0 +1,87 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.LedgerEntry;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.ledger.AccountLedger;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.EmailNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+class AccountLedgerTest {
+
+  @Test
+  void recordsEveryChangeWithTheBalanceAfterIt() throws Exception {
+    AtomicLong clock = new AtomicLong(1_000);
+    AccountsService accountsService = new AccountsService(new AccountsRepositoryInMemory(new AccountLockManager(8, 500),
+        new EmailNotificationService()), new SimpleMeterRegistry());
+    AccountLedger ledger = new AccountLedger(accountsService, clock::incrementAndGet);
+    accountsService.createAccount(new Account("1", new BigDecimal("100.00")));
+    accountsService.createAccount(new Account("2", BigDecimal.ZERO));
+    accountsService.deposit("1", 5_050);
+    accountsService.withdraw("1", 1_000);
+    accountsService.transferMoney("1", "2", 2_500);
+
+    List<LedgerEntry> first = ledger.transactions("1", null, null, 10);
+    List<LedgerEntry> second = ledger.transactions("2", null, null, 10);
+
+    assertThat(first).extracting(LedgerEntry::getType).containsExactly(LedgerEntry.Type.OPENING,
+        LedgerEntry.Type.DEPOSIT, LedgerEntry.Type.WITHDRAWAL, LedgerEntry.Type.TRANSFER_OUT);
+    assertThat(first).extracting(entry -> entry.getBalance().toPlainString()).containsExactly("100", "150.5", "140.5",
+        "115.5");
+    assertThat(first.get(3).getAmount()).isEqualByComparingTo("25");
+    assertThat(first.get(3).getCounterparty()).isEqualTo("2");
+    assertThat(second.get(1).getType()).isEqualTo(LedgerEntry.Type.TRANSFER_IN);
+    assertThat(second.get(1).getCounterparty()).isEqualTo("1");
+    assertThat(second.get(1).getTransactionId()).isEqualTo(first.get(3).getTransactionId());
+    assertThat(first).extracting(LedgerEntry::getTimestamp).isSorted();
+    assertThatThrownBy(() -> ledger.transactions("3", null, null, 10)).isInstanceOf(AccountRelatedException.class);
+  }
+
+  @Test
+  void rangesAreFoundAcrossChunks() throws Exception {
+    AtomicLong clock = new AtomicLong();
+    AccountsService accountsService = new AccountsService(new AccountsRepositoryInMemory(new AccountLockManager(8, 500),
+        new EmailNotificationService()), new SimpleMeterRegistry());
+    AccountLedger ledger = new AccountLedger(accountsService, clock::get);
+    accountsService.createAccount(new Account("1", BigDecimal.ZERO));
+    // two deposits per millisecond, and a clock that once goes backwards
+    for (int i = 1; i <= 20_000; i++) {
+      clock.set(i == 15_000 ? 0 : i / 2);
+      accountsService.deposit("1", 1);
+    }
+
+    List<LedgerEntry> range = ledger.transactions("1", Instant.ofEpochMilli(5_000), Instant.ofEpochMilli(5_002), 100);
+    List<LedgerEntry> limited = ledger.transactions("1", Instant.ofEpochMilli(7_000), null, 3);
+    List<LedgerEntry> all = ledger.transactions("1", null, null, 100_000);
+
+    assertThat(range).extracting(entry -> entry.getBalance().toPlainString()).containsExactly("100", "100.01", "100.02",
+        "100.03");
+    assertThat(limited).extracting(entry -> entry.getTimestamp().toEpochMilli()).containsExactly(7_000L, 7_000L,
+        7_001L);
+    assertThat(all).hasSize(20_001).extracting(LedgerEntry::getTimestamp).isSorted();
+    assertThat(ledger.transactions("1", Instant.ofEpochMilli(20_000), null, 10)).isEmpty();
+  }
+
+  @Test
+  void lockFreeStoreHasNoLedger() {
+    AccountsService accountsService = new AccountsService(new LockFreeAccountsRepository(new EmailNotificationService()),
+        new SimpleMeterRegistry());
+    AccountLedger ledger = new AccountLedger(accountsService);
+
+    assertThat(ledger.isSupported()).isFalse();
+    assertThatThrownBy(() -> ledger.transactions("1", null, null, 10)).isInstanceOf(AccountRelatedException.class);
+  }
+}
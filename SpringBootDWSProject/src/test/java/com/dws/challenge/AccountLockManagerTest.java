@@ -0,0 +1,108 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.exception.LockAcquisitionException;
+import com.dws.challenge.repository.AccountLockManager;
+import org.junit.jupiter.api.Test;
+
+class AccountLockManagerTest {
+
+  @Test
+  void oppositeLockOrderDoesNotDeadlock() throws Exception {
+    AccountLockManager lockManager = new AccountLockManager(16, 5000);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> forward = executor.submit(() -> lockRepeatedly(lockManager, "111", "222"));
+      Future<?> backward = executor.submit(() -> lockRepeatedly(lockManager, "222", "111"));
+      forward.get(30, TimeUnit.SECONDS);
+      backward.get(30, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void lockTimesOutWhenStripeIsHeld() throws Exception {
+    AccountLockManager lockManager = new AccountLockManager(1, 50);
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread owner = new Thread(() -> {
+      try (AccountLockManager.Locked locked = lockManager.lock("111")) {
+        held.countDown();
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    owner.start();
+    held.await();
+
+    assertThrows(LockAcquisitionException.class, () -> lockManager.lock("222"));
+
+    release.countDown();
+    owner.join();
+    try (AccountLockManager.Locked locked = lockManager.lock("222")) {
+      assertThat(lockManager.getStripeCount()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void heldStripesAreReleasedWhileRetrying() throws Exception {
+    // "111" is on stripe 1 and "222" on stripe 2 of 16, so the transfer takes "111" first
+    AccountLockManager lockManager = new AccountLockManager(16, 5000);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> transfer;
+      try (AccountLockManager.Locked locked = lockManager.lock("222")) {
+        transfer = executor.submit(() -> {
+          lockManager.lock("111", "222").close();
+          return null;
+        });
+        Thread.sleep(50);
+        // the transfer gave "111" back when it found "222" held and is backing off
+        executor.submit(() -> {
+          lockManager.lock("111").close();
+          return null;
+        }).get(1, TimeUnit.SECONDS);
+        assertThat(transfer.isDone()).isFalse();
+      }
+      transfer.get(5, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void lockingNoAccountsHoldsNothing() {
+    AccountLockManager lockManager = new AccountLockManager(1, 50);
+    try (AccountLockManager.Locked none = lockManager.lock()) {
+      try (AccountLockManager.Locked locked = lockManager.lock("111")) {
+        assertThat(lockManager.getStripeCount()).isEqualTo(1);
+      }
+    }
+  }
+
+  @Test
+  void sameStripeIsOnlyTakenOnce() {
+    AccountLockManager lockManager = new AccountLockManager(1, 50);
+    try (AccountLockManager.Locked locked = lockManager.lock("111", "222", "333")) {
+      assertThat(lockManager.getStripeCount()).isEqualTo(1);
+    }
+  }
+
+  private static void lockRepeatedly(AccountLockManager lockManager, String first, String second) {
+    for (int i = 0; i < 100_000; i++) {
+      try (AccountLockManager.Locked locked = lockManager.lock(first, second)) {
+        Thread.onSpinWait();
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.metrics.AccountMetrics;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.AsyncNotificationService;
+import com.dws.challenge.service.EmailNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class AccountMetricsTest {
+
+  private SimpleMeterRegistry registry;
+
+  private AccountsService accountsService;
+
+  @BeforeEach
+  void createService() {
+    registry = new SimpleMeterRegistry();
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(new AccountLockManager(8, 500, registry),
+        new EmailNotificationService());
+    accountsService = new AccountsService(repository, registry);
+    new AccountMetrics(repository, new StaticListableBeanFactory().getBeanProvider(AsyncNotificationService.class))
+        .bindTo(registry);
+  }
+
+  @Test
+  void recordsOperationsLocksAndFailures() throws Exception {
+    accountsService.createAccount(new Account("1", new BigDecimal("100.00")));
+    accountsService.createAccount(new Account("2", new BigDecimal("50.00")));
+    accountsService.transferMoney("1", "2", 2500);
+    assertThatThrownBy(() -> accountsService.transferMoney("2", "1", 1_000_000)).isInstanceOf(MoneyRelatedException.class);
+    accountsService.deposit("1", 100);
+
+    assertThat(registry.get("accounts.operation").tag("operation", "transfer").timer().count()).isEqualTo(2);
+    assertThat(registry.get("accounts.operation").tag("operation", "create").timer().count()).isEqualTo(2);
+    assertThat(registry.get("accounts.operation.failures").tag("operation", "transfer")
+        .tag("reason", "MoneyRelatedException").counter().count()).isEqualTo(1);
+    assertThat(registry.get("accounts.lock.wait").tag("scope", "transfer").timer().count()).isEqualTo(2);
+    assertThat(registry.get("accounts.lock.hold").tag("scope", "single").timer().count()).isEqualTo(3);
+  }
+
+  @Test
+  void gaugesFollowTheStore() throws Exception {
+    accountsService.createAccount(new Account("1", new BigDecimal("100.00")));
+    accountsService.createAccount(new Account("2", new BigDecimal("50.25")));
+    accountsService.transferMoney("1", "2", 2500);
+    accountsService.withdraw("2", 25);
+
+    assertThat(registry.get("accounts.count").gauge().value()).isEqualTo(2);
+    assertThat(registry.get("accounts.balance.total").gauge().value()).isEqualTo(150.0);
+  }
+}
@@ -0,0 +1,57 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class AccountPaginationTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = { "in-memory", "lock-free" })
+  void pagesThroughAllAccountsInIdOrder(String store) throws Exception {
+    AccountsRepository repository = repository(store);
+    for (int i = 9; i >= 0; i--) {
+      repository.createAccount(new Account(String.valueOf(i), BigDecimal.valueOf(i)));
+    }
+
+    List<String> ids = new ArrayList<>();
+    String after = null;
+    List<Account> page;
+    do {
+      page = repository.listAccounts(after, 3);
+      assertThat(page.size()).isLessThanOrEqualTo(3);
+      page.forEach(account -> ids.add(account.getAccountId()));
+      after = page.isEmpty() ? after : page.get(page.size() - 1).getAccountId();
+    } while (page.size() == 3);
+
+    assertThat(ids).containsExactly("0", "1", "2", "3", "4", "5", "6", "7", "8", "9");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "in-memory", "lock-free" })
+  void clearedAccountsLeaveThePages(String store) throws Exception {
+    AccountsRepository repository = repository(store);
+    repository.createAccount(new Account("1", BigDecimal.ONE));
+    repository.clearAccounts();
+    repository.createAccount(new Account("2", BigDecimal.TEN));
+
+    assertThat(repository.listAccounts(null, 10)).extracting(Account::getAccountId).containsExactly("2");
+    assertThat(repository.listAccounts("2", 10)).isEmpty();
+  }
+
+  private static AccountsRepository repository(String store) {
+    return "lock-free".equals(store) ? new LockFreeAccountsRepository(new EmailNotificationService())
+        : new AccountsRepositoryInMemory(new AccountLockManager(8, 500), new EmailNotificationService());
+  }
+}
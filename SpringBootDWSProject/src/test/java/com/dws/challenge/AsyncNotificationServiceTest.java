@@ -0,0 +1,143 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AsyncNotificationService;
+import com.dws.challenge.service.AsyncNotificationService.OverflowPolicy;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AsyncNotificationServiceTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void coalescesNotificationsOfOneAccount() throws Exception {
+    BlockingEmailNotificationService email = new BlockingEmailNotificationService();
+    AsyncNotificationService notifications = create(email, 16, OverflowPolicy.BLOCK);
+
+    notifications.notifyAboutTransfer(new Account("1", BigDecimal.ONE), " first");
+    assertThat(email.started.await(5, TimeUnit.SECONDS)).isTrue();
+    notifications.notifyAboutTransfer(new Account("2", BigDecimal.ONE), " second");
+    notifications.notifyAboutTransfer(new Account("2", BigDecimal.TEN), " third");
+    email.release.countDown();
+    notifications.shutdown();
+
+    assertThat(email.sent).containsExactly("1: first", "2: second; third");
+    assertThat(notifications.getDispatchedCount()).isEqualTo(3);
+  }
+
+  @Test
+  void dropsWhenQueueIsFull() throws Exception {
+    BlockingEmailNotificationService email = new BlockingEmailNotificationService();
+    AsyncNotificationService notifications = create(email, 1, OverflowPolicy.DROP);
+
+    notifications.notifyAboutTransfer(new Account("1", BigDecimal.ONE), " first");
+    assertThat(email.started.await(5, TimeUnit.SECONDS)).isTrue();
+    notifications.notifyAboutTransfer(new Account("1", BigDecimal.ONE), " second");
+    notifications.notifyAboutTransfer(new Account("1", BigDecimal.ONE), " third");
+    email.release.countDown();
+    notifications.shutdown();
+
+    assertThat(notifications.getDroppedCount()).isEqualTo(1);
+    assertThat(email.sent).containsExactly("1: first", "1: second");
+  }
+
+  @Test
+  void spillsWhenQueueIsFullAndReplaysLater() throws Exception {
+    BlockingEmailNotificationService email = new BlockingEmailNotificationService();
+    AsyncNotificationService notifications = create(email, 1, OverflowPolicy.SPILL);
+
+    notifications.notifyAboutTransfer(new Account("1", BigDecimal.ONE), " first");
+    assertThat(email.started.await(5, TimeUnit.SECONDS)).isTrue();
+    notifications.notifyAboutTransfer(new Account("1", BigDecimal.ONE), " second");
+    notifications.notifyAboutTransfer(new Account("2", BigDecimal.ONE), " third");
+    assertThat(notifications.getSpilledCount()).isEqualTo(1);
+    email.release.countDown();
+    notifications.shutdown();
+
+    assertThat(email.sent).containsExactly("1: first", "1: second", "2: third");
+    assertThat(notifications.getSpilledCount()).isZero();
+  }
+
+  @Test
+  void spillThatCanNotBeReplayedIsCountedAsDropped() throws Exception {
+    BlockingEmailNotificationService email = new BlockingEmailNotificationService();
+    AsyncNotificationService notifications = create(email, 1, OverflowPolicy.SPILL);
+
+    notifications.notifyAboutTransfer(new Account("1", BigDecimal.ONE), " first");
+    assertThat(email.started.await(5, TimeUnit.SECONDS)).isTrue();
+    notifications.notifyAboutTransfer(new Account("1", BigDecimal.ONE), " second");
+    notifications.notifyAboutTransfer(new Account("2", BigDecimal.ONE), " third");
+    Files.delete(tempDir.resolve("spill"));
+    email.release.countDown();
+    // the dispatcher stops instead of retrying the missing file forever
+    assertTimeoutPreemptively(Duration.ofSeconds(5), notifications::shutdown);
+
+    assertThat(email.sent).containsExactly("1: first", "1: second");
+    assertThat(notifications.getSpilledCount()).isZero();
+    assertThat(notifications.getDroppedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void instancesWithTheDefaultSpillFileOnlyReplayTheirOwn() throws Exception {
+    BlockingEmailNotificationService firstEmail = new BlockingEmailNotificationService();
+    BlockingEmailNotificationService secondEmail = new BlockingEmailNotificationService();
+    AsyncNotificationService first = new AsyncNotificationService(firstEmail, 1, 16, OverflowPolicy.SPILL, "");
+    AsyncNotificationService second = new AsyncNotificationService(secondEmail, 1, 16, OverflowPolicy.SPILL, "");
+
+    for (AsyncNotificationService notifications : List.of(first, second)) {
+      String accountId = notifications == first ? "1" : "2";
+      BlockingEmailNotificationService email = notifications == first ? firstEmail : secondEmail;
+      notifications.notifyAboutTransfer(new Account(accountId, BigDecimal.ONE), " first");
+      assertThat(email.started.await(5, TimeUnit.SECONDS)).isTrue();
+      notifications.notifyAboutTransfer(new Account(accountId, BigDecimal.ONE), " second");
+      notifications.notifyAboutTransfer(new Account(accountId, BigDecimal.ONE), " third");
+      assertThat(notifications.getSpilledCount()).isEqualTo(1);
+    }
+    firstEmail.release.countDown();
+    secondEmail.release.countDown();
+    first.shutdown();
+    second.shutdown();
+
+    assertThat(firstEmail.sent).containsExactly("1: first", "1: second", "1: third");
+    assertThat(secondEmail.sent).containsExactly("2: first", "2: second", "2: third");
+  }
+
+  private AsyncNotificationService create(EmailNotificationService email, int capacity, OverflowPolicy policy) {
+    return new AsyncNotificationService(email, capacity, 16, policy, tempDir.resolve("spill").toString());
+  }
+
+  static class BlockingEmailNotificationService extends EmailNotificationService {
+
+    final List<String> sent = new CopyOnWriteArrayList<>();
+
+    final CountDownLatch started = new CountDownLatch(1);
+
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public void notifyAboutTransfer(Account account, String transferDescription) {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      sent.add(account.getAccountId() + ":" + transferDescription);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BatchMode;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BalanceQueryTest {
+
+  private AccountsRepositoryInMemory repository;
+
+  @BeforeEach
+  void createAccounts() throws Exception {
+    repository = new AccountsRepositoryInMemory(new AccountLockManager(8, 500), new EmailNotificationService());
+    repository.createAccount(new Account("1", new BigDecimal("100.00")));
+    repository.createAccount(new Account("2", new BigDecimal("50.00")));
+    repository.createAccount(new Account("3", new BigDecimal("50.00")));
+    repository.createAccount(new Account("4", BigDecimal.ZERO));
+  }
+
+  @Test
+  void rangeIsInclusiveAndOrderedByBalanceThenId() {
+    assertThat(repository.findByBalance(5000, 10000, 10)).extracting(Account::getAccountId).containsExactly("2", "3", "1");
+    assertThat(repository.findByBalance(5000, 10000, 2)).extracting(Account::getAccountId).containsExactly("2", "3");
+    assertThat(repository.findByBalance(1, 4999, 10)).isEmpty();
+    assertThat(repository.findByBalance(10000, 5000, 10)).isEmpty();
+  }
+
+  @Test
+  void topFollowsEveryKindOfChange() throws Exception {
+    repository.transferMoney("1", "4", 9000);
+    repository.deposit("2", 1);
+    repository.withdraw("3", 5000);
+    repository.transferBatch(List.of(new Transfer("4", "3", 100), new Transfer("4", "1", 100)), BatchMode.ALL_OR_NOTHING);
+    repository.transferBatch(List.of(new Transfer("4", "2", 100), new Transfer("3", "1", 1)), BatchMode.BEST_EFFORT);
+
+    List<Account> top = repository.topByBalance(10);
+    assertThat(top).extracting(Account::getAccountId).containsExactly("4", "2", "1", "3");
+    assertThat(top).extracting(Account::getBalance).usingElementComparator(BigDecimal::compareTo)
+        .containsExactly(new BigDecimal("87"), new BigDecimal("51.01"), new BigDecimal("11.01"), new BigDecimal("0.99"));
+    assertThat(repository.findByBalance(Long.MIN_VALUE, Long.MAX_VALUE, 10)).hasSize(4);
+  }
+
+  @Test
+  void topNeverLosesAnAccountWhileItMoves() throws Exception {
+    AtomicBoolean depositing = new AtomicBoolean(true);
+    Thread writer = new Thread(() -> {
+      try {
+        for (int i = 0; i < 200_000; i++) {
+          repository.deposit("1", 1);
+        }
+      } catch (Exception ex) {
+        throw new IllegalStateException(ex);
+      } finally {
+        depositing.set(false);
+      }
+    });
+    writer.start();
+    try {
+      while (depositing.get()) {
+        assertThat(repository.topByBalance(1)).extracting(Account::getAccountId).containsExactly("1");
+      }
+    } finally {
+      depositing.set(false);
+      writer.join();
+    }
+    assertThat(repository.topByBalance(1)).extracting(Account::getBalance).usingElementComparator(BigDecimal::compareTo)
+        .containsExactly(new BigDecimal("2100"));
+  }
+
+  @Test
+  void failedChangesAndClearKeepTheIndexExact() throws Exception {
+    assertThatThrownBy(() -> repository.withdraw("4", 1)).isInstanceOf(RuntimeException.class);
+    repository.transferBatch(List.of(new Transfer("1", "4", 100), new Transfer("4", "2", 1_000_000)), BatchMode.ALL_OR_NOTHING);
+    assertThat(repository.topByBalance(1)).extracting(Account::getAccountId).containsExactly("1");
+    assertThat(repository.findByBalance(0, 0, 10)).extracting(Account::getAccountId).containsExactly("4");
+
+    repository.clearAccounts();
+    assertThat(repository.topByBalance(10)).isEmpty();
+  }
+
+  @Test
+  void lockFreeStoreRejectsBalanceQueries() {
+    LockFreeAccountsRepository lockFree = new LockFreeAccountsRepository(new EmailNotificationService());
+    assertThatThrownBy(() -> lockFree.topByBalance(10)).isInstanceOf(AccountRelatedException.class);
+  }
+}
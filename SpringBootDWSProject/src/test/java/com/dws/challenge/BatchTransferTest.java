@@ -0,0 +1,83 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BatchMode;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.domain.TransferResult;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchTransferTest {
+
+  private AccountsRepositoryInMemory repository;
+
+  @BeforeEach
+  void createAccounts() throws Exception {
+    repository = new AccountsRepositoryInMemory(new AccountLockManager(8, 500), new EmailNotificationService());
+    repository.createAccount(new Account("1", new BigDecimal("100.00")));
+    repository.createAccount(new Account("2", new BigDecimal("50.00")));
+    repository.createAccount(new Account("3", BigDecimal.ZERO));
+  }
+
+  @Test
+  void bestEffortAppliesValidTransfersAndReportsFailures() throws Exception {
+    List<TransferResult> results = repository.transferBatch(List.of(
+        new Transfer("1", "3", 6000),
+        new Transfer("2", "3", 9000),
+        new Transfer("2", "4", 100),
+        new Transfer("2", "1", 5000)), BatchMode.BEST_EFFORT);
+
+    assertThat(results).extracting(TransferResult::getStatus).containsExactly(
+        TransferResult.Status.DONE, TransferResult.Status.FAILED, TransferResult.Status.FAILED, TransferResult.Status.DONE);
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("90");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("0");
+    assertThat(repository.getAccount("3").getBalance()).isEqualByComparingTo("60");
+  }
+
+  @Test
+  void allOrNothingRollsBackWholeBatch() throws Exception {
+    List<TransferResult> results = repository.transferBatch(List.of(
+        new Transfer("1", "3", 6000),
+        new Transfer("3", "2", 6000),
+        new Transfer("1", "2", 6000)), BatchMode.ALL_OR_NOTHING);
+
+    assertThat(results).extracting(TransferResult::getStatus).containsExactly(
+        TransferResult.Status.ROLLED_BACK, TransferResult.Status.ROLLED_BACK, TransferResult.Status.FAILED);
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("100");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("50");
+    assertThat(repository.getAccount("3").getBalance()).isEqualByComparingTo("0");
+  }
+
+  @Test
+  void allOrNothingSeesEarlierTransfersOfTheBatch() throws Exception {
+    List<TransferResult> results = repository.transferBatch(List.of(
+        new Transfer("1", "3", 6000),
+        new Transfer("3", "2", 6000)), BatchMode.ALL_OR_NOTHING);
+
+    assertThat(results).extracting(TransferResult::getStatus).containsOnly(TransferResult.Status.DONE);
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("40");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("110");
+    assertThat(repository.getAccount("3").getBalance()).isEqualByComparingTo("0");
+  }
+
+  @Test
+  void batchesWithoutKnownAccountsLockNothing() throws Exception {
+    assertThat(repository.transferBatch(List.of(), BatchMode.ALL_OR_NOTHING)).isEmpty();
+
+    List<TransferResult> results = repository.transferBatch(List.of(
+        new Transfer("8", "9", 100),
+        new Transfer("9", "8", 100)), BatchMode.BEST_EFFORT);
+
+    assertThat(results).extracting(TransferResult::getStatus).containsOnly(TransferResult.Status.FAILED);
+    assertThat(results).extracting(TransferResult::getMessage).containsOnly("Account id 8 does not exist!", "Account id 9 does not exist!");
+    assertThat(repository.totalBalance()).isEqualTo(15_000);
+  }
+}
@@ -0,0 +1,148 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dws.challenge.cluster.ClusterRouter;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.importer.AccountImporter;
+import com.dws.challenge.importer.ImportSummary;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.EmailNotificationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkImportTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private AccountsRepositoryInMemory repository;
+
+  private AccountImporter importer;
+
+  @BeforeEach
+  void createImporter() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    repository = new AccountsRepositoryInMemory(new AccountLockManager(8, 500, registry), new EmailNotificationService());
+    // batches of three lines, so the lines below span several batches
+    importer = new AccountImporter(new AccountsService(repository, registry), new ClusterRouter("", "http://localhost:1", 16, 100),
+        objectMapper, 3, 2);
+  }
+
+  @AfterEach
+  void closeImporter() {
+    importer.close();
+  }
+
+  @Test
+  void csvImportCreatesValidLinesAndReportsTheOthersInLineOrder() throws Exception {
+    repository.createAccount(new Account("5", BigDecimal.ONE));
+    String csv = "accountId,balance\n"
+        + "1,100.50\n"
+        + "2, 0\n"
+        + "\n"
+        + "5,10\n"
+        + "abc,10\n"
+        + "3,-1\n"
+        + "4,1.005\n"
+        + "6\n"
+        + "7,\n"
+        + "2,30\n"
+        + "8,ten\n"
+        + "9,99\n";
+
+    List<JsonNode> report = new ArrayList<>();
+    ImportSummary summary = importAccounts(csv, AccountImporter.Format.CSV, report);
+
+    assertThat(summary.getImported()).isEqualTo(3);
+    assertThat(summary.getDuplicates()).isEqualTo(2);
+    assertThat(summary.getRejected()).isEqualTo(6);
+    assertThat(report).hasSize(9);
+    assertThat(report.subList(0, 8)).extracting(line -> line.get("line").asLong()).containsExactly(5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L);
+    assertThat(report.subList(0, 8)).extracting(line -> line.get("status").asText()).containsExactly("DUPLICATE", "REJECTED",
+        "REJECTED", "REJECTED", "REJECTED", "REJECTED", "DUPLICATE", "REJECTED");
+    assertThat(report.get(0).get("accountId").asText()).isEqualTo("5");
+    assertThat(report.get(1).get("reason").asText()).isEqualTo("Account Number should not contains Alphabetic chars..!!!");
+    assertThat(report.get(2).get("reason").asText()).isEqualTo("Initial balance must be positive.");
+    assertThat(report.get(8).get("imported").asLong()).isEqualTo(3);
+    assertThat(report.get(8).get("rejected").asLong()).isEqualTo(6);
+
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("100.50");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("0");
+    assertThat(repository.getAccount("5").getBalance()).isEqualByComparingTo("1");
+    assertThat(repository.getAccount("9").getBalance()).isEqualByComparingTo("99");
+    assertThat(repository.countAccounts()).isEqualTo(4);
+    assertThat(repository.totalBalance()).isEqualTo(10_050 + 100 + 9_900);
+  }
+
+  @Test
+  void ndjsonImportReadsNumbersAndStrings() throws Exception {
+    String ndjson = "{\"accountId\":\"1\",\"balance\":555.45}\n"
+        + "{\"balance\":\"12\",\"accountId\":\"2\",\"currency\":{\"code\":\"EUR\"}}\n"
+        + "{\"accountId\":\"3\"}\n"
+        + "[1,2]\n"
+        + "{\"accountId\":\"1\",\"balance\":1}\n";
+
+    List<JsonNode> report = new ArrayList<>();
+    ImportSummary summary = importAccounts(ndjson, AccountImporter.Format.NDJSON, report);
+
+    assertThat(summary.getImported()).isEqualTo(2);
+    assertThat(summary.getDuplicates()).isEqualTo(1);
+    assertThat(summary.getRejected()).isEqualTo(2);
+    assertThat(report).extracting(line -> line.path("line").asLong()).containsExactly(3L, 4L, 5L, 0L);
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("555.45");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("12");
+  }
+
+  @Test
+  void batchCreateValidatesEveryAccountId() throws Exception {
+    List<String> failures = repository.createAccounts(List.of(new Account("1", BigDecimal.ONE),
+        new Account("a1", BigDecimal.ONE), new Account("", BigDecimal.ONE), new Account("2", BigDecimal.TEN)));
+
+    assertThat(failures).containsExactly(null, "Account Number should not contains Alphabetic chars..!!!",
+        "Account Id does not exists..!!!", null);
+    assertThat(repository.getAccount("a1")).isNull();
+    assertThat(repository.countAccounts()).isEqualTo(2);
+  }
+
+  @Test
+  void largeImportCreatesEveryAccount() throws Exception {
+    importer.close();
+    importer = new AccountImporter(new AccountsService(repository, new SimpleMeterRegistry()),
+        new ClusterRouter("", "http://localhost:1", 16, 100), objectMapper, 8192, 0);
+    int accounts = 100_000;
+    StringBuilder csv = new StringBuilder(accounts * 12);
+    for (int i = 0; i < accounts; i++) {
+      csv.append(i).append(',').append(i % 100).append(".25\n");
+    }
+
+    ImportSummary summary = importAccounts(csv.toString(), AccountImporter.Format.CSV, new ArrayList<>());
+
+    assertThat(summary.getImported()).isEqualTo(accounts);
+    assertThat(repository.countAccounts()).isEqualTo(accounts);
+    assertThat(repository.getAccount("99999").getBalance()).isEqualByComparingTo("99.25");
+    assertThat(repository.totalBalance()).isEqualTo(accounts / 100 * (99 * 100 * 100 / 2 + 100 * 25));
+  }
+
+  private ImportSummary importAccounts(String input, AccountImporter.Format format, List<JsonNode> report) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImportSummary summary = importer.importAccounts(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format,
+        output);
+    for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+      report.add(objectMapper.readTree(line));
+    }
+    return summary;
+  }
+}
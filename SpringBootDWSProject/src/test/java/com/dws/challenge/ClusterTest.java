@@ -0,0 +1,129 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dws.challenge.cluster.ClusterRouter;
+import com.dws.challenge.cluster.ConsistentHashRing;
+import com.dws.challenge.service.AccountsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+class ClusterTest {
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+
+  @Test
+  void ringSpreadsAccountsEvenlyAndMovesFewWhenANodeJoins() {
+    List<String> nodes = new ArrayList<>(List.of("http://a:1", "http://b:1", "http://c:1"));
+    ConsistentHashRing ring = new ConsistentHashRing(nodes, 128);
+    List<String> reordered = new ArrayList<>(nodes);
+    Collections.reverse(reordered);
+    ConsistentHashRing sameNodes = new ConsistentHashRing(reordered, 128);
+    nodes.add("http://d:1");
+    ConsistentHashRing grown = new ConsistentHashRing(nodes, 128);
+
+    Map<String, Integer> shares = new HashMap<>();
+    int moved = 0;
+    for (int i = 0; i < 30_000; i++) {
+      String accountId = Integer.toString(i);
+      String owner = ring.ownerOf(accountId);
+      shares.merge(owner, 1, Integer::sum);
+      assertThat(sameNodes.ownerOf(accountId)).isEqualTo(owner);
+      String newOwner = grown.ownerOf(accountId);
+      if (!newOwner.equals(owner)) {
+        assertThat(newOwner).isEqualTo("http://d:1");
+        moved++;
+      }
+    }
+
+    assertThat(shares.values()).allSatisfy(share -> assertThat(share).isBetween(8_000, 12_000));
+    assertThat(moved).isBetween(5_000, 10_000);
+  }
+
+  @Test
+  void nodesForwardRequestsAndCommitTransfersBetweenThemselves() throws Exception {
+    int portA = freePort();
+    int portB = freePort();
+    String nodes = "http://localhost:" + portA + ",http://localhost:" + portB;
+    try (ConfigurableApplicationContext nodeA = startNode(portA, nodes);
+        ConfigurableApplicationContext nodeB = startNode(portB, nodes)) {
+      ClusterRouter router = nodeA.getBean(ClusterRouter.class);
+      String a = "http://localhost:" + portA;
+      String b = "http://localhost:" + portB;
+      String onA = accountOwnedBy(router, a, 0);
+      String alsoOnA = accountOwnedBy(router, a, Integer.parseInt(onA) + 1);
+      String onB = accountOwnedBy(router, b, 0);
+
+      // every account is created through node B
+      for (String accountId : List.of(onA, alsoOnA, onB)) {
+        assertThat(send(b, "POST", "/v1/accounts", "{\"accountId\":\"" + accountId + "\",\"balance\":100}").statusCode())
+            .isEqualTo(200);
+      }
+      assertThat(nodeA.getBean(AccountsService.class).getAccountsRepository().countAccounts()).isEqualTo(2);
+      assertThat(nodeB.getBean(AccountsService.class).getAccountsRepository().countAccounts()).isEqualTo(1);
+      assertThat(send(b, "POST", "/v1/accounts", "{\"accountId\":\"" + onA + "\",\"balance\":1}").statusCode())
+          .isEqualTo(400);
+
+      // sent to node B, forwarded to node A, which coordinates the transfer with node B
+      assertThat(send(b, "GET", "/v1/accounts/transfer/" + onA + "/" + onB + "/30", null).statusCode()).isEqualTo(200);
+      assertThat(send(a, "GET", "/v1/accounts/transfer/" + onB + "/" + alsoOnA + "/5", null).statusCode()).isEqualTo(200);
+      assertThat(send(a, "GET", "/v1/accounts/deposit/" + onB + "/1", null).statusCode()).isEqualTo(200);
+
+      assertThat(send(a, "GET", "/v1/accounts/" + onA, null).body()).contains("\"balance\":70");
+      assertThat(send(b, "GET", "/v1/accounts/" + onB, null).body()).contains("\"balance\":126");
+      assertThat(send(a, "GET", "/v1/accounts/" + alsoOnA, null).body()).contains("\"balance\":105");
+
+      // node B votes no on a missing account, node A gives the reserved money back
+      HttpResponse<String> refused = send(a, "GET", "/v1/accounts/transfer/" + onA + "/" + accountOwnedBy(router, b,
+          Integer.parseInt(onB) + 1) + "/10", null);
+      assertThat(refused.statusCode()).isEqualTo(400);
+      assertThat(refused.body()).contains("does not exist");
+      assertThat(send(b, "GET", "/v1/accounts/" + onA, null).body()).contains("\"balance\":70");
+      assertThat(send(b, "GET", "/v1/accounts/transfer/" + onA + "/" + onB + "/1000", null).statusCode()).isEqualTo(400);
+      assertThat(send(a, "GET", "/v1/accounts/" + onA, null).body()).contains("\"balance\":70");
+    }
+  }
+
+  private ConfigurableApplicationContext startNode(int port, String nodes) {
+    return new SpringApplicationBuilder(SpringBootDwsProjectApplication.class).run("--server.port=" + port,
+        "--accounts.cluster.nodes=" + nodes, "--accounts.cluster.self=http://localhost:" + port,
+        "--spring.jmx.enabled=false");
+  }
+
+  private HttpResponse<String> send(String node, String method, String path, String json) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(node + path));
+    if (json == null) {
+      request.method(method, HttpRequest.BodyPublishers.noBody());
+    } else {
+      request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(json));
+    }
+    return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static String accountOwnedBy(ClusterRouter router, String node, int from) {
+    for (int i = from;; i++) {
+      if (router.ownerOf(Integer.toString(i)).equals(node)) {
+        return Integer.toString(i);
+      }
+    }
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
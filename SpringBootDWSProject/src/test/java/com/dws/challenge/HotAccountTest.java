@@ -0,0 +1,165 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.Test;
+
+class HotAccountTest {
+
+  @Test
+  void designatedHotAccountSpreadsCreditsAndBorrowsAcrossSlotsForDebits() throws Exception {
+    LockFreeAccountsRepository repository = new LockFreeAccountsRepository(new EmailNotificationService(), 8,
+        "0, 9", 0);
+    repository.createAccount(new Account("0", new BigDecimal("1.00")));
+    repository.createAccount(new Account("1", new BigDecimal("100")));
+    repository.createAccount(new Account("2", new BigDecimal("100")));
+    assertThat(repository.isHot("0")).isTrue();
+    assertThat(repository.isHot("1")).isFalse();
+
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        String from = t % 2 == 0 ? "1" : "2";
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1_000; i++) {
+            repository.transferMoney(from, "0", 1);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(repository.getAccount("0").getBalance()).isEqualByComparingTo("41.00");
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("80");
+    assertThat(repository.totalBalance()).isEqualTo(20_100);
+
+    // credits of several threads sit in several slots, the withdrawal has to collect them
+    assertThat(repository.withdraw("0", 4_050).getBalance()).isEqualByComparingTo("0.50");
+    assertThatThrownBy(() -> repository.withdraw("0", 51)).isInstanceOf(MoneyRelatedException.class);
+    repository.transferMoney("0", "1", 50);
+    assertThat(repository.getAccount("0").getBalance()).isEqualByComparingTo("0");
+    assertThat(repository.listAccounts(null, 1).get(0).getBalance()).isEqualByComparingTo("0");
+    assertThat(repository.totalBalance()).isEqualTo(20_100 - 4_050);
+  }
+
+  @Test
+  void creditsNearTheLimitNeitherOverflowNorLoseMoney() throws Exception {
+    LockFreeAccountsRepository repository = new LockFreeAccountsRepository(new EmailNotificationService(), 8, "0, 9",
+        0);
+    repository.createAccount(new Account("0", MoneyUnits.toBigDecimal(Long.MAX_VALUE - 1_000)));
+    int senders = 8;
+    for (int i = 1; i <= senders; i++) {
+      repository.createAccount(new Account(Integer.toString(i), new BigDecimal("100")));
+    }
+
+    // the slots have room for 1000 cents in all, the senders try to move 8 * 500
+    ExecutorService executor = Executors.newFixedThreadPool(senders);
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 1; t <= senders; t++) {
+        String from = Integer.toString(t);
+        futures.add(executor.submit(() -> {
+          int moved = 0;
+          for (int i = 0; i < 500; i++) {
+            try {
+              repository.transferMoney(from, "0", 1);
+              moved++;
+            } catch (MoneyRelatedException ex) {
+              // the hot account is full, nothing moved
+            }
+          }
+          return moved;
+        }));
+      }
+      int moved = 0;
+      for (Future<Integer> future : futures) {
+        moved += future.get();
+      }
+      assertThat(moved).isEqualTo(1_000);
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(MoneyUnits.toMinorUnits(repository.getAccount("0").getBalance())).isEqualTo(Long.MAX_VALUE);
+    assertThatThrownBy(() -> repository.deposit("0", 1)).isInstanceOf(MoneyRelatedException.class);
+    assertThat(MoneyUnits.toMinorUnits(repository.getAccount("0").getBalance())).isEqualTo(Long.MAX_VALUE);
+
+    long senderSum = 0;
+    for (int i = 1; i <= senders; i++) {
+      senderSum += MoneyUnits.toMinorUnits(repository.getAccount(Integer.toString(i)).getBalance());
+    }
+    assertThat(senderSum).isEqualTo(senders * 10_000L - 1_000);
+
+    // no single slot takes more than an eighth of the limit, this credit is spread over all
+    repository.createAccount(new Account("9", BigDecimal.ZERO));
+    assertThat(repository.isHot("9")).isTrue();
+    assertThat(MoneyUnits.toMinorUnits(repository.deposit("9", Long.MAX_VALUE).getBalance())).isEqualTo(Long.MAX_VALUE);
+    assertThatThrownBy(() -> repository.deposit("9", 1)).isInstanceOf(MoneyRelatedException.class);
+    assertThat(MoneyUnits.toMinorUnits(repository.withdraw("9", 1_000).getBalance())).isEqualTo(Long.MAX_VALUE - 1_000);
+    assertThatThrownBy(() -> repository.deposit("9", 1_001)).isInstanceOf(MoneyRelatedException.class);
+    assertThat(MoneyUnits.toMinorUnits(repository.getAccount("9").getBalance())).isEqualTo(Long.MAX_VALUE - 1_000);
+  }
+
+  @Test
+  void contendedAccountsKeepEveryCentWhileBeingPromoted() throws Exception {
+    LockFreeAccountsRepository repository = new LockFreeAccountsRepository(new EmailNotificationService(), 4, "", 1);
+    int accounts = 4;
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account(Integer.toString(i), new BigDecimal("1000")));
+    }
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 20_000; i++) {
+            int from = random.nextInt(accounts);
+            int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+            try {
+              repository.transferMoney(Integer.toString(from), Integer.toString(to), 1 + random.nextInt(500));
+            } catch (MoneyRelatedException ex) {
+              // not enough money left, nothing moved
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    long sum = 0;
+    for (Account account : repository.listAllAccounts()) {
+      assertThat(account.getBalance()).isNotNegative();
+      sum += account.getBalance().movePointRight(2).longValueExact();
+    }
+    assertThat(sum).isEqualTo(accounts * 100_000L);
+    assertThat(repository.totalBalance()).isEqualTo(accounts * 100_000L);
+  }
+}
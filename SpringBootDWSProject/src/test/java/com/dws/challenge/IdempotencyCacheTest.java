@@ -0,0 +1,160 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.IdempotentOutcome;
+import com.dws.challenge.exception.IdempotencyException;
+import com.dws.challenge.journal.AccountJournal;
+import com.dws.challenge.journal.FsyncPolicy;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.JournaledAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+import com.dws.challenge.service.IdempotencyCache;
+import com.dws.challenge.service.IdempotencyCache.EvictionPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IdempotencyCacheTest {
+
+  @TempDir
+  Path journalDir;
+
+  @Test
+  void retriesGetTheFirstOutcomeWithoutBeingApplied() throws Exception {
+    AccountsRepository repository = inMemory();
+    repository.createAccount(new Account("1", new BigDecimal("10.00")));
+    IdempotencyCache cache = new IdempotencyCache(new SimpleMeterRegistry(), 100, 60, EvictionPolicy.EVICT_OLDEST);
+
+    IdempotentOutcome first = cache.execute("k1", "withdraw 1 8", "done", () -> repository.withdraw("1", 800));
+    IdempotentOutcome retry = cache.execute("k1", "withdraw 1 8", "done", () -> repository.withdraw("1", 800));
+    IdempotentOutcome rejected = cache.execute("k2", "withdraw 1 8", "done", () -> repository.withdraw("1", 800));
+    repository.deposit("1", 10_000);
+    IdempotentOutcome rejectedRetry = cache.execute("k2", "withdraw 1 8", "done", () -> repository.withdraw("1", 800));
+
+    assertThat(first.getStatus()).isEqualTo(200);
+    assertThat(retry).isSameAs(first);
+    assertThat(rejected.getStatus()).isEqualTo(400);
+    assertThat(rejectedRetry).isSameAs(rejected);
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("102.00");
+    assertThatThrownBy(() -> cache.execute("k1", "withdraw 1 9", "done", () -> repository.withdraw("1", 900)))
+        .isInstanceOf(IdempotencyException.class);
+  }
+
+  @Test
+  void concurrentDuplicatesAreAppliedOnce() throws Exception {
+    AccountsRepository repository = inMemory();
+    repository.createAccount(new Account("1", BigDecimal.ZERO));
+    IdempotencyCache cache = new IdempotencyCache(new SimpleMeterRegistry(), 100, 60, EvictionPolicy.EVICT_OLDEST);
+    AtomicInteger applied = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<IdempotentOutcome>> outcomes = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        outcomes.add(executor.submit(() -> {
+          start.await();
+          return cache.execute("k", "deposit 1 1", "done", () -> {
+            applied.incrementAndGet();
+            Thread.sleep(50);
+            repository.deposit("1", 100);
+          });
+        }));
+      }
+      start.countDown();
+      for (Future<IdempotentOutcome> outcome : outcomes) {
+        assertThat(outcome.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(applied).hasValue(1);
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("1.00");
+  }
+
+  @Test
+  void fullCacheEvictsOrRejects() throws Exception {
+    IdempotencyCache evicting = new IdempotencyCache(new SimpleMeterRegistry(), 2, 60, EvictionPolicy.EVICT_OLDEST);
+    IdempotencyCache rejecting = new IdempotencyCache(new SimpleMeterRegistry(), 2, 60, EvictionPolicy.REJECT);
+    AtomicInteger applied = new AtomicInteger();
+    for (String key : List.of("a", "b", "c", "a")) {
+      evicting.execute(key, "op", "done", applied::incrementAndGet);
+    }
+    rejecting.execute("a", "op", "done", () -> { });
+    rejecting.execute("b", "op", "done", () -> { });
+
+    assertThat(applied).hasValue(4);
+    assertThat(evicting.size()).isEqualTo(2);
+    assertThatThrownBy(() -> rejecting.execute("c", "op", "done", () -> { })).isInstanceOf(IdempotencyException.class);
+    assertThat(rejecting.execute("a", "op", "done", () -> { }).getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  void outcomesSurviveARestartAndSnapshots() throws Exception {
+    AccountJournal journal = journal();
+    JournaledAccountsRepository repository = open(journal);
+    IdempotencyCache cache = new IdempotencyCache(repository, new SimpleMeterRegistry(), 100, 60, EvictionPolicy.EVICT_OLDEST);
+    repository.createAccount(new Account("1", new BigDecimal("10.00")));
+    repository.createAccount(new Account("2", BigDecimal.ZERO));
+    cache.execute("t1", "transfer 1 2 5", "done", () -> repository.transferMoney("1", "2", 500));
+    cache.execute("t2", "transfer 1 2 50", "done", () -> repository.transferMoney("1", "2", 5000));
+    Path firstSegment = segments().get(0);
+    // two more snapshots over full segments let the segment with the outcomes be pruned
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < 60_000; i++) {
+        repository.deposit("2", 1);
+      }
+      repository.snapshot();
+    }
+    journal.close();
+    assertThat(segments()).doesNotContain(firstSegment);
+
+    JournaledAccountsRepository recovered = open(journal());
+    IdempotencyCache restored = new IdempotencyCache(recovered, new SimpleMeterRegistry(), 100, 60, EvictionPolicy.EVICT_OLDEST);
+    AtomicInteger applied = new AtomicInteger();
+
+    assertThat(restored.execute("t1", "transfer 1 2 5", "again", applied::incrementAndGet).getBody()).isEqualTo("done");
+    assertThat(restored.execute("t2", "transfer 1 2 50", "again", applied::incrementAndGet).getStatus()).isEqualTo(400);
+    assertThat(applied).hasValue(0);
+    assertThat(recovered.getAccount("1").getBalance()).isEqualByComparingTo("5.00");
+  }
+
+  private List<Path> segments() throws Exception {
+    try (Stream<Path> files = Files.list(journalDir)) {
+      return files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+    }
+  }
+
+  private static AccountsRepository inMemory() {
+    return new AccountsRepositoryInMemory(new AccountLockManager(8, 500), new EmailNotificationService());
+  }
+
+  private AccountJournal journal() {
+    return new AccountJournal(journalDir.toString(), 1, FsyncPolicy.INTERVAL, 10, 1000);
+  }
+
+  private JournaledAccountsRepository open(AccountJournal journal) {
+    JournaledAccountsRepository repository = new JournaledAccountsRepository(new AccountLockManager(8, 500),
+        (account, description) -> { }, journal, 0, 2);
+    repository.recover();
+    return repository;
+  }
+}
@@ -0,0 +1,223 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BatchMode;
+import com.dws.challenge.domain.Transfer;
+import com.dws.challenge.exception.JournalException;
+import com.dws.challenge.journal.AccountJournal;
+import com.dws.challenge.journal.FsyncPolicy;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.JournaledAccountsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournaledAccountsRepositoryTest {
+
+  @TempDir
+  Path journalDir;
+
+  @Test
+  void replaysJournalAfterRestart() throws Exception {
+    AccountJournal journal = journal();
+    JournaledAccountsRepository repository = open(journal);
+    repository.createAccount(new Account("1", new BigDecimal("100.00")));
+    repository.createAccount(new Account("2", new BigDecimal("50.00")));
+    repository.deposit("1", 1050);
+    repository.withdraw("2", 500);
+    repository.transferMoney("1", "2", 2000);
+    repository.transferBatch(List.of(new Transfer("2", "1", 100), new Transfer("1", "2", 100000)), BatchMode.ALL_OR_NOTHING);
+    repository.transferBatch(List.of(new Transfer("2", "1", 100), new Transfer("1", "2", 300)), BatchMode.ALL_OR_NOTHING);
+    journal.close();
+
+    JournaledAccountsRepository recovered = open(journal());
+
+    assertThat(recovered.getAccount("1").getBalance()).isEqualByComparingTo("88.50");
+    assertThat(recovered.getAccount("2").getBalance()).isEqualByComparingTo("67.00");
+  }
+
+  @Test
+  void rollsSegmentsAndReplaysAllOfThem() throws Exception {
+    AccountJournal journal = journal();
+    JournaledAccountsRepository repository = open(journal);
+    repository.createAccount(new Account("1", BigDecimal.ZERO));
+    for (int i = 0; i < 60_000; i++) {
+      repository.deposit("1", 1);
+    }
+    journal.close();
+
+    try (Stream<Path> segments = Files.list(journalDir)) {
+      assertThat(segments.count()).isGreaterThan(1);
+    }
+    assertThat(open(journal()).getAccount("1").getBalance()).isEqualByComparingTo("600");
+  }
+
+  @Test
+  void refusesToSkipACorruptRecordBeforeTheLastSegment() throws Exception {
+    AccountJournal journal = journal();
+    JournaledAccountsRepository repository = open(journal);
+    repository.createAccount(new Account("1", BigDecimal.ZERO));
+    for (int i = 0; i < 60_000; i++) {
+      repository.deposit("1", 1);
+    }
+    journal.close();
+
+    Path first;
+    try (Stream<Path> segments = Files.list(journalDir)) {
+      first = segments.filter(path -> path.toString().endsWith(".log")).sorted().findFirst().orElseThrow();
+    }
+    // a byte of the second record's body, its checksum no longer matches
+    try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(4);
+      channel.read(header, 8);
+      channel.write(ByteBuffer.wrap(new byte[] { 0x7f }), 8 + 8 + header.getInt(0) + 8 + 2);
+    }
+
+    assertThatThrownBy(() -> open(journal())).isInstanceOf(JournalException.class).hasMessageContaining("is corrupt");
+  }
+
+  @Test
+  void ignoresTornTail() throws Exception {
+    AccountJournal journal = journal();
+    JournaledAccountsRepository repository = open(journal);
+    repository.createAccount(new Account("1", BigDecimal.ZERO));
+    repository.deposit("1", 100);
+    journal.close();
+
+    Path segment;
+    try (Stream<Path> segments = Files.list(journalDir)) {
+      segment = segments.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+    }
+    long end = 8;
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(4);
+      while (true) {
+        header.clear();
+        channel.read(header, end);
+        int length = header.getInt(0);
+        if (length == 0) {
+          break;
+        }
+        end += 8 + length;
+      }
+      channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, 1, 2, 3, 4, 5 }), end);
+    }
+
+    AccountJournal reopened = journal();
+    JournaledAccountsRepository recovered = open(reopened);
+    assertThat(recovered.getAccount("1").getBalance()).isEqualByComparingTo("1");
+    recovered.deposit("1", 100);
+    reopened.close();
+    assertThat(open(journal()).getAccount("1").getBalance()).isEqualByComparingTo("2");
+  }
+
+  @Test
+  void recoversFromSnapshotAndJournalTail() throws Exception {
+    AccountJournal journal = journal();
+    JournaledAccountsRepository repository = open(journal);
+    repository.createAccount(new Account("1", BigDecimal.ZERO));
+    repository.createAccount(new Account("2", new BigDecimal("10")));
+    for (int i = 0; i < 60_000; i++) {
+      repository.deposit("1", 1);
+    }
+    assertThat(repository.snapshot()).exists();
+    repository.transferMoney("1", "2", 500);
+    repository.createAccount(new Account("3", new BigDecimal("1")));
+    journal.close();
+
+    try (Stream<Path> segments = Files.list(journalDir)) {
+      assertThat(segments.filter(path -> path.toString().endsWith(".log")).count()).isEqualTo(1);
+    }
+    AccountJournal reopened = journal();
+    JournaledAccountsRepository recovered = open(reopened);
+    assertThat(recovered.getAccount("1").getBalance()).isEqualByComparingTo("595");
+    assertThat(recovered.getAccount("2").getBalance()).isEqualByComparingTo("15");
+    assertThat(recovered.getAccount("3").getBalance()).isEqualByComparingTo("1");
+    assertThat(recovered.topByBalance(3)).extracting(Account::getAccountId).containsExactly("1", "2", "3");
+    recovered.deposit("3", 100);
+    reopened.close();
+    assertThat(open(journal()).getAccount("3").getBalance()).isEqualByComparingTo("2");
+  }
+
+  @Test
+  void snapshotTakenUnderLoadRecoversExactly() throws Exception {
+    AccountJournal journal = journal();
+    JournaledAccountsRepository repository = open(journal);
+    for (int i = 0; i < 100; i++) {
+      repository.createAccount(new Account(String.valueOf(i), new BigDecimal("1000")));
+    }
+    AtomicBoolean running = new AtomicBoolean(true);
+    Thread writer = new Thread(() -> {
+      int i = 0;
+      while (running.get()) {
+        try {
+          repository.transferMoney(String.valueOf(i % 100), String.valueOf((i * 7 + 1) % 100), 1);
+          repository.transferBatch(List.of(new Transfer(String.valueOf(i % 50), String.valueOf(50 + i % 50), 2),
+              new Transfer(String.valueOf(50 + i % 50), String.valueOf(i % 50), 1)), BatchMode.ALL_OR_NOTHING);
+        } catch (Exception ex) {
+          // same account or insufficient funds, the journal only holds what succeeded
+        }
+        i++;
+      }
+    });
+    writer.start();
+    for (int i = 0; i < 5; i++) {
+      Thread.sleep(20);
+      repository.snapshot();
+    }
+    running.set(false);
+    writer.join();
+    Map<String, BigDecimal> expected = new HashMap<>();
+    repository.listAllAccounts().forEach(account -> expected.put(account.getAccountId(), account.getBalance()));
+    journal.close();
+
+    JournaledAccountsRepository recovered = open(journal());
+    assertThat(recovered.listAllAccounts()).hasSize(100);
+    recovered.listAllAccounts().forEach(account ->
+        assertThat(account.getBalance()).isEqualByComparingTo(expected.get(account.getAccountId())));
+  }
+
+  @Test
+  void fallsBackToOlderSnapshotWhenNewestIsCorrupt() throws Exception {
+    AccountJournal journal = journal();
+    JournaledAccountsRepository repository = open(journal);
+    repository.createAccount(new Account("1", BigDecimal.ZERO));
+    repository.deposit("1", 100);
+    repository.snapshot();
+    repository.deposit("1", 100);
+    Path newest = repository.snapshot();
+    repository.deposit("1", 100);
+    journal.close();
+
+    try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), 40);
+    }
+
+    assertThat(open(journal()).getAccount("1").getBalance()).isEqualByComparingTo("3");
+  }
+
+  private AccountJournal journal() {
+    return new AccountJournal(journalDir.toString(), 1, FsyncPolicy.EVERY_WRITE, 10, 1000);
+  }
+
+  private JournaledAccountsRepository open(AccountJournal journal) {
+    JournaledAccountsRepository repository = new JournaledAccountsRepository(new AccountLockManager(8, 500),
+        (account, description) -> { }, journal, 0, 2);
+    repository.recover();
+    return repository;
+  }
+}
@@ -0,0 +1,169 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.Test;
+
+class LockFreeAccountsRepositoryTest {
+
+  private final LockFreeAccountsRepository repository = new LockFreeAccountsRepository(new EmailNotificationService());
+
+  @Test
+  void transferThatWouldOverflowTheTargetMovesNothing() throws Exception {
+    repository.createAccount(new Account("1", new BigDecimal("10")));
+    repository.createAccount(new Account("2", MoneyUnits.toBigDecimal(Long.MAX_VALUE)));
+
+    assertThatThrownBy(() -> repository.transferMoney("1", "2", 100)).isInstanceOf(MoneyRelatedException.class)
+        .hasMessage("Account Balance would overflow...!!!");
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("10");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("92233720368547758.07");
+    assertThatThrownBy(() -> repository.deposit("2", 1)).isInstanceOf(MoneyRelatedException.class);
+  }
+
+  @Test
+  void concurrentTransfersIntoAnAlmostFullAccountLoseNoMoney() throws Exception {
+    int senders = 8;
+    for (int i = 0; i < senders; i++) {
+      repository.createAccount(new Account(Integer.toString(i), new BigDecimal("1000")));
+    }
+    // room for 1000 transfers of one cent, the senders try eight times as many
+    long start = Long.MAX_VALUE - 1_000;
+    repository.createAccount(new Account("100", MoneyUnits.toBigDecimal(start)));
+
+    ExecutorService executor = Executors.newFixedThreadPool(senders);
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < senders; t++) {
+        String from = Integer.toString(t);
+        futures.add(executor.submit(() -> {
+          int moved = 0;
+          for (int i = 0; i < 1_000; i++) {
+            try {
+              repository.transferMoney(from, "100", 1);
+              moved++;
+            } catch (MoneyRelatedException ex) {
+              // the target is full, nothing moved
+            }
+          }
+          return moved;
+        }));
+      }
+      int moved = 0;
+      for (Future<Integer> future : futures) {
+        moved += future.get();
+      }
+      assertThat(moved).isEqualTo(1_000);
+    } finally {
+      executor.shutdown();
+    }
+
+    long senderSum = 0;
+    for (int i = 0; i < senders; i++) {
+      senderSum += MoneyUnits.toMinorUnits(repository.getAccount(Integer.toString(i)).getBalance());
+    }
+    assertThat(senderSum).isEqualTo(senders * 100_000L - 1_000);
+    assertThat(MoneyUnits.toMinorUnits(repository.getAccount("100").getBalance())).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  void concurrentTransfersKeepTheTotal() throws Exception {
+    int accounts = 16;
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account(Integer.toString(i), new BigDecimal("100")));
+    }
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 50_000; i++) {
+            int from = random.nextInt(accounts);
+            int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+            try {
+              repository.transferMoney(Integer.toString(from), Integer.toString(to), 1 + random.nextInt(2_000));
+            } catch (MoneyRelatedException ex) {
+              // not enough money left, nothing moved
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    long sum = 0;
+    for (Account account : repository.listAllAccounts()) {
+      assertThat(account.getBalance()).isNotNegative();
+      sum += MoneyUnits.toMinorUnits(account.getBalance());
+    }
+    assertThat(sum).isEqualTo(accounts * 10_000L);
+    assertThat(repository.totalBalance()).isEqualTo(accounts * 10_000L);
+  }
+
+  @Test
+  void readersNeverSeeMoneyInFlight() throws Exception {
+    repository.createAccount(new Account("1", new BigDecimal("1000")));
+    repository.createAccount(new Account("2", BigDecimal.ZERO));
+    AtomicBoolean transferring = new AtomicBoolean(true);
+
+    // money only moves from 1 to 2, so whatever 1 had when it was read is in 1 or 2 after
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> transfers = new ArrayList<>();
+      for (int t = 0; t < 2; t++) {
+        transfers.add(executor.submit(() -> {
+          for (int i = 0; i < 50_000; i++) {
+            repository.transferMoney("1", "2", 1);
+          }
+          return null;
+        }));
+      }
+      List<Future<?>> readers = new ArrayList<>();
+      for (int r = 0; r < 2; r++) {
+        readers.add(executor.submit(() -> {
+          while (transferring.get()) {
+            long first = MoneyUnits.toMinorUnits(repository.getAccount("1").getBalance());
+            long second = MoneyUnits.toMinorUnits(repository.getAccount("2").getBalance());
+            assertThat(first + second).isGreaterThanOrEqualTo(100_000);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : transfers) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+      transferring.set(false);
+      for (Future<?> future : readers) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      transferring.set(false);
+      executor.shutdownNow();
+    }
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("0");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("1000");
+  }
+}
@@ -0,0 +1,34 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.MoneyRelatedException;
+import org.junit.jupiter.api.Test;
+
+class MoneyUnitsTest {
+
+  @Test
+  void convertsToMinorUnitsAndBack() {
+    assertThat(MoneyUnits.toMinorUnits(new BigDecimal("555.45"))).isEqualTo(55545);
+    assertThat(MoneyUnits.toMinorUnits(new BigDecimal(1000))).isEqualTo(100000);
+    assertThat(MoneyUnits.toBigDecimal(55545)).isEqualTo(new BigDecimal("555.45"));
+    assertThat(MoneyUnits.toBigDecimal(100000)).isEqualTo(new BigDecimal(1000));
+    assertThat(MoneyUnits.toBigDecimal(-5)).isEqualTo(new BigDecimal("-0.05"));
+  }
+
+  @Test
+  void rejectsAmountsFinerThanMinorUnit() {
+    assertThrows(MoneyRelatedException.class, () -> MoneyUnits.toMinorUnits(new BigDecimal("0.001")));
+  }
+
+  @Test
+  void rejectsOverflow() {
+    assertThrows(MoneyRelatedException.class, () -> MoneyUnits.toMinorUnits(new BigDecimal("1E+30")));
+    assertThrows(MoneyRelatedException.class, () -> MoneyUnits.add(Long.MAX_VALUE, 1));
+    assertThrows(MoneyRelatedException.class, () -> MoneyUnits.subtract(Long.MIN_VALUE, 1));
+  }
+}
@@ -0,0 +1,173 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.OffHeapAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.Test;
+
+class OffHeapAccountsRepositoryTest {
+
+  @Test
+  void accountsAreKeptByTheirExactIds() throws Exception {
+    OffHeapAccountsRepository repository = repository(100);
+    List<String> ids = List.of("7", "007", "10", "9", "12345678901234567", "0");
+    for (String id : ids) {
+      repository.createAccount(new Account(id, new BigDecimal(id.length())));
+    }
+    repository.transferMoney("12345678901234567", "007", 1_000);
+
+    assertThat(repository.getAccount("7").getBalance()).isEqualByComparingTo("1");
+    assertThat(repository.getAccount("007").getBalance()).isEqualByComparingTo("13");
+    assertThat(repository.getAccount("12345678901234567").getBalance()).isEqualByComparingTo("7");
+    assertThat(repository.getAccount("8")).isNull();
+    assertThat(repository.getAccount("abc")).isNull();
+    assertThat(repository.listAccounts(null, 10)).extracting(Account::getAccountId)
+        .containsExactly("0", "007", "10", "12345678901234567", "7", "9");
+    assertThat(repository.listAccounts("10", 2)).extracting(Account::getAccountId)
+        .containsExactly("12345678901234567", "7");
+    assertThat(repository.countAccounts()).isEqualTo(6);
+    assertThatThrownBy(() -> repository.createAccount(new Account("007", BigDecimal.ONE)))
+        .isInstanceOf(AccountRelatedException.class);
+    assertThatThrownBy(() -> repository.createAccount(new Account("123456789012345678", BigDecimal.ONE)))
+        .isInstanceOf(AccountRelatedException.class);
+    assertThatThrownBy(() -> repository.withdraw("9", 200)).isInstanceOf(MoneyRelatedException.class);
+
+    repository.clearAccounts();
+    assertThat(repository.countAccounts()).isZero();
+    assertThat(repository.listAccounts(null, 10)).isEmpty();
+  }
+
+  @Test
+  void fullStoreRefusesNewAccounts() throws Exception {
+    OffHeapAccountsRepository repository = repository(3);
+    for (int i = 0; i < 3; i++) {
+      repository.createAccount(new Account(String.valueOf(i), BigDecimal.ONE));
+    }
+
+    assertThatThrownBy(() -> repository.createAccount(new Account("3", BigDecimal.ONE)))
+        .isInstanceOf(AccountRelatedException.class);
+    assertThat(repository.totalBalance()).isEqualTo(300);
+  }
+
+  @Test
+  void concurrentCreatesNeverExceedTheMaximum() throws Exception {
+    OffHeapAccountsRepository repository = repository(100);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> workers = new ArrayList<>();
+      for (int worker = 0; worker < 8; worker++) {
+        int first = worker * 1_000;
+        workers.add(executor.submit(() -> {
+          int created = 0;
+          for (int i = first; i < first + 1_000; i++) {
+            try {
+              repository.createAccount(new Account(String.valueOf(i), BigDecimal.ONE));
+              created++;
+            } catch (AccountRelatedException ex) {
+              // the store is full
+            }
+          }
+          return created;
+        }));
+      }
+      int created = 0;
+      for (Future<Integer> worker : workers) {
+        created += worker.get(60, TimeUnit.SECONDS);
+      }
+      assertThat(created).isEqualTo(100);
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(repository.countAccounts()).isEqualTo(100);
+    assertThat(repository.listAllAccounts()).hasSize(100);
+  }
+
+  @Test
+  void concurrentTransfersKeepTheTotal() throws Exception {
+    OffHeapAccountsRepository repository = repository(10_000);
+    for (int i = 0; i < 10_000; i++) {
+      repository.createAccount(new Account(String.valueOf(i), BigDecimal.TEN));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int worker = 0; worker < 8; worker++) {
+        workers.add(executor.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 20_000; i++) {
+            int from = random.nextInt(100);
+            int to = (from + 1 + random.nextInt(99)) % 100;
+            try {
+              repository.transferMoney(String.valueOf(from), String.valueOf(to), random.nextInt(1, 500));
+            } catch (MoneyRelatedException ex) {
+              // not enough money left
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    long sum = 0;
+    for (Account account : repository.listAllAccounts()) {
+      assertThat(account.getBalance().signum()).isNotNegative();
+      sum += account.getBalance().movePointRight(2).longValueExact();
+    }
+    assertThat(sum).isEqualTo(10_000 * 1_000L);
+    assertThat(repository.totalBalance()).isEqualTo(sum);
+  }
+
+  @Test
+  void pagesSeeAccountsCreatedBetweenThem() throws Exception {
+    OffHeapAccountsRepository repository = repository(50_000);
+    TreeSet<String> created = new TreeSet<>();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    // enough creates for several merges of the recent ids, with a page read after every few
+    for (int i = 0; i < 40_000; i++) {
+      String id = Long.toString(random.nextLong(1, 100_000_000_000L));
+      if (created.add(id)) {
+        repository.createAccount(new Account(id, BigDecimal.ONE));
+      }
+      if (i % 97 == 0) {
+        String after = created.first();
+        assertThat(repository.listAccounts(after, 20)).extracting(Account::getAccountId)
+            .containsExactlyElementsOf(created.tailSet(after, false).stream().limit(20).toList());
+      }
+    }
+
+    List<String> listed = new ArrayList<>();
+    String after = null;
+    List<Account> page;
+    while (!(page = repository.listAccounts(after, 1_000)).isEmpty()) {
+      page.forEach(account -> listed.add(account.getAccountId()));
+      after = page.get(page.size() - 1).getAccountId();
+    }
+    assertThat(listed).containsExactlyElementsOf(created);
+    assertThat(repository.listAccounts("a", 5)).isEmpty();
+  }
+
+  private static OffHeapAccountsRepository repository(int maxAccounts) {
+    return new OffHeapAccountsRepository(new AccountLockManager(16, 500), new EmailNotificationService(), maxAccounts);
+  }
+}
@@ -0,0 +1,102 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BalanceChange;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.EmailNotificationService;
+import com.dws.challenge.service.ReactiveAccountsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+class ReactiveAccountsServiceTest {
+
+  @Test
+  void listingReadsPagesOnlyOnDemand() throws Exception {
+    AtomicInteger pagesRead = new AtomicInteger();
+    AccountsService accountsService = new AccountsService(inMemory(), new SimpleMeterRegistry()) {
+      @Override
+      public List<Account> listAccounts(String after, int limit) {
+        pagesRead.incrementAndGet();
+        return super.listAccounts(after, limit);
+      }
+    };
+    for (int i = 0; i < 2500; i++) {
+      accountsService.createAccount(new Account(String.format("%05d", i), BigDecimal.ONE));
+    }
+    ReactiveAccountsService service = new ReactiveAccountsService(accountsService, 16);
+
+    List<Account> rest = new ArrayList<>();
+    StepVerifier.create(service.listAccounts(null), 0)
+        .thenRequest(1)
+        .assertNext(account -> assertThat(account.getAccountId()).isEqualTo("00000"))
+        .then(() -> assertThat(pagesRead).hasValue(1))
+        .thenRequest(Long.MAX_VALUE)
+        .thenConsumeWhile(account -> true, rest::add)
+        .verifyComplete();
+
+    assertThat(pagesRead).hasValue(3);
+    assertThat(rest).extracting(Account::getAccountId).isSorted().hasSize(2499).doesNotContain("00000");
+  }
+
+  @Test
+  void slowFeedSubscriberLosesTheOldestChanges() throws Exception {
+    AccountsService accountsService = new AccountsService(inMemory(), new SimpleMeterRegistry());
+    accountsService.createAccount(new Account("1", BigDecimal.ZERO));
+    accountsService.createAccount(new Account("2", BigDecimal.ZERO));
+    ReactiveAccountsService service = new ReactiveAccountsService(accountsService, 16);
+    BigDecimal last = new BigDecimal("10.00");
+
+    List<BalanceChange> received = new ArrayList<>();
+    StepVerifier.create(service.balanceChanges("1"), 0)
+        .then(() -> {
+          for (int i = 0; i < 1000; i++) {
+            deposit(accountsService, "1");
+            deposit(accountsService, "2");
+          }
+        })
+        .thenRequest(Long.MAX_VALUE)
+        .thenConsumeWhile(change -> change.getBalance().compareTo(last) != 0, received::add)
+        .assertNext(change -> assertThat(change.getBalance()).isEqualByComparingTo(last))
+        .thenCancel()
+        .verify(Duration.ofSeconds(10));
+
+    assertThat(received).hasSizeLessThan(16 + 32).allMatch(change -> change.getAccountId().equals("1"));
+    assertThat(received).extracting(BalanceChange::getBalance).isSorted();
+    assertThat(service.getDroppedChanges()).isGreaterThanOrEqualTo(1000 - 16 - 32);
+  }
+
+  @Test
+  void feedNeedsAStoreThatReportsChanges() {
+    AccountsService accountsService = new AccountsService(new LockFreeAccountsRepository(new EmailNotificationService()),
+        new SimpleMeterRegistry());
+    ReactiveAccountsService service = new ReactiveAccountsService(accountsService, 16);
+
+    StepVerifier.create(service.balanceChanges(null)).expectError(AccountRelatedException.class).verify();
+  }
+
+  private static void deposit(AccountsService accountsService, String accountId) {
+    try {
+      accountsService.deposit(accountId, 1);
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static AccountsRepository inMemory() {
+    return new AccountsRepositoryInMemory(new AccountLockManager(8, 500), new EmailNotificationService());
+  }
+}
@@ -0,0 +1,95 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.replication.ReplicationFollower;
+import com.dws.challenge.replication.ReplicationPrimary;
+import com.dws.challenge.service.AccountsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+class ReplicationTest {
+
+  @Test
+  void followerLoadsASnapshotThenStreamsChangesAndStaysReadOnly() throws Exception {
+    int replicationPort = freePort();
+    try (ConfigurableApplicationContext primary = start("--server.port=" + freePort(),
+        "--accounts.replication.port=" + replicationPort, "--accounts.replication.batch-size=16")) {
+      AccountsService primaryAccounts = primary.getBean(AccountsService.class);
+      ReplicationPrimary replicationPrimary = primary.getBean(ReplicationPrimary.class);
+      for (int i = 0; i < 100; i++) {
+        primaryAccounts.createAccount(new Account(Integer.toString(i), new BigDecimal("100.25")));
+      }
+
+      try (ConfigurableApplicationContext follower = start("--server.port=" + freePort(), "--accounts.store=replica",
+          "--accounts.replication.primary=localhost:" + replicationPort)) {
+        AccountsService followerAccounts = follower.getBean(AccountsService.class);
+        ReplicationFollower replicationFollower = follower.getBean(ReplicationFollower.class);
+        awaitTrue(() -> replicationFollower.isConnected()
+            && replicationFollower.getAppliedLsn() == replicationPrimary.getLastLsn());
+        assertThat(sorted(followerAccounts.getAccountsRepository().listAllAccounts()))
+            .isEqualTo(sorted(primaryAccounts.getAccountsRepository().listAllAccounts()));
+
+        for (int i = 0; i < 500; i++) {
+          primaryAccounts.transferMoney(Integer.toString(i % 100), Integer.toString((i * 7 + 1) % 100),
+              new BigDecimal("0.50"));
+        }
+        primaryAccounts.deposit("3", new BigDecimal("10"));
+        primaryAccounts.withdraw("4", new BigDecimal("10"));
+        primaryAccounts.createAccount(new Account("1000", new BigDecimal("1")));
+
+        awaitTrue(() -> replicationFollower.getAppliedLsn() == replicationPrimary.getLastLsn());
+        assertThat(replicationFollower.getLag()).isZero();
+        assertThat(replicationPrimary.getFollowerCount()).isEqualTo(1);
+        awaitTrue(() -> replicationPrimary.getMaxFollowerLag() == 0);
+        assertThat(sorted(followerAccounts.getAccountsRepository().listAllAccounts()))
+            .isEqualTo(sorted(primaryAccounts.getAccountsRepository().listAllAccounts()));
+        assertThat(followerAccounts.getAccountsRepository().totalBalance())
+            .isEqualTo(primaryAccounts.getAccountsRepository().totalBalance());
+        assertThat(followerAccounts.getAccount("1000").getBalance()).isEqualByComparingTo("1");
+
+        assertThatThrownBy(() -> followerAccounts.createAccount(new Account("1001", BigDecimal.ONE)))
+            .isInstanceOf(AccountRelatedException.class).hasMessageContaining("read-only replica");
+        assertThatThrownBy(() -> followerAccounts.deposit("3", BigDecimal.ONE))
+            .isInstanceOf(AccountRelatedException.class);
+      }
+    }
+  }
+
+  private ConfigurableApplicationContext start(String... args) {
+    String[] all = new String[args.length + 1];
+    System.arraycopy(args, 0, all, 0, args.length);
+    all[args.length] = "--spring.jmx.enabled=false";
+    return new SpringApplicationBuilder(SpringBootDwsProjectApplication.class).run(all);
+  }
+
+  private static List<String> sorted(List<Account> accounts) {
+    return accounts.stream().sorted(Comparator.comparing(Account::getAccountId))
+        .map(account -> account.getAccountId() + "=" + account.getBalance()).toList();
+  }
+
+  private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 20_000;
+    while (!condition.getAsBoolean()) {
+      assertThat(System.currentTimeMillis()).as("replication did not catch up").isLessThan(deadline);
+      Thread.sleep(20);
+    }
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
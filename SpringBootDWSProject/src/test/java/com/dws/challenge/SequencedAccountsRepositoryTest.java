@@ -0,0 +1,117 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.MoneyUnits;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.repository.SequencedAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SequencedAccountsRepositoryTest {
+
+  // a small ring, so the callers below keep wrapping around it
+  private final SequencedAccountsRepository repository = new SequencedAccountsRepository(new EmailNotificationService(), 8);
+
+  @AfterEach
+  void closeSequencer() {
+    repository.close();
+  }
+
+  @Test
+  void commandsAreAppliedInSequenceAndRefusalsChangeNothing() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      repository.createAccount(new Account(String.valueOf(i), BigDecimal.TEN));
+    }
+
+    repository.transferMoney("1", "2", 250);
+    assertThat(repository.deposit("4", 5).getBalance()).isEqualByComparingTo("10.05");
+    assertThat(repository.withdraw("5", 1000).getBalance()).isEqualByComparingTo("0");
+    assertThatThrownBy(() -> repository.createAccount(new Account("7", BigDecimal.ONE)))
+        .isInstanceOf(AccountRelatedException.class).hasMessageContaining("already exists");
+    assertThatThrownBy(() -> repository.transferMoney("1", "10", 1))
+        .isInstanceOf(AccountRelatedException.class).hasMessageContaining("Account id 10 does not exist");
+    assertThatThrownBy(() -> repository.transferMoney("11", "1", 1))
+        .isInstanceOf(AccountRelatedException.class).hasMessageContaining("Account id 11 does not exist");
+    assertThatThrownBy(() -> repository.withdraw("6", 1001)).isInstanceOf(MoneyRelatedException.class);
+    assertThatThrownBy(() -> repository.deposit("6", Long.MAX_VALUE)).isInstanceOf(MoneyRelatedException.class);
+
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("7.50");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("12.50");
+    assertThat(repository.totalBalance()).isEqualTo(10 * 1_000L + 5 - 1_000);
+    assertThat(repository.listAccounts("7", 5)).extracting(Account::getAccountId).containsExactly("8", "9");
+    assertThat(repository.getSequence()).isEqualTo(18);
+
+    repository.clearAccounts();
+    assertThat(repository.countAccounts()).isZero();
+    assertThat(repository.totalBalance()).isZero();
+  }
+
+  @Test
+  void totalThatWouldOverflowRefusesTheChange() throws Exception {
+    repository.createAccount(new Account("1", MoneyUnits.toBigDecimal(Long.MAX_VALUE - 1)));
+    repository.createAccount(new Account("2", BigDecimal.ZERO));
+
+    assertThatThrownBy(() -> repository.createAccount(new Account("3", BigDecimal.ONE)))
+        .isInstanceOf(MoneyRelatedException.class).hasMessage("Account Balance would overflow...!!!");
+    assertThatThrownBy(() -> repository.deposit("2", 2)).isInstanceOf(MoneyRelatedException.class);
+    assertThat(repository.deposit("2", 1).getBalance()).isEqualByComparingTo("0.01");
+
+    assertThat(repository.getAccount("3")).isNull();
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("0.01");
+    assertThat(repository.totalBalance()).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  void concurrentCallersKeepTheTotal() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      repository.createAccount(new Account(String.valueOf(i), BigDecimal.TEN));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int worker = 0; worker < 8; worker++) {
+        workers.add(executor.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 5_000; i++) {
+            int from = random.nextInt(100);
+            int to = (from + 1 + random.nextInt(99)) % 100;
+            try {
+              repository.transferMoney(String.valueOf(from), String.valueOf(to), random.nextInt(1, 500));
+            } catch (MoneyRelatedException ex) {
+              // not enough money left
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    long sum = 0;
+    for (Account account : repository.listAllAccounts()) {
+      assertThat(account.getBalance().signum()).isNotNegative();
+      sum += account.getBalance().movePointRight(2).longValueExact();
+    }
+    assertThat(sum).isEqualTo(100 * 1_000L);
+    assertThat(repository.totalBalance()).isEqualTo(sum);
+    assertThat(repository.getSequence()).isEqualTo(100 + 8 * 5_000);
+  }
+}
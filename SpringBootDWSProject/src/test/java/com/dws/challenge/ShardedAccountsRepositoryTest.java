@@ -0,0 +1,162 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.repository.ShardedAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ShardedAccountsRepositoryTest {
+
+  private final ShardedAccountsRepository repository = new ShardedAccountsRepository(new EmailNotificationService(), 4);
+
+  @AfterEach
+  void closeShards() {
+    repository.close();
+  }
+
+  @Test
+  void accountsAreSpreadOverTheShards() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      repository.createAccount(new Account(String.valueOf(i), BigDecimal.TEN));
+    }
+    repository.createAccount(new Account("1-1", BigDecimal.ONE));
+
+    repository.transferMoney("1", "2", 250);
+    repository.transferMoney("1-1", "3", 100);
+    assertThat(repository.deposit("4", 5).getBalance()).isEqualByComparingTo("10.05");
+    assertThat(repository.withdraw("5", 1000).getBalance()).isEqualByComparingTo("0");
+
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("7.50");
+    assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("12.50");
+    assertThat(repository.getAccount("1-1").getBalance()).isEqualByComparingTo("0");
+    assertThat(repository.getAccount("3").getBalance()).isEqualByComparingTo("11");
+    assertThat(repository.getAccount("100")).isNull();
+    assertThat(repository.countAccounts()).isEqualTo(101);
+    assertThat(repository.totalBalance()).isEqualTo(100 * 1_000L + 100 + 5 - 1_000);
+    assertThat(repository.listAccounts("98", 5)).extracting(Account::getAccountId).containsExactly("99");
+    assertThatThrownBy(() -> repository.createAccount(new Account("7", BigDecimal.ONE)))
+        .isInstanceOf(AccountRelatedException.class);
+    assertThatThrownBy(() -> repository.withdraw("6", 1001)).isInstanceOf(MoneyRelatedException.class);
+    assertThatThrownBy(() -> repository.deposit("100", 1)).isInstanceOf(AccountRelatedException.class);
+
+    repository.clearAccounts();
+    assertThat(repository.countAccounts()).isZero();
+    assertThat(repository.totalBalance()).isZero();
+    assertThat(repository.listAllAccounts()).isEmpty();
+  }
+
+  @Test
+  void abortedTransferGivesTheReservedMoneyBack() throws Exception {
+    repository.createAccount(new Account("1", BigDecimal.TEN));
+
+    for (int i = 2; i < 50; i++) {
+      String missing = String.valueOf(i);
+      assertThatThrownBy(() -> repository.transferMoney("1", missing, 100))
+          .isInstanceOf(AccountRelatedException.class);
+    }
+    assertThatThrownBy(() -> repository.transferMoney("1", "2", 1001)).isInstanceOf(MoneyRelatedException.class);
+
+    assertThat(repository.getAccount("1").getBalance()).isEqualByComparingTo("10");
+    assertThat(repository.totalBalance()).isEqualTo(1_000);
+  }
+
+  @Test
+  void concurrentTransfersKeepTheTotal() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      repository.createAccount(new Account(String.valueOf(i), BigDecimal.TEN));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int worker = 0; worker < 8; worker++) {
+        workers.add(executor.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 5_000; i++) {
+            int from = random.nextInt(100);
+            int to = (from + 1 + random.nextInt(99)) % 100;
+            try {
+              repository.transferMoney(String.valueOf(from), String.valueOf(to), random.nextInt(1, 500));
+            } catch (MoneyRelatedException ex) {
+              // not enough money left
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    long sum = 0;
+    for (Account account : repository.listAllAccounts()) {
+      assertThat(account.getBalance().signum()).isNotNegative();
+      sum += account.getBalance().movePointRight(2).longValueExact();
+    }
+    assertThat(sum).isEqualTo(100 * 1_000L);
+    assertThat(repository.totalBalance()).isEqualTo(sum);
+  }
+
+  @Test
+  void closingAnswersAcceptedTransfersAndRefusesNewOnes() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      repository.createAccount(new Account(String.valueOf(i), BigDecimal.TEN));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> workers = new ArrayList<>();
+      for (int worker = 0; worker < 8; worker++) {
+        workers.add(executor.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          int refused = 0;
+          for (int i = 0; i < 100_000 && refused == 0; i++) {
+            int from = random.nextInt(100);
+            int to = (from + 1 + random.nextInt(99)) % 100;
+            try {
+              repository.transferMoney(String.valueOf(from), String.valueOf(to), random.nextInt(1, 500));
+            } catch (MoneyRelatedException ex) {
+              // not enough money left
+            } catch (AccountRelatedException ex) {
+              assertThat(ex).hasMessage("The account store is closing...!!!");
+              refused++;
+            }
+          }
+          return refused;
+        }));
+      }
+      Thread.sleep(100);
+      repository.close();
+      for (Future<Integer> worker : workers) {
+        assertThat(worker.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    long sum = 0;
+    for (Account account : repository.listAllAccounts()) {
+      sum += account.getBalance().movePointRight(2).longValueExact();
+    }
+    assertThat(sum).isEqualTo(100 * 1_000L);
+    assertThat(repository.totalBalance()).isEqualTo(sum);
+    assertThatThrownBy(() -> repository.deposit("1", 1)).isInstanceOf(AccountRelatedException.class)
+        .hasMessage("The account store is closing...!!!");
+  }
+}
@@ -0,0 +1,130 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.dws.challenge.cluster.ClusterRouter;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.exception.MoneyRelatedException;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.EmailNotificationService;
+import com.dws.challenge.wire.WireClient;
+import com.dws.challenge.wire.WireProtocol;
+import com.dws.challenge.wire.WireServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WireProtocolTest {
+
+  private AccountsRepositoryInMemory repository;
+
+  private WireServer server;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    repository = new AccountsRepositoryInMemory(new AccountLockManager(8, 500, registry), new EmailNotificationService());
+    // port 0 binds any free port, the smallest buffers make the server stall on a long pipeline
+    server = new WireServer(new AccountsService(repository, registry), new ClusterRouter("", "http://localhost:1", 16, 100),
+        registry, 0, 2, 0, false);
+  }
+
+  @AfterEach
+  void stopServer() throws Exception {
+    server.close();
+  }
+
+  @Test
+  void servesTheAccountOperations() throws Exception {
+    try (WireClient client = new WireClient("localhost", server.getPort())) {
+      client.ping();
+      assertThat(client.createAccount("1", 10_000)).isEqualTo(10_000);
+      assertThat(client.createAccount("2", 0)).isZero();
+      assertThat(client.deposit("2", 550)).isEqualTo(550);
+      assertThat(client.withdraw("1", 1_000)).isEqualTo(9_000);
+      client.transfer("1", "2", 2_500);
+      assertThat(client.getBalance("1")).isEqualTo(6_500);
+      assertThat(client.getBalance("2")).isEqualTo(3_050);
+      assertThat(repository.getAccount("2").getBalance()).isEqualByComparingTo("30.50");
+
+      assertThatThrownBy(() -> client.getBalance("3")).isInstanceOf(AccountRelatedException.class)
+          .hasMessage("Account id 3 does not exist!");
+      assertThatThrownBy(() -> client.createAccount("1", 1)).isInstanceOf(AccountRelatedException.class)
+          .hasMessageContaining("already exists");
+      assertThatThrownBy(() -> client.createAccount("a1", 1)).isInstanceOf(AccountRelatedException.class);
+      assertThatThrownBy(() -> client.createAccount("4", -1)).isInstanceOf(MoneyRelatedException.class);
+      assertThatThrownBy(() -> client.withdraw("2", 1_000_000)).isInstanceOf(MoneyRelatedException.class);
+      assertThatThrownBy(() -> client.transfer("2", "9", 1)).isInstanceOf(AccountRelatedException.class);
+
+      // an unknown operation is answered, the connection stays usable
+      long correlationId = client.send((byte) 42, "1", null, 0);
+      client.flush();
+      WireClient.Response response = client.receive();
+      assertThat(response.getCorrelationId()).isEqualTo(correlationId);
+      assertThat(response.getStatus()).isEqualTo(WireProtocol.BAD_REQUEST);
+      assertThat(client.getBalance("1")).isEqualTo(6_500);
+    }
+  }
+
+  @Test
+  void pipelinedRequestsAreAllAnswered() throws Exception {
+    repository.createAccount(new Account("1", BigDecimal.ZERO));
+    int requests = 100_000;
+    int window = 2_000;
+    try (WireClient client = new WireClient("localhost", server.getPort(), 4096)) {
+      Set<Long> answered = new HashSet<>();
+      for (int sent = 0; sent < requests; sent += window) {
+        for (int i = 0; i < window; i++) {
+          client.send(WireProtocol.DEPOSIT, "1", null, 1);
+        }
+        client.flush();
+        for (int i = 0; i < window; i++) {
+          WireClient.Response response = client.receive();
+          assertThat(response.getStatus()).isEqualTo(WireProtocol.OK);
+          answered.add(response.getCorrelationId());
+        }
+      }
+      assertThat(answered).hasSize(requests);
+      assertThat(client.getBalance("1")).isEqualTo(requests);
+    }
+  }
+
+  @Test
+  void brokenFramesCloseTheConnection() throws Exception {
+    try (Socket socket = new Socket("localhost", server.getPort())) {
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeInt(Integer.MAX_VALUE);
+      out.flush();
+      assertThat(socket.getInputStream().read()).isEqualTo(-1);
+    }
+    try (WireClient client = new WireClient("localhost", server.getPort())) {
+      client.ping();
+    }
+  }
+
+  @Test
+  void closingTheServerClosesItsConnections() throws Exception {
+    WireClient client = new WireClient("localhost", server.getPort());
+    client.ping();
+    server.close();
+    assertThatThrownBy(() -> {
+      for (int i = 0; i < 100; i++) {
+        client.ping();
+        Thread.sleep(10);
+      }
+    }).isInstanceOf(IOException.class);
+    client.close();
+  }
+}
@@ -0,0 +1,40 @@
+package com.dws.challenge.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark Maven profile. Runs the selected benchmarks, by default
+ * {@link AccountOperationsBenchmark}, once per thread count with the gc profiler and writes
+ * the results of each run to threads-N.json in the output directory.
+ *
+ * System properties: jmh.threads (comma separated, default 1,4,16) and jmh.output (default
+ * target/jmh). The arguments are regular JMH command line options, e.g. -p accounts=1000.
+ */
+public class AccountBenchmarkSuite {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		Path output = Path.of(System.getProperty("jmh.output", "target/jmh"));
+		Files.createDirectories(output);
+
+		for (String threads : System.getProperty("jmh.threads", "1,4,16").split(",")) {
+			OptionsBuilder options = new OptionsBuilder();
+			options.parent(commandLine);
+			if (commandLine.getIncludes().isEmpty()) {
+				options.include(AccountOperationsBenchmark.class.getName());
+			}
+			options.threads(Integer.parseInt(threads.trim()))
+					.addProfiler(GCProfiler.class)
+					.resultFormat(ResultFormatType.JSON)
+					.result(output.resolve("threads-" + threads.trim() + ".json").toString());
+			new Runner(options.build()).run();
+		}
+	}
+}
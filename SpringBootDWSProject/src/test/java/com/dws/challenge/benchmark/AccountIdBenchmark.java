@@ -0,0 +1,90 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountIds;
+import com.dws.challenge.exception.AccountRelatedException;
+import com.dws.challenge.repository.AccountsRepository;
+
+/**
+ * Cost of account ids on the request path. Unlike {@link AccountOperationsBenchmark}, whose
+ * ids are the same String instances every time, every call here builds a new String, the
+ * way ids arrive from a request path, so its hash is not cached yet. Also compares the
+ * validation against the stream based one it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountIdBenchmark {
+
+	@Param({ "in-memory", "lock-free" })
+	public String store;
+
+	@Param({ "1000", "1000000" })
+	public int accounts;
+
+	private AccountsRepository repository;
+
+	private char[][] accountIds;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		repository = AccountOperationsBenchmark.newRepository(store);
+		accountIds = new char[accounts][];
+		for (int i = 0; i < accounts; i++) {
+			String accountId = Integer.toString(100_000_000 + i);
+			accountIds[i] = accountId.toCharArray();
+			repository.createAccount(new Account(accountId, BigDecimal.TEN));
+		}
+	}
+
+	@Benchmark
+	public Account getAccount() {
+		return repository.getAccount(nextId());
+	}
+
+	@Benchmark
+	public String validate() {
+		String accountId = nextId();
+		AccountIds.validate(accountId);
+		return accountId;
+	}
+
+	@Benchmark
+	public String validateWithStream() {
+		String accountId = nextId();
+		if (accountId.isEmpty()) {
+			throw new AccountRelatedException("Account Id does not exists..!!!");
+		}
+		String alphabetic = accountId.chars().filter(Character::isAlphabetic).mapToObj(Character::toString)
+				.collect(Collectors.joining());
+		if (!alphabetic.isBlank()) {
+			throw new AccountRelatedException("Account Number should not contains Alphabetic chars..!!!");
+		}
+		return accountId;
+	}
+
+	private String nextId() {
+		return new String(accountIds[ThreadLocalRandom.current().nextInt(accounts)]);
+	}
+}
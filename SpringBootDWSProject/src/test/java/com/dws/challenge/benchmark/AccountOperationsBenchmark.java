@@ -0,0 +1,160 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.repository.SequencedAccountsRepository;
+import com.dws.challenge.repository.ShardedAccountsRepository;
+
+/**
+ * Throughput of every account operation of the stores, over account populations of
+ * different sizes and with the accounts picked uniformly or from a Zipfian distribution
+ * that concentrates the load on a few hot accounts. Thread counts are varied by
+ * {@link AccountBenchmarkSuite}, which also adds the gc profiler and writes JSON results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountOperationsBenchmark {
+
+	private static final long AMOUNT = 100;
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000000");
+
+	@Param({ "in-memory", "lock-free", "sharded", "sequencer" })
+	public String store;
+
+	@Param({ "1000", "1000000" })
+	public int accounts;
+
+	@Param({ "uniform", "zipfian" })
+	public String distribution;
+
+	private AccountsRepository repository;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator zipfian;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		repository = newRepository(store);
+		accountIds = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountIds[i] = Integer.toString(i);
+			repository.createAccount(new Account(accountIds[i], INITIAL_BALANCE));
+		}
+		zipfian = "zipfian".equals(distribution) ? new ZipfianGenerator(accounts) : null;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		close(repository);
+	}
+
+	@Benchmark
+	public Account getAccount() {
+		return repository.getAccount(accountIds[pick()]);
+	}
+
+	@Benchmark
+	public Account deposit() throws Exception {
+		return repository.deposit(accountIds[pick()], AMOUNT);
+	}
+
+	@Benchmark
+	public Account withdraw() throws Exception {
+		return repository.withdraw(accountIds[pick()], AMOUNT);
+	}
+
+	@Benchmark
+	public void transferMoney() throws Exception {
+		int from = pick();
+		int to = pick();
+		if (from == to) {
+			to = (to + 1) % accounts;
+		}
+		repository.transferMoney(accountIds[from], accountIds[to], AMOUNT);
+	}
+
+	@Benchmark
+	public void createAccount(CreateState state) throws Exception {
+		state.repository.createAccount(new Account(Long.toString(state.nextId.getAndIncrement()), INITIAL_BALANCE));
+	}
+
+	private int pick() {
+		return zipfian == null ? ThreadLocalRandom.current().nextInt(accounts) : zipfian.nextInt();
+	}
+
+	static AccountsRepository newRepository(String store) {
+		if ("lock-free".equals(store)) {
+			return new LockFreeAccountsRepository(new TransferContentionBenchmark.SilentNotificationService());
+		}
+		if ("sharded".equals(store)) {
+			return new ShardedAccountsRepository(new TransferContentionBenchmark.SilentNotificationService(), 0);
+		}
+		if ("sequencer".equals(store)) {
+			return new SequencedAccountsRepository(new TransferContentionBenchmark.SilentNotificationService(), 1024);
+		}
+		return new AccountsRepositoryInMemory(new AccountLockManager(64, 500), new TransferContentionBenchmark.SilentNotificationService());
+	}
+
+	/**
+	 * close(..) stops the threads of a sharded or sequencer store, the other stores hold none.
+	 */
+	static void close(AccountsRepository repository) {
+		if (repository instanceof ShardedAccountsRepository sharded) {
+			sharded.close();
+		}
+		if (repository instanceof SequencedAccountsRepository sequencer) {
+			sequencer.close();
+		}
+	}
+
+	/**
+	 * CreateState starts every iteration with an empty store, so createAccount measures
+	 * inserts into a store of a bounded size instead of one that grows for the whole run.
+	 */
+	@State(Scope.Benchmark)
+	public static class CreateState {
+
+		private AccountsRepository repository;
+
+		private final AtomicLong nextId = new AtomicLong();
+
+		@Setup(Level.Iteration)
+		public void setUp(AccountOperationsBenchmark benchmark) {
+			repository = newRepository(benchmark.store);
+			nextId.set(0);
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() {
+			close(repository);
+		}
+	}
+}
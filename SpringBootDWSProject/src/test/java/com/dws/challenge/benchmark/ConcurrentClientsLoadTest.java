@@ -0,0 +1,128 @@
+package com.dws.challenge.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of a running application with many concurrent clients, used to compare request
+ * serving on Tomcat's worker pool with accounts.virtual-threads.enabled=true. Every client
+ * keeps exactly one request in flight, alternating a GET of an account and a transfer
+ * between two accounts, until the run ends. Requests are sent asynchronously, so the
+ * clients do not need a thread each.
+ *
+ * Start the application with server.tomcat.max-connections above the client count, e.g.
+ * --server.tomcat.max-connections=12000 --notifications.overflow-policy=DROP.
+ *
+ * Usage: ConcurrentClientsLoadTest [base url, default http://localhost:18080] [clients,
+ * default 10000] [seconds, default 30] [accounts, default 1000]
+ */
+public class ConcurrentClientsLoadTest {
+
+	// account ids are numeric; start high enough not to collide with accounts created by hand
+	private static final long FIRST_ACCOUNT_ID = 900_000_000L;
+
+	private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+
+	private final String baseUrl;
+
+	private final int accounts;
+
+	private final LongAdder completed = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder latencyNanos = new LongAdder();
+
+	private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+	private volatile long deadline;
+
+	private ConcurrentClientsLoadTest(String baseUrl, int accounts) {
+		this.baseUrl = baseUrl;
+		this.accounts = accounts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:18080";
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		int accounts = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+		ConcurrentClientsLoadTest loadTest = new ConcurrentClientsLoadTest(baseUrl, accounts);
+		loadTest.createAccounts();
+		loadTest.run(clients, seconds);
+	}
+
+	private void createAccounts() throws Exception {
+		for (int i = 0; i < accounts; i++) {
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/accounts"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString("{\"accountId\":\"" + accountId(i) + "\",\"balance\":1000000000}"))
+					.build();
+			HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() >= 400) {
+				throw new IllegalStateException("Could not create account " + accountId(i) + ": " + response.body());
+			}
+		}
+	}
+
+	private void run(int clients, int seconds) throws Exception {
+		long started = System.nanoTime();
+		deadline = started + Duration.ofSeconds(seconds).toNanos();
+		CompletableFuture<?>[] runs = new CompletableFuture<?>[clients];
+		for (int i = 0; i < clients; i++) {
+			CompletableFuture<Void> done = new CompletableFuture<>();
+			next(done, i % 2 == 0);
+			runs[i] = done;
+		}
+		CompletableFuture.allOf(runs).join();
+		double elapsed = (System.nanoTime() - started) / 1e9;
+
+		long requests = completed.sum();
+		System.out.printf("clients=%d seconds=%.1f requests=%d failed=%d throughput=%.0f req/s mean=%.1f ms max=%.1f ms%n",
+				clients, elapsed, requests, failed.sum(), requests / elapsed,
+				requests == 0 ? 0 : latencyNanos.sum() / 1e6 / requests, maxLatencyNanos.get() / 1e6);
+	}
+
+	private void next(CompletableFuture<Void> done, boolean read) {
+		if (System.nanoTime() >= deadline) {
+			done.complete(null);
+			return;
+		}
+		long sent = System.nanoTime();
+		httpClient.sendAsync(request(read), HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+			long latency = System.nanoTime() - sent;
+			if (error != null || response.statusCode() >= 400) {
+				failed.increment();
+			} else {
+				completed.increment();
+				latencyNanos.add(latency);
+				maxLatencyNanos.accumulateAndGet(latency, Math::max);
+			}
+			next(done, !read);
+		});
+	}
+
+	private HttpRequest request(boolean read) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(accounts);
+		if (read) {
+			return HttpRequest.newBuilder(URI.create(baseUrl + "/v1/accounts/" + accountId(from)))
+					.timeout(Duration.ofMinutes(2)).build();
+		}
+		int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/v1/accounts/transfer/" + accountId(from) + "/" + accountId(to) + "/1.00"))
+				.timeout(Duration.ofMinutes(2)).build();
+	}
+
+	private static long accountId(int index) {
+		return FIRST_ACCOUNT_ID + index;
+	}
+}
@@ -0,0 +1,78 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Cost of the accounts.lock.wait and accounts.lock.hold timers, recorded on every stripe
+ * acquire and release. Compares the in-memory store without meters (an empty composite
+ * registry, as in the lock manager's two-argument constructor) against a Prometheus
+ * registry, with and without percentile histograms. Run it through
+ * {@link AccountBenchmarkSuite} with -Djmh.args=LockMetricsBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockMetricsBenchmark {
+
+	private static final int ACCOUNTS = 1000;
+
+	private static final long AMOUNT = 100;
+
+	@Param({ "none", "prometheus", "prometheus-histograms" })
+	public String registry;
+
+	private AccountsRepositoryInMemory repository;
+
+	private String[] accountIds;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		AccountLockManager lockManager = "none".equals(registry) ? new AccountLockManager(64, 500)
+				: new AccountLockManager(64, 500, new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+						"prometheus-histograms".equals(registry));
+		repository = new AccountsRepositoryInMemory(lockManager, new TransferContentionBenchmark.SilentNotificationService());
+		accountIds = new String[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountIds[i] = Integer.toString(i);
+			repository.createAccount(new Account(accountIds[i], new BigDecimal("1000000000000")));
+		}
+	}
+
+	@Benchmark
+	public Account deposit() throws Exception {
+		return repository.deposit(accountIds[ThreadLocalRandom.current().nextInt(ACCOUNTS)], AMOUNT);
+	}
+
+	@Benchmark
+	public void transferMoney() throws Exception {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(ACCOUNTS);
+		int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+		repository.transferMoney(accountIds[from], accountIds[to], AMOUNT);
+	}
+}
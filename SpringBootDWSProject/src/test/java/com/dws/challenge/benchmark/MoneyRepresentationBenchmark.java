@@ -0,0 +1,66 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.dws.challenge.domain.MoneyUnits;
+
+/**
+ * Compares the BigDecimal balance arithmetic the stores used to do on every deposit and
+ * withdraw with the long minor unit arithmetic they do now. Run with the gc profiler to
+ * see the allocation rate of both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyRepresentationBenchmark {
+
+	private final BigDecimal decimalAmount = new BigDecimal("12.34");
+
+	private final long minorAmount = 1234;
+
+	private BigDecimal decimalBalance = new BigDecimal("1000000.00");
+
+	private long minorBalance = 100000000;
+
+	@Benchmark
+	public BigDecimal bigDecimalDepositWithdraw() {
+		BigDecimal balance = decimalBalance.add(decimalAmount);
+		if (decimalAmount.signum() == -1 || decimalAmount.compareTo(balance) > 0) {
+			throw new IllegalStateException();
+		}
+		decimalBalance = balance.subtract(decimalAmount);
+		return decimalBalance;
+	}
+
+	@Benchmark
+	public long minorUnitsDepositWithdraw() {
+		long balance = MoneyUnits.add(minorBalance, minorAmount);
+		if (minorAmount < 0 || minorAmount > balance) {
+			throw new IllegalStateException();
+		}
+		minorBalance = MoneyUnits.subtract(balance, minorAmount);
+		return minorBalance;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(MoneyRepresentationBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,75 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.journal.AccountJournal;
+import com.dws.challenge.journal.FsyncPolicy;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.JournaledAccountsRepository;
+
+/**
+ * Measures how long the journaled store takes to recover N accounts, once by replaying the
+ * whole journal and once from a snapshot plus a journal tail of T deposits. Recovery is a
+ * single cold run, so this is a plain main rather than a JMH benchmark.
+ *
+ * Usage: RecoveryTimeBenchmark [accounts, default 1000000] [tail records, default 100000]
+ */
+public class RecoveryTimeBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int tail = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+		Path directory = Files.createTempDirectory("dws-recovery");
+		try {
+			AccountJournal journal = journal(directory);
+			JournaledAccountsRepository repository = open(journal);
+			for (int i = 0; i < accounts; i++) {
+				repository.createAccount(new Account(String.valueOf(i), BigDecimal.TEN));
+			}
+			journal.close();
+			repository = null;
+
+			long started = System.nanoTime();
+			journal = journal(directory);
+			repository = open(journal);
+			System.out.printf("journal replay of %d accounts: %d ms%n", accounts, (System.nanoTime() - started) / 1_000_000);
+
+			started = System.nanoTime();
+			repository.snapshot();
+			System.out.printf("snapshot of %d accounts: %d ms%n", accounts, (System.nanoTime() - started) / 1_000_000);
+			for (int i = 0; i < tail; i++) {
+				repository.deposit(String.valueOf(i % accounts), 1);
+			}
+			journal.close();
+			repository = null;
+			System.gc();
+
+			started = System.nanoTime();
+			journal = journal(directory);
+			repository = open(journal);
+			System.out.printf("snapshot load plus %d tail records: %d ms%n", tail, (System.nanoTime() - started) / 1_000_000);
+			journal.close();
+		} finally {
+			try (Stream<Path> files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	private static AccountJournal journal(Path directory) {
+		return new AccountJournal(directory.toString(), 64, FsyncPolicy.INTERVAL, 10, 1000);
+	}
+
+	private static JournaledAccountsRepository open(AccountJournal journal) {
+		JournaledAccountsRepository repository = new JournaledAccountsRepository(new AccountLockManager(64, 500),
+				(account, description) -> {
+				}, journal, 0, 2);
+		repository.recover();
+		return repository;
+	}
+}
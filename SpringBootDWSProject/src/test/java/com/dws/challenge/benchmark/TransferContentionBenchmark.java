@@ -0,0 +1,126 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountLockManager;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.LockFreeAccountsRepository;
+import com.dws.challenge.repository.SequencedAccountsRepository;
+import com.dws.challenge.service.EmailNotificationService;
+
+/**
+ * Compares the striped ordered-lock transfer path with the CAS balance cells when every thread
+ * transfers into the same hot settlement account, or into accounts drawn from a Zipfian
+ * distribution. lock-free-hot is the CAS store with hot accounts on, promoted once they are
+ * contended rather than named up front. sequencer applies every transfer on one business
+ * thread fed through a ring buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class TransferContentionBenchmark {
+
+	private static final String HOT_ACCOUNT = "0";
+
+	private static final long AMOUNT = 100;
+
+	@Param({ "ordered-lock", "lock-free", "lock-free-hot", "sequencer" })
+	public String store;
+
+	@Param({ "1024" })
+	public int accounts;
+
+	@Param({ "64" })
+	public int stripes;
+
+	@Param({ "8" })
+	public int hotSlots;
+
+	private AccountsRepository repository;
+
+	private ZipfianGenerator zipfian;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		if ("lock-free".equals(store)) {
+			repository = new LockFreeAccountsRepository(new SilentNotificationService());
+		} else if ("sequencer".equals(store)) {
+			repository = new SequencedAccountsRepository(new SilentNotificationService(), 1024);
+		} else if ("lock-free-hot".equals(store)) {
+			repository = new LockFreeAccountsRepository(new SilentNotificationService(), hotSlots, "", 100);
+		} else {
+			repository = new AccountsRepositoryInMemory(new AccountLockManager(stripes, 500), new SilentNotificationService());
+		}
+		repository.createAccount(new Account(HOT_ACCOUNT, BigDecimal.ZERO));
+		for (int i = 1; i <= accounts; i++) {
+			repository.createAccount(new Account(Integer.toString(i), new BigDecimal("1000000000000")));
+		}
+		zipfian = new ZipfianGenerator(accounts);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		AccountOperationsBenchmark.close(repository);
+	}
+
+	@Benchmark
+	public void transferToHotAccount() throws Exception {
+		int from = 1 + ThreadLocalRandom.current().nextInt(accounts);
+		repository.transferMoney(Integer.toString(from), HOT_ACCOUNT, AMOUNT);
+	}
+
+	@Benchmark
+	public void transferBetweenRandomAccounts() throws Exception {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = 1 + random.nextInt(accounts);
+		int to = 1 + random.nextInt(accounts);
+		if (from != to) {
+			repository.transferMoney(Integer.toString(from), Integer.toString(to), AMOUNT);
+		}
+	}
+
+	@Benchmark
+	public void transferToZipfianAccount() throws Exception {
+		int from = 1 + ThreadLocalRandom.current().nextInt(accounts);
+		int to = 1 + zipfian.nextInt();
+		if (from != to) {
+			repository.transferMoney(Integer.toString(from), Integer.toString(to), AMOUNT);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(TransferContentionBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	static class SilentNotificationService extends EmailNotificationService {
+
+		@Override
+		public void notifyAboutTransfer(Account account, String transferDescription) {
+		}
+	}
+}
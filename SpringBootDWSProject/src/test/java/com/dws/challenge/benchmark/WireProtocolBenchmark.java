@@ -0,0 +1,89 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.cluster.ClusterRouter;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.wire.WireClient;
+import com.dws.challenge.wire.WireProtocol;
+import com.dws.challenge.wire.WireServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Deposits per second over one connection of the binary protocol, by how many requests the
+ * client has in flight before it waits for their responses. A depth of 1 is a round trip
+ * per request, like a client of the HTTP API without keep-alive pipelining.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireProtocolBenchmark {
+
+	private static final int REQUESTS = 1024;
+
+	@Param({ "1", "16", "256", "1024" })
+	public int depth;
+
+	@Param({ "in-memory", "lock-free" })
+	public String store;
+
+	private WireServer server;
+
+	private WireClient client;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		AccountsRepository repository = AccountOperationsBenchmark.newRepository(store);
+		for (int i = 0; i < 1000; i++) {
+			repository.createAccount(new Account(Integer.toString(i), BigDecimal.ZERO));
+		}
+		server = new WireServer(new AccountsService(repository, registry), new ClusterRouter("", "http://localhost:1", 16, 100),
+				registry, 0, 1, 65536, false);
+		client = new WireClient("localhost", server.getPort());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public long deposit() throws Exception {
+		long balances = 0;
+		for (int sent = 0; sent < REQUESTS; sent += depth) {
+			for (int i = 0; i < depth; i++) {
+				client.send(WireProtocol.DEPOSIT, Integer.toString((sent + i) % 1000), null, 1);
+			}
+			client.flush();
+			for (int i = 0; i < depth; i++) {
+				balances += WireClient.balanceOrThrow(client.receive());
+			}
+		}
+		return balances;
+	}
+}
@@ -0,0 +1,59 @@
+package com.dws.challenge.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ZipfianGenerator draws indexes in [0, items) where index 0 is the most popular and the
+ * popularity of index i falls off like 1 / (i + 1)^theta, as in the YCSB core workloads.
+ * theta = 0.99 sends roughly half of all draws to the hottest 1% of a million items.
+ *
+ * All state is computed up front, so one generator can be shared by every benchmark thread.
+ */
+public final class ZipfianGenerator {
+
+	public static final double DEFAULT_THETA = 0.99;
+
+	private final long items;
+
+	private final double theta;
+
+	private final double alpha;
+
+	private final double zetan;
+
+	private final double eta;
+
+	public ZipfianGenerator(long items) {
+		this(items, DEFAULT_THETA);
+	}
+
+	public ZipfianGenerator(long items, double theta) {
+		this.items = items;
+		this.theta = theta;
+		this.alpha = 1.0 / (1.0 - theta);
+		this.zetan = zeta(items, theta);
+		double zeta2 = zeta(2, theta);
+		this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+	}
+
+	public int nextInt() {
+		double u = ThreadLocalRandom.current().nextDouble();
+		double uz = u * zetan;
+		if (uz < 1.0) {
+			return 0;
+		}
+		if (uz < 1.0 + Math.pow(0.5, theta)) {
+			return 1;
+		}
+		long index = (long) (items * Math.pow(eta * u - eta + 1, alpha));
+		return (int) Math.min(index, items - 1);
+	}
+
+	private static double zeta(long n, double theta) {
+		double sum = 0;
+		for (long i = 1; i <= n; i++) {
+			sum += 1 / Math.pow(i, theta);
+		}
+		return sum;
+	}
+}